@@ -0,0 +1,50 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, so that the allocation rate per page is reported 
+ * along with the throughput.
+ * The arguments are those of the JMH command line (e.g., a regular expression that selects the 
+ * benchmarks, or {@code -p category=list}).
+ */
+public class BenchmarkMain {
+
+	/**
+	 * Runs the benchmarks.
+	 * @param args The JMH command line.
+	 * @throws CommandLineOptionException when the command line is not valid.
+	 * @throws RunnerException when a benchmark fails.
+	 */
+	public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+		new Runner(new OptionsBuilder().parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class).build()).run();
+	}
+
+}
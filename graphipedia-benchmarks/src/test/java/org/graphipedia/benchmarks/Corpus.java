@@ -0,0 +1,261 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.graphipedia.wikipedia.DisambiguationPages;
+import org.graphipedia.wikipedia.InfoboxTemplates;
+import org.graphipedia.wikipedia.Namespace;
+import org.graphipedia.wikipedia.Namespaces;
+
+/**
+ * The corpus of the benchmarks: representative pages of a Wikipedia edition, grouped by category, 
+ * with the namespaces, the infobox templates and the disambiguation pages they are parsed with.
+ * The pages are bundled in the {@code corpus} directory of the test resources, and listed in 
+ * {@code corpus/pages.tsv} (category, title and file of each page).
+ */
+public final class Corpus {
+
+	/**
+	 * The stubs: short pages with a few links.
+	 */
+	public static final String STUB = "stub";
+
+	/**
+	 * The long list pages, with hundreds of links.
+	 */
+	public static final String LIST = "list";
+
+	/**
+	 * The articles with many references, which are stripped before the links are extracted.
+	 */
+	public static final String REFERENCED = "referenced";
+
+	/**
+	 * The disambiguation pages.
+	 */
+	public static final String DISAMBIGUATION = "disambiguation";
+
+	/**
+	 * The articles with large infoboxes and nested templates.
+	 */
+	public static final String INFOBOX = "infobox";
+
+	/**
+	 * The directory of the corpus in the test resources.
+	 */
+	private static final String RESOURCE_DIRECTORY = "/corpus/";
+
+	/**
+	 * The names of the namespaces of the English edition, indexed by their identifier.
+	 */
+	private static final Object[][] NAMESPACES = {
+		{ Namespace.MEDIA, "Media" }, { Namespace.SPECIAL, "Special" }, { Namespace.MAIN, "" }, 
+		{ Namespace.TALK, "Talk" }, { Namespace.USER, "User" }, { Namespace.USER_TALK, "User talk" }, 
+		{ Namespace.WIKIPEDIA, "Wikipedia" }, { Namespace.WIKIPEDIA_TALK, "Wikipedia talk" }, 
+		{ Namespace.FILE, "File" }, { Namespace.FILE_TALK, "File talk" }, { Namespace.MEDIAWIKI, "MediaWiki" }, 
+		{ Namespace.TEMPLATE, "Template" }, { Namespace.TEMPLATE_TALK, "Template talk" }, { Namespace.HELP, "Help" }, 
+		{ Namespace.CATEGORY, "Category" }, { Namespace.CATEGORY_TALK, "Category talk" }, { Namespace.PORTAL, "Portal" }, 
+		{ Namespace.DRAFT, "Draft" }, { Namespace.MODULE, "Module" }
+	};
+
+	/**
+	 * A page of the corpus.
+	 */
+	public static final class Page {
+
+		/**
+		 * The title of the page.
+		 */
+		private final String title;
+
+		/**
+		 * The wiki code of the page.
+		 */
+		private final String text;
+
+		/**
+		 * Creates a new page.
+		 * @param title The title of the page.
+		 * @param text The wiki code of the page.
+		 */
+		private Page(String title, String text) {
+			this.title = title;
+			this.text = text;
+		}
+
+		/**
+		 * Returns the title of the page.
+		 * @return The title of the page.
+		 */
+		public String title() {
+			return this.title;
+		}
+
+		/**
+		 * Returns the wiki code of the page.
+		 * @return The wiki code of the page.
+		 */
+		public String text() {
+			return this.text;
+		}
+
+	}
+
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private Corpus() {
+	}
+
+	/**
+	 * Returns the pages of a category.
+	 * @param category The category of the pages (e.g., {@code STUB}).
+	 * @return The pages of the category, in the order of {@code corpus/pages.tsv}.
+	 * @throws IOException when the corpus cannot be read, or has no page of the category.
+	 */
+	public static List<Page> pages(String category) throws IOException {
+		List<Page> pages = new ArrayList<Page>();
+		for ( String line : lines("pages.tsv") ) {
+			String[] values = line.split("\t");
+			if ( values[0].equals(category) )
+				pages.add(new Page(values[1], text(values[2])));
+		}
+		if ( pages.isEmpty() )
+			throw new IOException("The corpus has no page of category " + category);
+		return pages;
+	}
+
+	/**
+	 * Returns the namespaces of the English edition.
+	 * @return The namespaces.
+	 */
+	public static Namespaces namespaces() {
+		Namespaces namespaces = new Namespaces();
+		for ( Object[] namespace : NAMESPACES )
+			namespaces.add(new Namespace((Integer)namespace[0], (String)namespace[1]));
+		return namespaces;
+	}
+
+	/**
+	 * Returns the infobox templates of the corpus.
+	 * @return The infobox templates.
+	 * @throws IOException when the corpus cannot be read.
+	 */
+	public static InfoboxTemplates infoboxTemplates() throws IOException {
+		InfoboxTemplates it = new InfoboxTemplates(null);
+		it.load(resourceFile(InfoboxTemplates.INFOBOX_TEMPLATES_FILE));
+		return it;
+	}
+
+	/**
+	 * Returns the disambiguation pages of the corpus.
+	 * @return The disambiguation pages.
+	 * @throws IOException when the corpus cannot be read.
+	 */
+	public static DisambiguationPages disambiguationPages() throws IOException {
+		DisambiguationPages dp = new DisambiguationPages(null);
+		dp.load(resourceFile(DisambiguationPages.DISAMBIGUATION_PAGES_FILE));
+		return dp;
+	}
+
+	/**
+	 * Opens a resource of the corpus.
+	 * @param name The name of the resource.
+	 * @return The stream of the resource.
+	 * @throws IOException when the resource does not exist.
+	 */
+	private static InputStream open(String name) throws IOException {
+		InputStream input = Corpus.class.getResourceAsStream(RESOURCE_DIRECTORY + name);
+		if ( input == null )
+			throw new IOException("Missing resource " + RESOURCE_DIRECTORY + name);
+		return input;
+	}
+
+	/**
+	 * Reads the lines of a resource of the corpus.
+	 * @param name The name of the resource.
+	 * @return The lines of the resource.
+	 * @throws IOException when the resource cannot be read.
+	 */
+	private static List<String> lines(String name) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(open(name), "UTF-8"));
+		try {
+			String line;
+			while ( (line = reader.readLine()) != null )
+				if ( !line.isEmpty() )
+					lines.add(line);
+		} finally {
+			reader.close();
+		}
+		return lines;
+	}
+
+	/**
+	 * Reads the whole text of a resource of the corpus.
+	 * @param name The name of the resource.
+	 * @return The text of the resource.
+	 * @throws IOException when the resource cannot be read.
+	 */
+	private static String text(String name) throws IOException {
+		StringBuilder text = new StringBuilder();
+		InputStreamReader reader = new InputStreamReader(open(name), "UTF-8");
+		try {
+			char[] buffer = new char[1 << 16];
+			int n;
+			while ( (n = reader.read(buffer)) >= 0 )
+				text.append(buffer, 0, n);
+		} finally {
+			reader.close();
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Copies a resource of the corpus to a temporary file, for the classes that load their data from a file.
+	 * @param name The name of the resource.
+	 * @return The temporary file, deleted when the JVM exits.
+	 * @throws IOException when the resource cannot be copied.
+	 */
+	private static File resourceFile(String name) throws IOException {
+		File file = File.createTempFile("corpus-", "-" + name);
+		file.deleteOnExit();
+		InputStream input = open(name);
+		try {
+			Files.copy(input, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			input.close();
+		}
+		return file;
+	}
+
+}
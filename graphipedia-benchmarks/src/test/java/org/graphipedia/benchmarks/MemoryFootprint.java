@@ -0,0 +1,222 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.graphipedia.synthetic.SyntheticDumpSettings;
+import org.graphipedia.synthetic.SyntheticPage;
+import org.graphipedia.synthetic.SyntheticWiki;
+import org.graphipedia.wikipedia.Article;
+import org.graphipedia.wikipedia.Category;
+import org.graphipedia.wikipedia.DisambiguationPages;
+import org.graphipedia.wikipedia.GeotagStore;
+import org.graphipedia.wikipedia.InfoboxTemplates;
+import org.graphipedia.wikipedia.Namespace;
+import org.graphipedia.wikipedia.Namespaces;
+import org.graphipedia.wikipedia.Page;
+import org.graphipedia.wikipedia.parser.WikiTextParser;
+import org.graphipedia.wikipedia.parser.WikiTextParserResult;
+import org.openjdk.jol.info.GraphLayout;
+import org.openjdk.jol.vm.VM;
+
+/**
+ * Measures the memory retained by the data structures that the import keeps on the heap, built from synthetic 
+ * editions of increasing size (see {@link SyntheticWiki}): the in-memory index of the nodes of 
+ * {@link org.graphipedia.dataimport.ImportGraph}, the geotags, the disambiguation pages, and the sets of links 
+ * returned by {@link WikiTextParser}.
+ * The retained bytes are measured with JOL, by walking the graph of the objects reachable from each structure, 
+ * and are reported as a table, per page and per entry (node, geotag, disambiguation page or link).
+ * The links are only kept for the page being parsed, so they are measured over a sample of the articles.
+ * The arguments are the numbers of pages of the editions, separated by commas (default: {@code 1000000,5000000,10000000}).
+ */
+public class MemoryFootprint {
+
+	/**
+	 * The name of the option that sets the number of articles whose sets of links are measured.
+	 */
+	public static final String LINK_SAMPLE_OPTION = "graphipedia.footprint.linkSample";
+
+	/**
+	 * The default numbers of pages of the editions.
+	 */
+	private static final String DEFAULT_PAGES = "1000000,5000000,10000000";
+
+	/**
+	 * The code of the language of the editions.
+	 */
+	private static final String LANGUAGE = "en";
+
+	/**
+	 * The header of the table.
+	 */
+	private static final String[] HEADER = new String[] { "pages", "structure", "entries", "retained", "bytes/page", "bytes/entry" };
+
+	/**
+	 * The number of articles whose sets of links are measured.
+	 */
+	private final int linkSample;
+
+	/**
+	 * The rows of the table, one per structure and edition.
+	 */
+	private final List<String[]> rows;
+
+	/**
+	 * Creates the benchmark.
+	 * @param linkSample The number of articles whose sets of links are measured.
+	 */
+	public MemoryFootprint(int linkSample) {
+		this.linkSample = linkSample;
+		this.rows = new ArrayList<String[]>();
+	}
+
+	/**
+	 * Runs the benchmark.
+	 * @param args The numbers of pages of the editions, separated by commas.
+	 * @throws IOException when the disambiguation pages cannot be written to a temporary file.
+	 */
+	public static void main(String[] args) throws IOException {
+		String pages = args.length > 0 && !args[0].trim().isEmpty() ? args[0] : DEFAULT_PAGES;
+		MemoryFootprint footprint = new MemoryFootprint(Integer.parseInt(System.getProperty(LINK_SAMPLE_OPTION, "100000")));
+		System.out.println(VM.current().details());
+		for ( String size : pages.split(",") )
+			footprint.measure(Integer.parseInt(size.trim()));
+		System.out.println(footprint.table());
+	}
+
+	/**
+	 * Builds the data structures of a synthetic edition and measures the memory they retain.
+	 * @param size The number of pages of the edition.
+	 * @throws IOException when the disambiguation pages cannot be written to a temporary file.
+	 */
+	public void measure(int size) throws IOException {
+		Properties properties = new Properties();
+		properties.putAll(System.getProperties());
+		properties.setProperty(SyntheticDumpSettings.PAGES_OPTION, Integer.toString(size));
+		SyntheticDumpSettings settings = new SyntheticDumpSettings();
+		settings.load(properties);
+		SyntheticWiki wiki = new SyntheticWiki(settings, LANGUAGE, "Category:Disambiguation pages", 
+				"Category:Infobox templates");
+		Namespaces ns = new Namespaces();
+		ns.add(new Namespace(Namespace.MAIN, ""));
+		ns.add(new Namespace(Namespace.CATEGORY, "Category"));
+		WikiTextParser parser = new WikiTextParser(ns, new InfoboxTemplates(null), new DisambiguationPages(null));
+
+		// the nodes are indexed as by NodeCreator, the geotags and the disambiguation pages as by ExtractData.
+		Map<String, Page> inMemoryIndex = new HashMap<String, Page>();
+		GeotagStore.Builder geotags = new GeotagStore.Builder();
+		File dpFile = File.createTempFile("disambiguation-pages", ".txt");
+		dpFile.deleteOnExit();
+		BufferedWriter dpWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(dpFile), "UTF-8"));
+		List<WikiTextParserResult> linkSets = new ArrayList<WikiTextParserResult>();
+		long dpPages = 0;
+		long links = 0;
+		long nodeId = 0;
+		for ( int i = 0; i < wiki.pages(); i += 1 ) {
+			SyntheticPage page = wiki.page(i, LANGUAGE);
+			inMemoryIndex.put(page.title(), new Article(page.title(), LANGUAGE, Long.toString(page.id()), nodeId++, 
+					page.redirect() != null, page.infobox()));
+			if ( page.coordinates() != null )
+				geotags.add((int)page.id(), "earth", page.coordinates()[0], page.coordinates()[1], page.geotagType());
+			if ( page.disambiguation() ) {
+				dpWriter.write(page.title());
+				dpWriter.newLine();
+				dpPages += 1;
+			}
+			if ( page.redirect() == null && linkSets.size() < linkSample ) {
+				WikiTextParserResult result = parser.parse(page.title(), page.text());
+				linkSets.add(result);
+				links += result.links().size();
+			}
+		}
+		dpWriter.close();
+		for ( int i = 0; i < wiki.categories(); i += 1 ) {
+			SyntheticPage category = wiki.category(i);
+			String title = "Category:" + category.title();
+			inMemoryIndex.put(title, new Category(title, LANGUAGE, Long.toString(category.id()), nodeId++, false));
+		}
+		addRow(size, "inMemoryIndex", size, inMemoryIndex.size(), GraphLayout.parseInstance(inMemoryIndex).totalSize());
+		inMemoryIndex = null;
+
+		GeotagStore geotagStore = geotags.build();
+		geotags = null;
+		addRow(size, "geotags", size, geotagStore.size(), GraphLayout.parseInstance(geotagStore).totalSize());
+		geotagStore = null;
+
+		DisambiguationPages dp = new DisambiguationPages(null);
+		dp.load(dpFile);
+		dpFile.delete();
+		addRow(size, "disambiguationPages", size, dpPages, GraphLayout.parseInstance(dp).totalSize());
+		dp = null;
+
+		addRow(size, "linkSets (" + linkSets.size() + " articles)", linkSets.size(), links, 
+				GraphLayout.parseInstance(linkSets).totalSize());
+	}
+
+	/**
+	 * Returns the table of the measures, one row per structure and edition.
+	 * @return The table of the measures.
+	 */
+	public String table() {
+		List<String[]> lines = new ArrayList<String[]>();
+		lines.add(HEADER);
+		lines.addAll(rows);
+		int[] widths = new int[HEADER.length];
+		for ( String[] line : lines )
+			for ( int i = 0; i < line.length; i += 1 )
+				widths[i] = Math.max(widths[i], line[i].length());
+		StringBuilder table = new StringBuilder();
+		for ( String[] line : lines ) {
+			for ( int i = 0; i < line.length; i += 1 ) {
+				String format = i == 1 ? "%-" + widths[i] + "s" : "%" + widths[i] + "s";
+				table.append(i == 0 ? "" : "  ").append(String.format(format, line[i]));
+			}
+			table.append('\n');
+		}
+		return table.toString();
+	}
+
+	/**
+	 * Adds a row to the table.
+	 * @param size The number of pages of the edition.
+	 * @param structure The name of the data structure.
+	 * @param pages The number of pages whose entries are in the structure.
+	 * @param entries The number of entries of the structure.
+	 * @param retained The bytes retained by the structure.
+	 */
+	private void addRow(int size, String structure, long pages, long entries, long retained) {
+		rows.add(new String[] { Integer.toString(size), structure, Long.toString(entries), Long.toString(retained), 
+				String.format("%.1f", pages == 0 ? 0.0 : retained / (double)pages), 
+				String.format("%.1f", entries == 0 ? 0.0 : retained / (double)entries) });
+	}
+
+}
@@ -0,0 +1,188 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.graphipedia.wikipedia.DisambiguationPages;
+import org.graphipedia.wikipedia.InfoboxTemplates;
+import org.graphipedia.wikipedia.Namespaces;
+import org.graphipedia.wikipedia.parser.InfoboxParser;
+import org.graphipedia.wikipedia.parser.IntroductionParser;
+import org.graphipedia.wikipedia.parser.WikiTextParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks of the parsing of the text of a Wikipedia page: the extraction of the links 
+ * ({@link WikiTextParser}), of the infobox ({@link InfoboxParser}) and of the introduction 
+ * ({@link IntroductionParser}), and the resolution of the namespaces of the link targets 
+ * ({@link Namespaces#wikipediaPageNamespace(String)}).
+ * Each operation parses one page of the category given by {@code category}, the pages of the 
+ * category being parsed in turn; the throughput is therefore in pages per second, and the 
+ * allocation rate reported by the GC profiler ({@code gc.alloc.rate.norm}) in bytes per page.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WikiTextParserBenchmark {
+
+	/**
+	 * The links in the wiki code of a page, as matched by {@link WikiTextParser}.
+	 */
+	private static final Pattern LINK_PATTERN = Pattern.compile("\\[\\[(.+?)\\]\\]");
+
+	/**
+	 * The category of the parsed pages (see {@link Corpus}).
+	 */
+	@Param({ Corpus.STUB, Corpus.LIST, Corpus.REFERENCED, Corpus.DISAMBIGUATION, Corpus.INFOBOX })
+	public String category;
+
+	/**
+	 * The pages of the category.
+	 */
+	private List<Corpus.Page> pages;
+
+	/**
+	 * The targets of the links of each page, without the anchor texts.
+	 */
+	private List<List<String>> linkTargets;
+
+	/**
+	 * The index of the next page to parse.
+	 */
+	private int next;
+
+	/**
+	 * The namespaces.
+	 */
+	private Namespaces ns;
+
+	/**
+	 * The parser of the links.
+	 */
+	private WikiTextParser wikiTextParser;
+
+	/**
+	 * The parser of the infoboxes.
+	 */
+	private InfoboxParser infoboxParser;
+
+	/**
+	 * The parser of the introductions.
+	 */
+	private IntroductionParser introductionParser;
+
+	/**
+	 * Loads the pages of the category and creates the parsers.
+	 * @throws IOException when the corpus cannot be read.
+	 */
+	@Setup
+	public void setup() throws IOException {
+		this.pages = Corpus.pages(category);
+		this.linkTargets = new ArrayList<List<String>>();
+		for ( Corpus.Page page : pages ) {
+			List<String> targets = new ArrayList<String>();
+			Matcher matcher = LINK_PATTERN.matcher(page.text());
+			while ( matcher.find() ) {
+				String target = matcher.group(1);
+				int bar = target.indexOf('|');
+				targets.add(bar < 0 ? target : target.substring(0, bar));
+			}
+			linkTargets.add(targets);
+		}
+		this.next = 0;
+		this.ns = Corpus.namespaces();
+		InfoboxTemplates it = Corpus.infoboxTemplates();
+		DisambiguationPages dp = Corpus.disambiguationPages();
+		this.wikiTextParser = new WikiTextParser(ns, it, dp);
+		this.infoboxParser = new InfoboxParser(it);
+		this.introductionParser = new IntroductionParser();
+	}
+
+	/**
+	 * Returns the index of the next page to parse.
+	 * @return The index of the page.
+	 */
+	private int nextPage() {
+		int page = next;
+		next = next + 1 == pages.size() ? 0 : next + 1;
+		return page;
+	}
+
+	/**
+	 * Extracts the links, the infobox and the introduction of a page, as done for each page of the dump.
+	 * @return The result of the parsing.
+	 */
+	@Benchmark
+	public Object wikiText() {
+		Corpus.Page page = pages.get(nextPage());
+		return wikiTextParser.parse(page.title(), page.text());
+	}
+
+	/**
+	 * Extracts the infobox of a page.
+	 * @return The infobox of the page, if any.
+	 */
+	@Benchmark
+	public Object infobox() {
+		return infoboxParser.parse(pages.get(nextPage()).text());
+	}
+
+	/**
+	 * Extracts the introduction of a page.
+	 * @return The introduction of the page, if any.
+	 */
+	@Benchmark
+	public Object introduction() {
+		return introductionParser.parse(pages.get(nextPage()).text());
+	}
+
+	/**
+	 * Resolves the namespaces of the targets of all the links of a page.
+	 * @param blackhole The sink of the namespaces.
+	 */
+	@Benchmark
+	public void namespaces(Blackhole blackhole) {
+		for ( String target : linkTargets.get(nextPage()) )
+			blackhole.consume(ns.wikipediaPageNamespace(target));
+	}
+
+}
@@ -32,6 +32,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 
 import org.apache.commons.io.FileUtils;
@@ -40,7 +41,15 @@ import org.graphipedia.dataextract.ExtractData;
 import org.graphipedia.dataimport.ImportCrossLinks;
 import org.graphipedia.dataimport.ImportGraph;
 import org.graphipedia.download.WikipediaEdition;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.ProgressReporter;
+import org.graphipedia.metrics.RunReport;
+import org.graphipedia.metrics.StageRecord;
+import org.graphipedia.pipeline.StageResource;
+import org.graphipedia.pipeline.StageScheduler;
+import org.graphipedia.pipeline.StageScheduler.Stage;
 import org.graphipedia.progress.CheckPoint;
+import org.graphipedia.progress.CheckPointFlag;
 import org.graphipedia.progress.LoggerFactory;
 import org.graphipedia.progress.ReadableTime;
 import org.graphipedia.wikipedia.Namespaces;
@@ -80,6 +89,16 @@ public class Graphipedia {
 	 */
 	public static final File NEO4J_DIR = new File(ROOT_DIR, "neo4j-db");
 	
+	/**
+	 * The directory where Graphipedia puts all the necessary files to import the Wikipedia editions.
+	 */
+	private File rootDirectory;
+
+	/**
+	 * The directory where the files of the Neo4j database are written.
+	 */
+	private File neo4jDirectory;
+
 	/**
 	 * The root categories of the disambiguation pages across all Wikipedia language editions.
 	 */
@@ -105,14 +124,40 @@ public class Graphipedia {
 	 * The settings of Graphipedia.
 	 */
 	private GraphipediaSettings settings;
+	
+	/**
+	 * The units of the import phase that have been imported into the Neo4j database since the last snapshot, 
+	 * as described by {@link CheckPoint#importUnit(CheckPointFlag, String)}.
+	 */
+	private List<String> pendingUnits;
 
 	/**
-	 * Creates a new instance of Graphipedia.
+	 * Creates a new instance of Graphipedia, that puts its files in {@link #ROOT_DIR}.
 	 */
 	public Graphipedia() {
+		this(ROOT_DIR);
+	}
+
+	/**
+	 * Creates a new instance of Graphipedia.
+	 * @param rootDirectory The directory where Graphipedia puts all the necessary files to import the Wikipedia editions; 
+	 * the files of the Neo4j database are written to its subdirectory {@code neo4j-db}.
+	 */
+	public Graphipedia(File rootDirectory) {
+		this.rootDirectory = rootDirectory;
+		this.neo4jDirectory = new File(rootDirectory, NEO4J_DIR.getName());
 		this.logger = LoggerFactory.createLogger("Graphipedia");
-		this.checkpoint = new CheckPoint(ROOT_DIR);
-		this.settings = new GraphipediaSettings(ROOT_DIR, NEO4J_DIR);
+		this.checkpoint = new CheckPoint(rootDirectory);
+		this.pendingUnits = new ArrayList<String>();
+		this.settings = new GraphipediaSettings(rootDirectory, neo4jDirectory);
+		this.settings.load(System.getProperties());
+		if ( settings.logFile() != null ) {
+			try {
+				LoggerFactory.logToFile(settings.logFile(), settings.logFileSize(), settings.logFileCount());
+			} catch (IOException e) {
+				logger.warning("Cannot write the log to " + settings.logFile() + ": " + e.getMessage());
+			}
+		}
 		this.dpRootCategories = new HashMap<String, String>();
 		this.itRootCategories = new HashMap<String, String>(); 
 		logger.info("Graphipedia started");
@@ -125,18 +170,8 @@ public class Graphipedia {
 	public static void main(String[] args) {
 		Graphipedia self = new Graphipedia();
 		Set<String> languageEditions = self.getLanguageEditions(args);
-		// Takes care of the creation of the root directory and 
-		//the directory that is supposed to host the Neo4j database.
-		self.rootDirectory();
-		// Loads the resources, namely the root categories of the disambiguation pages and infobox templates across all 
-		// Wikipedia language editions.
-		self.loadResources();
-		// Loads the checkpoint
-		self.loadCheckpoint();
-		
 		try {
-			// Starts the import.
-			self.importEditions(languageEditions);
+			self.run(languageEditions);
 		} catch (Exception e) {
 			self.logger.severe("Problem while importing the Wikipedia editions");
 			e.printStackTrace();
@@ -144,6 +179,93 @@ public class Graphipedia {
 		}
 	}
 	
+	/**
+	 * Imports the Wikipedia editions, resuming from the checkpoint if a previous import was interrupted.
+	 * @param languageEditions The set of the codes of the languages of the Wikipedia editions to import, 
+	 * or {@code null} to import all the editions.
+	 * @throws Exception when some error occurs.
+	 */
+	public void run(Set<String> languageEditions) throws Exception {
+		prepare();
+		// Reports the progress of the import periodically, until it ends.
+		ProgressReporter reporter = new ProgressReporter(MetricsRegistry.global(), logger, settings.progressInterval());
+		reporter.start();
+		try {
+			// Starts the import.
+			importEditions(languageEditions);
+		} finally {
+			reporter.stop();
+			writeRunReport();
+		}
+	}
+
+	/**
+	 * Writes the report of the stages that have run to the file set in the settings, and as a table to the log.
+	 */
+	private void writeRunReport() {
+		RunReport report = RunReport.global();
+		if ( report.records().isEmpty() )
+			return;
+		logger.info("Run report:\n" + report.table());
+		try {
+			report.write(settings.runReportFile());
+			logger.info("Run report written to " + settings.runReportFile().getAbsolutePath());
+		} catch (IOException e) {
+			logger.warning("Could not write the run report: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Prepares an import: the root directory is created, the resources and the checkpoint are loaded and the 
+	 * Neo4j database is restored as of the last unit of the import committed to the checkpoint.
+	 */
+	public void prepare() {
+		// Takes care of the creation of the root directory and 
+		//the directory that is supposed to host the Neo4j database.
+		rootDirectory();
+		// Loads the resources, namely the root categories of the disambiguation pages and infobox templates across all 
+		// Wikipedia language editions.
+		loadResources();
+		// Loads the checkpoint
+		loadCheckpoint();
+		// Restores the Neo4j database as of the last snapshot committed to the checkpoint.
+		restoreStore();
+	}
+
+	/**
+	 * Returns the settings of Graphipedia.
+	 * @return The settings of Graphipedia.
+	 */
+	public GraphipediaSettings settings() {
+		return this.settings;
+	}
+
+	/**
+	 * Returns the checkpoint information of Graphipedia.
+	 * @return The checkpoint information of Graphipedia.
+	 */
+	public CheckPoint checkpoint() {
+		return this.checkpoint;
+	}
+
+	/**
+	 * Returns the root category of the disambiguation pages of a Wikipedia edition.
+	 * @param languageCode The code of the language of the edition.
+	 * @return The root category of the disambiguation pages, or {@code null} if unknown.
+	 */
+	public String dpRootCategory(String languageCode) {
+		return this.dpRootCategories.get(languageCode);
+	}
+
+	/**
+	 * Returns the root category of the infobox templates of a Wikipedia edition.
+	 * @param languageCode The code of the language of the edition.
+	 * @return The root category of the infobox templates, or {@code null} if unknown.
+	 */
+	public String itRootCategory(String languageCode) {
+		return this.itRootCategories.get(languageCode);
+	}
+
 	/**
 	 * Returns the set of the language editions to import, as specified in the command-line arguments of Graphipedia, if any. 
 	 * @param args The command-line arguments of Graphipedia.
@@ -223,83 +345,196 @@ public class Graphipedia {
 	/**
 	 * Creates the root directory of Wikipedia, if it does not exist yet, and the
 	 * Neo4j directory as a subdirectory of the root directory.
+	 * If the root directory exists, the Neo4j directory is left to {@link #restoreStore()}.
 	 */
 	private void rootDirectory() {
-		if ( !ROOT_DIR.exists() ) {
-			if ( !ROOT_DIR.mkdir() ) {
-				logger.severe("Failed to create directory " + ROOT_DIR.getAbsolutePath());
+		if ( !rootDirectory.exists() ) {
+			if ( !rootDirectory.mkdir() ) {
+				logger.severe("Failed to create directory " + rootDirectory.getAbsolutePath());
 				System.exit(-1);
 			}
-			if (!NEO4J_DIR.mkdir()) {
-				logger.severe("Failed to create directory " + NEO4J_DIR.getAbsolutePath());
+			if (!neo4jDirectory.mkdir()) {
+				logger.severe("Failed to create directory " + neo4jDirectory.getAbsolutePath());
 				System.exit(-1);
 			}
 		}
-		else
-		{
-			try {
-				FileUtils.deleteDirectory(NEO4J_DIR);
-			} catch (IOException e) {
-				logger.severe("Failed to delete directory " + NEO4J_DIR.getAbsolutePath());
-				e.printStackTrace();
-				System.exit(-1);
-			}
-			if (!NEO4J_DIR.mkdir()) {
-				logger.severe("Failed to create directory " + NEO4J_DIR.getAbsolutePath());
-				System.exit(-1);
-			}
-		}	
+	}
+	
+	/**
+	 * Brings the Neo4j database back to the state of the last snapshot committed to the checkpoint, 
+	 * discarding whatever an interrupted import wrote after it.
+	 * If no unit has been committed, the Neo4j database is emptied.
+	 */
+	private void restoreStore() {
+		try {
+			new Neo4jConnector(settings, logger).restore(checkpoint.importedUnits());
+		} catch (IOException e) {
+			logger.severe("Failed to restore the Neo4j database " + neo4jDirectory.getAbsolutePath());
+			e.printStackTrace();
+			System.exit(-1);
+		}
+	}
+	
+	/**
+	 * Commits a unit of the import (the graph of an edition, the indexes or the cross-links of an edition).
+	 * The unit is committed with the next snapshot of the Neo4j database, which is taken once 
+	 * {@link GraphipediaSettings#snapshotUnits()} units are waiting to be committed (by default, right away), 
+	 * or else at the end of the phase of the unit (see {@link #snapshotImport(Neo4jConnector)}).
+	 * @param neo4jConnector The object used to connect to the Neo4j database.
+	 * @param flag The flag of the unit ({@link CheckPointFlag#graphImported}, {@link CheckPointFlag#indexesCreated} 
+	 * or {@link CheckPointFlag#crossLinksImported}).
+	 * @param languageCode The code of the language of the edition of the unit, if any.
+	 */
+	private synchronized void commitImport(Neo4jConnector neo4jConnector, CheckPointFlag flag, String languageCode) {
+		pendingUnits.add(CheckPoint.importUnit(flag, languageCode));
+		if ( pendingUnits.size() >= settings.snapshotUnits() )
+			snapshotImport(neo4jConnector);
+	}
+	
+	/**
+	 * Commits the units of the import imported since the last snapshot: the Neo4j database, which must be shut down, 
+	 * is saved to a new snapshot, then the units are written to the checkpoint and the previous snapshot is deleted.
+	 * If Graphipedia is shut down at any point, the database is restored from the last snapshot in the checkpoint, 
+	 * and the units imported after it are imported again.
+	 * @param neo4jConnector The object used to connect to the Neo4j database.
+	 */
+	private synchronized void snapshotImport(Neo4jConnector neo4jConnector) {
+		if ( pendingUnits.isEmpty() )
+			return;
+		int previousUnits = checkpoint.importedUnits();
+		int units = previousUnits + pendingUnits.size();
+		try {
+			neo4jConnector.snapshot(units, previousUnits);
+			checkpoint.addImportCommitted(pendingUnits, true);
+			neo4jConnector.deleteSnapshots(units);
+			pendingUnits.clear();
+		} catch (IOException e) {
+			logger.severe("Failed to commit the import to the Neo4j database " + neo4jDirectory.getAbsolutePath());
+			e.printStackTrace();
+			System.exit(-1);
+		}
 	}
 	
 	/**
 	 * Import all Wikipedia language editions to the Neo4j database.
+	 * The download, the data extraction and the graph import of each edition are stages run by a 
+	 * {@link StageScheduler}, so that the stages of different editions run concurrently: 
+	 * the editions are downloaded ({@link GraphipediaSettings#networkStages()} at a time) and their data 
+	 * extracted ({@link GraphipediaSettings#cpuStages()} at a time) while other editions are imported, 
+	 * one at a time, to the Neo4j database.
 	 * @param languageEditions The set of the codes of the languages of the Wikipedia editions to import.
 	 * @throws Exception when some error occurs.
 	 */
 	private void importEditions(Set<String> languageEditions) throws Exception {
 		long startTime = System.currentTimeMillis();
-		Neo4jConnector neo4jConnector = new Neo4jConnector(settings, logger);
-		BatchInserter inserter = neo4jConnector.connectToNeo4jInserter();
+		final Neo4jConnector neo4jConnector = new Neo4jConnector(settings, logger);
 		List<WikipediaEdition> wikipediaEditions = wikipediaEditions(languageEditions);
 		int nbEditions = wikipediaEditions.size();
 		int current = 0;
-		ExtractData extractData = null;
-		ImportGraph graphImporter = null;
-		Map<String, Namespaces> namespaces = new HashMap<String, Namespaces>();
+		final Map<String, Namespaces> namespaces = new ConcurrentHashMap<String, Namespaces>();
 		for ( WikipediaEdition edition : wikipediaEditions ) 
 			settings.addLanguage(edition.languageCode());
-		for ( WikipediaEdition edition : wikipediaEditions ) {
+		StageScheduler scheduler = new StageScheduler(settings.networkStages(), settings.cpuStages(), logger);
+		for ( final WikipediaEdition edition : wikipediaEditions ) {
 			current += 1;
-			String language = edition.language();
-			String languageCode = edition.languageCode();
-			String languageLocal = edition.languageLocal();
-			String suffix = languageCode.toUpperCase() + " " + current + "/" + nbEditions;
-			long editionStartTime = System.currentTimeMillis();
-			logger.info("Downloading the Wikipedia in " + language + " (" + languageLocal + ", " + languageCode.toUpperCase() + "), " + current + "/" + nbEditions);
-			if ( !edition.download(checkpoint, logger, settings.wikipediaEditionDirectory(languageCode) ) )
-				System.exit(-1);
-			extractData = new ExtractData(settings, languageCode, this.dpRootCategories.get(languageCode), 
-					this.itRootCategories.get(languageCode), checkpoint, suffix);
-			extractData.start();
-			extractData.join();
-			namespaces.put(languageCode, extractData.getNamespaces());
-			if ( graphImporter != null )
-				graphImporter.join(); // wait for the previous import to finish, if it's still running.
-			graphImporter = new ImportGraph(inserter, settings, languageCode, extractData.geotags(), 
-					suffix, editionStartTime);
-			graphImporter.start();
-			
-			
+			final String language = edition.language();
+			final String languageCode = edition.languageCode();
+			final String languageLocal = edition.languageLocal();
+			final String suffix = languageCode.toUpperCase() + " " + current + "/" + nbEditions;
+			final long[] editionStartTime = new long[1];
+			final Runnable[] download = new Runnable[1];
+			final StageRecord[] downloadRecord = new StageRecord[1];
+			final ExtractData[] extractData = new ExtractData[1];
+			Stage extractDependency;
+			if ( settings.streamThrough() ) {
+				// the data extraction starts as soon as the files to download are known, 
+				// while the files are downloaded in the pool of the network stages.
+				extractDependency = scheduler.submit("locate dump " + suffix, StageResource.network, new Runnable() {
+					@Override
+					public void run() {
+						editionStartTime[0] = System.currentTimeMillis();
+						logger.info("Downloading the Wikipedia in " + language + " (" + languageLocal + ", " + languageCode.toUpperCase() + "), " + suffix);
+						downloadRecord[0] = RunReport.global().start("download", languageCode);
+						download[0] = edition.prepareDownload(settings, checkpoint, logger);
+						if ( download[0] == null )
+							System.exit(-1);
+						downloadRecord[0].detach();
+					}
+				});
+				scheduler.submit("download " + suffix, StageResource.network, new Runnable() {
+					@Override
+					public void run() {
+						downloadRecord[0].attach();
+						download[0].run();
+						downloadRecord[0].end();
+					}
+				}, extractDependency);
+			}
+			else {
+				extractDependency = scheduler.submit("download " + suffix, StageResource.network, new Runnable() {
+					@Override
+					public void run() {
+						editionStartTime[0] = System.currentTimeMillis();
+						logger.info("Downloading the Wikipedia in " + language + " (" + languageLocal + ", " + languageCode.toUpperCase() + "), " + suffix);
+						StageRecord record = RunReport.global().start("download", languageCode);
+						if ( !edition.download(settings, checkpoint, logger) )
+							System.exit(-1);
+						record.end();
+					}
+				});
+			}
+			Stage extractStage = scheduler.submit("extract " + suffix, StageResource.cpu, new Runnable() {
+				@Override
+				public void run() {
+					StageRecord record = RunReport.global().start("extract", languageCode);
+					extractData[0] = new ExtractData(settings, languageCode, dpRootCategories.get(languageCode), 
+							itRootCategories.get(languageCode), checkpoint, suffix);
+					extractData[0].run();
+					namespaces.put(languageCode, extractData[0].getNamespaces());
+					record.end();
+				}
+			}, extractDependency);
+			scheduler.submit("import " + suffix, StageResource.store, new Runnable() {
+				@Override
+				public void run() {
+					if ( checkpoint.isGraphImported(languageCode) ) {
+						logger.info("The graph of the Wikipedia edition " + suffix + " is already imported");
+						extractData[0] = null;
+						return;
+					}
+					StageRecord record = RunReport.global().start("import", languageCode);
+					long storeSize = FileUtils.sizeOfDirectory(neo4jDirectory);
+					// the indexes are created once all the editions are imported.
+					BatchInserter inserter = neo4jConnector.connectToNeo4jInserterNoIndexes();
+					new ImportGraph(inserter, settings, languageCode, extractData[0].geotags(), 
+							suffix, editionStartTime[0]).run();
+					extractData[0] = null;
+					neo4jConnector.disconnectFromNeo4jInserter(inserter);
+					// the store is written by Neo4j rather than through streams.
+					record.add(StageRecord.Count.bytesWritten, FileUtils.sizeOfDirectory(neo4jDirectory) - storeSize);
+					record.end();
+					commitImport(neo4jConnector, CheckPointFlag.graphImported, languageCode);
+				}
+			}, extractStage);
+		}
+		scheduler.await(); // the cross-language links are imported once all the files are downloaded.
+		snapshotImport(neo4jConnector);
+		if ( !checkpoint.isIndexesCreated() ) {
+			StageRecord record = RunReport.global().start("indexes", null);
+			long storeSize = FileUtils.sizeOfDirectory(neo4jDirectory);
+			neo4jConnector.disconnectFromNeo4jInserter(neo4jConnector.connectToNeo4jInserter());
+			record.add(StageRecord.Count.bytesWritten, FileUtils.sizeOfDirectory(neo4jDirectory) - storeSize);
+			record.end();
+			commitImport(neo4jConnector, CheckPointFlag.indexesCreated, null);
+			snapshotImport(neo4jConnector);
 		}
-		if (graphImporter != null)
-			graphImporter.join();
-		neo4jConnector.disconnectFromNeo4jInserter(inserter);
 		importCrossLinks(neo4jConnector, namespaces);
 		long elapsed = System.currentTimeMillis() - startTime;
 		logger.info("Deleting the files downloaded from Wikimedia and the checkpoint file...");
 		for ( WikipediaEdition edition : wikipediaEditions ) 
 			FileUtils.deleteDirectory(settings.wikipediaEditionDirectory(edition.languageCode()));
 		this.checkpoint.getCheckPointFile().delete();
+		neo4jConnector.deleteSnapshots(-1);
 		logger.info(nbEditions + " Wikipedia editions imported in " + ReadableTime.readableTime(elapsed));
 	}
 	
@@ -325,14 +560,20 @@ public class Graphipedia {
 					extractors[k].join();
 			}
 			neo4jConnector.disconnectFromNeo4jReader(graphDb);
-			BatchInserter inserter = neo4jConnector.connectToNeo4jInserterNoIndexes();
 			for ( int i = 0; i < languages.length; i +=1 ) {
 				String suffix = languages[i].toUpperCase() + " " + (i+1) + "/" + languages.length;
+				if ( checkpoint.isCrossLinksImported(languages[i]) ) {
+					logger.info("The cross-language links of the Wikipedia edition " + suffix + " are already imported");
+					continue;
+				}
+				BatchInserter inserter = neo4jConnector.connectToNeo4jInserterNoIndexes();
 				ImportCrossLinks importer = new ImportCrossLinks(settings, inserter, languages[i], suffix);
 				importer.start();
 				importer.join();
+				neo4jConnector.disconnectFromNeo4jInserter(inserter);
+				commitImport(neo4jConnector, CheckPointFlag.crossLinksImported, languages[i]);
 			}
-			neo4jConnector.disconnectFromNeo4jInserter(inserter);
+			snapshotImport(neo4jConnector);
 		}
 		catch(InterruptedException e) {
 			logger.severe("Something wrong with the threads. Should not happen");
@@ -347,7 +588,7 @@ public class Graphipedia {
 	 * @param languageEditions The set of the codes of the languages of the Wikipedia editions to import.
 	 * @return The list of Wikipedia editions to import.
 	 */
-	private List<WikipediaEdition> wikipediaEditions(Set<String> languageEditions) {
+	public List<WikipediaEdition> wikipediaEditions(Set<String> languageEditions) {
 		List<WikipediaEdition> wikipediaEditions = new ArrayList<WikipediaEdition>();
 		ClassLoader classLoader = getClass().getClassLoader();
 		try {
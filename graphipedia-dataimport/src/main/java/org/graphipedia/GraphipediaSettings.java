@@ -23,11 +23,18 @@ package org.graphipedia;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
 
 import org.apache.tools.ant.DirectoryScanner;
+import org.graphipedia.download.DumpSource;
+import org.graphipedia.metrics.ProgressReporter;
+import org.graphipedia.wikipedia.parser.DumpInput;
 
 /**
  * The settings of Graphipedia.
@@ -50,6 +57,38 @@ public class GraphipediaSettings {
 	 */
 	public static final String WIKIPEDIA_GEOTAGS_FILE = "geo_tags.sql.gz";
 
+	/**
+	 * The suffix of the name of the file that contains the pages (identifier, namespace and title).
+	 */
+	public static final String WIKIPEDIA_PAGE_FILE = "page.sql.gz";
+
+	/**
+	 * The suffix of the name of the file that contains the links between pages.
+	 */
+	public static final String WIKIPEDIA_PAGELINKS_FILE = "pagelinks.sql.gz";
+
+	/**
+	 * The suffix of the name of the file that contains the categories of the pages.
+	 */
+	public static final String WIKIPEDIA_CATEGORYLINKS_FILE = "categorylinks.sql.gz";
+
+	/**
+	 * The suffix of the name of the file that contains the targets of the redirect pages.
+	 */
+	public static final String WIKIPEDIA_REDIRECT_FILE = "redirect.sql.gz";
+
+	/**
+	 * The suffix of the name of the file that contains the targets of the links, in the dumps where the 
+	 * links refer to their target by identifier.
+	 */
+	public static final String WIKIPEDIA_LINKTARGET_FILE = "linktarget.sql.gz";
+
+	/**
+	 * The suffix of the name of the file that contains the properties of the pages (e.g., whether a page is 
+	 * a disambiguation page).
+	 */
+	public static final String WIKIPEDIA_PAGE_PROPS_FILE = "page_props.sql.gz";
+
 	/**
 	 * The files that must be in the Wikipedia editions directories.
 	 */
@@ -57,7 +96,190 @@ public class GraphipediaSettings {
 			new String[]{WIKIPEDIA_XML_FILE, 
 					WIKIPEDIA_CROSSLINKS_FILE, WIKIPEDIA_GEOTAGS_FILE}; 
 
+	/**
+	 * The files that are needed to extract the links between pages without parsing the text of the pages.
+	 */
+	public final static String[] WIKIPEDIA_TOPOLOGY_INPUT_FILES = 
+			new String[]{WIKIPEDIA_PAGE_FILE, WIKIPEDIA_PAGELINKS_FILE, 
+					WIKIPEDIA_CATEGORYLINKS_FILE, WIKIPEDIA_REDIRECT_FILE, WIKIPEDIA_LINKTARGET_FILE};
+
+	/**
+	 * The files that are needed to obtain the disambiguation pages without using the MediaWiki API.
+	 */
+	public final static String[] WIKIPEDIA_DISAMBIGUATION_INPUT_FILES = 
+			new String[]{WIKIPEDIA_PAGE_FILE, WIKIPEDIA_PAGE_PROPS_FILE};
+
+	/**
+	 * The files that are needed to obtain the infobox templates without using the MediaWiki API.
+	 */
+	public final static String[] WIKIPEDIA_INFOBOX_INPUT_FILES = 
+			new String[]{WIKIPEDIA_PAGE_FILE, WIKIPEDIA_CATEGORYLINKS_FILE, WIKIPEDIA_LINKTARGET_FILE};
+
+	
+	/**
+	 * The name of the directory (in the root directory) where the spatial indexes are written.
+	 */
+	public static final String SPATIAL_INDEX_DIRECTORY = "spatial-index";
 	
+	/**
+	 * The name of the option that sets the number of threads that parse the SQL dump files.
+	 */
+	public static final String SQL_PARSER_THREADS_OPTION = "graphipedia.sqlParserThreads";
+
+	/**
+	 * The name of the option that sets whether only the topology of the graph (pages and links, without the 
+	 * rank, offset and anchors of the links) is imported.
+	 */
+	public static final String TOPOLOGY_ONLY_OPTION = "graphipedia.topologyOnly";
+
+	/**
+	 * The name of the option that sets where the disambiguation pages are obtained from: 
+	 * {@code API_SOURCE} or {@code DUMP_SOURCE}.
+	 */
+	public static final String DISAMBIGUATION_SOURCE_OPTION = "graphipedia.disambiguationSource";
+
+	/**
+	 * The name of the option that sets where the infobox templates are obtained from: 
+	 * {@code API_SOURCE} or {@code DUMP_SOURCE}.
+	 */
+	public static final String INFOBOX_SOURCE_OPTION = "graphipedia.infoboxSource";
+
+	/**
+	 * The name of the option that sets the URL of the MediaWiki API; {@code %s} is replaced by the code of the language.
+	 */
+	public static final String API_URL_OPTION = "graphipedia.apiUrl";
+
+	/**
+	 * The name of the option that sets the number of threads that send requests to the MediaWiki API.
+	 */
+	public static final String API_THREADS_OPTION = "graphipedia.apiThreads";
+
+	/**
+	 * The name of the option that sets the maximum number of requests per second sent to the MediaWiki API.
+	 */
+	public static final String API_REQUESTS_PER_SECOND_OPTION = "graphipedia.apiRequestsPerSecond";
+
+	/**
+	 * The name of the option that sets how long (in hours) the responses of the MediaWiki API are cached.
+	 */
+	public static final String API_CACHE_TTL_OPTION = "graphipedia.apiCacheTtlHours";
+
+	/**
+	 * The name of the option that sets the number of concurrent connections used to download a dump file.
+	 */
+	public static final String DOWNLOAD_CONNECTIONS_OPTION = "graphipedia.downloadConnections";
+
+	/**
+	 * The name of the option that enables the stream-through mode, where the dump files are read while they are downloaded.
+	 */
+	public static final String STREAM_THROUGH_OPTION = "graphipedia.streamThrough";
+
+	/**
+	 * The name of the option that sets the number of Wikipedia editions that are downloaded at the same time.
+	 */
+	public static final String NETWORK_STAGES_OPTION = "graphipedia.networkStages";
+
+	/**
+	 * The name of the option that sets the number of Wikipedia editions whose data are extracted at the same time.
+	 */
+	public static final String CPU_STAGES_OPTION = "graphipedia.cpuStages";
+
+	/**
+	 * The name of the option that sets the time (in seconds) between two summaries of the progress of the import.
+	 */
+	public static final String PROGRESS_INTERVAL_OPTION = "graphipedia.progressInterval";
+
+	/**
+	 * The name of the option that sets the file where the report of the run is written 
+	 * (see {@link org.graphipedia.metrics.RunReport}).
+	 */
+	public static final String RUN_REPORT_OPTION = "graphipedia.runReport";
+
+	/**
+	 * The name of the option that sets the number of the slowest pages to parse that are reported after 
+	 * the extraction of the links of a Wikipedia edition (see {@link org.graphipedia.metrics.SlowPages}).
+	 */
+	public static final String SLOW_PAGES_OPTION = "graphipedia.slowPages";
+
+	/**
+	 * The name of the option that sets the time (in milliseconds) within which the text of a page must be parsed, 
+	 * after which the page is parsed again by a simpler parser.
+	 */
+	public static final String PAGE_TIME_BUDGET_OPTION = "graphipedia.pageTimeBudget";
+
+	/**
+	 * The name of the option that sets the pattern of the names of the files where the messages of the log are 
+	 * written, in addition to the console (see {@link java.util.logging.FileHandler}).
+	 */
+	public static final String LOG_FILE_OPTION = "graphipedia.logFile";
+
+	/**
+	 * The name of the option that sets the size (in MB) at which a log file is rotated.
+	 */
+	public static final String LOG_FILE_SIZE_OPTION = "graphipedia.logFileMb";
+
+	/**
+	 * The name of the option that sets the number of log files kept by the rotation.
+	 */
+	public static final String LOG_FILE_COUNT_OPTION = "graphipedia.logFileCount";
+
+	/**
+	 * The name of the option that sets where the dumps are found (see {@link org.graphipedia.download.DumpSource}).
+	 */
+	public static final String DUMP_SOURCE_OPTION = "graphipedia.dumpSource";
+
+	/**
+	 * The prefix of the options that set where the XML dump of a Wikipedia edition is read from, followed by the 
+	 * code of the language of the edition (e.g., {@code graphipedia.xmlInput.en}).
+	 */
+	public static final String XML_INPUT_OPTION = "graphipedia.xmlInput.";
+
+	/**
+	 * The name of the option that sets the codec of the XML dumps read from the locations set with {@code XML_INPUT_OPTION}.
+	 */
+	public static final String INPUT_CODEC_OPTION = "graphipedia.inputCodec";
+
+	/**
+	 * The name of the option that sets the number of parsers that extract the links from disjoint regions 
+	 * of an uncompressed XML dump.
+	 */
+	public static final String XML_PARSERS_OPTION = "graphipedia.xmlParsers";
+
+	/**
+	 * The name of the option that sets the directory of the {@link org.graphipedia.cache.ArtifactCache}.
+	 */
+	public static final String ARTIFACT_CACHE_OPTION = "graphipedia.artifactCache";
+
+	/**
+	 * The name of the option that sets the disk budget (in GB) of the {@link org.graphipedia.cache.ArtifactCache}.
+	 */
+	public static final String ARTIFACT_CACHE_BUDGET_OPTION = "graphipedia.artifactCacheGb";
+
+	/**
+	 * The name of the option that sets the number of units of the import committed by each snapshot of the Neo4j database.
+	 */
+	public static final String SNAPSHOT_UNITS_OPTION = "graphipedia.snapshotUnits";
+
+	/**
+	 * The name of the directory (in the root directory) where the responses of the MediaWiki API are cached.
+	 */
+	public static final String API_CACHE_DIRECTORY = "api-cache";
+
+	/**
+	 * The name of the file (in the root directory) where the report of the run is written by default.
+	 */
+	public static final String RUN_REPORT_FILE = "run-report.json";
+
+	/**
+	 * The data are obtained by crawling categories with the MediaWiki API.
+	 */
+	public static final String API_SOURCE = "api";
+
+	/**
+	 * The data are obtained from the SQL dump files.
+	 */
+	public static final String DUMP_SOURCE = "dump";
+
 	/**
 	 * The codes of the languages of the Wikipedia editions to import.
 	 */
@@ -79,6 +301,138 @@ public class GraphipediaSettings {
 	 */
 	private Map<String, File> wikipediaEditions;
 
+	/**
+	 * The number of threads that parse the {@code INSERT INTO} statements of the SQL dump files 
+	 * (geotags and cross-language links).
+	 */
+	private int sqlParserThreads;
+
+	/**
+	 * The URL of the MediaWiki API, where {@code %s} stands for the code of the language.
+	 */
+	private String apiUrl;
+
+	/**
+	 * The number of threads that send requests to the MediaWiki API.
+	 */
+	private int apiThreads;
+
+	/**
+	 * The maximum number of requests per second sent to the MediaWiki API.
+	 */
+	private double apiRequestsPerSecond;
+
+	/**
+	 * How long (in ms) the responses of the MediaWiki API are cached.
+	 */
+	private long apiCacheTtl;
+
+	/**
+	 * The number of concurrent connections used to download a dump file.
+	 */
+	private int downloadConnections;
+
+	/**
+	 * Whether the dump files are read while they are downloaded.
+	 */
+	private boolean streamThrough;
+
+	/**
+	 * The number of Wikipedia editions that are downloaded at the same time.
+	 */
+	private int networkStages;
+
+	/**
+	 * The number of Wikipedia editions whose data are extracted at the same time.
+	 */
+	private int cpuStages;
+
+	/**
+	 * The time (in seconds) between two summaries of the progress of the import ({@code 0} disables them).
+	 */
+	private int progressInterval;
+
+	/**
+	 * The file where the report of the run is written.
+	 */
+	private File runReport;
+
+	/**
+	 * The number of the slowest pages to parse that are reported after the extraction of the links of an edition.
+	 */
+	private int slowPages;
+
+	/**
+	 * The time (in milliseconds) within which the text of a page must be parsed ({@code 0} for no limit).
+	 */
+	private long pageTimeBudget;
+
+	/**
+	 * The pattern of the names of the log files, or {@code null} if the log is not written to files.
+	 */
+	private String logFile;
+
+	/**
+	 * The size (in bytes) at which a log file is rotated.
+	 */
+	private long logFileSize;
+
+	/**
+	 * The number of log files kept by the rotation.
+	 */
+	private int logFileCount;
+
+	/**
+	 * The base URL or the local directory where the dumps are found.
+	 */
+	private String dumpSource;
+
+	/**
+	 * The locations (files, named pipes or the standard input) where the XML dumps are read from instead of being 
+	 * downloaded, indexed by the codes of the languages of the editions.
+	 */
+	private Map<String, String> xmlInputs;
+
+	/**
+	 * The codec of the XML dumps read from {@code xmlInputs}.
+	 */
+	private String inputCodec;
+
+	/**
+	 * The number of parsers that extract the links from disjoint regions of an uncompressed XML dump.
+	 */
+	private int xmlParsers;
+
+	/**
+	 * The directory of the artifact cache, or {@code null} if the artifacts are not cached.
+	 */
+	private File artifactCache;
+
+	/**
+	 * The disk budget (in bytes) of the artifact cache.
+	 */
+	private long artifactCacheBudget;
+
+	/**
+	 * The number of units of the import committed by each snapshot of the Neo4j database.
+	 */
+	private int snapshotUnits;
+
+	/**
+	 * Whether the links are extracted from the SQL dump files of the links instead of the text of the pages.
+	 */
+	private boolean topologyOnly;
+
+	/**
+	 * Whether the disambiguation pages are obtained from the SQL dump files instead of the MediaWiki API.
+	 */
+	private boolean disambiguationFromDump;
+
+	/**
+	 * Whether the infobox templates are obtained from the SQL dump files instead of the MediaWiki API.
+	 */
+	private boolean infoboxFromDump;
+
 	/**
 	 * Creates a new instance of Graphipedia settings.
 	 * @param rootDirectory The root directory where all the data used by Graphipedia are stored.
@@ -89,9 +443,397 @@ public class GraphipediaSettings {
 		this.languages = new ArrayList<String>();
 		this.neo4jDir = neo4jDir;
 		this.rootDirectory = rootDirectory;
+		this.sqlParserThreads = Runtime.getRuntime().availableProcessors();
+		this.topologyOnly = false;
+		this.disambiguationFromDump = false;
+		this.infoboxFromDump = false;
+		this.apiUrl = "https://%s.wikipedia.org/w/api.php";
+		this.apiThreads = 4;
+		this.apiRequestsPerSecond = 10.;
+		this.apiCacheTtl = 7L * 24 * 3600 * 1000;
+		this.downloadConnections = 2;
+		this.streamThrough = false;
+		this.networkStages = 1;
+		this.cpuStages = 1;
+		this.progressInterval = ProgressReporter.DEFAULT_INTERVAL;
+		this.runReport = new File(rootDirectory, RUN_REPORT_FILE);
+		this.slowPages = 10;
+		this.pageTimeBudget = 0;
+		this.logFile = null;
+		this.logFileSize = 100L << 20;
+		this.logFileCount = 5;
+		this.dumpSource = DumpSource.WIKIMEDIA_URL;
+		this.xmlInputs = new HashMap<String, String>();
+		this.inputCodec = DumpInput.AUTO;
+		this.xmlParsers = 1;
+		this.artifactCache = null;
+		this.artifactCacheBudget = 200L << 30;
+		this.snapshotUnits = 1;
+	}
+
+	/**
+	 * Loads the options of Graphipedia from the given properties (e.g., the system properties 
+	 * specified on the command line with {@code -Dname=value}).
+	 * The options that are not specified keep their default value.
+	 * @param properties The properties that contain the options. 
+	 */
+	public void load(Properties properties) {
+		String threads = properties.getProperty(SQL_PARSER_THREADS_OPTION);
+		if ( threads != null )
+			this.sqlParserThreads = Integer.parseInt(threads.trim());
+		String topologyOnly = properties.getProperty(TOPOLOGY_ONLY_OPTION);
+		if ( topologyOnly != null )
+			this.topologyOnly = Boolean.parseBoolean(topologyOnly.trim());
+		this.disambiguationFromDump = isDumpSource(properties, DISAMBIGUATION_SOURCE_OPTION, this.disambiguationFromDump);
+		this.infoboxFromDump = isDumpSource(properties, INFOBOX_SOURCE_OPTION, this.infoboxFromDump);
+		if ( properties.getProperty(API_URL_OPTION) != null )
+			this.apiUrl = properties.getProperty(API_URL_OPTION).trim();
+		if ( properties.getProperty(API_THREADS_OPTION) != null )
+			this.apiThreads = Integer.parseInt(properties.getProperty(API_THREADS_OPTION).trim());
+		if ( properties.getProperty(API_REQUESTS_PER_SECOND_OPTION) != null )
+			this.apiRequestsPerSecond = Double.parseDouble(properties.getProperty(API_REQUESTS_PER_SECOND_OPTION).trim());
+		if ( properties.getProperty(API_CACHE_TTL_OPTION) != null )
+			this.apiCacheTtl = (long)(Double.parseDouble(properties.getProperty(API_CACHE_TTL_OPTION).trim()) * 3600 * 1000);
+		if ( properties.getProperty(DOWNLOAD_CONNECTIONS_OPTION) != null )
+			this.downloadConnections = Math.max(1, Integer.parseInt(properties.getProperty(DOWNLOAD_CONNECTIONS_OPTION).trim()));
+		if ( properties.getProperty(STREAM_THROUGH_OPTION) != null )
+			this.streamThrough = Boolean.parseBoolean(properties.getProperty(STREAM_THROUGH_OPTION).trim());
+		if ( properties.getProperty(NETWORK_STAGES_OPTION) != null )
+			this.networkStages = Math.max(1, Integer.parseInt(properties.getProperty(NETWORK_STAGES_OPTION).trim()));
+		if ( properties.getProperty(CPU_STAGES_OPTION) != null )
+			this.cpuStages = Math.max(1, Integer.parseInt(properties.getProperty(CPU_STAGES_OPTION).trim()));
+		if ( properties.getProperty(PROGRESS_INTERVAL_OPTION) != null )
+			this.progressInterval = Math.max(0, Integer.parseInt(properties.getProperty(PROGRESS_INTERVAL_OPTION).trim()));
+		if ( properties.getProperty(RUN_REPORT_OPTION) != null )
+			this.runReport = new File(properties.getProperty(RUN_REPORT_OPTION).trim());
+		if ( properties.getProperty(SLOW_PAGES_OPTION) != null )
+			this.slowPages = Math.max(0, Integer.parseInt(properties.getProperty(SLOW_PAGES_OPTION).trim()));
+		if ( properties.getProperty(PAGE_TIME_BUDGET_OPTION) != null )
+			this.pageTimeBudget = Math.max(0, Long.parseLong(properties.getProperty(PAGE_TIME_BUDGET_OPTION).trim()));
+		if ( properties.getProperty(LOG_FILE_OPTION) != null )
+			this.logFile = properties.getProperty(LOG_FILE_OPTION).trim();
+		if ( properties.getProperty(LOG_FILE_SIZE_OPTION) != null )
+			this.logFileSize = Math.max(0, Long.parseLong(properties.getProperty(LOG_FILE_SIZE_OPTION).trim())) << 20;
+		if ( properties.getProperty(LOG_FILE_COUNT_OPTION) != null )
+			this.logFileCount = Math.max(1, Integer.parseInt(properties.getProperty(LOG_FILE_COUNT_OPTION).trim()));
+		if ( properties.getProperty(DUMP_SOURCE_OPTION) != null )
+			this.dumpSource = properties.getProperty(DUMP_SOURCE_OPTION).trim();
+		for ( String name : properties.stringPropertyNames() )
+			if ( name.startsWith(XML_INPUT_OPTION) )
+				this.xmlInputs.put(name.substring(XML_INPUT_OPTION.length()), properties.getProperty(name).trim());
+		if ( properties.getProperty(INPUT_CODEC_OPTION) != null )
+			this.inputCodec = properties.getProperty(INPUT_CODEC_OPTION).trim();
+		if ( properties.getProperty(XML_PARSERS_OPTION) != null )
+			this.xmlParsers = Math.max(1, Integer.parseInt(properties.getProperty(XML_PARSERS_OPTION).trim()));
+		if ( properties.getProperty(ARTIFACT_CACHE_OPTION) != null )
+			this.artifactCache = new File(properties.getProperty(ARTIFACT_CACHE_OPTION).trim());
+		if ( properties.getProperty(ARTIFACT_CACHE_BUDGET_OPTION) != null )
+			this.artifactCacheBudget = (long)(Double.parseDouble(properties.getProperty(ARTIFACT_CACHE_BUDGET_OPTION).trim()) * (1L << 30));
+		if ( properties.getProperty(SNAPSHOT_UNITS_OPTION) != null )
+			this.snapshotUnits = Math.max(1, Integer.parseInt(properties.getProperty(SNAPSHOT_UNITS_OPTION).trim()));
+	}
+
+	/**
+	 * Returns whether an option that sets where some data are obtained from is set to {@code DUMP_SOURCE}.
+	 * @param properties The properties that contain the options.
+	 * @param option The name of the option.
+	 * @param defaultValue The value returned if the option is not specified.
+	 * @return {@code true} if the option is set to {@code DUMP_SOURCE}, {@code false} if it is set to {@code API_SOURCE}.
+	 */
+	private static boolean isDumpSource(Properties properties, String option, boolean defaultValue) {
+		String source = properties.getProperty(option);
+		if ( source == null )
+			return defaultValue;
+		source = source.trim().toLowerCase();
+		if ( !source.equals(API_SOURCE) && !source.equals(DUMP_SOURCE) )
+			throw new IllegalArgumentException("Invalid value of " + option + ": " + source);
+		return source.equals(DUMP_SOURCE);
+	}
+
+	/**
+	 * Returns the number of threads that parse the {@code INSERT INTO} statements of the SQL dump files.
+	 * @return The number of threads that parse the statements of the SQL dump files. If {@code 1}, the statements 
+	 * are parsed sequentially.
+	 */
+	public int sqlParserThreads() {
+		return this.sqlParserThreads;
+	}
+
+	/**
+	 * Sets the number of threads that parse the {@code INSERT INTO} statements of the SQL dump files.
+	 * @param sqlParserThreads The number of threads. If {@code 1}, the statements are parsed sequentially.
+	 */
+	public void sqlParserThreads(int sqlParserThreads) {
+		this.sqlParserThreads = sqlParserThreads;
 	}
 
 	
+	/**
+	 * Returns whether only the topology of the graph is imported. 
+	 * In this case, the pages and the links are extracted from the SQL dump files of the pages and the links, 
+	 * without parsing the text of the pages; the links have no rank, offset, anchors and occurrences and the 
+	 * pages have no infobox.
+	 * @return {@code true} if only the topology of the graph is imported, {@code false} otherwise.
+	 */
+	public boolean topologyOnly() {
+		return this.topologyOnly;
+	}
+
+	/**
+	 * Sets whether only the topology of the graph is imported.
+	 * @param topologyOnly {@code true} if only the topology of the graph is imported, {@code false} otherwise.
+	 */
+	public void topologyOnly(boolean topologyOnly) {
+		this.topologyOnly = topologyOnly;
+	}
+
+	/**
+	 * Returns the URL of the MediaWiki API of a Wikipedia language edition.
+	 * @param language The code of the language of the Wikipedia edition.
+	 * @return The URL of the MediaWiki API of the Wikipedia edition.
+	 */
+	public String apiUrl(String language) {
+		return this.apiUrl.replace("%s", language);
+	}
+
+	/**
+	 * Returns the number of threads that send requests to the MediaWiki API.
+	 * @return The number of threads that send requests to the MediaWiki API.
+	 */
+	public int apiThreads() {
+		return this.apiThreads;
+	}
+
+	/**
+	 * Returns the maximum number of requests per second sent to the MediaWiki API.
+	 * @return The maximum number of requests per second sent to the MediaWiki API.
+	 */
+	public double apiRequestsPerSecond() {
+		return this.apiRequestsPerSecond;
+	}
+
+	/**
+	 * Returns the directory where the responses of the MediaWiki API are cached.
+	 * Unlike the files in the directories of the editions, the cached responses are kept after the import.
+	 * @return The directory where the responses of the MediaWiki API are cached.
+	 */
+	public File apiCacheDirectory() {
+		return new File(rootDirectory, API_CACHE_DIRECTORY);
+	}
+
+	/**
+	 * Returns how long the responses of the MediaWiki API are cached.
+	 * @return How long (in ms) the responses of the MediaWiki API are cached.
+	 */
+	public long apiCacheTtl() {
+		return this.apiCacheTtl;
+	}
+
+	/**
+	 * Returns the number of concurrent connections used to download a dump file.
+	 * @return The number of concurrent connections used to download a dump file.
+	 */
+	public int downloadConnections() {
+		return this.downloadConnections;
+	}
+
+	/**
+	 * Returns whether the dump files are read while they are downloaded, so that the data of a Wikipedia edition are 
+	 * extracted while its dump is downloaded (see {@link org.graphipedia.download.ActiveDownload}).
+	 * @return {@code true} if the dump files are read while they are downloaded, {@code false} if the data are 
+	 * extracted once the whole dump is downloaded.
+	 */
+	public boolean streamThrough() {
+		return this.streamThrough;
+	}
+
+	/**
+	 * Returns the number of Wikipedia editions that are downloaded at the same time.
+	 * @return The number of Wikipedia editions that are downloaded at the same time.
+	 */
+	public int networkStages() {
+		return this.networkStages;
+	}
+
+	/**
+	 * Returns the number of Wikipedia editions whose data are extracted at the same time.
+	 * @return The number of Wikipedia editions whose data are extracted at the same time.
+	 */
+	public int cpuStages() {
+		return this.cpuStages;
+	}
+
+	/**
+	 * Returns the time (in seconds) between two summaries of the progress of the import.
+	 * @return The time (in seconds) between two summaries of the progress, or {@code 0} if they are disabled.
+	 */
+	public int progressInterval() {
+		return this.progressInterval;
+	}
+
+	/**
+	 * Returns the file where the report of the run is written (see {@link org.graphipedia.metrics.RunReport}).
+	 * @return The file of the report of the run.
+	 */
+	public File runReportFile() {
+		return this.runReport;
+	}
+
+	/**
+	 * Returns the number of the slowest pages to parse that are reported after the extraction of the links of 
+	 * a Wikipedia edition.
+	 * @return The number of the slowest pages reported, or {@code 0} if they are not reported.
+	 */
+	public int slowPages() {
+		return this.slowPages;
+	}
+
+	/**
+	 * Returns the time (in milliseconds) within which the text of a page must be parsed, after which the page 
+	 * is parsed again by a simpler parser (see {@link org.graphipedia.wikipedia.parser.WikiTextParser#parse(String, String, long)}).
+	 * @return The time budget of a page, or {@code 0} if there is none.
+	 */
+	public long pageTimeBudget() {
+		return this.pageTimeBudget;
+	}
+
+	/**
+	 * Returns the pattern of the names of the files where the messages of the log are written, in addition to the console.
+	 * @return The pattern of the names of the log files, or {@code null} if the log is not written to files.
+	 */
+	public String logFile() {
+		return this.logFile;
+	}
+
+	/**
+	 * Returns the size at which a log file is rotated.
+	 * @return The size (in bytes) at which a log file is rotated, or {@code 0} if the log files are not rotated.
+	 */
+	public long logFileSize() {
+		return this.logFileSize;
+	}
+
+	/**
+	 * Returns the number of log files kept by the rotation.
+	 * @return The number of log files kept by the rotation.
+	 */
+	public int logFileCount() {
+		return this.logFileCount;
+	}
+
+	/**
+	 * Returns where the dumps of the Wikipedia editions are found: the base URL of the Wikimedia website or a mirror of it, 
+	 * or a local directory laid out like the Wikimedia tree (see {@link DumpSource}).
+	 * @return The base URL or the path of the local directory where the dumps are found.
+	 */
+	public String dumpSource() {
+		return this.dumpSource;
+	}
+
+	/**
+	 * Returns where the XML dump of a Wikipedia edition is read from, if it is not downloaded.
+	 * @param language The code of the language of the Wikipedia edition.
+	 * @return The path of a file or a named pipe, or {@link DumpInput#STDIN}; {@code null} if the XML dump is downloaded.
+	 */
+	public String xmlInput(String language) {
+		return this.xmlInputs.get(language);
+	}
+
+	/**
+	 * Returns the codec of the XML dumps that are not downloaded (see {@link #xmlInput(String)}).
+	 * @return {@link DumpInput#AUTO}, {@link DumpInput#NONE} or the name of a compression format (e.g., {@code bzip2}).
+	 */
+	public String inputCodec() {
+		return this.inputCodec;
+	}
+
+	/**
+	 * Returns the number of parsers that extract the links from disjoint regions of an uncompressed XML dump 
+	 * (see {@link DumpInput#regions(File, int)}).
+	 * @return The number of parsers of an uncompressed XML dump.
+	 */
+	public int xmlParsers() {
+		return this.xmlParsers;
+	}
+
+	/**
+	 * Returns the directory where the outputs of the stages of the import are cached across runs 
+	 * (see {@link org.graphipedia.cache.ArtifactCache}).
+	 * @return The directory of the artifact cache, or {@code null} if the artifacts are not cached.
+	 */
+	public File artifactCacheDirectory() {
+		return this.artifactCache;
+	}
+
+	/**
+	 * Returns the disk space that the artifact cache may take, beyond which the least recently used artifacts are evicted.
+	 * @return The disk budget (in bytes) of the artifact cache.
+	 */
+	public long artifactCacheBudget() {
+		return this.artifactCacheBudget;
+	}
+
+	/**
+	 * Returns the number of units of the import (the graph of an edition, the indexes, the cross-links of an edition) 
+	 * committed by each snapshot of the Neo4j database; the units imported since the last snapshot are also committed 
+	 * at the end of each phase of the import.
+	 * @return The number of units committed by each snapshot ({@code 1} to take a snapshot after each unit).
+	 */
+	public int snapshotUnits() {
+		return this.snapshotUnits;
+	}
+
+	/**
+	 * Returns whether the disambiguation pages are obtained from the SQL dump files of the pages and their properties, 
+	 * instead of crawling the disambiguation categories with the MediaWiki API.
+	 * @return {@code true} if the disambiguation pages are obtained from the SQL dump files, {@code false} otherwise.
+	 */
+	public boolean disambiguationFromDump() {
+		return this.disambiguationFromDump;
+	}
+
+	/**
+	 * Sets whether the disambiguation pages are obtained from the SQL dump files of the pages and their properties.
+	 * @param disambiguationFromDump {@code true} if the disambiguation pages are obtained from the SQL dump files, 
+	 * {@code false} if they are obtained with the MediaWiki API.
+	 */
+	public void disambiguationFromDump(boolean disambiguationFromDump) {
+		this.disambiguationFromDump = disambiguationFromDump;
+	}
+
+	/**
+	 * Returns whether the infobox templates are obtained from the SQL dump files of the pages and the categories, 
+	 * instead of crawling the infobox categories with the MediaWiki API.
+	 * @return {@code true} if the infobox templates are obtained from the SQL dump files, {@code false} otherwise.
+	 */
+	public boolean infoboxFromDump() {
+		return this.infoboxFromDump;
+	}
+
+	/**
+	 * Sets whether the infobox templates are obtained from the SQL dump files of the pages and the categories.
+	 * @param infoboxFromDump {@code true} if the infobox templates are obtained from the SQL dump files, 
+	 * {@code false} if they are obtained with the MediaWiki API.
+	 */
+	public void infoboxFromDump(boolean infoboxFromDump) {
+		this.infoboxFromDump = infoboxFromDump;
+	}
+
+	/**
+	 * Returns the suffixes of the names of the dump files that are downloaded for each Wikipedia edition.
+	 * @return The suffixes of the names of the dump files that are downloaded for each Wikipedia edition.
+	 */
+	public String[] wikipediaEditionInputFiles() {
+		Set<String> files = new LinkedHashSet<String>(Arrays.asList(WIKIPEDIA_EDITIONS_INPUT_FILES));
+		if ( topologyOnly )
+			files.addAll(Arrays.asList(WIKIPEDIA_TOPOLOGY_INPUT_FILES));
+		if ( disambiguationFromDump )
+			files.addAll(Arrays.asList(WIKIPEDIA_DISAMBIGUATION_INPUT_FILES));
+		if ( infoboxFromDump )
+			files.addAll(Arrays.asList(WIKIPEDIA_INFOBOX_INPUT_FILES));
+		return files.toArray(new String[files.size()]);
+	}
+
 	/**
 	 * Returns the languages of the Wikipedia editions to import to Neo4j.
 	 * @return The languages of the Wikipedia editions to import to Neo4j.
@@ -133,10 +875,21 @@ public class GraphipediaSettings {
 	}
 
 
+	/**
+	 * Returns the file where the spatial index of the geotagged articles of a Wikipedia language edition is written.
+	 * Unlike the files in the directory of the edition, this file is kept after the import.
+	 * @param language The code of a language (e.g., 'en' for English)
+	 * @return The file of the spatial index of the Wikipedia edition in the specified language.
+	 */
+	public File spatialIndexFile(String language) {
+		return new File(new File(rootDirectory, SPATIAL_INDEX_DIRECTORY), language + ".idx");
+	}
+
 	/**
 	 * Returns the XML file that contains the whole Wikipedia edition in the specified language.
 	 * @param language The language code of the Wikipedia edition.
-	 * @return The XML file that contains the whole Wikipedia edition in the specified language.
+	 * @return The XML file that contains the whole Wikipedia edition in the specified language, or {@code null} 
+	 * if it has not been downloaded.
 	 */
 	public File getWikipediaXmlFile(String language) {
 		return getWikipediaEditionFile(language, WIKIPEDIA_XML_FILE);
@@ -148,7 +901,7 @@ public class GraphipediaSettings {
 	 * in the specified language.
 	 * @param language The code of the language of the specified edition.
 	 * @return The file with the cross-language links of the Wikipedia edition
-	 * in the specified language.
+	 * in the specified language, or {@code null} if it has not been downloaded.
 	 */
 	public File getCrossLinkFile(String language) {
 		return getWikipediaEditionFile(language, WIKIPEDIA_CROSSLINKS_FILE);
@@ -158,26 +911,85 @@ public class GraphipediaSettings {
 	 * Returns the file containing the geotags associated to the Wikipedia pages
 	 * that describe spatial entities in a specified language edition.
 	 * @param language The code of the language of the specified Wikipedia edition. 
-	 * @return The file that contains the geo-tags of the spatial entities.
+	 * @return The file that contains the geo-tags of the spatial entities, or {@code null} if it has not been downloaded.
 	 */
 	public File getGeotagsFile(String language) {
 		return getWikipediaEditionFile(language,WIKIPEDIA_GEOTAGS_FILE);
 	}
 	
+	/**
+	 * Returns the file with the pages of the Wikipedia edition in the specified language.
+	 * @param language The code of the language of the specified edition.
+	 * @return The file with the pages, or {@code null} if it has not been downloaded.
+	 */
+	public File getPageFile(String language) {
+		return getWikipediaEditionFile(language, WIKIPEDIA_PAGE_FILE);
+	}
+
+	/**
+	 * Returns the file with the links between the pages of the Wikipedia edition in the specified language.
+	 * @param language The code of the language of the specified edition.
+	 * @return The file with the links between the pages, or {@code null} if it has not been downloaded.
+	 */
+	public File getPageLinksFile(String language) {
+		return getWikipediaEditionFile(language, WIKIPEDIA_PAGELINKS_FILE);
+	}
+
+	/**
+	 * Returns the file with the categories of the pages of the Wikipedia edition in the specified language.
+	 * @param language The code of the language of the specified edition.
+	 * @return The file with the categories of the pages, or {@code null} if it has not been downloaded.
+	 */
+	public File getCategoryLinksFile(String language) {
+		return getWikipediaEditionFile(language, WIKIPEDIA_CATEGORYLINKS_FILE);
+	}
+
+	/**
+	 * Returns the file with the targets of the redirect pages of the Wikipedia edition in the specified language.
+	 * @param language The code of the language of the specified edition.
+	 * @return The file with the targets of the redirect pages, or {@code null} if it has not been downloaded.
+	 */
+	public File getRedirectFile(String language) {
+		return getWikipediaEditionFile(language, WIKIPEDIA_REDIRECT_FILE);
+	}
+
+	/**
+	 * Returns the file with the properties of the pages of the Wikipedia edition in the specified language.
+	 * @param language The code of the language of the specified edition.
+	 * @return The file with the properties of the pages, or {@code null} if it has not been downloaded.
+	 */
+	public File getPagePropsFile(String language) {
+		return getWikipediaEditionFile(language, WIKIPEDIA_PAGE_PROPS_FILE);
+	}
+
+	/**
+	 * Returns the file with the targets of the links of the Wikipedia edition in the specified language.
+	 * @param language The code of the language of the specified edition.
+	 * @return The file with the targets of the links, or {@code null} if it has not been downloaded.
+	 */
+	public File getLinkTargetFile(String language) {
+		return getWikipediaEditionFile(language, WIKIPEDIA_LINKTARGET_FILE);
+	}
+	
 	/**
 	 * Returns the file of the given Wikipedia language edition with the given name suffix. 
 	 * @param language The language code of the Wikipedia edition.
 	 * @param fileNameSuffix The suffix of the name of the file to return.
-	 * @return The file of the given Wikipedia language edition with the given name suffix.
+	 * @return The file of the given Wikipedia language edition with the given name suffix, or {@code null} if 
+	 * there is no such file.
 	 */
 	private File getWikipediaEditionFile(String language, String fileNameSuffix) {
 		File wikipediaDirectory = this.wikipediaEditionDirectory(language);
+		if ( wikipediaDirectory == null || !wikipediaDirectory.isDirectory() )
+			return null;
 		DirectoryScanner scanner = new DirectoryScanner();
 		scanner.setIncludes(new String[]{"*"+fileNameSuffix});
 		scanner.setBasedir(wikipediaDirectory);
 		scanner.setCaseSensitive(false);
 		scanner.scan();
 		String[] files = scanner.getIncludedFiles(); 
+		if ( files.length == 0 )
+			return null;
 		return new File(wikipediaDirectory, files[0]);
 	}
 
@@ -21,11 +21,26 @@
 //
 package org.graphipedia;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Logger;
 
+import org.apache.commons.io.FileUtils;
 import org.graphipedia.dataimport.NodeAttribute;
 import org.graphipedia.dataimport.NodeLabel;
+import org.graphipedia.jfr.FlightEvents;
+import org.graphipedia.jfr.IndexBuildEvent;
 import org.graphipedia.progress.ReadableTime;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.factory.GraphDatabaseFactory;
@@ -39,6 +54,12 @@ import org.neo4j.unsafe.batchinsert.BatchInserters;
  */
 public class Neo4jConnector {
 	
+	/**
+	 * The suffix of the name of the directories where the snapshots of the Neo4j database are stored, 
+	 * followed by the number of units of the import phase committed in the snapshot.
+	 */
+	public static final String SNAPSHOT_SUFFIX = ".snapshot-";
+	
 	/**
 	 * The logger of Graphipedia.
 	 */
@@ -49,6 +70,16 @@ public class Neo4jConnector {
 	 */
 	private final GraphipediaSettings settings;
 	
+	/**
+	 * The connections opened to import data that create indexes upon shutdown.
+	 */
+	private final Set<BatchInserter> indexedInserters;
+	
+	/**
+	 * The SHA-1 checksums of the files of the last snapshot taken by this object, indexed by their absolute path.
+	 */
+	private Map<String, String> snapshotDigests;
+	
 	/**
 	 * Constructor.
 	 * @param settings The settings of Graphipedia.
@@ -57,6 +88,8 @@ public class Neo4jConnector {
 	public Neo4jConnector(GraphipediaSettings settings, Logger logger) {
 		this.settings = settings;
 		this.logger = logger;
+		this.indexedInserters = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<BatchInserter, Boolean>()));
+		this.snapshotDigests = new HashMap<String, String>();
 	}
 	
 	/**
@@ -90,6 +123,7 @@ public class Neo4jConnector {
 		inserter.createDeferredSchemaIndex(NodeLabel.Category).on(NodeAttribute.lang.toString()).create();
 		inserter.createDeferredSchemaIndex(NodeLabel.Category).on(NodeAttribute.wikiid.toString()).create();
 
+		indexedInserters.add(inserter);
 		logger.info("Connected to the Neo4j database " + settings.neo4jDir());
 		return inserter;
 	}
@@ -101,7 +135,18 @@ public class Neo4jConnector {
 	public void disconnectFromNeo4jInserter(BatchInserter inserter) { 
 		long startTime = System.currentTimeMillis();
 		logger.info("Disconnecting from the Neo4j database " + settings.neo4jDir() + " and creating indexes (this might take a while)...");
+		IndexBuildEvent event = null;
+		if ( FlightEvents.ENABLED ) {
+			event = new IndexBuildEvent();
+			event.begin();
+		}
 		inserter.shutdown();
+		boolean indexes = indexedInserters.remove(inserter);
+		if ( event != null && event.shouldCommit() ) {
+			event.store = settings.neo4jDir().getAbsolutePath();
+			event.indexes = indexes;
+			event.commit();
+		}
 		long elapsed = System.currentTimeMillis() - startTime;
 		logger.info("Disconnected from the Neo4j database " + settings.neo4jDir() + " in " + ReadableTime.readableTime(elapsed));
 	}
@@ -149,4 +194,171 @@ public class Neo4jConnector {
 		return inserter;
 	}
 
+	/**
+	 * Returns the directory where a snapshot of the Neo4j database is stored.
+	 * @param units The number of units of the import phase committed in the snapshot.
+	 * @return The directory of the snapshot.
+	 */
+	private File snapshotDir(int units) {
+		File neo4jDir = settings.neo4jDir();
+		return new File(neo4jDir.getAbsoluteFile().getParentFile(), neo4jDir.getName() + SNAPSHOT_SUFFIX + units);
+	}
+	
+	/**
+	 * Takes a snapshot of the Neo4j database, which must be shut down.
+	 * The files whose content has not changed since the previous snapshot taken by this object are hard-linked to it 
+	 * instead of being copied, and all the files are forced to the disk before this method returns.
+	 * The content is compared by checksum, since the batch inserter rewrites its store files in place without 
+	 * necessarily changing their size or their modification time (which has a resolution of a second on some platforms); 
+	 * the first snapshot after a restart copies all the files.
+	 * @param units The number of units of the import phase committed in the snapshot.
+	 * @param previousUnits The number of units of the import phase committed in the previous snapshot.
+	 * @throws IOException when a I/O error occurs while writing the snapshot.
+	 */
+	public void snapshot(int units, int previousUnits) throws IOException {
+		long startTime = System.currentTimeMillis();
+		File snapshot = snapshotDir(units);
+		FileUtils.deleteDirectory(snapshot);
+		Map<String, String> digests = new HashMap<String, String>();
+		copy(settings.neo4jDir(), snapshot, snapshotDir(previousUnits), digests);
+		this.snapshotDigests = digests;
+		long elapsed = System.currentTimeMillis() - startTime;
+		logger.info("Snapshot of the Neo4j database " + settings.neo4jDir() + " taken in " + ReadableTime.readableTime(elapsed));
+	}
+	
+	/**
+	 * Restores the Neo4j database from a snapshot and deletes all the other snapshots.
+	 * If no unit has been committed, the Neo4j database is emptied.
+	 * @param units The number of units of the import phase committed in the snapshot to restore.
+	 * @throws IOException when the snapshot does not exist or a I/O error occurs while restoring it.
+	 */
+	public void restore(int units) throws IOException {
+		File neo4jDir = settings.neo4jDir();
+		FileUtils.deleteDirectory(neo4jDir);
+		if ( units == 0 ) {
+			if ( !neo4jDir.mkdir() )
+				throw new IOException("Failed to create directory " + neo4jDir.getAbsolutePath());
+		}
+		else {
+			File snapshot = snapshotDir(units);
+			if ( !snapshot.isDirectory() )
+				throw new IOException("The snapshot " + snapshot.getAbsolutePath() + " does not exist");
+			logger.info("Restoring the Neo4j database " + neo4jDir + " from the snapshot " + snapshot + " ...");
+			copy(snapshot, neo4jDir, null, null);
+		}
+		deleteSnapshots(units);
+	}
+	
+	/**
+	 * Deletes the snapshots of the Neo4j database.
+	 * @param keep The number of units of the import phase committed in the snapshot to keep, or {@code -1} 
+	 * to delete all the snapshots.
+	 * @throws IOException when a I/O error occurs while deleting a snapshot.
+	 */
+	public void deleteSnapshots(int keep) throws IOException {
+		File neo4jDir = settings.neo4jDir();
+		File[] files = neo4jDir.getAbsoluteFile().getParentFile().listFiles();
+		if ( files == null )
+			return;
+		String prefix = neo4jDir.getName() + SNAPSHOT_SUFFIX;
+		for ( File file : files )
+			if ( file.getName().startsWith(prefix) && !file.getName().equals(prefix + keep) )
+				FileUtils.deleteDirectory(file);
+	}
+	
+	/**
+	 * Copies a directory recursively and forces the copied files to the disk.
+	 * @param source The directory to copy.
+	 * @param target The directory to create.
+	 * @param previous A previous snapshot of the directory, whose files are hard-linked instead of copied when they 
+	 * have the same checksum as the files of the source, or {@code null}.
+	 * @param digests The map where the checksums of the files of the target are put, indexed by their absolute path, 
+	 * or {@code null} if the target is not a snapshot.
+	 * @throws IOException when a I/O error occurs while copying.
+	 */
+	private void copy(File source, File target, File previous, Map<String, String> digests) throws IOException {
+		if ( !target.mkdirs() )
+			throw new IOException("Failed to create directory " + target.getAbsolutePath());
+		File[] files = source.listFiles();
+		if ( files == null )
+			throw new IOException("Failed to list directory " + source.getAbsolutePath());
+		for ( File file : files ) {
+			File copy = new File(target, file.getName());
+			File old = previous == null ? null : new File(previous, file.getName());
+			if ( file.isDirectory() ) {
+				copy(file, copy, old, digests);
+				continue;
+			}
+			String digest = null;
+			String oldDigest = old == null ? null : snapshotDigests.get(old.getAbsolutePath());
+			if ( digests != null && oldDigest != null && old.length() == file.length() ) {
+				digest = copyFile(file, null);
+				if ( !digest.equals(oldDigest) || !link(old, copy) )
+					digest = null;
+			}
+			if ( digest == null )
+				digest = copyFile(file, copy);
+			if ( digests != null )
+				digests.put(copy.getAbsolutePath(), digest);
+		}
+	}
+	
+	/**
+	 * Computes the SHA-1 checksum of a file while copying it and forces the copy to the disk.
+	 * @param source The file to copy.
+	 * @param target The copy to create, or {@code null} to only compute the checksum.
+	 * @return The SHA-1 checksum of the file (hexadecimal).
+	 * @throws IOException when a I/O error occurs while copying.
+	 */
+	private static String copyFile(File source, File target) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		FileChannel input = FileChannel.open(source.toPath(), StandardOpenOption.READ);
+		FileChannel output = target == null ? null : 
+			FileChannel.open(target.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE_NEW);
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+			while ( input.read(buffer) >= 0 ) {
+				buffer.flip();
+				if ( output != null ) {
+					buffer.mark();
+					while ( buffer.hasRemaining() )
+						output.write(buffer);
+					buffer.reset();
+				}
+				digest.update(buffer);
+				buffer.clear();
+			}
+			if ( output != null )
+				output.force(true);
+		} finally {
+			input.close();
+			if ( output != null )
+				output.close();
+		}
+		StringBuilder hex = new StringBuilder();
+		for ( byte b : digest.digest() )
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+	
+	/**
+	 * Creates a hard link to a file.
+	 * @param existing The file to link.
+	 * @param link The link to create.
+	 * @return {@code true} if the link has been created, {@code false} if the file system does not support hard links.
+	 */
+	private boolean link(File existing, File link) {
+		try {
+			Files.createLink(link.toPath(), existing.toPath());
+			return true;
+		} catch (IOException | UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
 }
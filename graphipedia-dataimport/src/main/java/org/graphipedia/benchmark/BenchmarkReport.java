@@ -0,0 +1,397 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The report of a run of the {@link ImportBenchmark}: the description of the run and the metrics of each stage, 
+ * written as a JSON document so that it can be kept as the baseline of the next runs.
+ */
+public class BenchmarkReport {
+
+	/**
+	 * The smallest difference of a time (in milliseconds) with the baseline that can be a regression, 
+	 * so that the noise of short stages is not reported.
+	 */
+	private static final long MINIMUM_TIME_DIFFERENCE = 100;
+
+	/**
+	 * The smallest difference of a number of bytes with the baseline that can be a regression.
+	 */
+	private static final long MINIMUM_BYTES_DIFFERENCE = 1 << 20;
+
+	/**
+	 * The description of the run (e.g., the languages and the version of Java), by property.
+	 */
+	private final Map<String, String> properties;
+
+	/**
+	 * The metrics of the stages, by name of the stage, in the order in which the stages ran.
+	 */
+	private final Map<String, StageMetrics> stages;
+
+	/**
+	 * The regressions found by the last comparison with a baseline.
+	 */
+	private final List<String> regressions;
+
+	/**
+	 * Creates an empty report.
+	 */
+	public BenchmarkReport() {
+		this.properties = new LinkedHashMap<String, String>();
+		this.stages = new LinkedHashMap<String, StageMetrics>();
+		this.regressions = new ArrayList<String>();
+	}
+
+	/**
+	 * Sets a property of the description of the run.
+	 * @param name The name of the property.
+	 * @param value The value of the property.
+	 */
+	public void setProperty(String name, String value) {
+		properties.put(name, value);
+	}
+
+	/**
+	 * Adds the metrics of a run of a stage; the metrics of several runs of the same stage are combined.
+	 * @param stage The name of the stage.
+	 * @param metrics The metrics of the run.
+	 */
+	public void add(String stage, StageMetrics metrics) {
+		StageMetrics previous = stages.get(stage);
+		stages.put(stage, previous == null ? metrics : previous.plus(metrics));
+	}
+
+	/**
+	 * Returns the metrics of the stages.
+	 * @return The metrics of the stages, by name of the stage.
+	 */
+	public Map<String, StageMetrics> stages() {
+		return this.stages;
+	}
+
+	/**
+	 * Compares the metrics with those of a baseline. A measure is a regression when it exceeds that of the baseline 
+	 * by more than the threshold (and by more than the noise of the measure); the measures that are missing 
+	 * from either report are ignored.
+	 * @param baseline The report of the baseline.
+	 * @param threshold The relative increase over the baseline that is a regression (e.g., {@code 0.1} for 10%).
+	 * @return The regressions, as readable messages.
+	 */
+	public List<String> compare(BenchmarkReport baseline, double threshold) {
+		regressions.clear();
+		for ( Map.Entry<String, StageMetrics> stage : stages.entrySet() ) {
+			StageMetrics reference = baseline.stages.get(stage.getKey());
+			if ( reference == null )
+				continue;
+			for ( Map.Entry<String, Long> measure : stage.getValue().measures().entrySet() ) {
+				String name = measure.getKey();
+				long value = measure.getValue();
+				long baselineValue = reference.get(name);
+				if ( value < 0 || baselineValue < 0 || value <= baselineValue * (1 + threshold) )
+					continue;
+				long minimumDifference = name.equals(StageMetrics.GC_COUNT) ? 1 : 
+					name.endsWith("Ms") ? MINIMUM_TIME_DIFFERENCE : MINIMUM_BYTES_DIFFERENCE;
+				if ( value - baselineValue < minimumDifference )
+					continue;
+				regressions.add(String.format("%s.%s: %d, baseline %d (%s)", stage.getKey(), name, value, baselineValue, 
+						baselineValue == 0 ? "new" : String.format("+%.1f%%", 100.0 * (value - baselineValue) / baselineValue)));
+			}
+		}
+		return regressions;
+	}
+
+	/**
+	 * Writes the report, with the regressions found by the last comparison with a baseline.
+	 * @param file The file of the report.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public void write(File file) throws IOException {
+		StringBuilder json = new StringBuilder("{\n");
+		for ( Map.Entry<String, String> property : properties.entrySet() )
+			json.append("  ").append(quote(property.getKey())).append(": ").append(quote(property.getValue())).append(",\n");
+		json.append("  \"stages\": {");
+		String separator = "\n";
+		for ( Map.Entry<String, StageMetrics> stage : stages.entrySet() ) {
+			json.append(separator).append("    ").append(quote(stage.getKey())).append(": {");
+			String measureSeparator = "\n";
+			for ( Map.Entry<String, Long> measure : stage.getValue().measures().entrySet() ) {
+				json.append(measureSeparator).append("      ").append(quote(measure.getKey())).append(": ")
+				.append(measure.getValue());
+				measureSeparator = ",\n";
+			}
+			json.append("\n    }");
+			separator = ",\n";
+		}
+		json.append("\n  },\n  \"regressions\": [");
+		separator = "\n";
+		for ( String regression : regressions ) {
+			json.append(separator).append("    ").append(quote(regression));
+			separator = ",\n";
+		}
+		json.append(regressions.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+		File parent = file.getAbsoluteFile().getParentFile();
+		if ( !parent.isDirectory() && !parent.mkdirs() )
+			throw new IOException("Cannot create directory " + parent.getAbsolutePath());
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8);
+		try {
+			writer.write(json.toString());
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Reads a report written by {@link #write(File)}; only the metrics of the stages are read.
+	 * @param file The file of the report.
+	 * @return The report.
+	 * @throws IOException when the file cannot be read or is not a report.
+	 */
+	@SuppressWarnings("unchecked")
+	public static BenchmarkReport read(File file) throws IOException {
+		String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+		Object document = new JsonParser(json).parse();
+		if ( !(document instanceof Map) || !(((Map<String, Object>)document).get("stages") instanceof Map) )
+			throw new IOException("No stages in the report " + file.getAbsolutePath());
+		BenchmarkReport report = new BenchmarkReport();
+		Map<String, Object> stages = (Map<String, Object>)((Map<String, Object>)document).get("stages");
+		for ( Map.Entry<String, Object> stage : stages.entrySet() ) {
+			if ( !(stage.getValue() instanceof Map) )
+				throw new IOException("Invalid metrics of the stage " + stage.getKey() + " in " + file.getAbsolutePath());
+			Map<String, Long> measures = new LinkedHashMap<String, Long>();
+			for ( Map.Entry<String, Object> measure : ((Map<String, Object>)stage.getValue()).entrySet() )
+				if ( measure.getValue() instanceof Number )
+					measures.put(measure.getKey(), ((Number)measure.getValue()).longValue());
+			report.stages.put(stage.getKey(), new StageMetrics(measures));
+		}
+		return report;
+	}
+
+	/**
+	 * Quotes a string as a JSON string.
+	 * @param value The string.
+	 * @return The JSON string.
+	 */
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for ( int i = 0; i < value.length(); i += 1 ) {
+			char c = value.charAt(i);
+			if ( c == '"' || c == '\\' )
+				quoted.append('\\').append(c);
+			else if ( c < 0x20 )
+				quoted.append(String.format("\\u%04x", (int)c));
+			else
+				quoted.append(c);
+		}
+		return quoted.append('"').toString();
+	}
+
+	/**
+	 * A minimal parser of JSON documents, that reads objects as maps, arrays as lists, 
+	 * numbers as longs or doubles, and strings, booleans and {@code null}.
+	 */
+	private static class JsonParser {
+
+		/**
+		 * The document.
+		 */
+		private final String json;
+
+		/**
+		 * The position of the next character to read.
+		 */
+		private int position;
+
+		/**
+		 * Creates a parser.
+		 * @param json The document.
+		 */
+		JsonParser(String json) {
+			this.json = json;
+			this.position = 0;
+		}
+
+		/**
+		 * Parses the document.
+		 * @return The value of the document.
+		 * @throws IOException when the document is not valid JSON.
+		 */
+		Object parse() throws IOException {
+			Object value = value();
+			skipWhitespace();
+			if ( position < json.length() )
+				throw error("Unexpected content");
+			return value;
+		}
+
+		/**
+		 * Parses a value.
+		 * @return The value.
+		 * @throws IOException when the value is not valid JSON.
+		 */
+		private Object value() throws IOException {
+			skipWhitespace();
+			if ( position >= json.length() )
+				throw error("Unexpected end");
+			char c = json.charAt(position);
+			if ( c == '{' ) {
+				Map<String, Object> object = new LinkedHashMap<String, Object>();
+				position += 1;
+				skipWhitespace();
+				if ( peek('}') )
+					return object;
+				do {
+					skipWhitespace();
+					String key = string();
+					skipWhitespace();
+					expect(':');
+					object.put(key, value());
+					skipWhitespace();
+				} while ( peek(',') );
+				expect('}');
+				return object;
+			}
+			if ( c == '[' ) {
+				List<Object> array = new ArrayList<Object>();
+				position += 1;
+				skipWhitespace();
+				if ( peek(']') )
+					return array;
+				do {
+					array.add(value());
+					skipWhitespace();
+				} while ( peek(',') );
+				expect(']');
+				return array;
+			}
+			if ( c == '"' )
+				return string();
+			for ( String literal : new String[] { "true", "false", "null" } )
+				if ( json.startsWith(literal, position) ) {
+					position += literal.length();
+					return literal.equals("null") ? null : Boolean.valueOf(literal);
+				}
+			int start = position;
+			while ( position < json.length() && "+-0123456789.eE".indexOf(json.charAt(position)) >= 0 )
+				position += 1;
+			String number = json.substring(start, position);
+			try {
+				if ( number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0 )
+					return Long.valueOf(number);
+				return Double.valueOf(number);
+			} catch (NumberFormatException e) {
+				throw error("Invalid value");
+			}
+		}
+
+		/**
+		 * Parses a string.
+		 * @return The string.
+		 * @throws IOException when the string is not valid JSON.
+		 */
+		private String string() throws IOException {
+			expect('"');
+			StringBuilder string = new StringBuilder();
+			while ( position < json.length() ) {
+				char c = json.charAt(position++);
+				if ( c == '"' )
+					return string.toString();
+				if ( c != '\\' ) {
+					string.append(c);
+					continue;
+				}
+				if ( position >= json.length() )
+					break;
+				char escaped = json.charAt(position++);
+				switch ( escaped ) {
+				case 'n': string.append('\n'); break;
+				case 't': string.append('\t'); break;
+				case 'r': string.append('\r'); break;
+				case 'b': string.append('\b'); break;
+				case 'f': string.append('\f'); break;
+				case 'u':
+					if ( position + 4 > json.length() )
+						throw error("Invalid escape");
+					string.append((char)Integer.parseInt(json.substring(position, position + 4), 16));
+					position += 4;
+					break;
+				default: string.append(escaped);
+				}
+			}
+			throw error("Unterminated string");
+		}
+
+		/**
+		 * Skips a character if it is the next one.
+		 * @param c The character.
+		 * @return {@code true} if the character has been skipped.
+		 */
+		private boolean peek(char c) {
+			if ( position < json.length() && json.charAt(position) == c ) {
+				position += 1;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Skips a character that must be the next one.
+		 * @param c The character.
+		 * @throws IOException when the next character is not the expected one.
+		 */
+		private void expect(char c) throws IOException {
+			if ( !peek(c) )
+				throw error("Expected '" + c + "'");
+		}
+
+		/**
+		 * Skips the whitespace.
+		 */
+		private void skipWhitespace() {
+			while ( position < json.length() && Character.isWhitespace(json.charAt(position)) )
+				position += 1;
+		}
+
+		/**
+		 * Creates the exception of a parse error at the current position.
+		 * @param message The message of the error.
+		 * @return The exception.
+		 */
+		private IOException error(String message) {
+			return new IOException(message + " at position " + position + " of the report");
+		}
+
+	}
+
+}
@@ -0,0 +1,154 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmark;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * The settings of the {@link ImportBenchmark}, read from Java system properties.
+ */
+public class BenchmarkSettings {
+
+	/**
+	 * The name of the option that sets how the stages are run: {@code isolated}, {@code together} or {@code both}.
+	 */
+	public static final String MODE_OPTION = "graphipedia.benchmark.mode";
+
+	/**
+	 * The name of the option that sets the file where the report is written.
+	 */
+	public static final String REPORT_OPTION = "graphipedia.benchmark.report";
+
+	/**
+	 * The name of the option that sets the report the measures are compared with.
+	 */
+	public static final String BASELINE_OPTION = "graphipedia.benchmark.baseline";
+
+	/**
+	 * The name of the option that sets the relative increase of a measure over the baseline that is a regression.
+	 */
+	public static final String THRESHOLD_OPTION = "graphipedia.benchmark.threshold";
+
+	/**
+	 * The name of the file of the report, in the work directory, if the option {@link #REPORT_OPTION} is not set.
+	 */
+	public static final String DEFAULT_REPORT_FILE = "benchmark-report.json";
+
+	/**
+	 * Whether each stage is run and measured in isolation.
+	 */
+	private boolean isolated;
+
+	/**
+	 * Whether the whole pipeline is run and measured, with its stages running concurrently.
+	 */
+	private boolean together;
+
+	/**
+	 * The file where the report is written.
+	 */
+	private File report;
+
+	/**
+	 * The report the measures are compared with, if any.
+	 */
+	private File baseline;
+
+	/**
+	 * The relative increase of a measure over the baseline that is a regression.
+	 */
+	private double threshold;
+
+	/**
+	 * Creates the default settings.
+	 * @param workDirectory The work directory of the benchmark.
+	 */
+	public BenchmarkSettings(File workDirectory) {
+		this.isolated = true;
+		this.together = true;
+		this.report = new File(workDirectory, DEFAULT_REPORT_FILE);
+		this.baseline = null;
+		this.threshold = 0.1;
+	}
+
+	/**
+	 * Loads the settings from the given properties (e.g., the Java system properties).
+	 * @param properties The properties.
+	 */
+	public void load(Properties properties) {
+		if ( properties.getProperty(MODE_OPTION) != null ) {
+			String mode = properties.getProperty(MODE_OPTION).trim().toLowerCase();
+			if ( !mode.equals("isolated") && !mode.equals("together") && !mode.equals("both") )
+				throw new IllegalArgumentException("Unknown value of " + MODE_OPTION + ": " + mode);
+			this.isolated = !mode.equals("together");
+			this.together = !mode.equals("isolated");
+		}
+		if ( properties.getProperty(REPORT_OPTION) != null )
+			this.report = new File(properties.getProperty(REPORT_OPTION).trim());
+		if ( properties.getProperty(BASELINE_OPTION) != null )
+			this.baseline = new File(properties.getProperty(BASELINE_OPTION).trim());
+		if ( properties.getProperty(THRESHOLD_OPTION) != null )
+			this.threshold = Math.max(0, Double.parseDouble(properties.getProperty(THRESHOLD_OPTION).trim()));
+	}
+
+	/**
+	 * Returns whether each stage is run and measured in isolation.
+	 * @return {@code true} if each stage is run and measured in isolation.
+	 */
+	public boolean isolated() {
+		return this.isolated;
+	}
+
+	/**
+	 * Returns whether the whole pipeline is run and measured, with its stages running concurrently.
+	 * @return {@code true} if the whole pipeline is run and measured.
+	 */
+	public boolean together() {
+		return this.together;
+	}
+
+	/**
+	 * Returns the file where the report is written.
+	 * @return The file where the report is written.
+	 */
+	public File report() {
+		return this.report;
+	}
+
+	/**
+	 * Returns the report the measures are compared with.
+	 * @return The report the measures are compared with, or {@code null} if there is none.
+	 */
+	public File baseline() {
+		return this.baseline;
+	}
+
+	/**
+	 * Returns the relative increase of a measure over the baseline that is a regression (e.g., {@code 0.1} for 10%).
+	 * @return The relative increase of a measure over the baseline that is a regression.
+	 */
+	public double threshold() {
+		return this.threshold;
+	}
+
+}
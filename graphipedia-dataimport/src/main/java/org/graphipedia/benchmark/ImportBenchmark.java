@@ -0,0 +1,290 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.graphipedia.Graphipedia;
+import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.Neo4jConnector;
+import org.graphipedia.dataextract.ExtractCrossLinks;
+import org.graphipedia.dataextract.ExtractData;
+import org.graphipedia.dataimport.ImportCrossLinks;
+import org.graphipedia.dataimport.ImportGraph;
+import org.graphipedia.download.WikipediaEdition;
+import org.graphipedia.progress.CheckPoint;
+import org.graphipedia.progress.LoggerFactory;
+import org.graphipedia.wikipedia.GeotagStore;
+import org.graphipedia.wikipedia.Namespaces;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.unsafe.batchinsert.BatchInserter;
+
+/**
+ * The end-to-end benchmark of the import, run on the dumps found with the option {@code graphipedia.dumpSource} 
+ * (e.g., a local directory of real dumps, or of dumps written by {@link org.graphipedia.synthetic.SyntheticDumpGenerator}).
+ * The stages ({@code Download}, {@code ExtractData}, {@code ImportGraph}, {@code ExtractCrossLinks} and 
+ * {@code ImportCrossLinks}) are run in isolation, one edition at a time, each measured with a {@link ResourceMonitor}; 
+ * then the whole import is run as Graphipedia runs it, with its stages running concurrently, and measured 
+ * as the stage {@code Pipeline}.
+ * The metrics are written to a JSON report and compared with a baseline report, if any: the benchmark fails 
+ * if a measure exceeds that of the baseline by more than the threshold.
+ * Each run starts from empty root directories in the work directory, so that no checkpoint is resumed.
+ */
+public class ImportBenchmark {
+
+	/**
+	 * The directory, in the work directory, where the stages are run in isolation.
+	 */
+	public static final String ISOLATED_DIRECTORY = "isolated";
+
+	/**
+	 * The directory, in the work directory, where the whole import is run.
+	 */
+	public static final String PIPELINE_DIRECTORY = "pipeline";
+
+	/**
+	 * The logger of the benchmark.
+	 */
+	private Logger logger;
+
+	/**
+	 * The settings of the benchmark.
+	 */
+	private BenchmarkSettings settings;
+
+	/**
+	 * The work directory of the benchmark.
+	 */
+	private File workDirectory;
+
+	/**
+	 * The report of the benchmark.
+	 */
+	private BenchmarkReport report;
+
+	/**
+	 * Creates a benchmark.
+	 * @param settings The settings of the benchmark.
+	 * @param workDirectory The work directory of the benchmark.
+	 */
+	public ImportBenchmark(BenchmarkSettings settings, File workDirectory) {
+		this.logger = LoggerFactory.createLogger("Import benchmark");
+		this.settings = settings;
+		this.workDirectory = workDirectory;
+		this.report = new BenchmarkReport();
+	}
+
+	/**
+	 * Entry point of the program.
+	 * @param args Command-line arguments.
+	 */
+	public static void main(String[] args) {
+		Logger logger = LoggerFactory.createLogger("Import benchmark");
+		if ( args.length != 2 ) {
+			logger.severe("USAGE: java -classpath graphipedia-dataimport.jar org.graphipedia.benchmark.ImportBenchmark "
+					+ "<work directory> <langlist>\n"
+					+ "langlist is the list of the codes of the languages of the editions to import, separated by a comma (e.g., en,fr,it).");
+			System.exit(-1);
+		}
+		File workDirectory = new File(args[0]);
+		BenchmarkSettings settings = new BenchmarkSettings(workDirectory);
+		settings.load(System.getProperties());
+		Set<String> languages = new LinkedHashSet<String>();
+		for ( String language : args[1].split(",") )
+			languages.add(language.trim().toLowerCase());
+		ImportBenchmark benchmark = new ImportBenchmark(settings, workDirectory);
+		List<String> regressions = null;
+		try {
+			regressions = benchmark.run(languages);
+		} catch (Exception e) {
+			logger.severe("Problem while running the benchmark");
+			e.printStackTrace();
+			System.exit(-1);
+		}
+		if ( regressions != null && !regressions.isEmpty() ) {
+			logger.severe(regressions.size() + " performance regressions over the baseline " + 
+					settings.baseline().getAbsolutePath());
+			System.exit(-1);
+		}
+	}
+
+	/**
+	 * Runs the benchmark and writes its report.
+	 * @param languages The codes of the languages of the editions to import.
+	 * @return The regressions over the baseline, or {@code null} if there is no baseline.
+	 * @throws Exception when some error occurs.
+	 */
+	public List<String> run(Set<String> languages) throws Exception {
+		if ( !workDirectory.isDirectory() && !workDirectory.mkdirs() )
+			throw new IOException("Cannot create directory " + workDirectory.getAbsolutePath());
+		report.setProperty("languages", join(languages));
+		report.setProperty("dumpSource", System.getProperty(GraphipediaSettings.DUMP_SOURCE_OPTION, ""));
+		report.setProperty("javaVersion", System.getProperty("java.version"));
+		report.setProperty("jvmArguments", join(ManagementFactory.getRuntimeMXBean().getInputArguments()));
+		report.setProperty("availableProcessors", Integer.toString(Runtime.getRuntime().availableProcessors()));
+		report.setProperty("maxHeapBytes", Long.toString(Runtime.getRuntime().maxMemory()));
+		if ( settings.isolated() )
+			runIsolated(languages);
+		if ( settings.together() )
+			runPipeline(languages);
+		for ( Map.Entry<String, StageMetrics> stage : report.stages().entrySet() )
+			logger.info(stage.getKey() + ": " + stage.getValue().measures());
+		List<String> regressions = null;
+		if ( settings.baseline() != null ) {
+			regressions = report.compare(BenchmarkReport.read(settings.baseline()), settings.threshold());
+			for ( String regression : regressions )
+				logger.warning("Regression: " + regression);
+			logger.info(regressions.size() + " regressions over the baseline " + settings.baseline().getAbsolutePath() + 
+					" (threshold " + Math.round(settings.threshold() * 100) + "%)");
+		}
+		report.write(settings.report());
+		logger.info("Report written to " + settings.report().getAbsolutePath());
+		return regressions;
+	}
+
+	/**
+	 * Runs the stages in isolation: each stage runs for all the editions, one at a time, before the next stage starts.
+	 * @param languages The codes of the languages of the editions to import.
+	 * @throws Exception when some error occurs.
+	 */
+	private void runIsolated(Set<String> languages) throws Exception {
+		File rootDirectory = new File(workDirectory, ISOLATED_DIRECTORY);
+		FileUtils.deleteDirectory(rootDirectory);
+		Graphipedia graphipedia = new Graphipedia(rootDirectory);
+		graphipedia.prepare();
+		GraphipediaSettings graphipediaSettings = graphipedia.settings();
+		CheckPoint checkpoint = graphipedia.checkpoint();
+		List<WikipediaEdition> editions = graphipedia.wikipediaEditions(languages);
+		for ( WikipediaEdition edition : editions )
+			graphipediaSettings.addLanguage(edition.languageCode());
+		String[] languageCodes = graphipediaSettings.languages();
+		Map<String, Namespaces> namespaces = new HashMap<String, Namespaces>();
+		Map<String, GeotagStore> geotags = new HashMap<String, GeotagStore>();
+		Neo4jConnector neo4jConnector = new Neo4jConnector(graphipediaSettings, logger);
+		for ( WikipediaEdition edition : editions ) {
+			logger.info("Stage Download of " + edition.languageCode());
+			ResourceMonitor monitor = new ResourceMonitor();
+			if ( !edition.download(graphipediaSettings, checkpoint, logger) )
+				throw new IOException("The dump of the Wikipedia edition " + edition.languageCode() + " cannot be downloaded");
+			report.add("Download", monitor.stop());
+		}
+		int current = 0;
+		for ( WikipediaEdition edition : editions ) {
+			String language = edition.languageCode();
+			String suffix = suffix(language, ++current, editions.size());
+			logger.info("Stage ExtractData of " + language);
+			ResourceMonitor monitor = new ResourceMonitor();
+			ExtractData extractData = new ExtractData(graphipediaSettings, language, graphipedia.dpRootCategory(language), 
+					graphipedia.itRootCategory(language), checkpoint, suffix);
+			extractData.run();
+			report.add("ExtractData", monitor.stop());
+			namespaces.put(language, extractData.getNamespaces());
+			geotags.put(language, extractData.geotags());
+		}
+		current = 0;
+		for ( WikipediaEdition edition : editions ) {
+			String language = edition.languageCode();
+			String suffix = suffix(language, ++current, editions.size());
+			logger.info("Stage ImportGraph of " + language);
+			ResourceMonitor monitor = new ResourceMonitor();
+			BatchInserter inserter = neo4jConnector.connectToNeo4jInserterNoIndexes();
+			new ImportGraph(inserter, graphipediaSettings, language, geotags.remove(language), suffix, 
+					System.currentTimeMillis()).run();
+			neo4jConnector.disconnectFromNeo4jInserter(inserter);
+			report.add("ImportGraph", monitor.stop());
+		}
+		// the indexes are created once all the editions are imported, as Graphipedia does.
+		logger.info("Stage ImportGraph: creating the indexes");
+		ResourceMonitor indexMonitor = new ResourceMonitor();
+		neo4jConnector.disconnectFromNeo4jInserter(neo4jConnector.connectToNeo4jInserter());
+		report.add("ImportGraph", indexMonitor.stop());
+		GraphDatabaseService graphDb = neo4jConnector.connectToNeo4jReader();
+		for ( int i = 0; i < languageCodes.length; i += 1 ) {
+			logger.info("Stage ExtractCrossLinks of " + languageCodes[i]);
+			ResourceMonitor monitor = new ResourceMonitor();
+			ExtractCrossLinks extractor = new ExtractCrossLinks(graphDb, graphipediaSettings, languageCodes, namespaces, 
+					languageCodes[i], checkpoint, suffix(languageCodes[i], i + 1, languageCodes.length));
+			extractor.start();
+			extractor.join();
+			report.add("ExtractCrossLinks", monitor.stop());
+		}
+		neo4jConnector.disconnectFromNeo4jReader(graphDb);
+		for ( int i = 0; i < languageCodes.length; i += 1 ) {
+			logger.info("Stage ImportCrossLinks of " + languageCodes[i]);
+			ResourceMonitor monitor = new ResourceMonitor();
+			BatchInserter inserter = neo4jConnector.connectToNeo4jInserterNoIndexes();
+			ImportCrossLinks importer = new ImportCrossLinks(graphipediaSettings, inserter, languageCodes[i], 
+					suffix(languageCodes[i], i + 1, languageCodes.length));
+			importer.start();
+			importer.join();
+			neo4jConnector.disconnectFromNeo4jInserter(inserter);
+			report.add("ImportCrossLinks", monitor.stop());
+		}
+	}
+
+	/**
+	 * Runs the whole import as Graphipedia runs it, with its stages running concurrently.
+	 * @param languages The codes of the languages of the editions to import.
+	 * @throws Exception when some error occurs.
+	 */
+	private void runPipeline(Set<String> languages) throws Exception {
+		File rootDirectory = new File(workDirectory, PIPELINE_DIRECTORY);
+		FileUtils.deleteDirectory(rootDirectory);
+		logger.info("Stage Pipeline");
+		ResourceMonitor monitor = new ResourceMonitor();
+		new Graphipedia(rootDirectory).run(languages);
+		report.add("Pipeline", monitor.stop());
+	}
+
+	/**
+	 * Returns the suffix of the messages of the loggers of a stage.
+	 * @param language The code of the language of the edition.
+	 * @param current The position of the edition.
+	 * @param editions The number of editions.
+	 * @return The suffix of the messages.
+	 */
+	private static String suffix(String language, int current, int editions) {
+		return language.toUpperCase() + " " + current + "/" + editions;
+	}
+
+	/**
+	 * Joins strings with commas.
+	 * @param values The strings.
+	 * @return The joined strings.
+	 */
+	private static String join(Iterable<String> values) {
+		StringBuilder joined = new StringBuilder();
+		for ( String value : values )
+			joined.append(joined.length() > 0 ? "," : "").append(value);
+		return joined.toString();
+	}
+
+}
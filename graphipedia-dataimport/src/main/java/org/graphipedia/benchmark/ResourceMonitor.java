@@ -0,0 +1,239 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmark;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+import org.graphipedia.metrics.StageRecord;
+
+/**
+ * Measures the resources used by the process while a stage of the import runs.
+ * The CPU time and the garbage collections come from the management beans of the JVM. 
+ * The resident set size and the bytes read and written come from {@code /proc/self} and are only available on Linux; 
+ * the bytes are those passed to the read and write system calls, so that the pages of a memory-mapped file are not counted.
+ * The peak resident set size is that of the stage if the kernel allows it to be reset, the largest resident set 
+ * size sampled during the stage otherwise.
+ */
+public class ResourceMonitor {
+
+	/**
+	 * The interval between two samples of the resident set size, in milliseconds.
+	 */
+	private static final long SAMPLING_INTERVAL = 100;
+
+	/**
+	 * The file that holds the memory usage of the process.
+	 */
+	private static final File STATUS_FILE = new File("/proc/self/status");
+
+	/**
+	 * The file that holds the input/output counters of the process.
+	 */
+	private static final File IO_FILE = new File("/proc/self/io");
+
+	/**
+	 * The file used to reset the peak resident set size of the process.
+	 */
+	private static final File CLEAR_REFS_FILE = new File("/proc/self/clear_refs");
+
+	/**
+	 * The time when the stage started, in nanoseconds.
+	 */
+	private final long startTime;
+
+	/**
+	 * The CPU time of the process when the stage started, in nanoseconds.
+	 */
+	private final long startCpuTime;
+
+	/**
+	 * The time spent in garbage collection when the stage started, in milliseconds.
+	 */
+	private final long startGcTime;
+
+	/**
+	 * The number of garbage collections when the stage started.
+	 */
+	private final long startGcCount;
+
+	/**
+	 * The bytes read by the process when the stage started.
+	 */
+	private final long startBytesRead;
+
+	/**
+	 * The bytes written by the process when the stage started.
+	 */
+	private final long startBytesWritten;
+
+	/**
+	 * Whether the peak resident set size of the process has been reset when the stage started.
+	 */
+	private final boolean peakReset;
+
+	/**
+	 * The largest resident set size sampled during the stage.
+	 */
+	private volatile long sampledPeakRss;
+
+	/**
+	 * The thread that samples the resident set size.
+	 */
+	private final Thread sampler;
+
+	/**
+	 * Starts measuring a stage.
+	 */
+	public ResourceMonitor() {
+		this.peakReset = resetPeakRss();
+		this.sampledPeakRss = statusValue("VmRSS:");
+		this.startGcTime = StageRecord.gcTime();
+		this.startGcCount = StageRecord.gcCount();
+		this.startBytesRead = ioValue("rchar:");
+		this.startBytesWritten = ioValue("wchar:");
+		this.startCpuTime = cpuTime();
+		this.startTime = System.nanoTime();
+		this.sampler = new Thread("Resource monitor") {
+			@Override
+			public void run() {
+				while ( !isInterrupted() ) {
+					sampledPeakRss = Math.max(sampledPeakRss, statusValue("VmRSS:"));
+					try {
+						Thread.sleep(SAMPLING_INTERVAL);
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+		};
+		sampler.setDaemon(true);
+		sampler.start();
+	}
+
+	/**
+	 * Stops measuring the stage.
+	 * @return The resources used by the process during the stage.
+	 */
+	public StageMetrics stop() {
+		long wallTime = (System.nanoTime() - startTime) / 1000000;
+		long cpuTime = cpuTime();
+		long bytesRead = ioValue("rchar:");
+		long bytesWritten = ioValue("wchar:");
+		sampler.interrupt();
+		try {
+			sampler.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		long peakRss = Math.max(sampledPeakRss, statusValue("VmRSS:"));
+		if ( peakReset )
+			peakRss = Math.max(peakRss, statusValue("VmHWM:"));
+		return new StageMetrics(wallTime, cpuTime < 0 ? -1 : (cpuTime - startCpuTime) / 1000000, peakRss, 
+				StageRecord.gcTime() - startGcTime, StageRecord.gcCount() - startGcCount, 
+				bytesRead < 0 ? -1 : bytesRead - startBytesRead, bytesWritten < 0 ? -1 : bytesWritten - startBytesWritten);
+	}
+
+	/**
+	 * Returns the CPU time of the process.
+	 * @return The CPU time of the process, in nanoseconds, or {@code -1} if it is not available.
+	 */
+	private static long cpuTime() {
+		OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+		if ( bean instanceof com.sun.management.OperatingSystemMXBean )
+			return ((com.sun.management.OperatingSystemMXBean)bean).getProcessCpuTime();
+		return -1;
+	}
+
+	/**
+	 * Resets the peak resident set size of the process (Linux 4.0 and later).
+	 * @return {@code true} if the peak resident set size has been reset.
+	 */
+	private static boolean resetPeakRss() {
+		if ( !CLEAR_REFS_FILE.exists() )
+			return false;
+		try {
+			FileWriter writer = new FileWriter(CLEAR_REFS_FILE);
+			try {
+				writer.write("5");
+			} finally {
+				writer.close();
+			}
+			return true;
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Reads a memory measure of the process.
+	 * @param key The key of the measure in {@code /proc/self/status} (e.g., {@code VmRSS:}).
+	 * @return The value of the measure, in bytes, or {@code -1} if it is not available.
+	 */
+	private static long statusValue(String key) {
+		String value = procValue(STATUS_FILE, key);
+		if ( value == null )
+			return -1;
+		return Long.parseLong(value.replace("kB", "").trim()) * 1024;
+	}
+
+	/**
+	 * Reads an input/output counter of the process.
+	 * @param key The key of the counter in {@code /proc/self/io} (e.g., {@code rchar:}).
+	 * @return The value of the counter, or {@code -1} if it is not available.
+	 */
+	private static long ioValue(String key) {
+		String value = procValue(IO_FILE, key);
+		return value == null ? -1 : Long.parseLong(value.trim());
+	}
+
+	/**
+	 * Reads a value from a file of {@code /proc}, made of lines of the form {@code key value}.
+	 * @param file The file.
+	 * @param key The key of the value.
+	 * @return The value, or {@code null} if the file or the key do not exist.
+	 */
+	private static String procValue(File file, String key) {
+		if ( !file.exists() )
+			return null;
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(file));
+			try {
+				String line;
+				while ( (line = reader.readLine()) != null )
+					if ( line.startsWith(key) )
+						return line.substring(key.length());
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+		return null;
+	}
+
+}
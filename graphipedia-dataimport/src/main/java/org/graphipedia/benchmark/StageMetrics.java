@@ -0,0 +1,143 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.benchmark;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The resources used by a stage of the import.
+ * A measure that cannot be taken on the platform (e.g., the peak resident set size outside Linux) is {@code -1}.
+ */
+public class StageMetrics {
+
+	/**
+	 * The name of the measure of the elapsed time, in milliseconds.
+	 */
+	public static final String WALL_TIME = "wallTimeMs";
+
+	/**
+	 * The name of the measure of the CPU time of the process, in milliseconds.
+	 */
+	public static final String CPU_TIME = "cpuTimeMs";
+
+	/**
+	 * The name of the measure of the peak resident set size of the process, in bytes.
+	 */
+	public static final String PEAK_RSS = "peakRssBytes";
+
+	/**
+	 * The name of the measure of the time spent in garbage collection, in milliseconds.
+	 */
+	public static final String GC_TIME = "gcTimeMs";
+
+	/**
+	 * The name of the measure of the number of garbage collections.
+	 */
+	public static final String GC_COUNT = "gcCount";
+
+	/**
+	 * The name of the measure of the bytes read by the process.
+	 */
+	public static final String BYTES_READ = "bytesRead";
+
+	/**
+	 * The name of the measure of the bytes written by the process.
+	 */
+	public static final String BYTES_WRITTEN = "bytesWritten";
+
+	/**
+	 * The measures, by name, in the order in which they are reported.
+	 */
+	private final Map<String, Long> measures;
+
+	/**
+	 * Creates the metrics of a stage.
+	 * @param wallTime The elapsed time, in milliseconds.
+	 * @param cpuTime The CPU time of the process, in milliseconds.
+	 * @param peakRss The peak resident set size of the process, in bytes.
+	 * @param gcTime The time spent in garbage collection, in milliseconds.
+	 * @param gcCount The number of garbage collections.
+	 * @param bytesRead The bytes read by the process.
+	 * @param bytesWritten The bytes written by the process.
+	 */
+	public StageMetrics(long wallTime, long cpuTime, long peakRss, long gcTime, long gcCount, long bytesRead, 
+			long bytesWritten) {
+		this.measures = new LinkedHashMap<String, Long>();
+		measures.put(WALL_TIME, wallTime);
+		measures.put(CPU_TIME, cpuTime);
+		measures.put(PEAK_RSS, peakRss);
+		measures.put(GC_TIME, gcTime);
+		measures.put(GC_COUNT, gcCount);
+		measures.put(BYTES_READ, bytesRead);
+		measures.put(BYTES_WRITTEN, bytesWritten);
+	}
+
+	/**
+	 * Creates the metrics of a stage from their names and values (e.g., as read from a report).
+	 * @param measures The measures, by name; the missing measures are {@code -1}.
+	 */
+	public StageMetrics(Map<String, Long> measures) {
+		this(-1, -1, -1, -1, -1, -1, -1);
+		for ( Map.Entry<String, Long> measure : measures.entrySet() )
+			if ( this.measures.containsKey(measure.getKey()) )
+				this.measures.put(measure.getKey(), measure.getValue());
+	}
+
+	/**
+	 * Returns the measures of the stage.
+	 * @return The measures, by name, in the order in which they are reported.
+	 */
+	public Map<String, Long> measures() {
+		return this.measures;
+	}
+
+	/**
+	 * Returns a measure of the stage.
+	 * @param name The name of the measure.
+	 * @return The value of the measure, or {@code -1} if it was not taken.
+	 */
+	public long get(String name) {
+		Long value = measures.get(name);
+		return value == null ? -1 : value;
+	}
+
+	/**
+	 * Adds the metrics of another run of the same stage (e.g., for another edition) to these metrics: 
+	 * the times, the garbage collections and the bytes are summed, the peak resident set size is the largest.
+	 * @param other The metrics of the other run.
+	 * @return The combined metrics.
+	 */
+	public StageMetrics plus(StageMetrics other) {
+		Map<String, Long> sum = new LinkedHashMap<String, Long>();
+		for ( Map.Entry<String, Long> measure : measures.entrySet() ) {
+			long a = measure.getValue();
+			long b = other.get(measure.getKey());
+			if ( a < 0 || b < 0 )
+				sum.put(measure.getKey(), -1L);
+			else
+				sum.put(measure.getKey(), measure.getKey().equals(PEAK_RSS) ? Math.max(a, b) : a + b);
+		}
+		return new StageMetrics(sum);
+	}
+
+}
@@ -0,0 +1,575 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.cache;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.download.ActiveDownload;
+
+/**
+ * A content-addressed cache of the outputs (artifacts) of the stages of the import, such as the dump files, 
+ * the namespaces, the disambiguation pages, the infobox templates, the geotags and the intermediate file of the links.
+ * An artifact is stored under a {@link Key} derived from the name and the version of the stage that produced it, 
+ * the settings that affect its content and the SHA-1 digests of its input files, so that a run whose inputs match 
+ * a previous run, even in another root directory, reuses the artifact instead of producing it again.
+ * The artifacts are hard-linked in and out of the cache (or copied, if the cache is on another file system), 
+ * so they must not be modified in place once stored or restored.
+ * When the cache takes more than {@link GraphipediaSettings#artifactCacheBudget()}, the least recently used 
+ * artifacts are evicted.
+ */
+public class ArtifactCache {
+
+	/**
+	 * The name of the directory (in the directory of the cache) where the artifacts are stored.
+	 */
+	public static final String ENTRIES_DIRECTORY = "entries";
+
+	/**
+	 * The name of the file (in the directory of the cache) where the digests of the input files are saved, 
+	 * so that a file is hashed only once.
+	 */
+	public static final String DIGESTS_FILE = "digests.tsv";
+
+	/**
+	 * The name of the artifact in the directory of an entry.
+	 */
+	private static final String ARTIFACT = "artifact";
+
+	/**
+	 * The name of the file, in the directory of an entry, that describes the key of the entry.
+	 */
+	private static final String KEY_FILE = "key.txt";
+
+	/**
+	 * The caches that are open, indexed by the absolute path of their directory.
+	 */
+	private static final Map<String, ArtifactCache> CACHES = new HashMap<String, ArtifactCache>();
+
+	/**
+	 * The directory where the artifacts are stored.
+	 */
+	private final File entries;
+
+	/**
+	 * The file where the digests of the input files are saved.
+	 */
+	private final File digestsFile;
+
+	/**
+	 * The disk budget (in bytes) of this cache.
+	 */
+	private final long budget;
+
+	/**
+	 * The logger of Graphipedia.
+	 */
+	private final Logger logger;
+
+	/**
+	 * The digests of the input files, indexed by the path, the size and the modification time of the files.
+	 */
+	private final Map<String, String> digests;
+
+	/**
+	 * The published digests of the files downloaded by this run, indexed by the path of the files.
+	 */
+	private final Map<String, String> published;
+
+	/**
+	 * The sizes (in bytes) of the entries of this cache, indexed by their hash.
+	 */
+	private Map<String, Long> sizes;
+
+	/**
+	 * Creates a new cache.
+	 * @param directory The directory of the cache.
+	 * @param budget The disk budget (in bytes) of the cache.
+	 * @param logger The logger of Graphipedia.
+	 * @throws IOException when the directory of the cache cannot be created or the digests cannot be read.
+	 */
+	private ArtifactCache(File directory, long budget, Logger logger) throws IOException {
+		this.entries = new File(directory, ENTRIES_DIRECTORY);
+		this.digestsFile = new File(directory, DIGESTS_FILE);
+		this.budget = budget;
+		this.logger = logger;
+		this.digests = new ConcurrentHashMap<String, String>();
+		this.published = new ConcurrentHashMap<String, String>();
+		this.sizes = null;
+		if ( !this.entries.isDirectory() && !this.entries.mkdirs() )
+			throw new IOException("Failed to create directory " + this.entries.getAbsolutePath());
+		if ( this.digestsFile.exists() ) {
+			BufferedReader bd = new BufferedReader(new FileReader(this.digestsFile));
+			String line;
+			while ( (line = bd.readLine()) != null ) {
+				int index = line.lastIndexOf('\t');
+				if ( index > 0 )
+					this.digests.put(line.substring(0, index), line.substring(index + 1));
+			}
+			bd.close();
+		}
+	}
+
+	/**
+	 * Returns the artifact cache configured in the settings of Graphipedia.
+	 * @param settings The settings of Graphipedia.
+	 * @param logger The logger of Graphipedia.
+	 * @return The artifact cache, or {@code null} if the artifacts are not cached 
+	 * (see {@link GraphipediaSettings#artifactCacheDirectory()}) or the cache cannot be opened.
+	 */
+	public static ArtifactCache of(GraphipediaSettings settings, Logger logger) {
+		File directory = settings.artifactCacheDirectory();
+		if ( directory == null )
+			return null;
+		synchronized(CACHES) {
+			ArtifactCache cache = CACHES.get(directory.getAbsolutePath());
+			if ( cache == null ) {
+				try {
+					cache = new ArtifactCache(directory, settings.artifactCacheBudget(), logger);
+				} catch (IOException e) {
+					logger.warning("The artifact cache " + directory.getAbsolutePath() + " cannot be opened, "
+							+ "the artifacts are not cached: " + e.getMessage());
+					return null;
+				}
+				CACHES.put(directory.getAbsolutePath(), cache);
+			}
+			return cache;
+		}
+	}
+
+	/**
+	 * Creates the key of an artifact.
+	 * @param stage The name of the stage that produces the artifact.
+	 * @param version The version of the stage, to be changed whenever the artifacts it produces change.
+	 * @return The key, to which the settings and the input files of the stage are added.
+	 */
+	public Key key(String stage, String version) {
+		return new Key(stage, version);
+	}
+
+	/**
+	 * Records the published SHA-1 digest of a file, so that it is not computed again.
+	 * If the file is still being downloaded (see {@link ActiveDownload}), the digest is trusted for this run only, 
+	 * since the download fails if the digest does not match.
+	 * @param file The file.
+	 * @param sha1 The SHA-1 digest of the file, or {@code null} if it is unknown.
+	 */
+	public void recordDigest(File file, String sha1) {
+		if ( sha1 == null )
+			return;
+		if ( ActiveDownload.of(file) != null ) 
+			this.published.put(file.getAbsolutePath(), sha1.toLowerCase());
+		else
+			saveDigest(file, sha1.toLowerCase());
+	}
+
+	/**
+	 * Returns the SHA-1 digest of a file, computing it if it is not known yet.
+	 * @param file The file.
+	 * @return The SHA-1 digest of the file, or {@code null} if the file is being downloaded and its digest is not 
+	 * published.
+	 * @throws IOException when a I/O error occurs while reading the file.
+	 */
+	public String digest(File file) throws IOException {
+		String sha1 = this.published.get(file.getAbsolutePath());
+		if ( sha1 != null )
+			return sha1;
+		sha1 = this.digests.get(digestKey(file));
+		if ( sha1 != null )
+			return sha1;
+		if ( ActiveDownload.of(file) != null )
+			return null;
+		long startTime = System.currentTimeMillis();
+		MessageDigest digest = sha1();
+		InputStream fin = new FileInputStream(file);
+		try {
+			byte[] buffer = new byte[1 << 20];
+			int read;
+			while ( (read = fin.read(buffer)) != -1 )
+				digest.update(buffer, 0, read);
+		} finally {
+			fin.close();
+		}
+		sha1 = hex(digest.digest());
+		saveDigest(file, sha1);
+		logger.info("Digest of " + file.getAbsolutePath() + " computed in " + 
+				(System.currentTimeMillis() - startTime) / 1000 + " s");
+		return sha1;
+	}
+
+	/**
+	 * Restores an artifact from the cache.
+	 * The target is replaced by a hard link to (or a copy of) the artifact.
+	 * @param key The key of the artifact.
+	 * @param target The file or directory where the artifact is restored.
+	 * @return {@code true} if the artifact has been restored, {@code false} if it is not in the cache.
+	 */
+	public synchronized boolean restore(Key key, File target) {
+		if ( !key.isCacheable() )
+			return false;
+		File entry = new File(this.entries, key.hash());
+		File artifact = new File(entry, ARTIFACT);
+		if ( !artifact.exists() )
+			return false;
+		try {
+			delete(target);
+			link(artifact, target);
+		} catch (IOException e) {
+			logger.warning("Failed to restore the artifact " + key + " from the cache: " + e.getMessage());
+			try {
+				delete(target);
+			} catch (IOException e1) {
+				logger.severe("Failed to delete " + target.getAbsolutePath());
+				e1.printStackTrace();
+				System.exit(-1);
+			}
+			return false;
+		}
+		entry.setLastModified(System.currentTimeMillis());
+		logger.info("Artifact " + key + " restored from the cache");
+		return true;
+	}
+
+	/**
+	 * Stores an artifact in the cache, unless it is already stored, and evicts the least recently used 
+	 * artifacts if the cache exceeds its budget.
+	 * A failure is only logged, since the cache is not needed by the import.
+	 * @param key The key of the artifact.
+	 * @param source The file or directory of the artifact.
+	 */
+	public synchronized void store(Key key, File source) {
+		if ( !key.isCacheable() || !source.exists() )
+			return;
+		File entry = new File(this.entries, key.hash());
+		if ( entry.exists() ) {
+			entry.setLastModified(System.currentTimeMillis());
+			return;
+		}
+		File temporary = new File(this.entries, key.hash() + ".tmp");
+		try {
+			delete(temporary);
+			if ( !temporary.mkdir() )
+				throw new IOException("Failed to create directory " + temporary.getAbsolutePath());
+			Files.write(new File(temporary, KEY_FILE).toPath(), key.description().getBytes(StandardCharsets.UTF_8));
+			link(source, new File(temporary, ARTIFACT));
+			Files.move(temporary.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			sizes().put(key.hash(), FileUtils.sizeOfDirectory(entry));
+			logger.info("Artifact " + key + " stored in the cache");
+		} catch (IOException e) {
+			logger.warning("Failed to store the artifact " + key + " in the cache: " + e.getMessage());
+			return;
+		}
+		evict(key.hash());
+	}
+
+	/**
+	 * Evicts the least recently used artifacts until the cache is within its budget.
+	 * @param keep The hash of an entry that is not evicted.
+	 */
+	private void evict(String keep) {
+		Map<String, Long> sizes = sizes();
+		long total = 0;
+		for ( long size : sizes.values() )
+			total += size;
+		if ( total <= this.budget )
+			return;
+		List<File> lru = new ArrayList<File>();
+		for ( String hash : sizes.keySet() )
+			if ( !hash.equals(keep) )
+				lru.add(new File(this.entries, hash));
+		lru.sort(new Comparator<File>() {
+			@Override
+			public int compare(File f1, File f2) {
+				return Long.compare(f1.lastModified(), f2.lastModified());
+			}
+		});
+		for ( File entry : lru ) {
+			if ( total <= this.budget )
+				break;
+			try {
+				FileUtils.deleteDirectory(entry);
+			} catch (IOException e) {
+				logger.warning("Failed to evict " + entry.getAbsolutePath() + " from the cache: " + e.getMessage());
+				continue;
+			}
+			total -= sizes.remove(entry.getName());
+			logger.info("Artifact " + entry.getName() + " evicted from the cache");
+		}
+	}
+
+	/**
+	 * Returns the sizes of the entries of this cache, measuring them the first time.
+	 * Entries added by other processes are only counted if they exist when this method is first called.
+	 * @return The sizes (in bytes) of the entries, indexed by their hash.
+	 */
+	private Map<String, Long> sizes() {
+		if ( this.sizes == null ) {
+			this.sizes = new HashMap<String, Long>();
+			File[] files = this.entries.listFiles();
+			if ( files != null )
+				for ( File entry : files ) {
+					if ( entry.getName().endsWith(".tmp") )
+						continue;
+					try {
+						this.sizes.put(entry.getName(), FileUtils.sizeOfDirectory(entry));
+					} catch (IllegalArgumentException e) { // removed by another process.
+						continue;
+					}
+				}
+		}
+		return this.sizes;
+	}
+
+	/**
+	 * Saves the digest of a file.
+	 * @param file The file.
+	 * @param sha1 The SHA-1 digest of the file.
+	 */
+	private synchronized void saveDigest(File file, String sha1) {
+		String key = digestKey(file);
+		if ( sha1.equals(this.digests.put(key, sha1)) )
+			return;
+		try {
+			FileOutputStream fout = new FileOutputStream(this.digestsFile, true);
+			fout.write((key + "\t" + sha1 + "\n").getBytes(StandardCharsets.UTF_8));
+			fout.close();
+		} catch (IOException e) {
+			logger.warning("Failed to save the digest of " + file.getAbsolutePath() + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the key under which the digest of a file is saved.
+	 * The key changes whenever the file is modified.
+	 * @param file The file.
+	 * @return The key of the digest of the file.
+	 */
+	private static String digestKey(File file) {
+		return file.getAbsolutePath() + "\t" + file.length() + "\t" + file.lastModified();
+	}
+
+	/**
+	 * Hard-links a file, or recursively the files of a directory, falling back to a copy 
+	 * if the file system does not support hard links between the two locations.
+	 * @param source The file or directory to link.
+	 * @param target The link to create.
+	 * @throws IOException when a I/O error occurs.
+	 */
+	private static void link(File source, File target) throws IOException {
+		if ( source.isDirectory() ) {
+			if ( !target.mkdir() )
+				throw new IOException("Failed to create directory " + target.getAbsolutePath());
+			String[] names = source.list();
+			if ( names == null )
+				throw new IOException("Failed to list directory " + source.getAbsolutePath());
+			Arrays.sort(names);
+			for ( String name : names )
+				link(new File(source, name), new File(target, name));
+			return;
+		}
+		try {
+			Files.createLink(target.toPath(), source.toPath());
+		} catch (IOException | UnsupportedOperationException e) {
+			Files.copy(source.toPath(), target.toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+		}
+	}
+
+	/**
+	 * Deletes a file or a directory, if it exists.
+	 * @param file The file or directory.
+	 * @throws IOException when the file cannot be deleted.
+	 */
+	private static void delete(File file) throws IOException {
+		if ( file.isDirectory() )
+			FileUtils.deleteDirectory(file);
+		else if ( file.exists() && !file.delete() )
+			throw new IOException("Failed to delete " + file.getAbsolutePath());
+	}
+
+	/**
+	 * Returns a new SHA-1 message digest.
+	 * @return A new SHA-1 message digest.
+	 */
+	private static MessageDigest sha1() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) { // every Java platform supports SHA-1.
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the hexadecimal representation of a digest.
+	 * @param digest The digest.
+	 * @return The hexadecimal representation of the digest.
+	 */
+	private static String hex(byte[] digest) {
+		StringBuilder sb = new StringBuilder();
+		for ( byte b : digest )
+			sb.append(String.format("%02x", b));
+		return sb.toString();
+	}
+
+	/**
+	 * The key of an artifact, derived from the stage that produces it, its settings and its input files.
+	 */
+	public class Key {
+
+		/**
+		 * The name of the stage that produces the artifact.
+		 */
+		private final String stage;
+
+		/**
+		 * The canonical description of the key, one {@code name=value} line per component.
+		 */
+		private final StringBuilder description;
+
+		/**
+		 * Whether the digests of all the input files are known.
+		 */
+		private boolean cacheable;
+
+		/**
+		 * Creates a new key.
+		 * @param stage The name of the stage that produces the artifact.
+		 * @param version The version of the stage.
+		 */
+		private Key(String stage, String version) {
+			this.stage = stage;
+			this.description = new StringBuilder();
+			this.cacheable = true;
+			param("stage", stage);
+			param("version", version);
+		}
+
+		/**
+		 * Adds a setting that affects the content of the artifact.
+		 * @param name The name of the setting.
+		 * @param value The value of the setting.
+		 * @return This key.
+		 */
+		public Key param(String name, Object value) {
+			this.description.append(name).append('=').append(value).append('\n');
+			return this;
+		}
+
+		/**
+		 * Adds an input file of the stage, which is identified by its SHA-1 digest.
+		 * If the digest cannot be obtained or the input is not a regular file, the artifact is not cached.
+		 * @param name The name of the input.
+		 * @param file The input file, or {@code null} if the input is not available.
+		 * @return This key.
+		 */
+		public Key input(String name, File file) {
+			if ( file == null || !file.exists() )
+				return param(name, "-");
+			if ( !file.isFile() ) { // a named pipe or a device cannot be read twice.
+				this.cacheable = false;
+				return param(name, file.getAbsolutePath());
+			}
+			String sha1 = null;
+			try {
+				sha1 = digest(file);
+			} catch (IOException e) {
+				logger.warning("Failed to compute the digest of " + file.getAbsolutePath() + ": " + e.getMessage());
+			}
+			if ( sha1 == null )
+				this.cacheable = false;
+			return param(name, sha1);
+		}
+
+		/**
+		 * Adds an input of the stage that cannot be identified, such as the standard input, so that the 
+		 * artifact is not cached.
+		 * @param name The name of the input.
+		 * @return This key.
+		 */
+		public Key uncacheableInput(String name) {
+			this.cacheable = false;
+			return param(name, "?");
+		}
+
+		/**
+		 * Adds an artifact that is an input of the stage, which is identified by its key.
+		 * @param name The name of the input.
+		 * @param key The key of the input artifact.
+		 * @return This key.
+		 */
+		public Key input(String name, Key key) {
+			if ( !key.isCacheable() )
+				this.cacheable = false;
+			return param(name, key.hash());
+		}
+
+		/**
+		 * Returns whether the artifact can be cached, that is whether the digests of all its input files are known.
+		 * @return {@code true} if the artifact can be cached, {@code false} otherwise.
+		 */
+		public boolean isCacheable() {
+			return this.cacheable;
+		}
+
+		/**
+		 * Returns the canonical description of this key.
+		 * @return The canonical description of this key.
+		 */
+		String description() {
+			return this.description.toString();
+		}
+
+		/**
+		 * Returns the hash of this key, which names the entry of the artifact in the cache.
+		 * @return The hexadecimal SHA-1 hash of the description of this key.
+		 */
+		public String hash() {
+			return hex(sha1().digest(description().getBytes(StandardCharsets.UTF_8)));
+		}
+
+		@Override
+		public String toString() {
+			return this.stage + " " + hash().substring(0, 12);
+		}
+
+	}
+
+}
@@ -26,16 +26,19 @@ import java.io.IOException;
 import java.util.logging.Logger;
 
 import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.download.CategoryCrawler;
+import org.graphipedia.metrics.StageThread;
 import org.graphipedia.progress.CheckPoint;
 import org.graphipedia.progress.LoggerFactory;
 import org.graphipedia.wikipedia.DisambiguationPages;
 
 /**
  * This thread obtains the list of the titles of all disambiguation pages 
- * in a Wikipedia language edition.
+ * in a Wikipedia language edition, either with the MediaWiki API or, if so specified in the settings 
+ * (see {@link GraphipediaSettings#disambiguationFromDump()}), from the SQL dump files.
  *
  */
-public class DisambiguationPageExtractor extends Thread {
+public class DisambiguationPageExtractor extends StageThread {
 
 	/**
 	 * The logger of this class.
@@ -63,6 +66,16 @@ public class DisambiguationPageExtractor extends Thread {
 	 */
 	private CheckPoint checkpoint;
 
+	/**
+	 * The settings of the import.
+	 */
+	private GraphipediaSettings settings;
+
+	/**
+	 * The crawler of the categories of the Wikipedia edition, used when the MediaWiki API is used.
+	 */
+	private CategoryCrawler crawler;
+
 	/**
 	 * Constructor.
 	 * @param settings The settings of the import.
@@ -70,21 +83,53 @@ public class DisambiguationPageExtractor extends Thread {
 	 * disambiguation pages are searched.
 	 * @param rootCategory The name of the category that contains all the disambiguation pages.
 	 * @param checkpoint The checkpoint information of Graphipedia.
+	 * @param crawler The crawler of the categories of the Wikipedia edition, used when the MediaWiki API is used 
+	 * (see {@link #needsCrawler(GraphipediaSettings, String, String, CheckPoint)}), {@code null} otherwise.
 	 * @param loggerMessageSuffix A suffix appended to the messages of the logger.
 	 */
 	public DisambiguationPageExtractor(GraphipediaSettings settings, String language, 
-			String rootCategory, CheckPoint checkpoint, String loggerMessageSuffix) {
+			String rootCategory, CheckPoint checkpoint, CategoryCrawler crawler, String loggerMessageSuffix) {
 		this.disambiguationPages = new DisambiguationPages(settings.wikipediaEditionDirectory(language));
 		this.language = language;
 		this.rootCategory = rootCategory;
 		this.logger = LoggerFactory.createLogger("Disambig Extractor (" + loggerMessageSuffix + ")");
 		this.checkpoint = checkpoint;
+		this.settings = settings;
+		this.crawler = crawler;
+	}
+
+	/**
+	 * Returns whether the disambiguation pages of a Wikipedia edition are obtained from the SQL dump files.
+	 * @param settings The settings of the import.
+	 * @param language The code of the language of the Wikipedia edition.
+	 * @return {@code true} if the disambiguation pages are obtained from the SQL dump files, {@code false} if they 
+	 * are obtained with the MediaWiki API.
+	 */
+	static boolean fromDump(GraphipediaSettings settings, String language) {
+		return settings.disambiguationFromDump() && settings.getPagePropsFile(language) != null && 
+				settings.getPageFile(language) != null;
+	}
+
+	/**
+	 * Returns whether the extraction of the disambiguation pages of a Wikipedia edition crawls the categories 
+	 * with the MediaWiki API.
+	 * @param settings The settings of the import.
+	 * @param language The code of the language of the Wikipedia edition.
+	 * @param rootCategory The name of the category that contains all the disambiguation pages.
+	 * @param checkpoint The checkpoint information of Graphipedia.
+	 * @return {@code true} if the extraction needs a {@link CategoryCrawler}, {@code false} otherwise.
+	 */
+	static boolean needsCrawler(GraphipediaSettings settings, String language, String rootCategory, CheckPoint checkpoint) {
+		return !checkpoint.isDisambiguationExtracted(language) && rootCategory != null && !fromDump(settings, language);
 	}
 
 	@Override
-	public void run() {
+	protected void runInStage() {
 		logger.info("Extracting disambiguation pages...");
-		if ( this.rootCategory == null ) {
+		boolean fromDump = fromDump(settings, language);
+		if ( settings.disambiguationFromDump() && !fromDump )
+			logger.warning("The SQL dump files of the pages and their properties are not available, using the MediaWiki API");
+		if ( this.rootCategory == null && !fromDump ) {
 			logger.warning("No root category for disambiguation pages. Skipping...");
 			return;
 		}
@@ -99,12 +144,23 @@ public class DisambiguationPageExtractor extends Thread {
 			}
 		}
 		else {
-			try {
-				this.disambiguationPages.load(language, rootCategory, dpFile, logger);
-			} catch (Exception e) {
-				logger.severe("Error while obtaining the disambiguation pages from MediaWiki");
-				e.printStackTrace();
-				System.exit(-1);
+			if ( fromDump ) {
+				try {
+					this.disambiguationPages.load(settings.getPagePropsFile(language), settings.getPageFile(language), dpFile, logger);
+				} catch (Exception e) {
+					logger.severe("Error while obtaining the disambiguation pages from the SQL dump files");
+					e.printStackTrace();
+					System.exit(-1);
+				}
+			}
+			else {
+				try {
+					this.disambiguationPages.load(crawler, rootCategory, dpFile);
+				} catch (Exception e) {
+					logger.severe("Error while obtaining the disambiguation pages from MediaWiki");
+					e.printStackTrace();
+					System.exit(-1);
+				}
 			}
 			try {
 				checkpoint.addDisambiguationExtracted(language, true);
@@ -21,33 +21,36 @@
 //
 package org.graphipedia.dataextract;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.compress.compressors.CompressorInputStream;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.graphipedia.GraphipediaSettings;
 import org.graphipedia.dataimport.NodeAttribute;
 import org.graphipedia.dataimport.NodeLabel;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.CountingOutputStream;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.RunReport;
+import org.graphipedia.metrics.StageRecord;
 import org.graphipedia.progress.CheckPoint;
 import org.graphipedia.progress.LoggerFactory;
-import org.graphipedia.progress.ProgressCounter;
 import org.graphipedia.progress.ReadableTime;
 import org.graphipedia.wikipedia.Namespace;
 import org.graphipedia.wikipedia.Namespaces;
+import org.graphipedia.wikipedia.parser.DumpInput;
+import org.graphipedia.wikipedia.parser.SqlDumpParser;
 import org.neo4j.graphdb.GraphDatabaseService;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.ResourceIterator;
@@ -67,11 +70,6 @@ public class ExtractCrossLinks extends Thread {
 	 */
 	public static final String OUTPUT_FILE_NAME = "cross-links.csv";
 
-	/**
-	 * Pattern to extract a set of cross-language links from the SQL file that contains the cross-language links.   
-	 */
-	private static final Pattern LINKS_PATTERN = Pattern.compile("INSERT INTO `langlinks` VALUES (.+)");
-
 	/**
 	 * Pattern to extract a cross-language link from the SQL file that contains the cross-language links.   
 	 */
@@ -106,7 +104,12 @@ public class ExtractCrossLinks extends Thread {
 	/**
 	 * Tracks the progress of the import.
 	 */
-	private ProgressCounter linkCounter;
+	private Counter linkCounter;
+
+	/**
+	 * Counts the cross-language links read from the SQL file.
+	 */
+	private Counter linksRead;
 
 	/**
 	 * The connection to the Neo4j database.
@@ -140,7 +143,6 @@ public class ExtractCrossLinks extends Thread {
 
 		this.currentLanguage = currentLanguage;
 		logger = LoggerFactory.createLogger("Extract crosslinks  (" + loggerSuffix + ")");
-		linkCounter = new ProgressCounter(logger);
 		this.checkpoint = checkpoint;
 	}
 
@@ -151,16 +153,22 @@ public class ExtractCrossLinks extends Thread {
 			logger.info("Using the cross-links from a previous computation");
 			return;
 		}
+		StageRecord record = RunReport.global().start("extractCrossLinks", currentLanguage);
+		linkCounter = StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.CROSS_LINKS_EXTRACTED), 
+				StageRecord.Count.recordsOut);
+		linksRead = StageRecord.counter(null, StageRecord.Count.recordsIn);
 		long startTime = System.currentTimeMillis();
+		File crossLinkFile = settings.getCrossLinkFile(currentLanguage);
+		if ( crossLinkFile == null ) {
+			logger.severe("The file *" + GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE + " of the Wikipedia edition " + 
+					currentLanguage + " is missing from " + settings.wikipediaEditionDirectory(currentLanguage));
+			System.exit(-1);
+		}
 		try ( Transaction tx = graphDb.beginTx() ) {
-			String inputFile = settings.getCrossLinkFile(currentLanguage).getAbsolutePath();
+			String inputFile = crossLinkFile.getAbsolutePath();
 			try {
-				FileInputStream fin = new FileInputStream(inputFile);
-				BufferedInputStream bis = new BufferedInputStream(fin);
-				CompressorInputStream input = new CompressorStreamFactory().createCompressorInputStream(bis);
+				InputStream input = DumpInput.open(inputFile, DumpInput.AUTO);
 				parse(input, outputFile);
-				fin.close();
-				bis.close();
 				input.close();
 			}
 			catch(Exception e) {
@@ -177,58 +185,81 @@ public class ExtractCrossLinks extends Thread {
 			e.printStackTrace();
 			System.exit(-1);
 		}
-		settings.getCrossLinkFile(currentLanguage).delete();
+		crossLinkFile.delete();
 		long elapsed = System.currentTimeMillis() - startTime;
-		logger.info(String.format("%d links extracted in "+ ReadableTime.readableTime(elapsed), linkCounter.getCount()));
+		logger.info(String.format("%d links extracted in "+ ReadableTime.readableTime(elapsed), linkCounter.count()));
+		record.end();
 	}
 
 	/**
 	 * Parse the SQL file that contains the cross-language links of a Wikipedia language edition
 	 * and outputs the cross-links in a CSV file that is stored
 	 * in the directory corresponding to that edition.
+	 * The {@code INSERT INTO} statements of the SQL file are parsed concurrently by 
+	 * {@link GraphipediaSettings#sqlParserThreads()} threads; 
+	 * the cross-links are written to the output file in the same order as they appear in the SQL file.
 	 * 
 	 * @param inputStream The input stream.
 	 * @param outputFile The output file.
 	 * @throws Exception when something goes wrong while reading/writing files.
 	 */
 	private void parse(InputStream inputStream, File outputFile) throws Exception{
-		BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile));
-		BufferedReader bd  = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-		String line = "";
-		while( (line = bd.readLine()) != null ) {
-			Matcher matcher = LINKS_PATTERN.matcher(line);
-			if ( matcher.find() ) {
-				String links = matcher.group(1);
-				Matcher matcher1 = LINK_PATTERN.matcher(links);
-				while(matcher1.find()) {
-					String sourcePageWikiid = matcher1.group(1);
-					String targetLang = matcher1.group(2);
-					String targetPageTitle = matcher1.group(3);
-					if ( !languages.contains(targetLang) )
-						continue;
-					if (targetPageTitle.length() == 1)
-						targetPageTitle = targetPageTitle.toUpperCase();
-					else if ( targetPageTitle.length() > 1 )
-						targetPageTitle = targetPageTitle.substring(0, 1).toUpperCase() + targetPageTitle.substring(1);
-					Namespace targetNamespace = this.namespaces.get(targetLang).wikipediaPageNamespace(targetPageTitle);
-					if ( targetNamespace.id() == Namespace.MAIN || targetNamespace.id() == Namespace.CATEGORY ) {
-						long sourcePageId = getNodeidByWikiid(sourcePageWikiid, currentLanguage);
-						long targetPageId = getNodeIdByTitle(targetPageTitle, targetLang, targetNamespace);
-						if( sourcePageId != -1 && targetPageId != -1 ) {
-							bw.write(sourcePageId + "," + targetPageId + "\n");
-							linkCounter.increment("Cross-links ");
-						}
-					}
+		final BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new CountingOutputStream(new FileOutputStream(outputFile), 
+				StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.BYTES_WRITTEN), StageRecord.Count.bytesWritten))));
+		SqlDumpParser<List<String>> parser = new SqlDumpParser<List<String>>("langlinks", settings.sqlParserThreads()) {
+			
+			@Override
+			protected List<String> parseStatement(String values) {
+				// Each worker thread needs its own transaction to read from the Neo4j database.
+				try ( Transaction tx = graphDb.beginTx() ) {
+					List<String> links = parseLinks(values);
+					tx.success();
+					return links;
 				}
-
 			}
 
-		}
+			@Override
+			protected void merge(List<String> links) throws IOException {
+				for ( String link : links ) {
+					bw.write(link);
+					linkCounter.increment();
+				}
+			}
+		};
+		parser.parse(inputStream);
 		inputStream.close();
-		bd.close();
 		bw.close();
 	}
 
+	/**
+	 * Parses the cross-language links inserted by a statement of the SQL file. 
+	 * @param links The list of tuples of a statement.
+	 * @return The cross-language links, as lines of the output CSV file.
+	 */
+	private List<String> parseLinks(String links) {
+		List<String> result = new ArrayList<String>();
+		Matcher matcher1 = LINK_PATTERN.matcher(links);
+		while(matcher1.find()) {
+			linksRead.increment();
+			String sourcePageWikiid = matcher1.group(1);
+			String targetLang = matcher1.group(2);
+			String targetPageTitle = matcher1.group(3);
+			if ( !languages.contains(targetLang) )
+				continue;
+			if (targetPageTitle.length() == 1)
+				targetPageTitle = targetPageTitle.toUpperCase();
+			else if ( targetPageTitle.length() > 1 )
+				targetPageTitle = targetPageTitle.substring(0, 1).toUpperCase() + targetPageTitle.substring(1);
+			Namespace targetNamespace = this.namespaces.get(targetLang).wikipediaPageNamespace(targetPageTitle);
+			if ( targetNamespace.id() == Namespace.MAIN || targetNamespace.id() == Namespace.CATEGORY ) {
+				long sourcePageId = getNodeidByWikiid(sourcePageWikiid, currentLanguage);
+				long targetPageId = getNodeIdByTitle(targetPageTitle, targetLang, targetNamespace);
+				if( sourcePageId != -1 && targetPageId != -1 ) 
+					result.add(sourcePageId + "," + targetPageId + "\n");
+			}
+		}
+		return result;
+	}
 
 	/**
 	 * Returns the Neo4j node  corresponding to the Wikipedia page with the specified identifier (identifier affected by Wikipedia)
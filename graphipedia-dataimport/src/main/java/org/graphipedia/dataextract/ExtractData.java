@@ -21,41 +21,66 @@
 //
 package org.graphipedia.dataextract;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
-import javax.xml.stream.XMLOutputFactory;
-import javax.xml.stream.XMLStreamWriter;
-
-import org.apache.commons.compress.compressors.CompressorOutputStream;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
-import org.codehaus.stax2.XMLOutputFactory2;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.cache.ArtifactCache;
+import org.graphipedia.download.CategoryCrawler;
+import org.graphipedia.metrics.SlowPages;
+import org.graphipedia.metrics.StageRecord;
 import org.graphipedia.progress.CheckPoint;
 import org.graphipedia.progress.LoggerFactory;
 import org.graphipedia.progress.ReadableTime;
-import org.graphipedia.wikipedia.Geotags;
+import org.graphipedia.wikipedia.DisambiguationPages;
+import org.graphipedia.wikipedia.GeotagStore;
+import org.graphipedia.wikipedia.InfoboxTemplates;
 import org.graphipedia.wikipedia.Namespaces;
+import org.graphipedia.wikipedia.parser.DumpInput;
 
 /**
  * This thread extracts the data of a specific Wikipedia language edition from the input files 
  * so as they can be imported later to the Neo4j database. 
  * The thread obtains the disambiguation pages, the infobox templates, the namespaces, the pages and the links 
  * among pages. 
+ * If only the topology of the graph is imported (see {@link GraphipediaSettings#topologyOnly()}), the pages and the links 
+ * are extracted from the SQL dump files by a {@link TopologyExtractor} instead of the text of the pages.
+ * An uncompressed XML dump can be split into regions of whole pages, whose links are extracted in parallel 
+ * (see {@link GraphipediaSettings#xmlParsers()}).
  * This thread will create an intermediary file that will contain the data on the extracted Wikipdia pages and links.
+ * If an {@link ArtifactCache} is configured, the outputs of the extraction that are in the cache are restored 
+ * instead of being extracted again, and the outputs that are extracted are stored in the cache.
  */
 public class ExtractData extends Thread {
 
 	/**
-	 * The name of the temporary file that is created by this thread and used as input to the thread that imports the
-	 * Wikipedia graph to Neo4j.
+	 * The name of the directory of the temporary file that is created by this thread and used as input to the thread 
+	 * that imports the Wikipedia graph to Neo4j (see {@link IntermediateFile}).
 	 */
-	public static final String TEMPORARY_LINK_FILE = "temporary-link-file.xml.bz2";
+	public static final String TEMPORARY_LINK_DIRECTORY = "temporary-link-file";
+
+	/**
+	 * The prefix of the names of the directories, in {@code TEMPORARY_LINK_DIRECTORY}, of the intermediate files 
+	 * of the regions of the XML dump that are parsed in parallel.
+	 */
+	private static final String REGION_DIRECTORY_PREFIX = "region-";
+
+	/**
+	 * The maximum size (in bytes) of the head of a XML input other than the XML file of the edition, which is kept in 
+	 * memory so that the input is read only once (see {@link GraphipediaSettings#xmlInput(String)}).
+	 */
+	private static final int XML_HEAD_LIMIT = 64 << 20;
 
 	/**
 	 * The logger of this class.
@@ -90,7 +115,7 @@ public class ExtractData extends Thread {
 	/**
 	 * The geotags associated to pages that describe spatial entities.
 	 */
-	private Map<String, Geotags> geotags;
+	private GeotagStore geotags;
 	
 	/**
 	 * The checkpoint information of Graphipedia.
@@ -102,6 +127,37 @@ public class ExtractData extends Thread {
 	 */
 	private String loggerMessageSuffix;
 
+	/**
+	 * The keys of the outputs of the extraction in the artifact cache, indexed by {@link #NAMESPACES}, 
+	 * {@link #DISAMBIGUATION}, {@link #INFOBOX}, {@link #GEOTAGS} and {@link #LINKS}.
+	 */
+	private ArtifactCache.Key[] cacheKeys;
+
+	/**
+	 * The index of the key of the namespaces in {@link #cacheKeys}.
+	 */
+	private static final int NAMESPACES = 0;
+
+	/**
+	 * The index of the key of the disambiguation pages in {@link #cacheKeys}.
+	 */
+	private static final int DISAMBIGUATION = 1;
+
+	/**
+	 * The index of the key of the infobox templates in {@link #cacheKeys}.
+	 */
+	private static final int INFOBOX = 2;
+
+	/**
+	 * The index of the key of the geotags in {@link #cacheKeys}.
+	 */
+	private static final int GEOTAGS = 3;
+
+	/**
+	 * The index of the key of the intermediate file in {@link #cacheKeys}.
+	 */
+	private static final int LINKS = 4;
+
 	/**
 	 * Creates a new thread to extract a specific Wikipedia language edition.
 	 * @param settings The general settings of Graphipedia.
@@ -120,7 +176,7 @@ public class ExtractData extends Thread {
 		this.dpRootCategory = dpRootCategory;
 		this.itRootCategory = itRootCategory;
 		this.checkpoint = checkpoint;
-		this.geotags = new HashMap<String, Geotags>();
+		this.geotags = GeotagStore.empty();
 		
 	}
 	
@@ -138,7 +194,7 @@ public class ExtractData extends Thread {
 	 * Returns the geotags associated to the pages that describe spatial entities.
 	 * @return The geotags associated to the pages that describe spatial entities.
 	 */
-	public Map<String, Geotags> geotags() {
+	public GeotagStore geotags() {
 		return this.geotags;
 	}
 
@@ -147,52 +203,168 @@ public class ExtractData extends Thread {
 		logger.info("Start extracting data...");
 		long startTime = System.currentTimeMillis();
 		
+		boolean topologyOnly = settings.topologyOnly() && TopologyExtractor.isAvailable(settings, language);
+		File editionDirectory = settings.wikipediaEditionDirectory(language);
+		File nsFile = new File(editionDirectory, ExtractNamespaces.NAMESPACE_FILE);
+		File dpFile = new File(editionDirectory, DisambiguationPages.DISAMBIGUATION_PAGES_FILE);
+		File itFile = new File(editionDirectory, InfoboxTemplates.INFOBOX_TEMPLATES_FILE);
+		File geotagsFile = new File(editionDirectory, ExtractGeoTags.GEOTAGS_FILE);
+		File outputDirectory = new File(editionDirectory, TEMPORARY_LINK_DIRECTORY); 
+		ArtifactCache cache = ArtifactCache.of(settings, logger);
+		boolean geotagsCached = false;
+		if ( cache != null ) {
+			this.cacheKeys = cacheKeys(cache, topologyOnly);
+			try {
+				if ( restore(cache, NAMESPACES, nsFile, checkpoint.isNamespacesExtracted(language)) )
+					checkpoint.addNamespacesExtracted(language, true);
+				if ( restore(cache, DISAMBIGUATION, dpFile, checkpoint.isDisambiguationExtracted(language)) )
+					checkpoint.addDisambiguationExtracted(language, true);
+				if ( !topologyOnly && restore(cache, INFOBOX, itFile, checkpoint.isInfoboxExtracted(language)) )
+					checkpoint.addInfoboxExtracted(language, true);
+				if ( restore(cache, LINKS, outputDirectory, checkpoint.isLinksExtracted(language)) )
+					checkpoint.addLinksExtracted(language, true);
+				if ( settings.getGeotagsFile(language) != null && restore(cache, GEOTAGS, geotagsFile, false) ) {
+					this.geotags = GeotagStore.map(geotagsFile);
+					geotagsCached = true;
+				}
+			} catch (IOException e) {
+				logger.severe("Error while restoring the data from the artifact cache");
+				e.printStackTrace();
+				System.exit(-1);
+			}
+		}
+		
+		// a XML input other than the XML file (e.g., a named pipe or the standard input) is read only once: 
+		// the namespaces are extracted from its head, which is kept in memory, then the links from the whole input.
+		InputStream xmlInput = null;
+		if ( settings.xmlInput(language) != null && ( !checkpoint.isNamespacesExtracted(language) || 
+				(!topologyOnly && !checkpoint.isLinksExtracted(language)) ) ) {
+			try {
+				xmlInput = DumpInput.open(settings.xmlInput(language), settings.inputCodec());
+			} catch (IOException e) {
+				logger.severe("Error while opening the XML input " + settings.xmlInput(language));
+				e.printStackTrace();
+				System.exit(-1);
+			}
+			xmlInput.mark(XML_HEAD_LIMIT);
+		}
+		
+		// the categories are crawled only if the disambiguation pages or the infobox templates are not read from the dump.
+		CategoryCrawler crawler = null;
+		if ( DisambiguationPageExtractor.needsCrawler(settings, language, dpRootCategory, checkpoint) || 
+				(!topologyOnly && InfoboxTemplatesExtractor.needsCrawler(settings, language, itRootCategory, checkpoint)) )
+			crawler = CategoryCrawler.create(settings, language, logger);
 		DisambiguationPageExtractor dpExtractor = 
-				new DisambiguationPageExtractor(settings, this.language, dpRootCategory, checkpoint, loggerMessageSuffix);
+				new DisambiguationPageExtractor(settings, this.language, dpRootCategory, checkpoint, crawler, loggerMessageSuffix);
 		dpExtractor.start();
-		ExtractNamespaces nsExtractor = new ExtractNamespaces(settings, language, 
-				loggerMessageSuffix, new File(settings.wikipediaEditionDirectory(language), ExtractNamespaces.NAMESPACE_FILE), checkpoint);
+		ExtractNamespaces nsExtractor = xmlInput == null ? 
+				new ExtractNamespaces(settings, language, loggerMessageSuffix, nsFile, checkpoint) : 
+				new ExtractNamespaces(settings, language, loggerMessageSuffix, nsFile, checkpoint, new CloseShieldInputStream(xmlInput));
 		nsExtractor.start();
-		InfoboxTemplatesExtractor itExtractor = 
-				new InfoboxTemplatesExtractor(settings, language, itRootCategory, checkpoint, loggerMessageSuffix);
-		itExtractor.start();
-		ExtractGeoTags geotagsExtractor = new ExtractGeoTags(settings, language, loggerMessageSuffix);
-		geotagsExtractor.start();
+		if ( settings.topologyOnly() && !topologyOnly )
+			logger.warning("The SQL dump files of the links are not available, the links are extracted from the text of the pages");
+		InfoboxTemplatesExtractor itExtractor = null;
+		if ( !topologyOnly ) { // the infobox templates are only needed to parse the text of the pages.
+			itExtractor = new InfoboxTemplatesExtractor(settings, language, itRootCategory, checkpoint, crawler, loggerMessageSuffix);
+			itExtractor.start();
+		}
+		ExtractGeoTags geotagsExtractor = null;
+		if ( !geotagsCached ) {
+			geotagsExtractor = new ExtractGeoTags(settings, language, loggerMessageSuffix);
+			geotagsExtractor.start();
+		}
 		try {
 			dpExtractor.join();
 			nsExtractor.join();
 			this.ns = nsExtractor.namespaces();
-			itExtractor.join();
-			geotagsExtractor.join();
-			this.geotags = geotagsExtractor.getGeoTags();
+			if ( itExtractor != null )
+				itExtractor.join();
+			if ( geotagsExtractor != null ) {
+				geotagsExtractor.join();
+				this.geotags = geotagsExtractor.getGeoTags();
+			}
+			if ( xmlInput != null )
+				xmlInput.reset();
 		} catch (InterruptedException e) {
 			logger.severe("Problems with the threads.");
 			e.printStackTrace();
 			System.exit(-1);
+		} catch (IOException e) {
+			logger.severe("The namespaces are not at the beginning of the XML input " + settings.xmlInput(language));
+			e.printStackTrace();
+			System.exit(-1);
+		} finally {
+			if ( crawler != null )
+				crawler.shutdown();
+		}
+		if ( cache != null ) {
+			store(cache, NAMESPACES, nsFile);
+			store(cache, DISAMBIGUATION, dpFile);
+			if ( itExtractor != null )
+				store(cache, INFOBOX, itFile);
+			if ( geotagsExtractor != null && settings.getGeotagsFile(language) != null )
+				store(cache, GEOTAGS, geotagsFile);
+		}
+		if ( xmlInput != null && (topologyOnly || checkpoint.isLinksExtracted(this.language)) ) {
+			try {
+				xmlInput.close();
+			} catch (IOException e) {
+				logger.warning("Error while closing the XML input " + settings.xmlInput(language));
+			}
+			xmlInput = null;
 		}
-		XMLOutputFactory outputFactory = XMLOutputFactory2.newInstance();
-		File outputFile = new File(settings.wikipediaEditionDirectory(language), TEMPORARY_LINK_FILE); 
 		if (checkpoint.isLinksExtracted(this.language)) {
 			logger.info("Using pages and links from a previous computation");
+			if ( cache != null )
+				store(cache, LINKS, outputDirectory);
 			return;
 		}
+		int segments = checkpoint.linksSegmentsExtracted(language);
+		// segments sealed after the last checkpoint are deleted by the intermediate file, missing ones cannot be resumed.
+		if ( !topologyOnly && segments > 0 && IntermediateFile.segments(outputDirectory).size() < segments ) {
+			logger.warning("Only " + IntermediateFile.segments(outputDirectory).size() + " of the " + segments + 
+					" segments in the checkpoint are in " + outputDirectory.getAbsolutePath() + ", the extraction starts again");
+			try {
+				checkpoint.addLinksSegmentExtracted(language, 0, -1, true);
+			} catch (IOException e) {
+				logger.severe("Error while saving the checkpoint to file");
+				e.printStackTrace();
+				System.exit(-1);
+			}
+		}
 		try {
-			FileOutputStream fout = new FileOutputStream(outputFile.getAbsolutePath());
-			BufferedOutputStream bos = new BufferedOutputStream(fout);
-			CompressorOutputStream output = new CompressorStreamFactory().createCompressorOutputStream(CompressorStreamFactory.BZIP2, bos);
-			XMLStreamWriter writer = outputFactory.createXMLStreamWriter(output, "UTF-8");
-			writer.writeStartDocument();
-			writer.writeStartElement("d");
-
-			LinkExtractor linkExtractor = new LinkExtractor(writer, logger, settings, language, 
-					dpExtractor.disambiguationPages(), itExtractor.infoboxTemplates(), this.ns);
-			linkExtractor.parse(settings.getWikipediaXmlFile(language).getAbsolutePath());
-			writer.writeEndElement();
-			writer.writeEndDocument();
-			output.close();
-			fout.close();
-			bos.close();
-			writer.close();
+			if ( topologyOnly ) { // the SQL dump files are extracted at once, the extraction is not resumed.
+				IntermediateFile output = new IntermediateFile(outputDirectory, 0);
+				TopologyExtractor topologyExtractor = new TopologyExtractor(output.writer(), logger, settings, language, 
+						dpExtractor.disambiguationPages(), this.ns);
+				topologyExtractor.extract();
+				output.seal();
+			}
+			else if ( settings.xmlParsers() > 1 && checkpoint.linksSegmentsExtracted(language) == 0 && xmlFile() != null ) {
+				// the regions are not saved to the checkpoint, an interrupted extraction starts again.
+				if ( xmlInput != null )
+					xmlInput.close();
+				extractLinksInParallel(xmlFile(), outputDirectory, dpExtractor.disambiguationPages(), 
+						itExtractor.infoboxTemplates());
+			}
+			else {
+				IntermediateFile output = new IntermediateFile(outputDirectory, checkpoint.linksSegmentsExtracted(language));
+				LinkExtractor linkExtractor = new LinkExtractor(output, logger, settings, language, 
+						dpExtractor.disambiguationPages(), itExtractor.infoboxTemplates(), this.ns, checkpoint);
+				if ( xmlInput != null )
+					linkExtractor.parse(xmlInput);
+				else {
+					File dumpFile = settings.getWikipediaXmlFile(language);
+					if ( dumpFile == null ) {
+						logger.severe("The file *" + GraphipediaSettings.WIKIPEDIA_XML_FILE + " of the Wikipedia edition " + 
+								language + " is missing from " + settings.wikipediaEditionDirectory(language));
+						System.exit(-1);
+					}
+					linkExtractor.parse(dumpFile.getAbsolutePath());
+				}
+				linkExtractor.finish();
+			}
+			reportSlowPages();
 			long elapsed = System.currentTimeMillis() - startTime;
 			logger.info("Data extracted in " + ReadableTime.readableTime(elapsed));
 		}
@@ -208,6 +380,172 @@ public class ExtractData extends Thread {
 			e.printStackTrace();
 			System.exit(-1);
 		}
-		settings.getWikipediaXmlFile(language).delete();
+		if ( cache != null )
+			store(cache, LINKS, outputDirectory);
+		if ( settings.getWikipediaXmlFile(language) != null ) // null if the XML dump is read from another input.
+			settings.getWikipediaXmlFile(language).delete();
+	}
+
+	/**
+	 * Returns the XML dump of the edition if it is an uncompressed file that can be split into regions 
+	 * (see {@link DumpInput#mappableFile(String, String)}).
+	 * @return The XML dump, or {@code null} if it cannot be split into regions.
+	 * @throws IOException when the XML dump cannot be read.
+	 */
+	private File xmlFile() throws IOException {
+		if ( settings.xmlInput(language) != null )
+			return DumpInput.mappableFile(settings.xmlInput(language), settings.inputCodec());
+		if ( settings.getWikipediaXmlFile(language) == null )
+			return null;
+		return DumpInput.mappableFile(settings.getWikipediaXmlFile(language).getAbsolutePath(), DumpInput.AUTO);
+	}
+
+	/**
+	 * Logs the slowest pages to parse of the Wikipedia edition, and the number of pages parsed by the fallback 
+	 * parser because their time budget ran out.
+	 */
+	private void reportSlowPages() {
+		SlowPages slowPages = SlowPages.remove(language);
+		if ( slowPages == null )
+			return;
+		if ( slowPages.fallbacks() > 0 )
+			logger.warning(slowPages.fallbacks() + " pages parsed by the fallback parser (time budget of " + 
+					settings.pageTimeBudget() + " ms exceeded)");
+		if ( !slowPages.slowest().isEmpty() )
+			logger.info("The " + slowPages.slowest().size() + " slowest pages to parse:\n" + slowPages.table());
+	}
+
+	/**
+	 * Extracts the links from the regions of an uncompressed XML dump in parallel, one {@link LinkExtractor} per region.
+	 * Each region is written to its own intermediate file, whose segments are then appended to the intermediate 
+	 * file of the edition in the order of the regions.
+	 * @param xmlFile The uncompressed XML dump.
+	 * @param outputDirectory The directory of the intermediate file of the edition.
+	 * @param dp The disambiguation pages.
+	 * @param it The infobox templates.
+	 * @throws Exception when the links cannot be extracted from a region.
+	 */
+	private void extractLinksInParallel(File xmlFile, File outputDirectory, final DisambiguationPages dp, 
+			final InfoboxTemplates it) throws Exception {
+		IntermediateFile output = new IntermediateFile(outputDirectory, 0);
+		File[] stale = outputDirectory.listFiles();
+		if ( stale != null )
+			for ( File file : stale )
+				if ( file.getName().startsWith(REGION_DIRECTORY_PREFIX) )
+					FileUtils.deleteDirectory(file);
+		List<InputStream> regions = DumpInput.regions(xmlFile, settings.xmlParsers());
+		logger.info("Extracting the links from " + regions.size() + " regions of " + xmlFile.getName() + " in parallel");
+		ExecutorService executor = Executors.newFixedThreadPool(regions.size());
+		List<Future<File>> extractors = new ArrayList<Future<File>>();
+		final StageRecord stage = StageRecord.current();
+		for ( int i = 0; i < regions.size(); i += 1 ) {
+			final InputStream region = regions.get(i);
+			final File regionDirectory = new File(outputDirectory, String.format("%s%03d", REGION_DIRECTORY_PREFIX, i));
+			final Logger regionLogger = LoggerFactory.createLogger("Extract data (" + loggerMessageSuffix + 
+					", region " + (i + 1) + "/" + regions.size() + ")");
+			extractors.add(executor.submit(new Callable<File>() {
+				@Override
+				public File call() throws Exception {
+					if ( stage != null )
+						stage.attach();
+					try {
+						LinkExtractor linkExtractor = new LinkExtractor(new IntermediateFile(regionDirectory, 0), 
+								regionLogger, settings, language, dp, it, ns, null);
+						linkExtractor.parse(region);
+						linkExtractor.finish();
+						return regionDirectory;
+					} finally {
+						region.close();
+						if ( stage != null )
+							stage.detach();
+					}
+				}
+			}));
+		}
+		executor.shutdown();
+		try {
+			for ( Future<File> extractor : extractors )
+				output.append(extractor.get());
+		} catch (ExecutionException e) {
+			executor.shutdownNow();
+			throw e.getCause() instanceof Exception ? (Exception)e.getCause() : e;
+		}
+	}
+
+	/**
+	 * Computes the keys of the outputs of the extraction in the artifact cache. 
+	 * Each key depends on the input files and the settings of the output, and on the keys of the outputs 
+	 * it is extracted from.
+	 * @param cache The artifact cache.
+	 * @param topologyOnly Whether the pages and the links are extracted from the SQL dump files.
+	 * @return The keys of the outputs, indexed by {@link #NAMESPACES}, {@link #DISAMBIGUATION}, {@link #INFOBOX}, 
+	 * {@link #GEOTAGS} and {@link #LINKS}.
+	 */
+	private ArtifactCache.Key[] cacheKeys(ArtifactCache cache, boolean topologyOnly) {
+		ArtifactCache.Key[] keys = new ArtifactCache.Key[5];
+		File xmlFile = settings.xmlInput(language) == null ? settings.getWikipediaXmlFile(language) : 
+			new File(settings.xmlInput(language));
+		keys[NAMESPACES] = cache.key("namespaces", "1").param("language", language);
+		if ( DumpInput.STDIN.equals(settings.xmlInput(language)) )
+			keys[NAMESPACES].uncacheableInput("xml");
+		else
+			keys[NAMESPACES].input("xml", xmlFile);
+		keys[DISAMBIGUATION] = cache.key("disambiguation", "1").param("language", language);
+		if ( settings.disambiguationFromDump() && settings.getPagePropsFile(language) != null && 
+				settings.getPageFile(language) != null ) 
+			keys[DISAMBIGUATION].param("source", GraphipediaSettings.DUMP_SOURCE)
+			.input("page_props", settings.getPagePropsFile(language)).input("page", settings.getPageFile(language));
+		else // the categories are crawled as of the date of the dump, identified by the key of its namespaces.
+			keys[DISAMBIGUATION].param("source", GraphipediaSettings.API_SOURCE).param("api", settings.apiUrl(language))
+			.param("root", dpRootCategory).input("dump", keys[NAMESPACES]);
+		keys[INFOBOX] = cache.key("infobox", "1").param("language", language);
+		if ( settings.infoboxFromDump() && settings.getPageFile(language) != null && 
+				settings.getCategoryLinksFile(language) != null ) 
+			keys[INFOBOX].param("source", GraphipediaSettings.DUMP_SOURCE).param("root", itRootCategory)
+			.input("page", settings.getPageFile(language)).input("categorylinks", settings.getCategoryLinksFile(language))
+			.input("linktarget", settings.getLinkTargetFile(language));
+		else 
+			keys[INFOBOX].param("source", GraphipediaSettings.API_SOURCE).param("api", settings.apiUrl(language))
+			.param("root", itRootCategory).input("dump", keys[NAMESPACES]);
+		keys[GEOTAGS] = cache.key("geotags", "1").input("geo_tags", settings.getGeotagsFile(language));
+		keys[LINKS] = cache.key("links", "1").param("language", language).param("topologyOnly", topologyOnly)
+				.input("namespaces", keys[NAMESPACES]).input("disambiguation", keys[DISAMBIGUATION]);
+		if ( topologyOnly ) 
+			keys[LINKS].input("page", settings.getPageFile(language)).input("pagelinks", settings.getPageLinksFile(language))
+			.input("categorylinks", settings.getCategoryLinksFile(language)).input("redirect", settings.getRedirectFile(language))
+			.input("linktarget", settings.getLinkTargetFile(language));
+		else
+			keys[LINKS].input("infobox", keys[INFOBOX]); // the XML dump is an input of the namespaces.
+		return keys;
+	}
+
+	/**
+	 * Restores an output of the extraction from the artifact cache, unless it has already been extracted.
+	 * If the output is not in the cache, a stale file of the output is deleted, since it may be a hard link to 
+	 * another artifact of the cache, which the extraction must not overwrite.
+	 * @param cache The artifact cache.
+	 * @param output The index of the output in {@link #cacheKeys}.
+	 * @param target The file or directory of the output.
+	 * @param extracted Whether the output has already been extracted, according to the checkpoint.
+	 * @return {@code true} if the output has been restored, {@code false} otherwise.
+	 */
+	private boolean restore(ArtifactCache cache, int output, File target, boolean extracted) {
+		if ( extracted )
+			return false;
+		if ( cache.restore(this.cacheKeys[output], target) )
+			return true;
+		if ( target.isFile() )
+			target.delete();
+		return false;
+	}
+
+	/**
+	 * Stores an output of the extraction in the artifact cache.
+	 * @param cache The artifact cache.
+	 * @param output The index of the output in {@link #cacheKeys}.
+	 * @param source The file or directory of the output.
+	 */
+	private void store(ArtifactCache cache, int output, File source) {
+		cache.store(this.cacheKeys[output], source);
 	}
 }
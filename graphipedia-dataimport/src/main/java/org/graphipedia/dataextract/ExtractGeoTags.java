@@ -1,23 +1,23 @@
 package org.graphipedia.dataextract;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedReader;
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
-import org.apache.commons.compress.compressors.CompressorInputStream;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.StageThread;
 import org.graphipedia.progress.LoggerFactory;
-import org.graphipedia.progress.ProgressCounter;
 import org.graphipedia.progress.ReadableTime;
+import org.graphipedia.wikipedia.GeotagStore;
 import org.graphipedia.wikipedia.Geotags;
+import org.graphipedia.wikipedia.parser.DumpInput;
+import org.graphipedia.wikipedia.parser.SqlDumpParser;
 
 /**
  * This thread extracts the geotags associated to spatial entities in Wikipedia.
@@ -25,18 +25,25 @@ import org.graphipedia.wikipedia.Geotags;
  * describing spatial entities.
  * The output of this thread is an index of the Wikipedia pages that describe spatial entities..
  * The pages are indexed by their wikipedia identifier.  
+ * The index is saved to the file {@code GEOTAGS_FILE} and memory-mapped, so as it does not take space on 
+ * the heap until the Wikipedia edition is imported.
  */
-public class ExtractGeoTags extends Thread {
+public class ExtractGeoTags extends StageThread {
+
+	/**
+	 * The name of the file where the index of the spatial entities is saved.
+	 */
+	public static final String GEOTAGS_FILE = "geotags.bin";
 
 	/**
 	 * The index of the spatial entities.
 	 */
-	private Map<String, Geotags> geoTags;
+	private GeotagStore geoTags;
 
 	/**
-	 * Pattern to extract a set of geotags from the input file.   
+	 * Builds the index of the spatial entities while the input file is parsed.
 	 */
-	private static final Pattern GEO_TAGS_PATTERN = Pattern.compile("INSERT INTO `geo_tags` VALUES (.+)");
+	private GeotagStore.Builder geoTagsBuilder;
 
 	/**
 	 * Pattern to extract the geotag attached to a spatial entity.   
@@ -61,7 +68,7 @@ public class ExtractGeoTags extends Thread {
 	/**
 	 * Tracks the progress of the import.
 	 */
-	private ProgressCounter pageCounter;
+	private Counter pageCounter;
 
 	/**
 	 * Creates a new thread.
@@ -70,27 +77,30 @@ public class ExtractGeoTags extends Thread {
 	 * @param loggerMessageSuffix A suffix appended to all messages of the logger.
 	 */
 	public ExtractGeoTags(GraphipediaSettings settings, String language, String loggerMessageSuffix) {
-		this.geoTags = new HashMap<String, Geotags>();
+		this.geoTags = GeotagStore.empty();
+		this.geoTagsBuilder = new GeotagStore.Builder();
 		this.settings = settings;
 		this.language = language;
 		this.logger = LoggerFactory.createLogger("Extract geotags  (" + loggerMessageSuffix + ")");
-		this.pageCounter = new ProgressCounter(this.logger);
+		this.pageCounter = MetricsRegistry.global().meter(MetricsRegistry.GEOTAGS_EXTRACTED).child();
 	}
 
 	@Override
-	public void run() {
+	protected void runInStage() {
 		if ( settings.getGeotagsFile(language) == null )
 			return;
 		String geotagsFile = settings.getGeotagsFile(language).getAbsolutePath();
 		long startTime = System.currentTimeMillis();
 		try {
-			FileInputStream fin = new FileInputStream(geotagsFile);
-			BufferedInputStream bis = new BufferedInputStream(fin);
-			CompressorInputStream input = new CompressorStreamFactory().createCompressorInputStream(bis);
+			InputStream input = DumpInput.open(geotagsFile, DumpInput.AUTO);
 			parse(input);
-			fin.close();
-			bis.close();
 			input.close();
+			if ( geoTagsBuilder.droppedValues() > 0 )
+				logger.warning(geoTagsBuilder.droppedValues() + " globes or types ignored (too many distinct values)");
+			File storeFile = new File(settings.wikipediaEditionDirectory(language), GEOTAGS_FILE);
+			geoTagsBuilder.build().save(storeFile);
+			this.geoTagsBuilder = null;
+			this.geoTags = GeotagStore.map(storeFile);
 		}
 		catch(Exception e) {
 			logger.severe("Error while reading file " + geotagsFile);
@@ -98,59 +108,85 @@ public class ExtractGeoTags extends Thread {
 			System.exit(-1);
 		}
 		long elapsed = System.currentTimeMillis() - startTime;
-		logger.info(String.format("geotags for %d pages extracted in "+ ReadableTime.readableTime(elapsed), pageCounter.getCount()));
+		logger.info(String.format("geotags for %d pages extracted in "+ ReadableTime.readableTime(elapsed), geoTags.size()));
 	}
 
 	/**
 	 * Parses the input file containing the geo tags.
+	 * The {@code INSERT INTO} statements of the file are parsed concurrently by {@link GraphipediaSettings#sqlParserThreads()} 
+	 * threads.
+	 * When a page has more than one primary geotag, the first one in the file is kept.
 	 * @param inputStream The input file containing the geo tags.
 	 * @throws Exception when something goes wrong while reading the geo tag file.
 	 */
 	private void parse(InputStream inputStream) throws Exception {
-		BufferedReader bd  = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
-		String line = "";
-		while( (line = bd.readLine()) != null ) {
-			Matcher matcher = GEO_TAGS_PATTERN.matcher(line);
-			if ( matcher.find() ) {
-				String geotags = matcher.group(1);
-				Matcher matcher1 = GEO_TAG_PATTERN.matcher(geotags);
-				while(matcher1.find()) {
-					String wikiid = matcher1.group(2);
-					String globe = matcher1.group(3);
-					int primary = Integer.parseInt(matcher1.group(4));
-					String latitude = matcher1.group(5);
-					String longitude = matcher1.group(6);
-					String type = matcher1.group(8);
-					if ( primary != 1 || latitude.equals("NULL") || longitude.equals("NULL") )
-						continue;
-					if ( globe.length() == 0 )
-						globe = null;
-					if ( type.equals("NULL") || type.length() == 0)
-						type = null;
-					else {
-						type = type.substring(1, type.length() - 1);
-						if ( type.length() == 0 )
-							type = null;
+		SqlDumpParser<Map<String, Geotags>> parser = 
+				new SqlDumpParser<Map<String, Geotags>>("geo_tags", settings.sqlParserThreads()) {
+			
+			@Override
+			protected Map<String, Geotags> parseStatement(String values) {
+				return parseGeotags(values);
+			}
+
+			@Override
+			protected void merge(Map<String, Geotags> result) {
+				for ( Map.Entry<String, Geotags> geotag : result.entrySet() ) {
+					int wikiid;
+					try {
+						wikiid = Integer.parseInt(geotag.getKey().trim());
 					}
-					if ( this.geoTags.containsKey(wikiid) )
+					catch(NumberFormatException e) {
 						continue;
-					this.geoTags.put(wikiid, 
-							new Geotags(globe, Double.parseDouble(latitude), Double.parseDouble(longitude), type));
-					this.pageCounter.increment("Pages");
+					}
+					Geotags value = geotag.getValue();
+					geoTagsBuilder.add(wikiid, value.globe(), value.latitude(), value.longitude(), value.type());
+					pageCounter.increment();
 				}
-
 			}
+		};
+		parser.parse(inputStream);
+		inputStream.close();
+	}
 
+	/**
+	 * Parses the geotags inserted by a statement of the input file.
+	 * @param geotags The list of tuples of a statement.
+	 * @return The primary geotags of the pages, in the order in which they appear in the statement. 
+	 */
+	private Map<String, Geotags> parseGeotags(String geotags) {
+		Map<String, Geotags> result = new LinkedHashMap<String, Geotags>();
+		Matcher matcher1 = GEO_TAG_PATTERN.matcher(geotags);
+		while(matcher1.find()) {
+			String wikiid = matcher1.group(2);
+			String globe = matcher1.group(3);
+			int primary = Integer.parseInt(matcher1.group(4));
+			String latitude = matcher1.group(5);
+			String longitude = matcher1.group(6);
+			String type = matcher1.group(8);
+			if ( primary != 1 || latitude.equals("NULL") || longitude.equals("NULL") )
+				continue;
+			if ( globe.length() == 0 )
+				globe = null;
+			if ( type.equals("NULL") || type.length() == 0)
+				type = null;
+			else {
+				type = type.substring(1, type.length() - 1);
+				if ( type.length() == 0 )
+					type = null;
+			}
+			if ( result.containsKey(wikiid) )
+				continue;
+			result.put(wikiid, 
+					new Geotags(globe, Double.parseDouble(latitude), Double.parseDouble(longitude), type));
 		}
-		inputStream.close();
-		bd.close();
+		return result;
 	}
 
 	/**
 	 * Returns the geotags obtained by this thread.
 	 * @return The geotags obtained by this thread.
 	 */
-	public Map<String, Geotags> getGeoTags() {
+	public GeotagStore getGeoTags() {
 		return this.geoTags;
 	}
 
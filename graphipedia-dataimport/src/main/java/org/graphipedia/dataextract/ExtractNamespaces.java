@@ -27,9 +27,11 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.logging.Logger;
 
 import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.metrics.StageThread;
 import org.graphipedia.progress.CheckPoint;
 import org.graphipedia.progress.LoggerFactory;
 import org.graphipedia.wikipedia.Namespace;
@@ -39,7 +41,7 @@ import org.graphipedia.wikipedia.Namespaces;
  * This thread extracts from the Wikipedia XML file the names of all the namespaces in a Wikipedia language edition.
  *
  */
-public class ExtractNamespaces extends Thread {
+public class ExtractNamespaces extends StageThread {
 
 	/**
 	 * Name of the file where the namespaces are saved after being extracted from the Wikipedia XML file.
@@ -76,6 +78,11 @@ public class ExtractNamespaces extends Thread {
 	 */
 	private String language;
 
+	/**
+	 * The XML input the namespaces are extracted from, if it is not the XML file of the edition.
+	 */
+	private InputStream xmlInput;
+
 	/**
 	 * Creates a new thread to extract the namespaces of a Wikipedia language edition.
 	 * @param settings The general settings of Graphipedia.
@@ -92,10 +99,27 @@ public class ExtractNamespaces extends Thread {
 		this.settings = settings;
 		this.language = language;
 		this.logger = LoggerFactory.createLogger("Namespace Extractor (" + loggerMessageSuffix + ")");
+		this.xmlInput = null;
+	}
+
+	/**
+	 * Creates a new thread to extract the namespaces of a Wikipedia language edition from a XML input 
+	 * other than the XML file of the edition.
+	 * @param settings The general settings of Graphipedia.
+	 * @param language The code of the language of the Wikipedia edition being imported. 
+	 * @param loggerMessageSuffix A suffix apppended to all the messages of the logger.
+	 * @param namespaceFile The file that contains the namespaces, if already extracted in a previous computation
+	 * @param checkPoint The checkpoint of Graphipedia.
+	 * @param xmlInput The XML input (uncompressed), which is closed once the namespaces are extracted.
+	 */
+	public ExtractNamespaces(GraphipediaSettings settings, String language, String loggerMessageSuffix, 
+			File namespaceFile, CheckPoint checkPoint, InputStream xmlInput) {
+		this(settings, language, loggerMessageSuffix, namespaceFile, checkPoint);
+		this.xmlInput = xmlInput;
 	}
 
 	@Override
-	public void run() {		
+	protected void runInStage() {		
 		logger.info("Extract namespaces....");
 		// Loading the namespaces from a previous computation.
 		if ( this.checkPoint.isNamespacesExtracted(language) ) {
@@ -121,7 +145,17 @@ public class ExtractNamespaces extends Thread {
 		else {
 			NamespaceExtractor extractor = new NamespaceExtractor();
 			try {
-				extractor.parse(settings.getWikipediaXmlFile(language).getAbsolutePath());
+				if ( this.xmlInput != null )
+					extractor.parse(this.xmlInput);
+				else {
+					File dumpFile = settings.getWikipediaXmlFile(language);
+					if ( dumpFile == null ) {
+						logger.severe("The file *" + GraphipediaSettings.WIKIPEDIA_XML_FILE + " of the Wikipedia edition " + 
+								language + " is missing from " + settings.wikipediaEditionDirectory(language));
+						System.exit(-1);
+					}
+					extractor.parse(dumpFile.getAbsolutePath());
+				}
 				this.namespaces = extractor.namespaces();
 				BufferedWriter bw = new BufferedWriter(new FileWriter(this.namespaceFile));
 				for ( Namespace namespace : this.namespaces ) 
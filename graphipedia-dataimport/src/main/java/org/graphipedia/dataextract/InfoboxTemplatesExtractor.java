@@ -26,15 +26,18 @@ import java.io.IOException;
 import java.util.logging.Logger;
 
 import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.download.CategoryCrawler;
+import org.graphipedia.metrics.StageThread;
 import org.graphipedia.progress.CheckPoint;
 import org.graphipedia.progress.LoggerFactory;
 import org.graphipedia.wikipedia.InfoboxTemplates;
 
 /**
- * This thread extracts the infobox templates of a given Wikipedia language edition.
+ * This thread extracts the infobox templates of a given Wikipedia language edition, either with the MediaWiki API or, 
+ * if so specified in the settings (see {@link GraphipediaSettings#infoboxFromDump()}), from the SQL dump files.
  *
  */
-public class InfoboxTemplatesExtractor extends Thread {
+public class InfoboxTemplatesExtractor extends StageThread {
 
 	/**
 	 * The logger of this class.
@@ -63,6 +66,16 @@ public class InfoboxTemplatesExtractor extends Thread {
 	 */
 	private CheckPoint checkpoint;
 
+	/**
+	 * The settings of the import.
+	 */
+	private GraphipediaSettings settings;
+
+	/**
+	 * The crawler of the categories of the Wikipedia edition, used when the MediaWiki API is used.
+	 */
+	private CategoryCrawler crawler;
+
 	/**
 	 * Constructor.
 	 * @param settings The settings of the import.
@@ -70,19 +83,48 @@ public class InfoboxTemplatesExtractor extends Thread {
 	 * infobox templates are searched.
 	 * @param rootCategory The name of the category that contains all the infobox templates.
 	 * @param checkpoint The checkpoint information of Graphipedia.
+	 * @param crawler The crawler of the categories of the Wikipedia edition, used when the MediaWiki API is used 
+	 * (see {@link #needsCrawler(GraphipediaSettings, String, String, CheckPoint)}), {@code null} otherwise.
 	 * @param loggerMessageSuffix A suffix appended to all the messages of the logger.
 	 */
 	public InfoboxTemplatesExtractor(GraphipediaSettings settings, String language, 
-			String rootCategory, CheckPoint checkpoint, String loggerMessageSuffix) {
+			String rootCategory, CheckPoint checkpoint, CategoryCrawler crawler, String loggerMessageSuffix) {
 		this.infoboxTemplates = new InfoboxTemplates(settings.wikipediaEditionDirectory(language));
 		this.language = language;
 		this.rootCategory = rootCategory;
 		this.logger = LoggerFactory.createLogger("Infobox Extractor (" + loggerMessageSuffix + ")");
 		this.checkpoint = checkpoint;
+		this.settings = settings;
+		this.crawler = crawler;
+	}
+
+	/**
+	 * Returns whether the infobox templates of a Wikipedia edition are obtained from the SQL dump files.
+	 * @param settings The settings of the import.
+	 * @param language The code of the language of the Wikipedia edition.
+	 * @return {@code true} if the infobox templates are obtained from the SQL dump files, {@code false} if they 
+	 * are obtained with the MediaWiki API.
+	 */
+	static boolean fromDump(GraphipediaSettings settings, String language) {
+		return settings.infoboxFromDump() && settings.getPageFile(language) != null && 
+				settings.getCategoryLinksFile(language) != null;
+	}
+
+	/**
+	 * Returns whether the extraction of the infobox templates of a Wikipedia edition crawls the categories 
+	 * with the MediaWiki API.
+	 * @param settings The settings of the import.
+	 * @param language The code of the language of the Wikipedia edition.
+	 * @param rootCategory The name of the category that contains all the infobox templates.
+	 * @param checkpoint The checkpoint information of Graphipedia.
+	 * @return {@code true} if the extraction needs a {@link CategoryCrawler}, {@code false} otherwise.
+	 */
+	static boolean needsCrawler(GraphipediaSettings settings, String language, String rootCategory, CheckPoint checkpoint) {
+		return !checkpoint.isInfoboxExtracted(language) && rootCategory != null && !fromDump(settings, language);
 	}
 
 	@Override
-	public void run() {
+	protected void runInStage() {
 		logger.info("Extracting infobox templates...");
 		if ( this.rootCategory == null) {
 			logger.warning("No root category for infobox templates. Skipping...");
@@ -99,12 +141,27 @@ public class InfoboxTemplatesExtractor extends Thread {
 			}
 		}
 		else {
-			try {
-				this.infoboxTemplates.load(language, rootCategory, itFile, logger);
-			} catch (Exception e) {
-				logger.severe("Error while reading the infobox templates from MediaWiki");
-				e.printStackTrace();
-				System.exit(-1);
+			boolean fromDump = fromDump(settings, language);
+			if ( settings.infoboxFromDump() && !fromDump )
+				logger.warning("The SQL dump files of the pages and the categories are not available, using the MediaWiki API");
+			if ( fromDump ) {
+				try {
+					this.infoboxTemplates.load(settings.getPageFile(language), settings.getCategoryLinksFile(language), 
+							settings.getLinkTargetFile(language), rootCategory, itFile, logger);
+				} catch (Exception e) {
+					logger.severe("Error while reading the infobox templates from the SQL dump files");
+					e.printStackTrace();
+					System.exit(-1);
+				}
+			}
+			else {
+				try {
+					this.infoboxTemplates.load(crawler, rootCategory, itFile);
+				} catch (Exception e) {
+					logger.severe("Error while reading the infobox templates from MediaWiki");
+					e.printStackTrace();
+					System.exit(-1);
+				}
 			}
 			try {
 				checkpoint.addInfoboxExtracted(this.language, true);
@@ -0,0 +1,290 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.dataextract;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.FileUtils;
+import org.codehaus.stax2.XMLOutputFactory2;
+import org.graphipedia.jfr.FlightEvents;
+import org.graphipedia.jfr.SegmentFlushEvent;
+import org.graphipedia.metrics.CountingOutputStream;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.StageRecord;
+
+/**
+ * The intermediate file that contains the pages and the links extracted from a Wikipedia edition, 
+ * and that is imported to Neo4j by {@link org.graphipedia.dataimport.ImportGraph}.
+ * The file is written as a sequence of segments, each a complete (compressed) XML document.
+ * A segment is written to a temporary file and sealed (flushed to the disk and renamed, and the rename flushed to 
+ * the disk) once complete, 
+ * so that the extraction can save its progress to the checkpoint after each segment and, if interrupted, 
+ * resume after the last sealed segment.
+ * The bytes written, before and after compression, are counted in the stage of the thread that writes the segments 
+ * (see {@link StageRecord}).
+ */
+public class IntermediateFile {
+
+	/**
+	 * The prefix of the names of the segments.
+	 */
+	private static final String SEGMENT_PREFIX = "segment-";
+
+	/**
+	 * The suffix of the names of the segments.
+	 */
+	private static final String SEGMENT_SUFFIX = ".xml.bz2";
+
+	/**
+	 * The suffix of the name of a segment being written.
+	 */
+	private static final String TEMPORARY_SUFFIX = ".tmp";
+
+	/**
+	 * Object used to write the segments.
+	 */
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory2.newInstance();
+
+	/**
+	 * The directory that contains the segments.
+	 */
+	private File directory;
+
+	/**
+	 * The number of sealed segments.
+	 */
+	private int sealedSegments;
+
+	/**
+	 * The stream of the segment being written, if any.
+	 */
+	private FileOutputStream fout;
+
+	/**
+	 * The buffered stream of the segment being written, if any.
+	 */
+	private BufferedOutputStream bos;
+
+	/**
+	 * The compressed stream of the segment being written, if any.
+	 */
+	private BZip2CompressorOutputStream output;
+
+	/**
+	 * The writer of the segment being written, if any.
+	 */
+	private XMLStreamWriter writer;
+
+	/**
+	 * Opens an intermediate file, to write new segments after the given number of sealed segments.
+	 * The segments written after them (e.g., by an interrupted extraction that did not save them to the checkpoint) 
+	 * are deleted.
+	 * @param directory The directory that contains the segments. 
+	 * @param sealedSegments The number of segments that are kept.
+	 * @throws IOException when the directory cannot be created.
+	 */
+	public IntermediateFile(File directory, int sealedSegments) throws IOException {
+		this.directory = directory;
+		this.sealedSegments = sealedSegments;
+		if ( !directory.isDirectory() && !directory.mkdirs() )
+			throw new IOException("Cannot create directory " + directory.getAbsolutePath());
+		File[] files = directory.listFiles();
+		if ( files != null )
+			for ( File file : files ) 
+				if ( file.getName().endsWith(TEMPORARY_SUFFIX) || segmentIndex(file) >= sealedSegments )
+					file.delete();
+	}
+
+	/**
+	 * Returns the writer of the segment being written; a new segment is started if needed.
+	 * @return The writer of the segment being written.
+	 * @throws IOException when the segment cannot be created.
+	 * @throws XMLStreamException when the beginning of the segment cannot be written.
+	 */
+	public XMLStreamWriter writer() throws IOException, XMLStreamException {
+		if ( writer == null ) {
+			fout = new FileOutputStream(temporaryFile(sealedSegments));
+			bos = new BufferedOutputStream(new CountingOutputStream(fout, StageRecord.counter(
+					MetricsRegistry.global().meter(MetricsRegistry.BYTES_WRITTEN), StageRecord.Count.bytesWritten)));
+			output = new BZip2CompressorOutputStream(bos);
+			writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(new CountingOutputStream(output, 
+					StageRecord.counter(null, StageRecord.Count.bytesWrittenUncompressed)), "UTF-8");
+			writer.writeStartDocument();
+			writer.writeStartElement("d");
+		}
+		return writer;
+	}
+
+	/**
+	 * Seals the segment being written, if any: the segment is completed, flushed to the disk and renamed, 
+	 * so that it is not deleted when the intermediate file is opened again.
+	 * The directory is flushed to the disk after the rename, so that the segment is not lost once its number 
+	 * is saved to the checkpoint.
+	 * @return The number of sealed segments.
+	 * @throws IOException when the segment cannot be written.
+	 * @throws XMLStreamException when the end of the segment cannot be written.
+	 */
+	public int seal() throws IOException, XMLStreamException {
+		if ( writer == null )
+			return sealedSegments;
+		SegmentFlushEvent event = null;
+		if ( FlightEvents.ENABLED ) {
+			event = new SegmentFlushEvent();
+			event.begin();
+		}
+		writer.writeEndElement();
+		writer.writeEndDocument();
+		writer.flush();
+		writer.close();
+		output.finish(); // detaches the compressed stream from the file, which is flushed and closed below.
+		bos.flush();
+		fout.getFD().sync();
+		fout.close();
+		writer = null;
+		output = null;
+		bos = null;
+		fout = null;
+		Files.move(temporaryFile(sealedSegments).toPath(), segmentFile(sealedSegments).toPath(), 
+				StandardCopyOption.ATOMIC_MOVE);
+		forceDirectory(directory);
+		if ( event != null && event.shouldCommit() ) {
+			event.segment = segmentFile(sealedSegments).getAbsolutePath();
+			event.size = segmentFile(sealedSegments).length();
+			event.commit();
+		}
+		sealedSegments += 1;
+		return sealedSegments;
+	}
+
+	/**
+	 * Returns the sealed segments of an intermediate file, in the order in which they were written.
+	 * @param directory The directory that contains the segments.
+	 * @return The sealed segments of the intermediate file.
+	 */
+	public static List<File> segments(File directory) {
+		List<File> segments = new ArrayList<File>();
+		for ( int i = 0; ; i += 1 ) {
+			File segment = new File(directory, segmentName(i));
+			if ( !segment.isFile() )
+				return segments;
+			segments.add(segment);
+		}
+	}
+
+	/**
+	 * Moves the sealed segments of another intermediate file after the sealed segments of this file, in the same order;
+	 * the directory of the other file is then deleted.
+	 * No segment of this file must be being written.
+	 * @param other The directory that contains the segments of the other intermediate file.
+	 * @return The number of sealed segments of this file.
+	 * @throws IOException when a segment cannot be moved.
+	 */
+	public int append(File other) throws IOException {
+		if ( writer != null )
+			throw new IOException("A segment of " + directory.getAbsolutePath() + " is being written");
+		for ( File segment : segments(other) ) {
+			Files.move(segment.toPath(), segmentFile(sealedSegments).toPath(), StandardCopyOption.ATOMIC_MOVE);
+			sealedSegments += 1;
+		}
+		forceDirectory(directory);
+		FileUtils.deleteDirectory(other);
+		return sealedSegments;
+	}
+
+	/**
+	 * Flushes the entries of a directory (e.g., the segments renamed in it) to the disk.
+	 * Some platforms (e.g., Windows) do not open directories; their renames are not flushed.
+	 * @param directory The directory.
+	 * @throws IOException when the directory cannot be flushed.
+	 */
+	private static void forceDirectory(File directory) throws IOException {
+		FileChannel channel;
+		try {
+			channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+		} catch (IOException e) {
+			return;
+		}
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Returns the file of a sealed segment.
+	 * @param index The index of the segment.
+	 * @return The file of the segment.
+	 */
+	private File segmentFile(int index) {
+		return new File(directory, segmentName(index));
+	}
+
+	/**
+	 * Returns the file of a segment being written.
+	 * @param index The index of the segment.
+	 * @return The file of the segment being written.
+	 */
+	private File temporaryFile(int index) {
+		return new File(directory, segmentName(index) + TEMPORARY_SUFFIX);
+	}
+
+	/**
+	 * Returns the name of the file of a sealed segment.
+	 * @param index The index of the segment.
+	 * @return The name of the file of the segment.
+	 */
+	private static String segmentName(int index) {
+		return String.format("%s%05d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * Returns the index of a sealed segment.
+	 * @param file A file in the directory of the segments.
+	 * @return The index of the segment, or {@code -1} if the file is not a sealed segment.
+	 */
+	private static int segmentIndex(File file) {
+		String name = file.getName();
+		if ( !name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX) )
+			return -1;
+		try {
+			return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+}
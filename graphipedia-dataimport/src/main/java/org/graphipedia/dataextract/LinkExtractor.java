@@ -21,6 +21,7 @@
 //
 package org.graphipedia.dataextract;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -31,7 +32,14 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
 
 import org.graphipedia.GraphipediaSettings;
-import org.graphipedia.progress.ProgressCounter;
+import org.graphipedia.jfr.FlightEvents;
+import org.graphipedia.jfr.PageParseEvent;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.Histogram;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.SlowPages;
+import org.graphipedia.metrics.StageRecord;
+import org.graphipedia.progress.CheckPoint;
 import org.graphipedia.wikipedia.DisambiguationPages;
 import org.graphipedia.wikipedia.InfoboxTemplates;
 import org.graphipedia.wikipedia.Link;
@@ -47,14 +55,54 @@ import org.graphipedia.wikipedia.parser.XmlFileTags;
  * This class parses the XML file that contains a Wikipedia language editions and extracts all the 
  * links between the Wikipedia pages.
  * The pages that do not belong to the main namespace or to the category namespace are ignored. 
+ * The pages are written to an {@link IntermediateFile}, whose segments are sealed and saved to the checkpoint 
+ * every {@code SEGMENT_PAGES} pages; if the extraction is interrupted, it resumes after the last page of 
+ * the last sealed segment.
+ * Since the pages are sorted by identifier in the XML file, the pages already extracted are recognized by 
+ * their identifier and skipped without being parsed.
  *
  */
 public class LinkExtractor extends SimpleStaxParser {
 
 	/**
-	 * The stream used to write the output file.
+	 * The number of pages written to a segment of the output file before it is sealed.
 	 */
-	private final XMLStreamWriter writer;
+	private static final int SEGMENT_PAGES = 100000;
+
+	/**
+	 * The output file.
+	 */
+	private final IntermediateFile output;
+
+	/**
+	 * The checkpoint information, where the progress of the extraction is saved.
+	 */
+	private final CheckPoint checkpoint;
+
+	/**
+	 * The code of the language of the Wikipedia edition.
+	 */
+	private final String language;
+
+	/**
+	 * The identifier of the last page extracted by a previous extraction, or {@code -1}.
+	 */
+	private final long resumeAfter;
+
+	/**
+	 * The number of pages written to the segment of the output file being written.
+	 */
+	private int segmentPages;
+
+	/**
+	 * The number of pages skipped because they were extracted by a previous extraction.
+	 */
+	private int skippedPages;
+
+	/**
+	 * The logger used to record the progress of the extraction.
+	 */
+	private final Logger logger;
 
 	/**
 	 * The parser for the textual content of a Wikipedia page. 
@@ -64,7 +112,27 @@ public class LinkExtractor extends SimpleStaxParser {
 	/** 
 	 * A counter used to track the progress of this extractor.
 	 */
-	private ProgressCounter pageCounter;
+	private Counter pageCounter;
+
+	/**
+	 * The number of pages read from the input file.
+	 */
+	private Counter pagesRead;
+
+	/**
+	 * The distribution of the time (in nanoseconds) taken to parse the wikitext of a page.
+	 */
+	private Histogram parseTime;
+
+	/**
+	 * The slowest pages to parse of the Wikipedia edition.
+	 */
+	private final SlowPages slowPages;
+
+	/**
+	 * The time (in nanoseconds) within which the text of a page must be parsed, or {@code 0} for no limit.
+	 */
+	private final long pageTimeBudget;
 
 	/**
 	 * The title of the page that is being currently parsed from the input file.
@@ -98,7 +166,9 @@ public class LinkExtractor extends SimpleStaxParser {
 
 	/**
 	 * Creates a new {@code LinkExtractor}.
-	 * @param writer The intermediate XML file created by this {@code LinkEntractor}.
+	 * If some segments of the output file have been extracted by a previous extraction (see 
+	 * {@link CheckPoint#linksSegmentsExtracted(String)}), the extraction resumes after them.
+	 * @param output The intermediate XML file created by this {@code LinkEntractor}.
 	 * @param logger The logger used to record the progress of the extraction.
 	 * @param settings The settings of the import.
 	 * @param language The code of the language of the Wikipedia edition for which the links are 
@@ -106,20 +176,36 @@ public class LinkExtractor extends SimpleStaxParser {
 	 * @param dp The disambiguation pages.
 	 * @param it The infobox templates.
 	 * @param ns The namespaces.
+	 * @param checkpoint The checkpoint information, where the progress of the extraction is saved, or {@code null} 
+	 * if the progress is not saved (e.g., when the extractor parses a region of the XML file).
 	 */
-	public LinkExtractor(XMLStreamWriter writer, Logger logger, GraphipediaSettings settings, 
-			String language, DisambiguationPages dp, InfoboxTemplates it, Namespaces ns) {
+	public LinkExtractor(IntermediateFile output, Logger logger, GraphipediaSettings settings, 
+			String language, DisambiguationPages dp, InfoboxTemplates it, Namespaces ns, CheckPoint checkpoint) {
 		super(Arrays.asList(XmlFileTags.page.toString(), XmlFileTags.title.toString(), 
 				XmlFileTags.text.toString(), XmlFileTags.id.toString()), 
 				Arrays.asList(XmlFileTags.redirect.toString()));
-		this.writer = writer;
+		this.output = output;
+		this.checkpoint = checkpoint;
+		this.language = language;
+		this.resumeAfter = checkpoint == null ? -1 : checkpoint.linksLastPageExtracted(language);
+		this.segmentPages = 0;
+		this.skippedPages = 0;
+		this.logger = logger;
 		this.wikiTextParser = new WikiTextParser(ns, it, dp);
 		this.title = null;
 		this.text = null;
 		this.id = null;
 		this.attributeValues = new ArrayList<String>();
-		this.pageCounter = new ProgressCounter(logger);
+		this.pageCounter = StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.PAGES_PARSED), 
+				StageRecord.Count.recordsOut);
+		this.pagesRead = StageRecord.counter(null, StageRecord.Count.recordsIn);
+		this.parseTime = MetricsRegistry.global().histogram(MetricsRegistry.PAGE_PARSE_TIME);
+		this.slowPages = SlowPages.of(language, settings.slowPages());
+		this.pageTimeBudget = settings.pageTimeBudget() * 1000000;
 		logger.info("Extracting the Wikipedia pages...");
+		if ( resumeAfter >= 0 )
+			logger.info("Resuming after page " + resumeAfter + " (" + checkpoint.linksSegmentsExtracted(language) + 
+					" segments extracted by a previous computation)");
 		this.dp = dp;
 		this.ns = ns;
 	}
@@ -129,20 +215,24 @@ public class LinkExtractor extends SimpleStaxParser {
 	 * 
 	 * @return The number of pages that have already been parsed from the input file.
 	 */
-	public int getPageCount() {
-		return pageCounter.getCount();
+	public long getPageCount() {
+		return pageCounter.count();
 	}
 
 	@Override
 	protected boolean handleElement(String element, String value) throws XMLStreamException {
 		if (XmlFileTags.page.toString().equals(element)) {
+			pagesRead.increment();
 			Namespace pageNamespace = ns.wikipediaPageNamespace(title); 
-			if ( pageNamespace.id() == Namespace.CATEGORY || 
+			if ( resumeAfter >= 0 && Long.parseLong(id) <= resumeAfter ) 
+				skippedPages += 1;
+			else if ( pageNamespace.id() == Namespace.CATEGORY || 
 					pageNamespace.id() == Namespace.MAIN ) {
 				if ( attributeValues.size() > 0 ) // we have a redirect page
 					writeRedirectPage(title, id, attributeValues.get(0));
 				else
 					writePage(title, id, text); /// regular Wikipedia page.
+				pageWritten(id);
 			}
 			title = null;
 			text = null;
@@ -167,6 +257,53 @@ public class LinkExtractor extends SimpleStaxParser {
 		return true;
 	}
 
+	/**
+	 * Seals the last segment of the output file, once the whole input file is parsed.
+	 * @throws XMLStreamException when the segment cannot be written.
+	 */
+	public void finish() throws XMLStreamException {
+		if ( skippedPages > 0 )
+			logger.info(skippedPages + " pages skipped (extracted by a previous computation)");
+		try {
+			output.seal();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/**
+	 * Records that a page has been written to the output file; the segment being written is sealed and 
+	 * saved to the checkpoint if it is complete.
+	 * @param id The identifier of the page.
+	 * @throws XMLStreamException when the segment cannot be sealed.
+	 */
+	private void pageWritten(String id) throws XMLStreamException {
+		segmentPages += 1;
+		if ( segmentPages < SEGMENT_PAGES )
+			return;
+		try {
+			int segments = output.seal();
+			if ( checkpoint != null )
+				checkpoint.addLinksSegmentExtracted(language, segments, Long.parseLong(id), true);
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+		segmentPages = 0;
+	}
+
+	/**
+	 * Returns the writer of the segment of the output file being written.
+	 * @return The writer of the segment of the output file being written.
+	 * @throws XMLStreamException when the segment cannot be created.
+	 */
+	private XMLStreamWriter writer() throws XMLStreamException {
+		try {
+			return output.writer();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
 	/**
 	 * Writes the information extracted from a Wikipedia redirect page to the output file.
 	 * 
@@ -176,6 +313,7 @@ public class LinkExtractor extends SimpleStaxParser {
 	 * @throws XMLStreamException if something goes wrong while writing the information to the output file.
 	 */
 	private void writeRedirectPage(String title, String id, String targetRedirect) throws XMLStreamException {
+		XMLStreamWriter writer = writer();
 		writer.writeStartElement(IntermediateXmlFileTags.page.toString());
 
 		writer.writeStartElement(IntermediateXmlFileTags.title.toString());
@@ -202,7 +340,7 @@ public class LinkExtractor extends SimpleStaxParser {
 
 		writer.writeEndElement(); // end page
 
-		pageCounter.increment("Parsing pages");
+		pageCounter.increment();
 	}
 
 
@@ -215,6 +353,7 @@ public class LinkExtractor extends SimpleStaxParser {
 	 * @throws XMLStreamException if something goes wrong while writing the information to the output file.
 	 */
 	private void writePage(String title, String id, String text) throws XMLStreamException {
+		XMLStreamWriter writer = writer();
 		writer.writeStartElement(IntermediateXmlFileTags.page.toString());
 
 		writer.writeStartElement(IntermediateXmlFileTags.title.toString());
@@ -235,8 +374,19 @@ public class LinkExtractor extends SimpleStaxParser {
 		writer.writeCharacters(Integer.toString(ns.wikipediaPageNamespace(title).id()));
 		writer.writeEndElement();
 
-		WikiTextParserResult result = wikiTextParser.parse(title, text);
+		PageParseEvent parseEvent = null;
+		if ( FlightEvents.ENABLED ) {
+			parseEvent = new PageParseEvent();
+			parseEvent.begin();
+		}
+		long parseStart = System.nanoTime();
+		WikiTextParserResult result = wikiTextParser.parse(title, text, pageTimeBudget);
+		long parseNanos = System.nanoTime() - parseStart;
+		parseTime.record(parseNanos);
+		slowPages.record(title, text.length(), parseNanos, result.fallback());
 		Set<Link> links = result.links();
+		if ( parseEvent != null )
+			parseEvent.parsed(language, title, text.length(), links.size(), parseNanos);
 		String infoboxName = result.infoboxName();
 		if (infoboxName != null) {
 			writer.writeStartElement(IntermediateXmlFileTags.infoboxName.toString());
@@ -287,6 +437,6 @@ public class LinkExtractor extends SimpleStaxParser {
 			writer.writeEndElement(); // end link
 		}
 		writer.writeEndElement(); // end page
-		pageCounter.increment("Parsing pages");
+		pageCounter.increment();
 	}
 }
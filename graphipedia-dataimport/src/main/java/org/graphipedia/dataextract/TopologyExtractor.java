@@ -0,0 +1,457 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.dataextract;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.StageRecord;
+import org.graphipedia.wikipedia.DisambiguationPages;
+import org.graphipedia.wikipedia.Namespace;
+import org.graphipedia.wikipedia.Namespaces;
+import org.graphipedia.wikipedia.parser.IntermediateXmlFileTags;
+import org.graphipedia.wikipedia.parser.SqlTupleReader;
+
+/**
+ * This class extracts the pages and the links between the pages of a Wikipedia language edition from the SQL dump 
+ * files of the pages ({@code page}), the links ({@code pagelinks}), the categories ({@code categorylinks}) and 
+ * the redirects ({@code redirect}), without parsing the text of the pages.
+ * The output is the same intermediate XML file written by the {@link LinkExtractor}, except that the links have 
+ * no anchors, rank, offset and occurrences, and the pages have no infobox.
+ * 
+ * The four tables are sorted by the identifier of the page (the source of the links), so they are merged in a 
+ * single pass, holding in memory only the links of one page at a time.
+ * In the most recent dumps, the links refer to their target by the identifier of a row of the {@code linktarget} table;
+ * in this case, the link targets in the main and category namespaces are loaded in memory.
+ * 
+ * Since the position of the links in the text is not known, all the links to articles of a disambiguation page 
+ * are considered as disambiguation links.
+ */
+public class TopologyExtractor {
+
+	/**
+	 * The stream used to write the output file.
+	 */
+	private final XMLStreamWriter writer;
+
+	/**
+	 * The logger of this extractor.
+	 */
+	private final Logger logger;
+
+	/**
+	 * The settings of the import.
+	 */
+	private final GraphipediaSettings settings;
+
+	/**
+	 * The code of the language of the Wikipedia edition for which the links are being extracted.
+	 */
+	private final String language;
+
+	/**
+	 * The disambiguation pages.
+	 */
+	private final DisambiguationPages dp;
+
+	/**
+	 * The namespaces.
+	 */
+	private final Namespaces ns;
+
+	/** 
+	 * A counter used to track the progress of this extractor.
+	 */
+	private final Counter pageCounter;
+
+	/**
+	 * Creates a new {@code TopologyExtractor}.
+	 * @param writer The intermediate XML file created by this {@code TopologyExtractor}.
+	 * @param logger The logger used to record the progress of the extraction.
+	 * @param settings The settings of the import.
+	 * @param language The code of the language of the Wikipedia edition for which the links are 
+	 * being extracted.
+	 * @param dp The disambiguation pages.
+	 * @param ns The namespaces.
+	 */
+	public TopologyExtractor(XMLStreamWriter writer, Logger logger, GraphipediaSettings settings, 
+			String language, DisambiguationPages dp, Namespaces ns) {
+		this.writer = writer;
+		this.logger = logger;
+		this.settings = settings;
+		this.language = language;
+		this.dp = dp;
+		this.ns = ns;
+		this.pageCounter = StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.PAGES_PARSED), 
+				StageRecord.Count.recordsOut);
+	}
+
+	/**
+	 * Returns whether the SQL dump files needed by this extractor have been downloaded for a Wikipedia edition.
+	 * @param settings The settings of the import.
+	 * @param language The code of the language of the Wikipedia edition.
+	 * @return {@code true} if the SQL dump files of the pages, the links, the categories and the redirects are available, 
+	 * {@code false} otherwise.
+	 */
+	public static boolean isAvailable(GraphipediaSettings settings, String language) {
+		return settings.getPageFile(language) != null && settings.getPageLinksFile(language) != null && 
+				settings.getCategoryLinksFile(language) != null && settings.getRedirectFile(language) != null;
+	}
+
+	/**
+	 * Returns the number of pages that have already been extracted.
+	 * @return The number of pages that have already been extracted.
+	 */
+	public long getPageCount() {
+		return pageCounter.count();
+	}
+
+	/**
+	 * Extracts the pages and the links and writes them to the output file.
+	 * @throws IOException when something goes wrong while reading the SQL dump files.
+	 * @throws XMLStreamException when something goes wrong while writing the output file.
+	 */
+	public void extract() throws IOException, XMLStreamException {
+		logger.info("Extracting the Wikipedia pages from the SQL dump files...");
+		SqlTupleReader pages = SqlTupleReader.open(settings.getPageFile(language), "page");
+		SqlTupleReader redirects = SqlTupleReader.open(settings.getRedirectFile(language), "redirect");
+		SqlTupleReader pageLinks = SqlTupleReader.open(settings.getPageLinksFile(language), "pagelinks");
+		SqlTupleReader categoryLinks = SqlTupleReader.open(settings.getCategoryLinksFile(language), "categorylinks");
+		try {
+			LinkTargets linkTargets = null;
+			if ( pageLinks.column("pl_title") < 0 || categoryLinks.column("cl_to") < 0 ) {
+				File linkTargetFile = settings.getLinkTargetFile(language);
+				if ( linkTargetFile == null )
+					throw new IOException("The links refer to the table linktarget, but its dump file has not been downloaded");
+				linkTargets = new LinkTargets(linkTargetFile);
+			}
+			int pageId = pages.requiredColumn("page_id");
+			int pageNamespace = pages.requiredColumn("page_namespace");
+			int pageTitle = pages.requiredColumn("page_title");
+			int pageIsRedirect = pages.requiredColumn("page_is_redirect");
+			int redirectNamespace = redirects.requiredColumn("rd_namespace");
+			int redirectTitle = redirects.requiredColumn("rd_title");
+			int redirectInterwiki = redirects.column("rd_interwiki");
+			int pageLinkNamespace = pageLinks.column("pl_namespace");
+			int pageLinkTitle = pageLinks.column("pl_title");
+			int pageLinkTarget = pageLinkTitle < 0 ? pageLinks.requiredColumn("pl_target_id") : -1;
+			int categoryLinkTitle = categoryLinks.column("cl_to");
+			int categoryLinkTarget = categoryLinkTitle < 0 ? categoryLinks.requiredColumn("cl_target_id") : -1;
+			Cursor redirectCursor = new Cursor(redirects, redirects.requiredColumn("rd_from"), "redirect");
+			Cursor pageLinkCursor = new Cursor(pageLinks, pageLinks.requiredColumn("pl_from"), "pagelinks");
+			Cursor categoryLinkCursor = new Cursor(categoryLinks, categoryLinks.requiredColumn("cl_from"), "categorylinks");
+			Counter pagesRead = StageRecord.counter(null, StageRecord.Count.recordsIn);
+			while ( pages.next() ) {
+				pagesRead.increment();
+				int namespace = pages.getInt(pageNamespace);
+				if ( namespace != Namespace.MAIN && namespace != Namespace.CATEGORY )
+					continue;
+				long id = pages.getLong(pageId);
+				String title = title(namespace, pages.get(pageTitle));
+				if ( "1".equals(pages.get(pageIsRedirect)) ) {
+					String target = null;
+					if ( redirectCursor.skipTo(id) ) {
+						int targetNamespace = redirects.getInt(redirectNamespace);
+						String interwiki = redirectInterwiki < 0 ? null : redirects.get(redirectInterwiki);
+						if ( (targetNamespace == Namespace.MAIN || targetNamespace == Namespace.CATEGORY) && 
+								(interwiki == null || interwiki.isEmpty()) )
+							target = title(targetNamespace, redirects.get(redirectTitle));
+					}
+					writeRedirectPage(title, id, namespace, target);
+					continue;
+				}
+				List<String> links = new ArrayList<String>();
+				while ( pageLinkCursor.skipTo(id) ) {
+					String target;
+					if ( pageLinkTarget >= 0 )
+						target = linkTargets.title(pageLinks.getLong(pageLinkTarget), Namespace.MAIN);
+					else
+						target = pageLinks.getInt(pageLinkNamespace) == Namespace.MAIN ? 
+								title(Namespace.MAIN, pageLinks.get(pageLinkTitle)) : null;
+					if ( target != null )
+						links.add(target);
+					pageLinkCursor.advance();
+				}
+				List<String> categories = new ArrayList<String>();
+				while ( categoryLinkCursor.skipTo(id) ) {
+					String category;
+					if ( categoryLinkTarget >= 0 )
+						category = linkTargets.title(categoryLinks.getLong(categoryLinkTarget), Namespace.CATEGORY);
+					else
+						category = title(Namespace.CATEGORY, categoryLinks.get(categoryLinkTitle));
+					if ( category != null )
+						categories.add(category);
+					categoryLinkCursor.advance();
+				}
+				writePage(title, id, namespace, links, categories);
+			}
+		} finally {
+			pages.close();
+			redirects.close();
+			pageLinks.close();
+			categoryLinks.close();
+		}
+	}
+
+	/**
+	 * Returns the title of a page as it appears in the XML file of the Wikipedia edition 
+	 * (with the prefix of the namespace and spaces instead of underscores).
+	 * @param namespace The identifier of the namespace of the page.
+	 * @param title The title of the page as it appears in the SQL dump files.
+	 * @return The title of the page as it appears in the XML file of the Wikipedia edition.
+	 */
+	private String title(int namespace, String title) {
+		title = title.replace('_', ' ');
+		if ( namespace == Namespace.MAIN )
+			return title;
+		return ns.getNamespaceFromId(namespace).title() + ":" + title;
+	}
+
+	/**
+	 * Writes a redirect page to the output file.
+	 * 
+	 * @param title The title of the redirect page.
+	 * @param id The identifier of the redirect page.
+	 * @param namespace The namespace of the redirect page.
+	 * @param targetRedirect The title of the Wikipedia page that is the target of the redirect, or {@code null} if it is unknown.
+	 * @throws XMLStreamException if something goes wrong while writing the information to the output file.
+	 */
+	private void writeRedirectPage(String title, long id, int namespace, String targetRedirect) throws XMLStreamException {
+		writer.writeStartElement(IntermediateXmlFileTags.page.toString());
+		writeElement(IntermediateXmlFileTags.title, title);
+		writeElement(IntermediateXmlFileTags.id, Long.toString(id));
+		writeElement(IntermediateXmlFileTags.redirect, "t");
+		writeElement(IntermediateXmlFileTags.namespace, Integer.toString(namespace));
+		if ( targetRedirect != null ) {
+			writer.writeStartElement(IntermediateXmlFileTags.regularlink.toString());
+			writeElement(IntermediateXmlFileTags.linkTitle, targetRedirect);
+			writer.writeEndElement();
+		}
+		writer.writeEndElement(); // end page
+		pageCounter.increment();
+	}
+
+	/**
+	 * Writes a page and its links to the output file.
+	 * 
+	 * @param title The title of the page.
+	 * @param id The identifier of the page.
+	 * @param namespace The namespace of the page.
+	 * @param links The titles of the articles linked by the page.
+	 * @param categories The titles of the categories of the page.
+	 * @throws XMLStreamException if something goes wrong while writing the information to the output file.
+	 */
+	private void writePage(String title, long id, int namespace, List<String> links, List<String> categories) 
+			throws XMLStreamException {
+		writer.writeStartElement(IntermediateXmlFileTags.page.toString());
+		writeElement(IntermediateXmlFileTags.title, title);
+		writeElement(IntermediateXmlFileTags.id, Long.toString(id));
+		boolean disambig = this.dp.isDisambiguationPage(title);
+		if ( disambig ) 
+			writeElement(IntermediateXmlFileTags.disambig, "t");
+		writeElement(IntermediateXmlFileTags.namespace, Integer.toString(namespace));
+		for ( String link : links ) {
+			if ( disambig )
+				writer.writeStartElement(IntermediateXmlFileTags.dislink.toString());
+			else
+				writer.writeStartElement(IntermediateXmlFileTags.regularlink.toString());
+			writeElement(IntermediateXmlFileTags.linkTitle, link);
+			writer.writeEndElement();
+		}
+		for ( String category : categories ) {
+			writer.writeStartElement(IntermediateXmlFileTags.regularlink.toString());
+			writeElement(IntermediateXmlFileTags.linkTitle, category);
+			writer.writeEndElement();
+		}
+		writer.writeEndElement(); // end page
+		pageCounter.increment();
+	}
+
+	/**
+	 * Writes an element with a textual value to the output file.
+	 * @param tag The tag of the element.
+	 * @param value The value of the element.
+	 * @throws XMLStreamException if something goes wrong while writing the element.
+	 */
+	private void writeElement(IntermediateXmlFileTags tag, String value) throws XMLStreamException {
+		writer.writeStartElement(tag.toString());
+		writer.writeCharacters(value);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * A cursor over the tuples of a table sorted by the identifier of the source page.
+	 */
+	private static class Cursor {
+
+		/**
+		 * The reader of the tuples.
+		 */
+		private final SqlTupleReader reader;
+
+		/**
+		 * The position of the column that contains the identifier of the source page.
+		 */
+		private final int fromColumn;
+
+		/**
+		 * The name of the table.
+		 */
+		private final String table;
+
+		/**
+		 * The identifier of the source page of the current tuple ({@code Long.MAX_VALUE} if there are no more tuples).
+		 */
+		private long from;
+
+		/**
+		 * Creates a new cursor, positioned on the first tuple.
+		 * @param reader The reader of the tuples.
+		 * @param fromColumn The position of the column that contains the identifier of the source page.
+		 * @param table The name of the table.
+		 * @throws IOException when something goes wrong while reading the first tuple.
+		 */
+		Cursor(SqlTupleReader reader, int fromColumn, String table) throws IOException {
+			this.reader = reader;
+			this.fromColumn = fromColumn;
+			this.table = table;
+			this.from = Long.MIN_VALUE;
+			advance();
+		}
+
+		/**
+		 * Skips the tuples whose source page precedes the given page.
+		 * @param id The identifier of a page.
+		 * @return {@code true} if the current tuple has the given page as its source, {@code false} otherwise.
+		 * @throws IOException when something goes wrong while reading the tuples.
+		 */
+		boolean skipTo(long id) throws IOException {
+			while ( from < id )
+				advance();
+			return from == id;
+		}
+
+		/**
+		 * Moves to the next tuple.
+		 * @throws IOException when something goes wrong while reading the tuple or the tuples are not sorted.
+		 */
+		void advance() throws IOException {
+			long previous = from;
+			if ( !reader.next() ) {
+				from = Long.MAX_VALUE;
+				return;
+			}
+			from = reader.getLong(fromColumn);
+			if ( from < previous )
+				throw new IOException("The dump file of the table " + table + " is not sorted by source page");
+		}
+	}
+
+	/**
+	 * The targets of the links in the main and category namespaces, indexed by their identifier.
+	 */
+	private class LinkTargets {
+
+		/**
+		 * The identifiers of the link targets, in increasing order.
+		 */
+		private long[] ids;
+
+		/**
+		 * The namespaces of the link targets.
+		 */
+		private int[] namespaces;
+
+		/**
+		 * The titles of the link targets (as they appear in the XML file of the Wikipedia edition).
+		 */
+		private String[] titles;
+
+		/**
+		 * The number of link targets.
+		 */
+		private int size;
+
+		/**
+		 * Loads the link targets from the dump file of the table {@code linktarget}.
+		 * @param file The dump file of the table {@code linktarget}.
+		 * @throws IOException when something goes wrong while reading the file.
+		 */
+		LinkTargets(File file) throws IOException {
+			logger.info("Loading the link targets...");
+			this.ids = new long[1024];
+			this.namespaces = new int[1024];
+			this.titles = new String[1024];
+			this.size = 0;
+			SqlTupleReader reader = SqlTupleReader.open(file, "linktarget");
+			try {
+				int idColumn = reader.requiredColumn("lt_id");
+				int namespaceColumn = reader.requiredColumn("lt_namespace");
+				int titleColumn = reader.requiredColumn("lt_title");
+				while ( reader.next() ) {
+					int namespace = reader.getInt(namespaceColumn);
+					if ( namespace != Namespace.MAIN && namespace != Namespace.CATEGORY )
+						continue;
+					long id = reader.getLong(idColumn);
+					if ( size > 0 && id <= ids[size - 1] )
+						throw new IOException("The dump file of the table linktarget is not sorted by identifier");
+					if ( size == ids.length ) {
+						ids = Arrays.copyOf(ids, size * 2);
+						namespaces = Arrays.copyOf(namespaces, size * 2);
+						titles = Arrays.copyOf(titles, size * 2);
+					}
+					ids[size] = id;
+					namespaces[size] = namespace;
+					titles[size] = TopologyExtractor.this.title(namespace, reader.get(titleColumn));
+					size += 1;
+				}
+			} finally {
+				reader.close();
+			}
+			logger.info(size + " link targets loaded");
+		}
+
+		/**
+		 * Returns the title of a link target.
+		 * @param id The identifier of the link target.
+		 * @param namespace The expected namespace of the link target.
+		 * @return The title of the link target, or {@code null} if there is no such link target in the given namespace.
+		 */
+		String title(long id, int namespace) {
+			int index = Arrays.binarySearch(ids, 0, size, id);
+			if ( index < 0 || namespaces[index] != namespace )
+				return null;
+			return titles[index];
+		}
+	}
+
+}
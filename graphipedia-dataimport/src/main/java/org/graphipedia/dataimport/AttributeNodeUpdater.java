@@ -24,9 +24,11 @@ package org.graphipedia.dataimport;
 import java.util.Map;
 import java.util.logging.Logger;
 
-import org.graphipedia.progress.ProgressCounter;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
 import org.graphipedia.wikipedia.Article;
 import org.graphipedia.wikipedia.Category;
+import org.graphipedia.wikipedia.GeotagStore;
 import org.graphipedia.wikipedia.Geotags;
 import org.graphipedia.wikipedia.Page;
 import org.neo4j.helpers.collection.MapUtil;
@@ -48,21 +50,28 @@ public class AttributeNodeUpdater {
 	 */
 	private final Map<String, Page> inMemoryIndex;
 
+	/**
+	 * The geotags associated to pages that describe spatial entities.
+	 */
+	private final GeotagStore geotags;
+
 	/**
 	 * Counts the number of Wikipedia nodes updated.
 	 */
-	private final ProgressCounter nodeCounter;
+	private final Counter nodeCounter;
 	
 	/**
 	 * Creates a new {@code NodeUpdater}.
 	 * @param inserter The connection to Neo4j database.
 	 * @param inMemoryIndex The index of the nodes.
+	 * @param geotags The geotags associated to pages that describe spatial entities.
 	 * @param logger he logger used to record the progress of the update.
 	 */
-	public AttributeNodeUpdater(BatchInserter inserter, Map<String, Page> inMemoryIndex, Logger logger) {
+	public AttributeNodeUpdater(BatchInserter inserter, Map<String, Page> inMemoryIndex, GeotagStore geotags, Logger logger) {
 		this.inserter = inserter;
 		this.inMemoryIndex = inMemoryIndex;
-		this.nodeCounter = new ProgressCounter(logger);
+		this.geotags = geotags;
+		this.nodeCounter = MetricsRegistry.global().meter(MetricsRegistry.NODES_UPDATED).child();
 	}
 	
 	/**
@@ -80,7 +89,7 @@ public class AttributeNodeUpdater {
 						NodeAttribute.outdegree.name(), article.outdegree(), 
 						NodeAttribute.indegree.name(), article.indegree(), 
 						NodeAttribute.parents.name(), article.parents());
-				Geotags geotags = article.Geotags(); 
+				Geotags geotags = this.geotags.get(article.wikiid()); 
 				if (geotags != null) {
 					String globe = geotags.globe();
 					double latitude = geotags.latitude();
@@ -109,7 +118,7 @@ public class AttributeNodeUpdater {
 			else 
 				continue;
 			inserter.setNodeProperties(nodeId, attributes);
-			this.nodeCounter.increment("Node attributes");
+			this.nodeCounter.increment();
 		}
 	}
 	
@@ -117,8 +126,8 @@ public class AttributeNodeUpdater {
 	 * Returns the number of the nodes updated.
 	 * @return The number of the nodes updated.
 	 */
-	public int getNodeCount() {
-		return this.nodeCounter.getCount();
+	public long getNodeCount() {
+		return this.nodeCounter.count();
 	}
 
 }
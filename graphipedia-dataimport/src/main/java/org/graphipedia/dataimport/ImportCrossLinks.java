@@ -23,15 +23,19 @@ package org.graphipedia.dataimport;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.util.logging.Logger;
 
 import org.graphipedia.GraphipediaSettings;
 import org.graphipedia.dataextract.ExtractCrossLinks;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.RunReport;
+import org.graphipedia.metrics.StageRecord;
 import org.graphipedia.progress.LoggerFactory;
-import org.graphipedia.progress.ProgressCounter;
 import org.graphipedia.progress.ReadableTime;
+import org.graphipedia.wikipedia.parser.DumpInput;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
 
 /**
@@ -58,10 +62,15 @@ public class ImportCrossLinks extends Thread {
 	 */
 	private File crossLinkFile;
 
+	/**
+	 * The code of the language of the Wikipedia edition whose cross-links are imported.
+	 */
+	private String language;
+
 	/**
 	 * Tracks the progress of the import.
 	 */
-	private ProgressCounter linkCounter;
+	private Counter linkCounter;
 
 	/**
 	 * Creates a new thread.
@@ -74,21 +83,27 @@ public class ImportCrossLinks extends Thread {
 		this.inserter = inserter;
 		this.crossLinkFile = new File(settings.wikipediaEditionDirectory(language), ExtractCrossLinks.OUTPUT_FILE_NAME);
 		this.logger = LoggerFactory.createLogger("Import crosslinks  (" + loggerSuffix + ")");
-		this.linkCounter = new ProgressCounter(logger);
+		this.language = language;
 	}
 
 	@Override
 	public void run() {
+		StageRecord record = RunReport.global().start("importCrossLinks", language);
+		this.linkCounter = StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.CROSS_LINKS_WRITTEN), 
+				StageRecord.Count.recordsOut);
+		Counter linksRead = StageRecord.counter(null, StageRecord.Count.recordsIn);
 		long startTime = System.currentTimeMillis();
 		try {
-			BufferedReader bd = new BufferedReader(new FileReader(crossLinkFile));
+			BufferedReader bd = new BufferedReader(new InputStreamReader(
+					DumpInput.open(crossLinkFile.getAbsolutePath(), DumpInput.NONE)));
 			String line;
 			while( (line = bd.readLine()) != null) {
+				linksRead.increment();
 				String[] nodes = line.split(",");
 				long firstNode = Long.parseLong(nodes[0]);
 				long secondNode = Long.parseLong(nodes[1]);
 				inserter.createRelationship(firstNode, secondNode, LinkType.crosslink, null);
-				linkCounter.increment("Cross-links ");
+				linkCounter.increment();
 			}
 			bd.close();
 		}
@@ -98,7 +113,8 @@ public class ImportCrossLinks extends Thread {
 			System.exit(-1);
 		}
 		long elapsed = System.currentTimeMillis() - startTime;
-		logger.info(String.format("%d links imported in " + ReadableTime.readableTime(elapsed), linkCounter.getCount()));
+		logger.info(String.format("%d links imported in " + ReadableTime.readableTime(elapsed), linkCounter.count()));
+		record.end();
 	}
 
 }
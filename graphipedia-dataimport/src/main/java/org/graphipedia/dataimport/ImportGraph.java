@@ -22,14 +22,18 @@
 package org.graphipedia.dataimport;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 
 import org.graphipedia.GraphipediaSettings;
 import org.graphipedia.dataextract.ExtractData;
+import org.graphipedia.dataextract.IntermediateFile;
 import org.graphipedia.progress.LoggerFactory;
 import org.graphipedia.progress.ReadableTime;
+import org.graphipedia.spatial.SpatialIndexBuilder;
+import org.graphipedia.wikipedia.GeotagStore;
 import org.graphipedia.wikipedia.Geotags;
 import org.graphipedia.wikipedia.Page;
 import org.neo4j.unsafe.batchinsert.BatchInserter;
@@ -53,9 +57,10 @@ public class ImportGraph extends Thread {
     private String language;
     
     /**
-     * The temporary link file created by the thread {@link ExtractData}.
+     * The directory of the temporary link file created by the thread {@link ExtractData} 
+     * (see {@link IntermediateFile}).
      */
-    private File temporaryLinkFile;
+    private File temporaryLinkDirectory;
     
     /**
 	 * The Neo4j object that is used to quickly add nodes and links to a graph.
@@ -70,7 +75,17 @@ public class ImportGraph extends Thread {
     /**
      * The geotags associated to pages that describe spatial entities.
      */
-    private final Map<String, Geotags> geotags;
+    private final GeotagStore geotags;
+    
+    /**
+     * The file where the spatial index of the geotagged articles is written.
+     */
+    private final File spatialIndexFile;
+    
+    /**
+     * The globe of the spatial entities that are put in the spatial index.
+     */
+    private static final String EARTH = "earth";
     
     /**
      * The time (in ms) when the import starts.
@@ -88,13 +103,14 @@ public class ImportGraph extends Thread {
      * @param startTime The time when the import starts (in ms).
      */
     public ImportGraph(BatchInserter inserter, GraphipediaSettings settings, String language, 
-    		Map<String, Geotags> geotags, String loggerMessageSuffix, long startTime) {
+    		GeotagStore geotags, String loggerMessageSuffix, long startTime) {
     	this.language = language;
     	this.inserter = inserter;
         this.inMemoryIndex = new HashMap<String, Page>();
         this.logger = LoggerFactory.createLogger("Graph import (" + loggerMessageSuffix + ")");
-        this.temporaryLinkFile = new File(settings.wikipediaEditionDirectory(language), ExtractData.TEMPORARY_LINK_FILE);
+        this.temporaryLinkDirectory = new File(settings.wikipediaEditionDirectory(language), ExtractData.TEMPORARY_LINK_DIRECTORY);
         this.geotags = geotags;
+        this.spatialIndexFile = settings.spatialIndexFile(language);
         this.startTime = startTime;
     }
 
@@ -115,6 +131,13 @@ public class ImportGraph extends Thread {
 			System.exit(-1);
 		}
         setAttributeNodes();
+        try {
+			buildSpatialIndex();
+		} catch (Exception e) {
+			logger.severe("Error while building the spatial index " + e.getMessage());
+			e.printStackTrace();
+			System.exit(-1);
+		}
         long editionElapsed = System.currentTimeMillis() - startTime;
 		logger.info("Import completed for the Wikipedia in " + language + " (" + language.toUpperCase() + ") in " + ReadableTime.readableTime(editionElapsed) );
     }
@@ -125,9 +148,10 @@ public class ImportGraph extends Thread {
      */
     public void createNodes() throws Exception {
         logger.info("Importing pages...");
-        NodeCreator nodeCreator = new NodeCreator(inserter, inMemoryIndex, language, logger, geotags); 
+        NodeCreator nodeCreator = new NodeCreator(inserter, inMemoryIndex, language, logger); 
         long startTime = System.currentTimeMillis();
-        nodeCreator.parse(temporaryLinkFile.getAbsolutePath());
+        for ( File segment : IntermediateFile.segments(temporaryLinkDirectory) )
+        	nodeCreator.parse(segment.getAbsolutePath());
         long elapsed = System.currentTimeMillis() - startTime;
         logger.info(String.format("%d pages imported in "+ ReadableTime.readableTime(elapsed), nodeCreator.getPageCount()));
     }
@@ -140,7 +164,8 @@ public class ImportGraph extends Thread {
     	logger.info("Importing links...");
         LinkCreator linkCreator = new LinkCreator(inserter, inMemoryIndex, logger);
         long startTime = System.currentTimeMillis();
-        linkCreator.parse(temporaryLinkFile.getAbsolutePath());
+        for ( File segment : IntermediateFile.segments(temporaryLinkDirectory) )
+        	linkCreator.parse(segment.getAbsolutePath());
         long elapsed = System.currentTimeMillis() - startTime;
         logger.info(String.format("%d links imported in " + ReadableTime.readableTime(elapsed), linkCreator.getLinkCount()));
     }
@@ -150,11 +175,36 @@ public class ImportGraph extends Thread {
      */
     private void setAttributeNodes() {
     	logger.info("Setting the attributes of the nodes...");
-    	AttributeNodeUpdater updater = new AttributeNodeUpdater(inserter, inMemoryIndex, logger);
+    	AttributeNodeUpdater updater = new AttributeNodeUpdater(inserter, inMemoryIndex, geotags, logger);
     	long startTime = System.currentTimeMillis();
     	updater.update();
     	long elapsed = System.currentTimeMillis() - startTime;
     	logger.info(String.format("%d nodes updated in " + ReadableTime.readableTime(elapsed), updater.getNodeCount()));
     }
 
+    /**
+     * Builds the spatial index of the articles that describe spatial entities on Earth.
+     * @throws IOException when something goes wrong while writing the index.
+     */
+    private void buildSpatialIndex() throws IOException {
+    	logger.info("Building the spatial index...");
+    	long startTime = System.currentTimeMillis();
+    	SpatialIndexBuilder builder = new SpatialIndexBuilder();
+    	for ( Page page : inMemoryIndex.values() ) {
+    		if ( !page.isArticle() || page.redirect() )
+    			continue;
+    		Geotags geotags = this.geotags.get(page.wikiid());
+    		if ( geotags == null )
+    			continue;
+    		String globe = geotags.globe();
+    		if ( globe == null || globe.equalsIgnoreCase(EARTH) )
+    			builder.add(geotags.latitude(), geotags.longitude(), page.neo4jId());
+    	}
+    	spatialIndexFile.getParentFile().mkdirs();
+    	builder.write(spatialIndexFile);
+    	long elapsed = System.currentTimeMillis() - startTime;
+    	logger.info(String.format("%d articles indexed in %s in " + ReadableTime.readableTime(elapsed), builder.size(), 
+    			spatialIndexFile.getAbsolutePath()));
+    }
+
 }
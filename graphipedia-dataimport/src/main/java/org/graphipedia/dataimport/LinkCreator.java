@@ -21,13 +21,20 @@
 //
 package org.graphipedia.dataimport;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
-import org.graphipedia.progress.ProgressCounter;
+import javax.xml.stream.XMLStreamException;
+
+import org.graphipedia.jfr.FlightEvents;
+import org.graphipedia.jfr.InsertBatchEvent;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.StageRecord;
 import org.graphipedia.wikipedia.Article;
 import org.graphipedia.wikipedia.Category;
 import org.graphipedia.wikipedia.Page;
@@ -55,7 +62,7 @@ public class LinkCreator extends SimpleStaxParser {
 	/**
 	 * Tracks the number of links that are imported.
 	 */
-	private ProgressCounter linkCounter;
+	private Counter linkCounter;
 
 	/**
 	 * The Wikipedia page that is the source node of a link .
@@ -113,7 +120,8 @@ public class LinkCreator extends SimpleStaxParser {
 				Arrays.asList(""));
 		this.inserter = inserter;
 		this.inMemoryIndex = inMemoryIndex;
-		this.linkCounter = new ProgressCounter(logger);
+		this.linkCounter = StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.LINKS_WRITTEN), 
+				StageRecord.Count.recordsOut);
 		initializePage();
 	}
 
@@ -144,11 +152,34 @@ public class LinkCreator extends SimpleStaxParser {
 	 * Returns the number of links imported.
 	 * @return The number of links imported to the Neo4j database.
 	 */
-	public int getLinkCount() {
-		return linkCounter.getCount();
+	public long getLinkCount() {
+		return linkCounter.count();
 	}
 
 
+	/**
+	 * Parses a segment of the intermediate file; the insertion of its relationships is recorded as a {@link InsertBatchEvent}.
+	 * @param fileName The name of the segment.
+	 * @throws IOException when something goes wrong while reading the segment.
+	 * @throws XMLStreamException when something goes wrong while parsing the segment.
+	 */
+	@Override
+	public void parse(String fileName) throws IOException, XMLStreamException {
+		InsertBatchEvent event = null;
+		if ( FlightEvents.ENABLED ) {
+			event = new InsertBatchEvent();
+			event.begin();
+		}
+		long count = linkCounter.count();
+		super.parse(fileName);
+		if ( event != null && event.shouldCommit() ) {
+			event.entities = "relationships";
+			event.segment = fileName;
+			event.count = linkCounter.count() - count;
+			event.commit();
+		}
+	}
+
 	@Override
 	protected boolean handleElement(String element, String value) {
 		if (IntermediateXmlFileTags.page.toString().equals(element)) 
@@ -192,8 +223,13 @@ public class LinkCreator extends SimpleStaxParser {
 	private void createLink(Page sourceNode, Page targetNode, boolean disambig) {	
 		if (targetNode == null)
 			return;
-		Map<String, Object> attributes = MapUtil.map(LinkAttribute.offset.name(), this.offset, LinkAttribute.rank.name(), this.rank,
-				LinkAttribute.occurrences.name(), this.occurrences);
+		Map<String, Object> attributes = MapUtil.map();
+		if ( this.offset >= 0 ) // links extracted from the SQL dump files have no offset, rank and occurrences.
+			attributes.put(LinkAttribute.offset.name(), this.offset);
+		if ( this.rank >= 0 )
+			attributes.put(LinkAttribute.rank.name(), this.rank);
+		if ( this.occurrences > 0 )
+			attributes.put(LinkAttribute.occurrences.name(), this.occurrences);
 		if ( this.anchors.size() > 0 )
 			attributes.put(LinkAttribute.anchors.name(), this.anchors.toArray(new String[this.anchors.size()]));
 		if ( this.infobox )
@@ -221,7 +257,7 @@ public class LinkCreator extends SimpleStaxParser {
 		}
 		else
 			return;
-		linkCounter.increment("Creating links");
+		linkCounter.increment();
 
 	}
 
@@ -21,15 +21,21 @@
 //
 package org.graphipedia.dataimport;
 
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
-import org.graphipedia.progress.ProgressCounter;
+import javax.xml.stream.XMLStreamException;
+
+import org.graphipedia.jfr.FlightEvents;
+import org.graphipedia.jfr.InsertBatchEvent;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.StageRecord;
 import org.graphipedia.wikipedia.Article;
 import org.graphipedia.wikipedia.Category;
-import org.graphipedia.wikipedia.Geotags;
 import org.graphipedia.wikipedia.Namespace;
 import org.graphipedia.wikipedia.Page;
 import org.graphipedia.wikipedia.parser.IntermediateXmlFileTags;
@@ -53,11 +59,6 @@ public class NodeCreator extends SimpleStaxParser {
 	 */
 	private final Map<String, Page> inMemoryIndex;
 	
-	/**
-	 * The geotags associated with pages that describe spatial entities.
-	 */
-	private final Map<String, Geotags> geotags;
-
 	/**
 	 * The code of the language of the Wikipedia edition being currently imported.
 	 */
@@ -96,7 +97,12 @@ public class NodeCreator extends SimpleStaxParser {
 	/**
 	 * Counts the number of Wikipedia pages imported to the Neo4j database.
 	 */
-	private ProgressCounter pageCounter;
+	private Counter pageCounter;
+
+	/**
+	 * Counts the number of pages read from the intermediate file.
+	 */
+	private Counter pagesRead;
 
 	/**
 	 * Creates a new {@code NodeCreator}
@@ -104,18 +110,18 @@ public class NodeCreator extends SimpleStaxParser {
 	 * @param inMemoryIndex The index of the nodes. 
 	 * @param language The code of the language of the Wikipedia edition being currently imported.
 	 * @param logger The logger used to record the progress of the node creation.
-	 * @param geotags The geotags associated with the pages that describe spatial entities.
 	 */
-	public NodeCreator(BatchInserter inserter, Map<String, Page> inMemoryIndex, String language, Logger logger, Map<String, Geotags> geotags) {
+	public NodeCreator(BatchInserter inserter, Map<String, Page> inMemoryIndex, String language, Logger logger) {
 		super(Arrays.asList(IntermediateXmlFileTags.page.toString(), IntermediateXmlFileTags.title.toString(), 
 				IntermediateXmlFileTags.id.toString(), IntermediateXmlFileTags.redirect.toString(), IntermediateXmlFileTags.disambig.toString(),  
 				IntermediateXmlFileTags.namespace.toString()), Arrays.asList(""));
 		this.inserter = inserter;
 		this.language = language;
 		this.inMemoryIndex = inMemoryIndex;
-		this.geotags = geotags;
 		
-		this.pageCounter = new ProgressCounter(logger);
+		this.pageCounter = StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.NODES_WRITTEN), 
+				StageRecord.Count.recordsOut);
+		this.pagesRead = StageRecord.counter(null, StageRecord.Count.recordsIn);
 
 		this.title = null;
 		this.wikiId = null;
@@ -129,13 +135,37 @@ public class NodeCreator extends SimpleStaxParser {
 	 * Returns the number of pages imported to the Neo4j database. 
 	 * @return The number of pages imported to the Neo4j database.
 	 */
-	public int getPageCount() {
-		return pageCounter.getCount();
+	public long getPageCount() {
+		return pageCounter.count();
+	}
+
+	/**
+	 * Parses a segment of the intermediate file; the insertion of its nodes is recorded as a {@link InsertBatchEvent}.
+	 * @param fileName The name of the segment.
+	 * @throws IOException when something goes wrong while reading the segment.
+	 * @throws XMLStreamException when something goes wrong while parsing the segment.
+	 */
+	@Override
+	public void parse(String fileName) throws IOException, XMLStreamException {
+		InsertBatchEvent event = null;
+		if ( FlightEvents.ENABLED ) {
+			event = new InsertBatchEvent();
+			event.begin();
+		}
+		long count = pageCounter.count();
+		super.parse(fileName);
+		if ( event != null && event.shouldCommit() ) {
+			event.entities = "nodes";
+			event.segment = fileName;
+			event.count = pageCounter.count() - count;
+			event.commit();
+		}
 	}
 
 	@Override
 	protected boolean handleElement(String element, String value) {
 		if (IntermediateXmlFileTags.page.toString().equals(element)) {
+			pagesRead.increment();
 			createNode(this.title, this.wikiId, this.redirect, this.namespace, this.infoboxName);
 			this.title = null;
 			this.wikiId = null;
@@ -177,10 +207,7 @@ public class NodeCreator extends SimpleStaxParser {
 				nodeId = inserter.createNode(null, NodeLabel.Article, NodeLabel.Disambig);
 			else
 				nodeId = inserter.createNode(null, NodeLabel.Article);
-			if ( geotags.containsKey(wikiId) )
-				newPage = new Article(title, language, wikiId, nodeId, redirect, geotags.get(wikiId), infoboxName);
-			else
-				newPage = new Article(title, language, wikiId, nodeId, redirect, infoboxName);
+			newPage = new Article(title, language, wikiId, nodeId, redirect, infoboxName);
 		}
 		else
 			if ( namespace == Namespace.CATEGORY ) {
@@ -195,7 +222,7 @@ public class NodeCreator extends SimpleStaxParser {
 			else
 				return;
 		inMemoryIndex.put(title, newPage);
-		pageCounter.increment("Creating nodes");
+		pageCounter.increment();
 	}
 
 
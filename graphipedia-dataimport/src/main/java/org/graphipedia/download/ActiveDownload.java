@@ -0,0 +1,239 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A dump file that is being downloaded while it is read (stream-through mode, 
+ * see {@link org.graphipedia.GraphipediaSettings#streamThrough()}).
+ * The downloads are registered by the path of their target file, so that the threads that extract the data 
+ * open the file with {@link #openInput(File)} without knowing whether it is still being downloaded.
+ * A reader of a file being downloaded blocks until the bytes it needs have been written; 
+ * it reaches the end of the file only when the download is complete, verified and saved to the checkpoint, 
+ * so that a thread that has parsed a whole file can safely save its own progress to the checkpoint.
+ */
+public class ActiveDownload {
+
+	/**
+	 * The downloads in progress, indexed by the absolute path of their target file.
+	 */
+	private static final Map<String, ActiveDownload> DOWNLOADS = new ConcurrentHashMap<String, ActiveDownload>();
+
+	/**
+	 * The number of bytes at the beginning of the file that have been downloaded.
+	 */
+	private long available;
+
+	/**
+	 * Whether the download is complete.
+	 */
+	private boolean complete;
+
+	/**
+	 * The error that made the download fail, if any.
+	 */
+	private IOException failure;
+
+	/**
+	 * Creates a new download, with no byte downloaded.
+	 */
+	private ActiveDownload() {
+		this.available = 0;
+		this.complete = false;
+		this.failure = null;
+	}
+
+	/**
+	 * Registers the download of a file.
+	 * @param file The target file of the download.
+	 * @return The download.
+	 */
+	public static ActiveDownload register(File file) {
+		ActiveDownload download = new ActiveDownload();
+		DOWNLOADS.put(file.getAbsolutePath(), download);
+		return download;
+	}
+
+	/**
+	 * Returns the download of a file.
+	 * @param file The target file of the download.
+	 * @return The download of the file, or {@code null} if the file is not being downloaded.
+	 */
+	public static ActiveDownload of(File file) {
+		return DOWNLOADS.get(file.getAbsolutePath());
+	}
+
+	/**
+	 * Opens a file for reading.
+	 * If the file is being downloaded, the stream blocks until the bytes to read are downloaded.
+	 * @param file The file.
+	 * @return A stream that reads the file.
+	 * @throws IOException when the file cannot be opened.
+	 */
+	public static InputStream openInput(File file) throws IOException {
+		ActiveDownload download = of(file);
+		if ( download == null )
+			return new FileInputStream(file);
+		return new GrowingFileInputStream(file, download);
+	}
+
+	/**
+	 * Records that the first bytes of the file have been written to the target file.
+	 * @param available The number of bytes at the beginning of the file that have been written.
+	 */
+	public synchronized void advance(long available) {
+		if ( available > this.available ) {
+			this.available = available;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * Records that the download is complete; the readers of the file can read it to the end.
+	 * The download is unregistered.
+	 * @param file The target file of the download.
+	 */
+	public synchronized void complete(File file) {
+		this.available = Math.max(this.available, file.length());
+		this.complete = true;
+		DOWNLOADS.remove(file.getAbsolutePath());
+		notifyAll();
+	}
+
+	/**
+	 * Records that the download has failed; the readers of the file get the error.
+	 * The download is unregistered.
+	 * @param file The target file of the download.
+	 * @param failure The error that made the download fail.
+	 */
+	public synchronized void fail(File file, IOException failure) {
+		this.failure = failure;
+		DOWNLOADS.remove(file.getAbsolutePath());
+		notifyAll();
+	}
+
+	/**
+	 * Waits until the byte at the given position is downloaded.
+	 * @param position The position of a byte in the file.
+	 * @return The number of bytes at the beginning of the file that have been downloaded (greater than 
+	 * {@code position}), or {@code -1} if the download is complete and {@code position} is the end of the file.
+	 * @throws IOException when the download fails or the thread is interrupted while waiting.
+	 */
+	private synchronized long awaitAvailable(long position) throws IOException {
+		while ( true ) {
+			if ( failure != null )
+				throw new IOException("The download of the file has failed", failure);
+			if ( position < available )
+				return available;
+			if ( complete )
+				return -1;
+			try {
+				wait();
+			} catch (InterruptedException e) {
+				throw new InterruptedIOException("Interrupted while waiting for the download");
+			}
+		}
+	}
+
+	/**
+	 * A stream that reads a file while it is being downloaded.
+	 */
+	private static class GrowingFileInputStream extends InputStream {
+
+		/**
+		 * The file.
+		 */
+		private RandomAccessFile file;
+
+		/**
+		 * The download of the file.
+		 */
+		private ActiveDownload download;
+
+		/**
+		 * The position of the next byte to read.
+		 */
+		private long position;
+
+		/**
+		 * Opens a file being downloaded.
+		 * @param file The file.
+		 * @param download The download of the file.
+		 * @throws IOException when the file cannot be opened.
+		 */
+		GrowingFileInputStream(File file, ActiveDownload download) throws IOException {
+			this.file = new RandomAccessFile(file, "r");
+			this.download = download;
+			this.position = 0;
+		}
+
+		@Override
+		public int read() throws IOException {
+			byte[] b = new byte[1];
+			int read = read(b, 0, 1);
+			return read < 0 ? -1 : b[0] & 0xff;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if ( len == 0 )
+				return 0;
+			long available = download.awaitAvailable(position);
+			if ( available < 0 )
+				return -1;
+			file.seek(position);
+			int read = file.read(b, off, (int)Math.min(len, available - position));
+			if ( read > 0 )
+				position += read;
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = 0;
+			while ( skipped < n ) {
+				long available = download.awaitAvailable(position);
+				if ( available < 0 )
+					break;
+				long step = Math.min(n - skipped, available - position);
+				position += step;
+				skipped += step;
+			}
+			return skipped;
+		}
+
+		@Override
+		public void close() throws IOException {
+			file.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,467 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.codehaus.stax2.XMLInputFactory2;
+import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.wikipedia.Namespace;
+
+/**
+ * Crawls the categories of a Wikipedia language edition with the MediaWiki API 
+ * ({@code list=categorymembers}).
+ * Starting from a root category, the crawler visits breadth-first all its direct and indirect subcategories and
+ * returns their members in a given namespace.
+ * The categories of the same level are fetched concurrently by a pool of threads, under a limit on the number of requests 
+ * per second shared by all the threads (and, for the crawlers created with {@link #create(GraphipediaSettings, String, Logger)}, 
+ * by all the crawlers, so that the limit holds when several editions are extracted concurrently). 
+ * Failed requests (I/O errors, HTTP errors 429 and 5xx, MediaWiki errors such as {@code maxlag}) are retried with an 
+ * exponential backoff. 
+ * The responses are cached on disk (one file per request, named after the SHA-1 of the URL of the request) 
+ * and reused until they are older than a given time to live, so as later runs and other editions do not send the 
+ * same requests again.
+ */
+public class CategoryCrawler {
+
+	/**
+	 * The User-Agent sent with the requests, as required by the Wikimedia API etiquette.
+	 */
+	private static final String USER_AGENT = "Graphipedia/0.1";
+
+	/**
+	 * The maximum number of attempts of a request.
+	 */
+	private static final int MAX_ATTEMPTS = 8;
+
+	/**
+	 * The delay (in ms) before the first retry of a failed request; the delay doubles at each retry.
+	 */
+	private static final long INITIAL_BACKOFF = 500;
+
+	/**
+	 * The maximum delay (in ms) between two attempts of a request.
+	 */
+	private static final long MAX_BACKOFF = 60000;
+
+	/**
+	 * The timeout (in ms) to connect to the server and read a response.
+	 */
+	private static final int TIMEOUT = 60000;
+
+	/**
+	 * Object used to parse the responses of the server.
+	 */
+	private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory2.newInstance();
+
+	/**
+	 * The rate limiter shared by the crawlers created from the settings of Graphipedia, if any.
+	 */
+	private static RateLimiter sharedRateLimiter;
+
+	/**
+	 * The URL of the MediaWiki API (e.g., https://en.wikipedia.org/w/api.php).
+	 */
+	private final String apiUrl;
+
+	/**
+	 * The threads that send the requests.
+	 */
+	private final ExecutorService workers;
+
+	/**
+	 * Limits the number of requests per second.
+	 */
+	private final RateLimiter rateLimiter;
+
+	/**
+	 * The directory where the responses are cached, or {@code null} if the responses are not cached.
+	 */
+	private final File cacheDirectory;
+
+	/**
+	 * The time to live (in ms) of the cached responses.
+	 */
+	private final long cacheTtl;
+
+	/**
+	 * The logger of Graphipedia.
+	 */
+	private final Logger logger;
+
+	/**
+	 * Creates a new crawler.
+	 * @param apiUrl The URL of the MediaWiki API (e.g., https://en.wikipedia.org/w/api.php).
+	 * @param threads The number of threads that send the requests.
+	 * @param requestsPerSecond The maximum number of requests per second.
+	 * @param cacheDirectory The directory where the responses are cached, or {@code null} if the responses are not cached.
+	 * @param cacheTtl The time to live (in ms) of the cached responses.
+	 * @param logger The logger of Graphipedia.
+	 */
+	public CategoryCrawler(String apiUrl, int threads, double requestsPerSecond, File cacheDirectory, long cacheTtl, Logger logger) {
+		this(apiUrl, threads, new RateLimiter(requestsPerSecond, Math.max(1, threads)), cacheDirectory, cacheTtl, logger);
+	}
+
+	/**
+	 * Creates a new crawler, whose requests are limited by a given rate limiter.
+	 * @param apiUrl The URL of the MediaWiki API (e.g., https://en.wikipedia.org/w/api.php).
+	 * @param threads The number of threads that send the requests.
+	 * @param rateLimiter The rate limiter, possibly shared with other crawlers.
+	 * @param cacheDirectory The directory where the responses are cached, or {@code null} if the responses are not cached.
+	 * @param cacheTtl The time to live (in ms) of the cached responses.
+	 * @param logger The logger of Graphipedia.
+	 */
+	public CategoryCrawler(String apiUrl, int threads, RateLimiter rateLimiter, File cacheDirectory, long cacheTtl, Logger logger) {
+		this.apiUrl = apiUrl;
+		this.workers = Executors.newFixedThreadPool(Math.max(1, threads));
+		this.rateLimiter = rateLimiter;
+		this.cacheDirectory = cacheDirectory;
+		this.cacheTtl = cacheTtl;
+		this.logger = logger;
+		if ( cacheDirectory != null && !cacheDirectory.isDirectory() && !cacheDirectory.mkdirs() )
+			logger.warning("Cannot create directory " + cacheDirectory.getAbsolutePath() + ", the responses of the API are not cached");
+	}
+
+	/**
+	 * Creates a new crawler of a Wikipedia language edition, as specified in the settings of Graphipedia.
+	 * The crawlers created by this method share the same rate limiter.
+	 * @param settings The settings of Graphipedia.
+	 * @param language The code of the language of the Wikipedia edition.
+	 * @param logger The logger of Graphipedia.
+	 * @return The crawler.
+	 */
+	public static CategoryCrawler create(GraphipediaSettings settings, String language, Logger logger) {
+		return new CategoryCrawler(settings.apiUrl(language), settings.apiThreads(), sharedRateLimiter(settings), 
+				settings.apiCacheDirectory(), settings.apiCacheTtl(), logger);
+	}
+
+	/**
+	 * Returns the rate limiter shared by the crawlers created from the settings of Graphipedia.
+	 * @param settings The settings of Graphipedia.
+	 * @return The shared rate limiter.
+	 */
+	private static synchronized RateLimiter sharedRateLimiter(GraphipediaSettings settings) {
+		if ( sharedRateLimiter == null )
+			sharedRateLimiter = new RateLimiter(settings.apiRequestsPerSecond(), Math.max(1, settings.apiThreads()));
+		return sharedRateLimiter;
+	}
+
+	/**
+	 * Stops the threads of this crawler.
+	 */
+	public void shutdown() {
+		workers.shutdownNow();
+	}
+
+	/**
+	 * Returns the members of a category and of all its direct and indirect subcategories in a given namespace.
+	 * @param rootCategory The title of the root category (with the prefix of the namespace).
+	 * @param namespace The namespace of the members.
+	 * @return The titles of the members (with the prefix of their namespace), in the order in which they are found.
+	 * @throws IOException when a request fails after {@code MAX_ATTEMPTS} attempts.
+	 */
+	public List<String> members(String rootCategory, int namespace) throws IOException {
+		List<String> members = new ArrayList<String>();
+		Set<String> visitedCategories = new HashSet<String>();
+		Set<String> visitedMembers = new HashSet<String>();
+		Counter categoryCounter = MetricsRegistry.global().meter(MetricsRegistry.CATEGORIES_CRAWLED).child();
+		List<String> level = new ArrayList<String>();
+		level.add(rootCategory);
+		visitedCategories.add(rootCategory);
+		while ( !level.isEmpty() ) {
+			List<Future<List<Member>>> results = new ArrayList<Future<List<Member>>>();
+			for ( final String category : level ) {
+				final int membersNamespace = namespace;
+				results.add(workers.submit(new Callable<List<Member>>() {
+					@Override
+					public List<Member> call() throws Exception {
+						return categoryMembers(category, membersNamespace);
+					}
+				}));
+			}
+			List<String> nextLevel = new ArrayList<String>();
+			for ( Future<List<Member>> result : results ) {
+				for ( Member member : result(result) ) {
+					if ( member.namespace == Namespace.CATEGORY ) {
+						if ( visitedCategories.add(member.title) )
+							nextLevel.add(member.title);
+					}
+					if ( member.namespace == namespace && visitedMembers.add(member.title) )
+						members.add(member.title);
+				}
+				categoryCounter.increment();
+			}
+			level = nextLevel;
+		}
+		logger.info(visitedCategories.size() + " categories crawled, " + members.size() + " members found");
+		return members;
+	}
+
+	/**
+	 * Waits for the members of a category.
+	 * @param future The pending members.
+	 * @return The members of the category.
+	 * @throws IOException the exception thrown while fetching the members.
+	 */
+	private static List<Member> result(Future<List<Member>> future) throws IOException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if ( e.getCause() instanceof IOException )
+				throw (IOException)e.getCause();
+			throw new IOException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while crawling the categories", e);
+		}
+	}
+
+	/**
+	 * Fetches the members of a category that are subcategories or belong to the given namespace, 
+	 * following the continuation of the results.
+	 * @param category The title of the category (with the prefix of the namespace).
+	 * @param namespace The namespace of the members (besides the subcategories).
+	 * @return The members of the category.
+	 * @throws IOException when a request fails after {@code MAX_ATTEMPTS} attempts.
+	 * @throws InterruptedException when the thread is interrupted.
+	 */
+	private List<Member> categoryMembers(String category, int namespace) throws IOException, InterruptedException {
+		List<Member> members = new ArrayList<Member>();
+		String namespaces = namespace == Namespace.CATEGORY ? "" + Namespace.CATEGORY : Namespace.CATEGORY + "|" + namespace;
+		String continuation = null;
+		do {
+			String url = apiUrl + "?action=query&list=categorymembers&format=xml&cmlimit=max&maxlag=5"
+					+ "&cmprop=title&cmnamespace=" + URLEncoder.encode(namespaces, "UTF-8") 
+					+ "&cmtitle=" + URLEncoder.encode(category, "UTF-8");
+			if ( continuation != null )
+				url += "&cmcontinue=" + URLEncoder.encode(continuation, "UTF-8");
+			continuation = parse(fetch(url), members);
+		} while ( continuation != null );
+		return members;
+	}
+
+	/**
+	 * Returns the response to a request, from the cache if possible.
+	 * @param url The URL of the request.
+	 * @return The response.
+	 * @throws IOException when the request fails after {@code MAX_ATTEMPTS} attempts.
+	 * @throws InterruptedException when the thread is interrupted.
+	 */
+	private byte[] fetch(String url) throws IOException, InterruptedException {
+		File cacheFile = cacheDirectory == null ? null : new File(cacheDirectory, sha1(url) + ".xml");
+		if ( cacheFile != null && cacheFile.isFile() && System.currentTimeMillis() - cacheFile.lastModified() < cacheTtl )
+			return read(new FileInputStream(cacheFile));
+		long backoff = INITIAL_BACKOFF;
+		for ( int attempt = 1; ; attempt += 1 ) {
+			rateLimiter.acquire();
+			try {
+				byte[] response = request(url);
+				parse(response, null); // throws if the response is a MediaWiki error.
+				if ( cacheFile != null && cacheDirectory.isDirectory() )
+					write(cacheFile, response);
+				return response;
+			}
+			catch(IOException e) {
+				if ( attempt == MAX_ATTEMPTS )
+					throw new IOException("Request failed after " + attempt + " attempts: " + url, e);
+				logger.warning("Request failed (" + e.getMessage() + "), retrying in " + backoff + " ms");
+			}
+			Thread.sleep(backoff);
+			backoff = Math.min(MAX_BACKOFF, backoff * 2);
+		}
+	}
+
+	/**
+	 * Sends a request to the server.
+	 * @param url The URL of the request.
+	 * @return The response.
+	 * @throws IOException when the request fails or the server returns an error.
+	 */
+	private static byte[] request(String url) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection)new URL(url).openConnection();
+		connection.setRequestProperty("User-Agent", USER_AGENT);
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+		try {
+			int status = connection.getResponseCode();
+			if ( status != HttpURLConnection.HTTP_OK )
+				throw new IOException("HTTP error " + status);
+			return read(connection.getInputStream());
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Parses a response of the server.
+	 * @param response The response.
+	 * @param members The list where the members of the category are added, or {@code null}.
+	 * @return The value to continue the listing of the members, if there are more members, {@code null} otherwise.
+	 * @throws IOException when the response is malformed or is a MediaWiki error.
+	 */
+	private static String parse(byte[] response, List<Member> members) throws IOException {
+		String continuation = null;
+		try {
+			XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(response), "UTF-8");
+			try {
+				while ( reader.hasNext() ) {
+					if ( reader.next() != XMLStreamConstants.START_ELEMENT )
+						continue;
+					String element = reader.getLocalName();
+					if ( element.equals("error") )
+						throw new IOException("MediaWiki error " + reader.getAttributeValue(null, "code") + ": " + 
+								reader.getAttributeValue(null, "info"));
+					if ( element.equals("continue") )
+						continuation = reader.getAttributeValue(null, "cmcontinue");
+					else if ( element.equals("cm") && members != null ) 
+						members.add(new Member(Integer.parseInt(reader.getAttributeValue(null, "ns")), 
+								reader.getAttributeValue(null, "title")));
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Malformed response", e);
+		}
+		return continuation;
+	}
+
+	/**
+	 * Reads a stream fully.
+	 * @param in The stream.
+	 * @return The content of the stream.
+	 * @throws IOException when something goes wrong while reading the stream.
+	 */
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BufferedInputStream bis = new BufferedInputStream(in);
+		try {
+			byte[] buffer = new byte[8192];
+			int n;
+			while ( (n = bis.read(buffer)) >= 0 )
+				out.write(buffer, 0, n);
+		} finally {
+			bis.close();
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Writes a response to the cache. 
+	 * The response is first written to a temporary file, which is then renamed, so as a concurrent reader 
+	 * never sees a partial response.
+	 * @param cacheFile The file of the cache.
+	 * @param response The response.
+	 * @throws IOException when something goes wrong while writing the file.
+	 */
+	private static void write(File cacheFile, byte[] response) throws IOException {
+		File temporaryFile = File.createTempFile("response", ".tmp", cacheFile.getParentFile());
+		FileOutputStream out = new FileOutputStream(temporaryFile);
+		try {
+			out.write(response);
+		} finally {
+			out.close();
+		}
+		if ( !temporaryFile.renameTo(cacheFile) ) {
+			cacheFile.delete();
+			if ( !temporaryFile.renameTo(cacheFile) ) {
+				temporaryFile.delete();
+				throw new IOException("Cannot write file " + cacheFile.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * Returns the SHA-1 digest of a string.
+	 * @param text A string.
+	 * @return The SHA-1 digest of the string, in hexadecimal.
+	 */
+	private static String sha1(String text) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(text.getBytes("UTF-8"));
+			StringBuilder hex = new StringBuilder();
+			for ( byte b : digest )
+				hex.append(String.format("%02x", b));
+			return hex.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e); // every Java platform supports SHA-1.
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * A member of a category.
+	 */
+	private static class Member {
+
+		/**
+		 * The namespace of the member.
+		 */
+		private final int namespace;
+
+		/**
+		 * The title of the member (with the prefix of the namespace).
+		 */
+		private final String title;
+
+		/**
+		 * Creates a new member.
+		 * @param namespace The namespace of the member.
+		 * @param title The title of the member.
+		 */
+		Member(int namespace, String title) {
+			this.namespace = namespace;
+			this.title = title;
+		}
+	}
+
+}
@@ -21,6 +21,8 @@
 //
 package org.graphipedia.download;
 
+import java.io.File;
+import java.net.URI;
 
 /**
  * A dump file of a Wikipedia edition.
@@ -38,14 +40,21 @@ public class DumpFile {
 	 */
 	private double size;
 	
+	/**
+	 * The SHA-1 checksum of this dump file, as published along with the dump.
+	 */
+	private String sha1;
+	
 	/**
 	 * Creates a new {@code DumpFile}.
 	 * @param url The URL of the dump file.
-	 * @param size THe size of the dump file.
+	 * @param size THe size of the dump file, or {@code -1} if unknown.
+	 * @param sha1 The SHA-1 checksum of the dump file, or {@code null} if unknown.
 	 */
-	public DumpFile(String url, double size) {
+	public DumpFile(String url, double size, String sha1) {
 		this.url = url;
 		this.size = size;
+		this.sha1 = sha1;
 	}
 	
 	/**
@@ -58,10 +67,26 @@ public class DumpFile {
 	
 	/**
 	 * Returns the size of this dump file.
-	 * @return The size of this dump file.
+	 * @return The size of this dump file, or {@code -1} if unknown.
 	 */
 	public double size() {
 		return this.size;
 	}
+	
+	/**
+	 * Returns the SHA-1 checksum of this dump file.
+	 * @return The SHA-1 checksum of this dump file (hexadecimal), or {@code null} if unknown.
+	 */
+	public String sha1() {
+		return this.sha1;
+	}
+	
+	/**
+	 * Returns the local file of this dump file, if it is found by a {@link LocalDumpSource}.
+	 * @return The local file of this dump file, or {@code null} if this dump file is to be downloaded.
+	 */
+	public File localFile() {
+		return this.url.startsWith("file:") ? new File(URI.create(this.url)) : null;
+	}
 
 }
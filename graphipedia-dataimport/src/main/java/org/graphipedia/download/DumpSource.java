@@ -0,0 +1,185 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.graphipedia.GraphipediaSettings;
+
+/**
+ * Where the dumps of the Wikipedia editions are found: the Wikimedia website, a mirror of it, or a local directory 
+ * (see {@link GraphipediaSettings#dumpSource()}).
+ * A source is laid out like the Wikimedia tree: the files of the dump of a Wikipedia edition (e.g., enwiki) as of a 
+ * date (e.g., 20160901) are in the directory {@code enwiki/20160901/}, named {@code enwiki-20160901-<suffix>}, along with 
+ * the file {@code dumpruninfo.txt}, which lists the status of the jobs of the dump, and the file 
+ * {@code enwiki-20160901-sha1sums.txt}, which lists the SHA-1 checksums of the files.
+ * The dates and the files are discovered from these files, without parsing the Web pages of the dumps.
+ */
+public abstract class DumpSource {
+
+	/**
+	 * The base URL of the Wikimedia website where the dumps are published.
+	 */
+	public static final String WIKIMEDIA_URL = "https://dumps.wikimedia.org/";
+
+	/**
+	 * The name of the file that lists the status of the jobs of a dump.
+	 */
+	public static final String RUN_INFO_FILE = "dumpruninfo.txt";
+
+	/**
+	 * The suffix of the name of the file that lists the SHA-1 checksums of the files of a dump.
+	 */
+	public static final String SHA1_FILE = "sha1sums.txt";
+
+	/**
+	 * The suffixes of the names of the files that are looked for in a dump.
+	 */
+	private static final String[] DUMP_FILES = new String[] {
+		GraphipediaSettings.WIKIPEDIA_XML_FILE, GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE, 
+		GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE, GraphipediaSettings.WIKIPEDIA_PAGE_FILE, 
+		GraphipediaSettings.WIKIPEDIA_PAGELINKS_FILE, GraphipediaSettings.WIKIPEDIA_CATEGORYLINKS_FILE, 
+		GraphipediaSettings.WIKIPEDIA_REDIRECT_FILE, GraphipediaSettings.WIKIPEDIA_LINKTARGET_FILE, 
+		GraphipediaSettings.WIKIPEDIA_PAGE_PROPS_FILE
+	};
+
+	/**
+	 * The suffixes of the names of the files without which a dump cannot be imported.
+	 */
+	private static final String[] REQUIRED_FILES = new String[] {
+		GraphipediaSettings.WIKIPEDIA_XML_FILE, GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE, 
+		GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE
+	};
+
+	/**
+	 * Returns the dump source configured in the settings of Graphipedia.
+	 * @param settings The settings of Graphipedia.
+	 * @return A {@link HttpDumpSource} if the source is a HTTP(S) URL, a {@link LocalDumpSource} otherwise.
+	 */
+	public static DumpSource create(GraphipediaSettings settings) {
+		String source = settings.dumpSource();
+		if ( source.startsWith("http://") || source.startsWith("https://") )
+			return new HttpDumpSource(source.endsWith("/") ? source : source + "/");
+		if ( source.startsWith("file:") )
+			source = source.substring("file:".length());
+		return new LocalDumpSource(new File(source));
+	}
+
+	/**
+	 * Returns the last complete dump of a Wikipedia edition.
+	 * A dump is complete if all the jobs listed in its {@code RUN_INFO_FILE} are done or, if the source 
+	 * has no such file (e.g., a partial local mirror), if the files without which the dump cannot be 
+	 * imported are present.
+	 * @param edition A Wikipedia edition.
+	 * @return The last complete dump of the Wikipedia edition, or {@code null} if there is none.
+	 * @throws IOException when an error occurs while reading the source.
+	 */
+	public WikipediaDump lastCompleteDump(WikipediaEdition edition) throws IOException {
+		List<String> dates = new ArrayList<String>(dates(edition.wikiCodeName()));
+		Collections.sort(dates, Collections.reverseOrder());
+		for ( String date : dates ) {
+			WikipediaDump dump = dump(edition, date);
+			if ( dump != null )
+				return dump;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the dump of a Wikipedia edition as of a specific date.
+	 * @param edition A Wikipedia edition.
+	 * @param date The date of the dump (in the form YYYYMMDD).
+	 * @return The dump, or {@code null} if it is not complete.
+	 * @throws IOException when an error occurs while reading the source.
+	 */
+	private WikipediaDump dump(WikipediaEdition edition, String date) throws IOException {
+		String wikiCodeName = edition.wikiCodeName();
+		String directory = wikiCodeName + "/" + date + "/";
+		String prefix = wikiCodeName + "-" + date + "-";
+		List<String> runInfo = lines(directory + RUN_INFO_FILE);
+		if ( runInfo != null ) 
+			for ( String job : runInfo ) 
+				if ( job.contains("status:") && !job.contains("status:done") )
+					return null;
+		Map<String, String> checksums = new HashMap<String, String>();
+		List<String> sha1sums = lines(directory + prefix + SHA1_FILE);
+		if ( sha1sums != null ) 
+			for ( String line : sha1sums ) {
+				String[] values = line.trim().split("\\s+");
+				if ( values.length == 2 )
+					checksums.put(values[1], values[0]);
+			}
+		Map<String, DumpFile> dumpFiles = new HashMap<String, DumpFile>();
+		for ( String suffix : DUMP_FILES ) {
+			DumpFile dumpFile = dumpFile(directory + prefix + suffix, checksums);
+			if ( dumpFile != null )
+				dumpFiles.put(suffix, dumpFile);
+		}
+		if ( runInfo == null )
+			for ( String suffix : REQUIRED_FILES ) 
+				if ( !dumpFiles.containsKey(suffix) )
+					return null;
+		return new WikipediaDump(date, dumpFiles);
+	}
+
+	/**
+	 * Returns the dates of the dumps of a Wikipedia edition.
+	 * @param wikiCodeName The code name of the Wikipedia edition (e.g., enwiki).
+	 * @return The dates (in the form YYYYMMDD) of the dumps, in any order.
+	 * @throws IOException when an error occurs while reading the source.
+	 */
+	protected abstract List<String> dates(String wikiCodeName) throws IOException;
+
+	/**
+	 * Reads a text file of the source.
+	 * @param path The path of the file, relative to the root of the source.
+	 * @return The lines of the file, or {@code null} if the file does not exist.
+	 * @throws IOException when an error occurs while reading the file.
+	 */
+	protected abstract List<String> lines(String path) throws IOException;
+
+	/**
+	 * Returns a file of a dump.
+	 * @param path The path of the file, relative to the root of the source.
+	 * @param checksums The SHA-1 checksums of the files of the dump, indexed by the names of the files; empty if 
+	 * the checksums are not available.
+	 * @return The file, or {@code null} if the file does not exist.
+	 * @throws IOException when an error occurs while reading the source.
+	 */
+	protected abstract DumpFile dumpFile(String path, Map<String, String> checksums) throws IOException;
+
+	/**
+	 * Returns the name of a file out of its path.
+	 * @param path The path of a file.
+	 * @return The name of the file.
+	 */
+	protected static String fileName(String path) {
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+}
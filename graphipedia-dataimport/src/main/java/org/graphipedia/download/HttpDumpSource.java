@@ -0,0 +1,133 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A source of dumps that is a HTTP server laid out like the Wikimedia tree, such as the Wikimedia website itself 
+ * ({@link DumpSource#WIKIMEDIA_URL}) or an internal mirror.
+ * The dates of the dumps are read from the directory listing of a Wikipedia edition; the files of a dump are 
+ * those listed in its checksum file or, if there is none, those that exist on the server.
+ */
+public class HttpDumpSource extends DumpSource {
+
+	/**
+	 * The pattern of the links to the directories of the dumps in a directory listing.
+	 */
+	private static final Pattern DATE_PATTERN = Pattern.compile("href=\"(\\d{8})/\"");
+
+	/**
+	 * The timeout (in ms) of the connections to the server.
+	 */
+	private static final int TIMEOUT = 60000;
+
+	/**
+	 * The base URL of the source, ending with a slash.
+	 */
+	private final String baseUrl;
+
+	/**
+	 * Creates a new source.
+	 * @param baseUrl The base URL of the source, ending with a slash.
+	 */
+	public HttpDumpSource(String baseUrl) {
+		this.baseUrl = baseUrl;
+	}
+
+	@Override
+	protected List<String> dates(String wikiCodeName) throws IOException {
+		List<String> lines = lines(wikiCodeName + "/");
+		Set<String> dates = new LinkedHashSet<String>();
+		if ( lines != null )
+			for ( String line : lines ) {
+				Matcher m = DATE_PATTERN.matcher(line);
+				while ( m.find() )
+					dates.add(m.group(1));
+			}
+		return new ArrayList<String>(dates);
+	}
+
+	@Override
+	protected List<String> lines(String path) throws IOException {
+		HttpURLConnection connection = connect(path, "GET");
+		if ( connection.getResponseCode() == HttpURLConnection.HTTP_NOT_FOUND ) {
+			connection.disconnect();
+			return null;
+		}
+		if ( connection.getResponseCode() != HttpURLConnection.HTTP_OK ) {
+			connection.disconnect();
+			throw new IOException("HTTP " + connection.getResponseCode() + " for " + this.baseUrl + path);
+		}
+		List<String> lines = new ArrayList<String>();
+		BufferedReader bd = new BufferedReader(new InputStreamReader(connection.getInputStream(), "UTF-8"));
+		String line;
+		while ( (line = bd.readLine()) != null )
+			lines.add(line);
+		bd.close();
+		return lines;
+	}
+
+	@Override
+	protected DumpFile dumpFile(String path, Map<String, String> checksums) throws IOException {
+		if ( !checksums.isEmpty() ) { // the checksum file lists all the files of the dump.
+			String sha1 = checksums.get(fileName(path));
+			return sha1 == null ? null : new DumpFile(this.baseUrl + path, -1, sha1);
+		}
+		HttpURLConnection connection = connect(path, "HEAD");
+		int code = connection.getResponseCode();
+		long size = connection.getContentLengthLong();
+		connection.disconnect();
+		if ( code == HttpURLConnection.HTTP_NOT_FOUND )
+			return null;
+		if ( code != HttpURLConnection.HTTP_OK )
+			throw new IOException("HTTP " + code + " for " + this.baseUrl + path);
+		return new DumpFile(this.baseUrl + path, size, null);
+	}
+
+	/**
+	 * Opens a connection to a file of the source.
+	 * @param path The path of the file, relative to the base URL.
+	 * @param method The HTTP method.
+	 * @return The connection.
+	 * @throws IOException when the connection cannot be opened.
+	 */
+	private HttpURLConnection connect(String path, String method) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection) new URL(this.baseUrl + path).openConnection();
+		connection.setRequestMethod(method);
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+		return connection;
+	}
+
+}
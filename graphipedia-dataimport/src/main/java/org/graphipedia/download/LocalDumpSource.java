@@ -0,0 +1,98 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A source of dumps that is a local directory laid out like the Wikimedia tree, such as a mirror on shared storage.
+ * The files of a dump are not copied: they are hard-linked to the directory of the Wikipedia edition or, 
+ * if they are on another file system, symbolically linked, so that they are read in place.
+ */
+public class LocalDumpSource extends DumpSource {
+
+	/**
+	 * The root directory of the source.
+	 */
+	private final File root;
+
+	/**
+	 * Creates a new source.
+	 * @param root The root directory of the source.
+	 */
+	public LocalDumpSource(File root) {
+		this.root = root;
+	}
+
+	@Override
+	protected List<String> dates(String wikiCodeName) throws IOException {
+		File directory = new File(this.root, wikiCodeName);
+		if ( !directory.isDirectory() )
+			throw new IOException("No directory " + directory.getAbsolutePath());
+		List<String> dates = new ArrayList<String>();
+		String[] names = directory.list();
+		if ( names != null )
+			for ( String name : names ) 
+				if ( name.matches("\\d{8}") && new File(directory, name).isDirectory() )
+					dates.add(name);
+		return dates;
+	}
+
+	@Override
+	protected List<String> lines(String path) throws IOException {
+		File file = new File(this.root, path);
+		if ( !file.isFile() )
+			return null;
+		return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+	}
+
+	@Override
+	protected DumpFile dumpFile(String path, Map<String, String> checksums) throws IOException {
+		File file = new File(this.root, path);
+		if ( !file.isFile() )
+			return null;
+		return new DumpFile(file.getAbsoluteFile().toURI().toString(), file.length(), checksums.get(fileName(path)));
+	}
+
+	/**
+	 * Links a file of a local source to the directory of a Wikipedia edition.
+	 * The file is hard-linked if possible, symbolically linked otherwise.
+	 * @param source The file of the source.
+	 * @param target The link to create, which replaces any existing file.
+	 * @throws IOException when the link cannot be created.
+	 */
+	public static void link(File source, File target) throws IOException {
+		Files.deleteIfExists(target.toPath());
+		try {
+			Files.createLink(target.toPath(), source.toPath());
+		} catch (IOException | UnsupportedOperationException e) { // the source is on another file system.
+			Files.createSymbolicLink(target.toPath(), source.getAbsoluteFile().toPath());
+		}
+	}
+
+}
@@ -0,0 +1,90 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+/**
+ * A token bucket that limits the rate of the requests sent to a server.
+ * The bucket holds at most {@code capacity} tokens and is refilled at a constant rate; 
+ * each request takes a token, waiting for one to be available if the bucket is empty.
+ * The rate limiter is shared by all the threads that send requests to the same server.
+ */
+public class RateLimiter {
+
+	/**
+	 * The number of tokens added to the bucket per nanosecond.
+	 */
+	private final double tokensPerNanosecond;
+
+	/**
+	 * The maximum number of tokens in the bucket (the maximum burst of requests).
+	 */
+	private final double capacity;
+
+	/**
+	 * The number of tokens in the bucket at time {@code lastRefill}.
+	 */
+	private double tokens;
+
+	/**
+	 * The last time (in ns) the bucket was refilled.
+	 */
+	private long lastRefill;
+
+	/**
+	 * Creates a new rate limiter, with a full bucket.
+	 * @param requestsPerSecond The maximum average number of requests per second.
+	 * @param burst The maximum number of requests that can be sent at once.
+	 */
+	public RateLimiter(double requestsPerSecond, int burst) {
+		if ( requestsPerSecond <= 0 )
+			throw new IllegalArgumentException("The rate must be positive: " + requestsPerSecond);
+		this.tokensPerNanosecond = requestsPerSecond / 1e9;
+		this.capacity = Math.max(1, burst);
+		this.tokens = this.capacity;
+		this.lastRefill = System.nanoTime();
+	}
+
+	/**
+	 * Takes a token from the bucket, waiting until one is available.
+	 * @throws InterruptedException when the thread is interrupted while waiting.
+	 */
+	public void acquire() throws InterruptedException {
+		long wait;
+		synchronized (this) {
+			refill();
+			tokens -= 1; // the token is reserved now, the thread waits for it to be refilled, if needed.
+			wait = tokens >= 0 ? 0 : (long)Math.ceil(-tokens / tokensPerNanosecond);
+		}
+		if ( wait > 0 )
+			Thread.sleep(wait / 1000000, (int)(wait % 1000000));
+	}
+
+	/**
+	 * Adds to the bucket the tokens accumulated since the last refill.
+	 */
+	private void refill() {
+		long now = System.nanoTime();
+		tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNanosecond);
+		lastRefill = now;
+	}
+
+}
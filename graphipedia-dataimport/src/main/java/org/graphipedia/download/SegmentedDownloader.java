@@ -0,0 +1,618 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.CountingInputStream;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.StageRecord;
+
+/**
+ * Downloads a file over HTTP with several concurrent connections.
+ * The file is split into segments that are requested with byte ranges and written directly at their 
+ * position in a preallocated target file.
+ * The progress of each segment is saved periodically to a state file next to the target file 
+ * (see {@link #STATE_FILE_SUFFIX}), so that a download interrupted by a crash resumes from where the 
+ * segments were left.
+ * If the server does not announce the size of the file or does not accept byte ranges (or answers the byte range 
+ * requests with the whole file), the file is downloaded with a single connection.
+ * When a checksum is given, the downloaded file is verified against it.
+ * If the target file is registered as an {@link ActiveDownload}, the number of bytes downloaded 
+ * at the beginning of the file is published to its readers as the download progresses.
+ */
+public class SegmentedDownloader {
+
+	/**
+	 * The suffix of the name of the file where the state of a download is saved.
+	 */
+	public static final String STATE_FILE_SUFFIX = ".parts";
+
+	/**
+	 * The default size (in bytes) of a segment.
+	 */
+	private static final long SEGMENT_SIZE = 32L * 1024 * 1024;
+
+	/**
+	 * The size (in bytes) of the buffer of a connection.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The maximum number of attempts to download a segment.
+	 */
+	private static final int MAX_ATTEMPTS = 8;
+
+	/**
+	 * The default time (in ms) waited before the first new attempt; the time is doubled at each attempt.
+	 */
+	private static final long INITIAL_BACKOFF = 1000;
+
+	/**
+	 * The maximum time (in ms) waited before a new attempt.
+	 */
+	private static final long MAX_BACKOFF = 60000;
+
+	/**
+	 * The minimum time (in ms) between two saves of the state of a download.
+	 */
+	private static final long STATE_SAVE_INTERVAL = 5000;
+
+	/**
+	 * The connect and read timeout (in ms) of the connections.
+	 */
+	private static final int TIMEOUT = 60000;
+
+	/**
+	 * The user agent sent with the requests.
+	 */
+	private static final String USER_AGENT = "Graphipedia/0.1";
+
+	/**
+	 * The number of concurrent connections.
+	 */
+	private int connections;
+
+	/**
+	 * The size (in bytes) of a segment.
+	 */
+	private long segmentSize;
+
+	/**
+	 * The time (in ms) waited before the first new attempt; the time is doubled at each attempt.
+	 */
+	private long initialBackoff;
+
+	/**
+	 * The logger.
+	 */
+	private Logger logger;
+
+	/**
+	 * Creates a new downloader.
+	 * @param connections The number of concurrent connections used to download a file.
+	 * @param logger The logger.
+	 */
+	public SegmentedDownloader(int connections, Logger logger) {
+		this(connections, SEGMENT_SIZE, INITIAL_BACKOFF, logger);
+	}
+
+	/**
+	 * Creates a new downloader with a given size of the segments and a given backoff (e.g., smaller for the tests).
+	 * @param connections The number of concurrent connections used to download a file.
+	 * @param segmentSize The size (in bytes) of a segment.
+	 * @param initialBackoff The time (in ms) waited before the first new attempt.
+	 * @param logger The logger.
+	 */
+	SegmentedDownloader(int connections, long segmentSize, long initialBackoff, Logger logger) {
+		this.connections = Math.max(1, connections);
+		this.segmentSize = segmentSize;
+		this.initialBackoff = initialBackoff;
+		this.logger = logger;
+	}
+
+	/**
+	 * Downloads a file.
+	 * If the state file of a previous download of the same file exists, the download is resumed.
+	 * @param url The URL of the file.
+	 * @param targetFile The file where the downloaded file is written.
+	 * @param sha1 The SHA-1 checksum of the file (hexadecimal), or {@code null} if the file is not verified.
+	 * @param message The message displayed along with the progress of the download.
+	 * @throws IOException when the download fails or the downloaded file does not match the checksum.
+	 * @throws InterruptedException when the thread is interrupted while downloading.
+	 */
+	public void download(URL url, File targetFile, String sha1, String message) throws IOException, InterruptedException {
+		File stateFile = new File(targetFile.getPath() + STATE_FILE_SUFFIX);
+		HttpURLConnection connection = open(url, "HEAD");
+		long length;
+		boolean ranges;
+		String validator;
+		try {
+			int status = connection.getResponseCode();
+			if ( status != HttpURLConnection.HTTP_OK )
+				throw new IOException("HTTP error " + status + " for " + url);
+			length = connection.getContentLengthLong();
+			ranges = "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges"));
+			validator = connection.getHeaderField("ETag");
+			if ( validator == null )
+				validator = connection.getHeaderField("Last-Modified");
+		} finally {
+			connection.disconnect();
+		}
+		if ( length < 0 || !ranges ) {
+			logger.info("The server does not accept byte ranges, downloading with a single connection");
+			stateFile.delete();
+			downloadStream(url, targetFile, length, message);
+		}
+		else {
+			try {
+				downloadSegments(url, targetFile, stateFile, length, validator == null ? "-" : validator.replace(' ', '_'), message);
+			} catch (RangesIgnoredException e) {
+				logger.info("The server ignores byte ranges, downloading with a single connection");
+				stateFile.delete();
+				downloadStream(url, targetFile, length, message);
+			}
+		}
+		if ( sha1 != null ) {
+			String actual = sha1(targetFile);
+			if ( !actual.equalsIgnoreCase(sha1) ) {
+				targetFile.delete();
+				stateFile.delete();
+				throw new IOException("Checksum mismatch for " + url + ": expected " + sha1 + ", found " + actual);
+			}
+			logger.info("Checksum verified");
+		}
+		stateFile.delete();
+	}
+
+	/**
+	 * Downloads a file in segments, with concurrent connections.
+	 * @param url The URL of the file.
+	 * @param targetFile The file where the downloaded file is written.
+	 * @param stateFile The file where the state of the download is saved.
+	 * @param length The length (in bytes) of the file.
+	 * @param validator The version of the file announced by the server (entity tag or last modification date).
+	 * @param message The message displayed along with the progress of the download.
+	 * @throws IOException when the download fails ({@link RangesIgnoredException} if the server answers the byte 
+	 * range requests with the whole file).
+	 * @throws InterruptedException when the thread is interrupted while downloading.
+	 */
+	private void downloadSegments(final URL url, File targetFile, final File stateFile, final long length, 
+			final String validator, final String message) throws IOException, InterruptedException {
+		final List<Segment> segments = loadState(stateFile, targetFile, length, validator, segmentSize);
+		final AtomicLong downloaded = new AtomicLong();
+		final ConcurrentLinkedQueue<Segment> queue = new ConcurrentLinkedQueue<Segment>();
+		for ( Segment segment : segments ) {
+			downloaded.addAndGet(segment.position - segment.start);
+			if ( segment.position < segment.end )
+				queue.add(segment);
+		}
+		if ( downloaded.get() > 0 )
+			logger.info("Resuming the download (" + (downloaded.get() * 100 / length) + "% already downloaded)");
+		final DownloadProgress progress = new DownloadProgress(length);
+		final long[] lastSave = new long[] { System.currentTimeMillis() };
+		final ActiveDownload active = ActiveDownload.of(targetFile);
+		final int[] firstIncomplete = new int[] { 0 };
+		RandomAccessFile file = new RandomAccessFile(targetFile, "rw");
+		try {
+			if ( file.length() != length )
+				file.setLength(length);
+			final FileChannel channel = file.getChannel();
+			if ( active != null )
+				active.advance(available(segments, firstIncomplete));
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(connections, Math.max(1, queue.size())));
+			List<Future<Void>> workers = new ArrayList<Future<Void>>();
+			for ( int i = 0; i < connections; i += 1 ) {
+				workers.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						Segment segment;
+						while ( (segment = queue.poll()) != null ) {
+							long backoff = initialBackoff;
+							for ( int attempt = 1; ; attempt += 1 ) {
+								try {
+									downloadSegment(url, channel, segment, downloaded, new Runnable() {
+										@Override
+										public void run() {
+											synchronized (lastSave) {
+												progress.visualize(downloaded.get(), logger, message);
+												if ( active != null )
+													active.advance(available(segments, firstIncomplete));
+												if ( System.currentTimeMillis() - lastSave[0] < STATE_SAVE_INTERVAL )
+													return;
+												lastSave[0] = System.currentTimeMillis();
+												try {
+													channel.force(false);
+													saveState(stateFile, length, validator, segments);
+												} catch (IOException e) {
+													logger.warning("Could not save the state of the download: " + e.getMessage());
+												}
+											}
+										}
+									});
+									break;
+								}
+								catch(RangesIgnoredException e) {
+									throw e; // another attempt would get the whole file again.
+								}
+								catch(IOException e) {
+									if ( attempt == MAX_ATTEMPTS )
+										throw new IOException("Segment " + segment.start + "-" + segment.end + 
+												" failed after " + attempt + " attempts", e);
+									logger.warning("Download of a segment failed (" + e.getMessage() + "), retrying in " + backoff + " ms");
+								}
+								Thread.sleep(backoff);
+								backoff = Math.min(MAX_BACKOFF, backoff * 2);
+							}
+						}
+						return null;
+					}
+				}));
+			}
+			executor.shutdown();
+			IOException failure = null;
+			for ( Future<Void> worker : workers ) {
+				try {
+					worker.get();
+				} catch (ExecutionException e) {
+					if ( failure == null )
+						failure = e.getCause() instanceof IOException ? (IOException)e.getCause() : new IOException(e.getCause());
+					queue.clear(); // the other connections stop after their current segment.
+				}
+			}
+			channel.force(true);
+			synchronized (lastSave) {
+				saveState(stateFile, length, validator, segments);
+			}
+			if ( failure != null )
+				throw failure;
+			progress.visualize(length, logger, message);
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Returns the number of bytes at the beginning of the file that have been downloaded.
+	 * @param segments The segments of the download, ordered by position.
+	 * @param firstIncomplete The index of the first segment that might be incomplete; updated by this method.
+	 * @return The number of bytes at the beginning of the file that have been downloaded.
+	 */
+	private static long available(List<Segment> segments, int[] firstIncomplete) {
+		while ( firstIncomplete[0] < segments.size() ) {
+			Segment segment = segments.get(firstIncomplete[0]);
+			if ( segment.position < segment.end )
+				return segment.position;
+			firstIncomplete[0] += 1;
+		}
+		return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).end;
+	}
+
+	/**
+	 * Downloads the remaining part of a segment with a byte range request.
+	 * @param url The URL of the file.
+	 * @param channel The channel of the target file.
+	 * @param segment The segment.
+	 * @param downloaded The total number of bytes downloaded.
+	 * @param onProgress Invoked after each block of bytes written to the target file.
+	 * @throws IOException when the request fails ({@link RangesIgnoredException} if the server answers with the 
+	 * whole file).
+	 */
+	private void downloadSegment(URL url, FileChannel channel, Segment segment, AtomicLong downloaded, 
+			Runnable onProgress) throws IOException {
+		HttpURLConnection connection = open(url, "GET");
+		connection.setRequestProperty("Range", "bytes=" + segment.position + "-" + (segment.end - 1));
+		try {
+			int status = connection.getResponseCode();
+			if ( status == HttpURLConnection.HTTP_OK )
+				throw new RangesIgnoredException(url);
+			if ( status != HttpURLConnection.HTTP_PARTIAL )
+				throw new IOException("HTTP status " + status + " for a byte range request");
+			InputStream in = countingInput(connection);
+			Counter written = StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.BYTES_WRITTEN), 
+					StageRecord.Count.bytesWritten);
+			byte[] data = new byte[BUFFER_SIZE];
+			ByteBuffer buffer = ByteBuffer.wrap(data);
+			int read;
+			while ( segment.position < segment.end && 
+					(read = in.read(data, 0, (int)Math.min(data.length, segment.end - segment.position))) >= 0 ) {
+				buffer.clear().limit(read);
+				long position = segment.position;
+				while ( buffer.hasRemaining() )
+					position += channel.write(buffer, position);
+				segment.position = position;
+				written.add(read);
+				downloaded.addAndGet(read);
+				onProgress.run();
+			}
+			in.close();
+			if ( segment.position < segment.end )
+				throw new IOException("Connection closed after " + (segment.position - segment.start) + " bytes");
+		} finally {
+			connection.disconnect();
+		}
+	}
+
+	/**
+	 * Downloads a file with a single connection.
+	 * @param url The URL of the file.
+	 * @param targetFile The file where the downloaded file is written.
+	 * @param length The length (in bytes) of the file, or {@code -1} if unknown.
+	 * @param message The message displayed along with the progress of the download.
+	 * @throws IOException when the download fails.
+	 * @throws InterruptedException when the thread is interrupted while waiting before a new attempt.
+	 */
+	private void downloadStream(URL url, File targetFile, long length, String message) throws IOException, InterruptedException {
+		DownloadProgress progress = length > 0 ? new DownloadProgress(length) : null;
+		ActiveDownload active = ActiveDownload.of(targetFile);
+		long backoff = initialBackoff;
+		for ( int attempt = 1; ; attempt += 1 ) {
+			HttpURLConnection connection = open(url, "GET");
+			try {
+				int status = connection.getResponseCode();
+				if ( status != HttpURLConnection.HTTP_OK )
+					throw new IOException("HTTP error " + status + " for " + url);
+				InputStream in = countingInput(connection);
+				Counter written = StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.BYTES_WRITTEN), 
+						StageRecord.Count.bytesWritten);
+				// the file is overwritten from the beginning rather than truncated, as it may be read while it is downloaded.
+				RandomAccessFile file = new RandomAccessFile(targetFile, "rw");
+				try {
+					FileChannel channel = file.getChannel();
+					byte[] data = new byte[BUFFER_SIZE];
+					long downloaded = 0;
+					int read;
+					while ( (read = in.read(data)) >= 0 ) {
+						ByteBuffer buffer = ByteBuffer.wrap(data, 0, read);
+						while ( buffer.hasRemaining() )
+							downloaded += channel.write(buffer, downloaded);
+						written.add(read);
+						if ( progress != null )
+							progress.visualize(Math.min(downloaded, length), logger, message);
+						if ( active != null )
+							active.advance(downloaded);
+					}
+					if ( length >= 0 && downloaded != length )
+						throw new IOException("Connection closed after " + downloaded + " of " + length + " bytes");
+					file.setLength(downloaded);
+					channel.force(true);
+				} finally {
+					file.close();
+					in.close();
+				}
+				return;
+			}
+			catch(IOException e) {
+				if ( attempt == MAX_ATTEMPTS )
+					throw new IOException("Download failed after " + attempt + " attempts: " + url, e);
+				logger.warning("Download failed (" + e.getMessage() + "), retrying in " + backoff + " ms");
+			} finally {
+				connection.disconnect();
+			}
+			Thread.sleep(backoff);
+			backoff = Math.min(MAX_BACKOFF, backoff * 2);
+		}
+	}
+
+	/**
+	 * Returns the body of the response to a request, whose bytes are counted in the {@link MetricsRegistry} 
+	 * and in the stage of the current thread.
+	 * @param connection The connection of the request.
+	 * @return The body of the response.
+	 * @throws IOException when the response cannot be read.
+	 */
+	private static InputStream countingInput(HttpURLConnection connection) throws IOException {
+		return new CountingInputStream(connection.getInputStream(), StageRecord.counter(
+				MetricsRegistry.global().meter(MetricsRegistry.BYTES_DOWNLOADED), StageRecord.Count.bytesRead));
+	}
+
+	/**
+	 * Opens a connection.
+	 * @param url The URL.
+	 * @param method The HTTP method.
+	 * @return The connection.
+	 * @throws IOException when the connection cannot be opened.
+	 */
+	private static HttpURLConnection open(URL url, String method) throws IOException {
+		HttpURLConnection connection = (HttpURLConnection)url.openConnection();
+		connection.setRequestMethod(method);
+		connection.setRequestProperty("User-Agent", USER_AGENT);
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+		return connection;
+	}
+
+	/**
+	 * Loads the segments of a download from the state file.
+	 * If the state file does not exist or refers to another version of the file, the file is split into new segments.
+	 * @param stateFile The file where the state of the download is saved.
+	 * @param targetFile The file where the downloaded file is written.
+	 * @param length The length (in bytes) of the file.
+	 * @param validator The version of the file announced by the server.
+	 * @param segmentSize The size (in bytes) of the new segments.
+	 * @return The segments of the download.
+	 * @throws IOException when the state file cannot be read.
+	 */
+	private static List<Segment> loadState(File stateFile, File targetFile, long length, String validator, 
+			long segmentSize) throws IOException {
+		List<Segment> segments = new ArrayList<Segment>();
+		if ( stateFile.isFile() && targetFile.isFile() && targetFile.length() == length ) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(stateFile), "UTF-8"));
+			try {
+				String header = reader.readLine();
+				if ( header != null && header.equals(length + " " + validator) ) {
+					String line;
+					while ( (line = reader.readLine()) != null ) {
+						String[] values = line.split(" ");
+						Segment segment = new Segment(Long.parseLong(values[0]), Long.parseLong(values[1]));
+						segment.position = Long.parseLong(values[2]);
+						segments.add(segment);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		}
+		if ( !segments.isEmpty() )
+			return segments;
+		for ( long start = 0; start < length; start += segmentSize )
+			segments.add(new Segment(start, Math.min(length, start + segmentSize)));
+		return segments;
+	}
+
+	/**
+	 * Saves the segments of a download to the state file.
+	 * The state file is replaced atomically, so that a crash never leaves it partially written.
+	 * The caller must make sure that the bytes counted in the positions of the segments have been written 
+	 * to the target file.
+	 * @param stateFile The file where the state of the download is saved.
+	 * @param length The length (in bytes) of the file.
+	 * @param validator The version of the file announced by the server.
+	 * @param segments The segments of the download.
+	 * @throws IOException when the state file cannot be written.
+	 */
+	private static void saveState(File stateFile, long length, String validator, List<Segment> segments) throws IOException {
+		File temporaryFile = new File(stateFile.getPath() + ".tmp");
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temporaryFile), "UTF-8"));
+		try {
+			writer.write(length + " " + validator + "\n");
+			for ( Segment segment : segments )
+				writer.write(segment.start + " " + segment.end + " " + segment.position + "\n");
+		} finally {
+			writer.close();
+		}
+		Files.move(temporaryFile.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Computes the SHA-1 checksum of a file.
+	 * @param file The file.
+	 * @return The SHA-1 checksum of the file (hexadecimal).
+	 * @throws IOException when the file cannot be read.
+	 */
+	private static String sha1(File file) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		FileChannel channel = new FileInputStream(file).getChannel();
+		try {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+			while ( channel.read(buffer) >= 0 ) {
+				buffer.flip();
+				digest.update(buffer);
+				buffer.clear();
+			}
+		} finally {
+			channel.close();
+		}
+		StringBuilder hex = new StringBuilder();
+		for ( byte b : digest.digest() )
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+	/**
+	 * Thrown when a server that announces byte ranges answers a byte range request with the whole file.
+	 */
+	private static class RangesIgnoredException extends IOException {
+
+		/**
+		 * The version of this class.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Creates a new exception.
+		 * @param url The URL of the file.
+		 */
+		RangesIgnoredException(URL url) {
+			super("The server ignores byte ranges for " + url);
+		}
+
+	}
+
+	/**
+	 * A segment of a file, downloaded with a byte range request.
+	 */
+	private static class Segment {
+
+		/**
+		 * The position of the first byte of the segment.
+		 */
+		final long start;
+
+		/**
+		 * The position after the last byte of the segment.
+		 */
+		final long end;
+
+		/**
+		 * The position of the next byte to download.
+		 */
+		volatile long position;
+
+		/**
+		 * Creates a new segment, with no byte downloaded.
+		 * @param start The position of the first byte of the segment.
+		 * @param end The position after the last byte of the segment.
+		 */
+		Segment(long start, long end) {
+			this.start = start;
+			this.end = end;
+			this.position = start;
+		}
+
+	}
+
+}
@@ -21,17 +21,12 @@
 //
 package org.graphipedia.download;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.URL;
-import java.util.LinkedList;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
 
 import org.graphipedia.GraphipediaSettings;
 
 /**
- * A specific dump of a Wikipedia language edition.
+ * A specific dump of a Wikipedia language edition, as found by a {@link DumpSource}.
  *
  */
 public class WikipediaDump {
@@ -42,26 +37,26 @@ public class WikipediaDump {
 	private String date;
 	
 	/**
-	 * The XML dump file.
+	 * The files of this dump, indexed by the suffix of their names (e.g., {@link GraphipediaSettings#WIKIPEDIA_XML_FILE}).
 	 */
-	private DumpFile xmlDumpFile;
+	private Map<String, DumpFile> dumpFiles;
 	
 	/**
-	 * The cross link dump file.
+	 * Creates a new dump.
+	 * @param date The date of the dump.
+	 * @param dumpFiles The files of the dump, indexed by the suffix of their names.
 	 */
-	private DumpFile crosslinkDumpFile;
-	
-	/**
-	 * The geo tags dump file.
-	 */
-	private DumpFile geotagsDumpFile;
+	WikipediaDump(String date, Map<String, DumpFile> dumpFiles) {
+		this.date = date;
+		this.dumpFiles = dumpFiles;
+	}
 	
 	/**
 	 * Returns the XML dump file.
 	 * @return The XML dump file.
 	 */
 	public DumpFile xmlDumpFile() {
-		return this.xmlDumpFile;
+		return dumpFile(GraphipediaSettings.WIKIPEDIA_XML_FILE);
 	}
 	
 	/**
@@ -69,7 +64,7 @@ public class WikipediaDump {
 	 * @return The cross-link dump file.
 	 */
 	public DumpFile crosslinkDumpFile() {
-		return this.crosslinkDumpFile;
+		return dumpFile(GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE);
 	}
 	
 	/**
@@ -79,102 +74,24 @@ public class WikipediaDump {
 	 * 
 	 */
 	public DumpFile geotagsDumpFile() {
-		return this.geotagsDumpFile;
+		return dumpFile(GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE);
 	}
 	
 	/**
-	 * Returns the date of this dump.
-	 * @return The date of this dump.
+	 * Returns the file of this dump with the given name suffix.
+	 * @param fileNameSuffix The suffix of the name of the file (e.g., {@link GraphipediaSettings#WIKIPEDIA_PAGE_FILE}).
+	 * @return The file of this dump with the given name suffix, or {@code null} if this dump has no such file.
 	 */
-	public String date() {
-		return this.date;
+	public DumpFile dumpFile(String fileNameSuffix) {
+		return this.dumpFiles.get(fileNameSuffix);
 	}
 	
 	/**
-	 * Returns the date (in the form YYYYMMDD) of the last complete dump of a Wikipedia edition.
-	 * @param edition A wikipedia edition.
-	 * 
-	 * @return The date of the last complete dump of the Wikipedia edition, if any, {@code null} otherwise.
-	 * @throws Exception when any error occurs while reading the Web page that lists the dumps of the 
-	 * Wikipedia edition.
-	 */
-	public static WikipediaDump lastCompleteDump(WikipediaEdition edition) throws Exception {
-		URL url = new URL(edition.dumpUrl());
-		Pattern pattern = Pattern.compile("<a href=\"(\\d{8})/\">\\d{8}/</a>.*");
-		BufferedReader bd = new BufferedReader(new InputStreamReader(url.openStream()));
-		String line; 
-		LinkedList<String> editionDates = new LinkedList<String>();
-		while( (line = bd.readLine() ) != null ) {
-			Matcher m = pattern.matcher(line);
-			if ( m.matches() ) 
-				editionDates.addFirst(m.group(1));
-		}
-		bd.close();
-		for (String editionDate : editionDates) {
-			WikipediaDump dump = new WikipediaDump();
-			if ( dump.parseDump(edition, editionDate) ) 
-				return dump;
-		}
-		return null;
-	}
-	
-	/**
-	 * Parses the Web page of a specific dump as of a specific date.
-	 * @param edition A Wikipedia edition.
-	 * @param date The date of the Wikipedia edition.
-	 * @return {@code true} if the dump is complete, {@code  false} otherwise.
-	 * @throws Exception when some error occurs while parsing the Web page.
-	 */
-	private boolean parseDump(WikipediaEdition edition, String date) throws Exception {
-		this.date = date;
-		String wikiCodeName = edition.wikiCodeName();
-		Pattern xmlFilePattern = Pattern.compile(".*<a href=\"/"+wikiCodeName+"/"+date+"/"+wikiCodeName+"-"+date+"-"
-				+GraphipediaSettings.WIKIPEDIA_XML_FILE+"\">"+wikiCodeName+"-"+date+"-"+GraphipediaSettings.WIKIPEDIA_XML_FILE+"</a>(.+?)</li>.*");
-		Pattern crossLinkFilePattern = Pattern.compile(".*<a href=\"/"+wikiCodeName+"/"+date+"/"+wikiCodeName+"-"+date+"-"
-				+GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE+"\">"+wikiCodeName+"-"+date+"-"+GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE+"</a>(.+?)</li>.*");
-		Pattern geotagsFilePattern = Pattern.compile(".*<a href=\"/"+wikiCodeName+"/"+date+"/"+wikiCodeName+"-"+date+"-"
-				+GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE+"\">"+wikiCodeName+"-"+date+"-"+GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE+"</a>(.+?)</li>.*");
-		
-		
-		URL url = new URL(edition.dumpUrl(date));
-		BufferedReader bd = new BufferedReader(new InputStreamReader(url.openStream()));
-		String line;
-		boolean complete = false;
-		while( (line = bd.readLine()) != null ) {
-			if ( line.contains("<span class='done'>Dump complete</span>") )
-				complete = true;
-			Matcher xmlFileMatcher = xmlFilePattern.matcher(line);
-			Matcher crossLinkFileMatcher = crossLinkFilePattern.matcher(line);
-			Matcher geotagsFileMatcher = geotagsFilePattern.matcher(line);
-			if (xmlFileMatcher.matches()) 
-				this.xmlDumpFile = new DumpFile(edition.xmlFileUrl(date), size(xmlFileMatcher.group(1))) ;
-			else if ( crossLinkFileMatcher.matches() )
-				this.crosslinkDumpFile = new DumpFile(edition.crossLinkFileUrl(date), size(crossLinkFileMatcher.group(1))) ;
-			else if ( geotagsFileMatcher.matches() )
-				this.geotagsDumpFile = new DumpFile(edition.geotagFileUrl(date), size(geotagsFileMatcher.group(1)));
-		}
-		bd.close();
-		return complete;
-		
-	}
-	
-	/**
-	 * Returns the size in bytes out of the given raw size 
-	 * @param rawSize The raw size (expressed in some unit, such as KB, MB, GB)
-	 * @return The size in bytes
+	 * Returns the date of this dump.
+	 * @return The date of this dump.
 	 */
-	private double size(String rawSize) {
-		rawSize = rawSize.trim();
-		String[] values = rawSize.split(" ");
-		double sizeValue = Double.parseDouble(values[0]);
-		String unit = values[1];
-		if ( unit.equals("KB") )
-			return sizeValue * 1024.;
-		if ( unit.equals("MB") )
-			return sizeValue * 1024. * 1024.;
-		if (unit.equals("GB"))
-			return sizeValue * 1024. * 1024. * 1024.;
-		return sizeValue;
+	public String date() {
+		return this.date;
 	}
 
 }
@@ -21,15 +21,18 @@
 //
 package org.graphipedia.download;
 
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
-import java.net.HttpURLConnection;
+import java.io.InterruptedIOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.logging.Logger;
 
 import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.cache.ArtifactCache;
 import org.graphipedia.progress.CheckPoint;
 import org.graphipedia.progress.ReadableTime;
 
@@ -39,12 +42,6 @@ import org.graphipedia.progress.ReadableTime;
  */
 public class WikipediaEdition {
 
-
-	/**
-	 * The base URL of the web page that contains the dump files of a Wikipedia language edition.
-	 */
-	public final static String DUMP_BASE_URL = "https://dumps.wikimedia.org/";
-
 	/**
 	 * The language of this Wikipedia edition (English name).
 	 */
@@ -96,14 +93,6 @@ public class WikipediaEdition {
 		return this.languageLocal;
 	}
 
-	/**
-	 * Returns the URL of the Webpage that lists the dumps of this Wikipedia edition.
-	 * @return The URL of the Webpage that lists the dumps of this Wikipedia edition.
-	 */
-	public String dumpUrl() {
-		return DUMP_BASE_URL + wikiCodeName() +"/";
-	}
-
 	/**
 	 * Returns the code name of this Wikipedia edition (e.g., enwiki for the English Wikipedia.)
 	 * @return The code name of this Wikipedia edition.
@@ -113,87 +102,197 @@ public class WikipediaEdition {
 	}
 
 	/**
-	 * Returns the URL of the Web page that contains the dump files of this Wikipedia edition as of a 
-	 * specific date.
-	 * @param date A date (in the form YYYYMMDD)
-	 * @return The URL of the Web page that contains the dump files of this Wikipedia edition as of a 
-	 * specific date.
-	 */
-	public String dumpUrl(String date) {
-		return dumpUrl() + date + "/";
-	}
-
-
-	/**
-	 * Returns the URL of the Wikipedia XML file of this Wikipedia edition, as of a specific date.
-	 * @param date A date (in the form YYYYMMDD)
-	 * @return The URL of the Wikipedia XML file of this Wikipedia edition, as of a specific date.
-	 */
-	public String xmlFileUrl(String date) {
-		return dumpUrl(date) + this.languageCode + "wiki-" + date + "-" + GraphipediaSettings.WIKIPEDIA_XML_FILE;
-	}
-
-	/**
-	 * Returns the URL of the file with the cross-language links of this Wikipedia edition, as of a specific date.
-	 * @param date A date (in the form YYYYMMDD)
-	 * @return The URL of the file with the cross-language links of this Wikipedia edition, as of a specific date.
-	 */
-	public String crossLinkFileUrl(String date) {
-		return dumpUrl(date) + this.languageCode + "wiki-" + date + "-" + GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE;
-	}
-
-	/**
-	 * Returns the URL of the file with the geotags of this Wikipedia edition, as of a specific date.
-	 * @param date A date (in the form YYYYMMDD)
-	 * @return The URL of the file with the geotags of this Wikipedia edition, as of a specific date.
+	 * Downloads the last complete dump of this Wikipedia language edition.
+	 * The files listed by {@link GraphipediaSettings#wikipediaEditionInputFiles()} are downloaded to 
+	 * the directory of this edition (see {@link GraphipediaSettings#wikipediaEditionDirectory(String)}).
+	 * @param settings The settings of Graphipedia.
+	 * @param checkpoint The checkpoint information. 
+	 * @param logger The logger of Graphipedia, to display information and warnings.
+	 * @return {@code true} if no error occurs, {@code false} otherwise.
 	 */
-	public String geotagFileUrl(String date) {
-		return dumpUrl(date) + this.languageCode + "wiki-" + date + "-" + GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE;
+	public boolean download(GraphipediaSettings settings, CheckPoint checkpoint, Logger logger) {
+		if ( checkpoint.isDownloadedEdition(languageCode()) ) {
+			logger.info("Already downloaded");
+			return true;
+		}
+		List<Transfer> transfers = transfers(settings, logger);
+		if ( transfers == null )
+			return false;
+		ArtifactCache cache = ArtifactCache.of(settings, logger);
+		if ( !restoreAvailable(transfers, cache, checkpoint, logger) )
+			return false;
+		return download(transfers, new SegmentedDownloader(settings.downloadConnections(), logger), cache, checkpoint, logger);
 	}
 
 	/**
-	 * Downloads the last complete dump of this Wikipedia language edition.
+	 * Prepares the download of the last complete dump of this Wikipedia language edition, 
+	 * so that the files can be read while they are downloaded (see {@link GraphipediaSettings#streamThrough()}).
+	 * Before this method returns, the files to download are created and registered as {@link ActiveDownload}s, 
+	 * so that they are opened with {@link ActiveDownload#openInput(File)} as soon as the data extraction starts.
+	 * The files are downloaded by the returned task, in the thread that runs it (e.g., a thread of the pool 
+	 * that bounds the number of concurrent downloads).
+	 * @param settings The settings of Graphipedia.
 	 * @param checkpoint The checkpoint information. 
 	 * @param logger The logger of Graphipedia, to display information and warnings.
-	 * @param targetDirectory The directory where the dump is downloaded
-	 * @return {@code true} if no error occurs, {@code false} otherwise.
+	 * @return The task that downloads the dump, or {@code null} if an error occurs.
 	 */
-	public boolean download(CheckPoint checkpoint, Logger logger, File targetDirectory) {
+	public Runnable prepareDownload(GraphipediaSettings settings, final CheckPoint checkpoint, final Logger logger) {
+		final List<Transfer> transfers;
+		final ArtifactCache cache = ArtifactCache.of(settings, logger);
 		if ( checkpoint.isDownloadedEdition(languageCode()) ) {
 			logger.info("Already downloaded");
-			return true;
+			transfers = null;
+		}
+		else {
+			transfers = transfers(settings, logger);
+			if ( transfers == null || !restoreAvailable(transfers, cache, checkpoint, logger) )
+				return null;
+			for ( Transfer transfer : transfers ) {
+				if ( checkpoint.isDownloadedFile(transfer.target.getAbsolutePath()) )
+					continue;
+				try {
+					transfer.target.createNewFile();
+				} catch (IOException e) {
+					logger.severe("Could not create file " + transfer.target.getAbsolutePath());
+					e.printStackTrace();
+					return null;
+				}
+				ActiveDownload.register(transfer.target);
+				if ( cache != null )
+					cache.recordDigest(transfer.target, transfer.source.sha1());
+			}
 		}
+		final SegmentedDownloader downloader = new SegmentedDownloader(settings.downloadConnections(), logger);
+		return new Runnable() {
+			@Override
+			public void run() {
+				if ( transfers != null && !download(transfers, downloader, cache, checkpoint, logger) )
+					System.exit(-1);
+			}
+		};
+	}
+
+	/**
+	 * Finds the files of the last complete dump of this Wikipedia language edition.
+	 * The files are listed in the order in which they are read during the data extraction, so that the 
+	 * data extraction can start as early as possible when the files are read while they are downloaded:  
+	 * the geotags and the SQL dump files first, then the Wikipedia XML file, and the cross-language links 
+	 * (read after all the editions are imported) last.
+	 * @param settings The settings of Graphipedia.
+	 * @param logger The logger of Graphipedia.
+	 * @return The files to download, or {@code null} if an error occurs.
+	 */
+	private List<Transfer> transfers(GraphipediaSettings settings, Logger logger) {
+		File targetDirectory = settings.wikipediaEditionDirectory(languageCode());
 		if ( !targetDirectory.exists() ) {
 			if ( !targetDirectory.mkdir() ) {
 				logger.severe("Cannot create directory " + targetDirectory.getAbsolutePath());
-				return false;
+				return null;
 			}
 		}
 		WikipediaDump dump = null;
 		try {
-			dump = WikipediaDump.lastCompleteDump(this);
+			dump = DumpSource.create(settings).lastCompleteDump(this);
 		} catch (Exception e) {
 			logger.severe("Error while obtaining the date of the last complete dump");
 			e.printStackTrace();
-			return false;
+			return null;
 		}
 		if ( dump == null ) {
 			logger.severe("No complete dump available");
-			return false;
+			return null;
 		}
 		String dumpDate = dump.date();
 		logger.info("Date of last complete dump " + dumpDate.substring(0, 4) + ""
 				+ "-" + dumpDate.substring(4, 6) + "-" + dumpDate.substring(6));
 
-		File xmlWikipediaFile = new File(targetDirectory, GraphipediaSettings.WIKIPEDIA_XML_FILE);
-		downloadFile(checkpoint, logger, dump.xmlDumpFile(), xmlWikipediaFile, "Downloading the Wikipedia XML file (" + languageCode() + ")...");
-
-		File crossLinksFile = new File(targetDirectory, GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE);
-		downloadFile(checkpoint, logger, dump.crosslinkDumpFile(), crossLinksFile, "Downloading the cross-language links file (" + languageCode() + ")...");
+		List<Transfer> transfers = new ArrayList<Transfer>();
+		transfers.add(new Transfer(dump.geotagsDumpFile(), new File(targetDirectory, GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE), 
+				"Downloading the geotags file (" + languageCode() + ")..."));
+		for ( String inputFile : settings.wikipediaEditionInputFiles() ) {
+			if ( Arrays.asList(GraphipediaSettings.WIKIPEDIA_EDITIONS_INPUT_FILES).contains(inputFile) )
+				continue;
+			DumpFile dumpFile = dump.dumpFile(inputFile);
+			if ( dumpFile == null ) {
+				logger.warning("The dump has no file " + inputFile);
+				continue;
+			}
+			transfers.add(new Transfer(dumpFile, new File(targetDirectory, inputFile), 
+					"Downloading the file " + inputFile + " (" + languageCode() + ")..."));
+		}
+		if ( settings.xmlInput(languageCode()) == null ) // otherwise, the XML dump is read from another input.
+			transfers.add(new Transfer(dump.xmlDumpFile(), new File(targetDirectory, GraphipediaSettings.WIKIPEDIA_XML_FILE), 
+					"Downloading the Wikipedia XML file (" + languageCode() + ")..."));
+		transfers.add(new Transfer(dump.crosslinkDumpFile(), new File(targetDirectory, GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE), 
+				"Downloading the cross-language links file (" + languageCode() + ")..."));
+		return transfers;
+	}
 
-		File geotagsFile = new File(targetDirectory, GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE);
-		downloadFile(checkpoint, logger, dump.geotagsDumpFile(), geotagsFile, "Downloading the geotags file (" + languageCode() + ")...");
+	/**
+	 * Links the files of a dump that are found in a {@link LocalDumpSource} or restores them from the artifact cache, 
+	 * and saves them to the checkpoint as downloaded.
+	 * The files of a local source are not verified against their checksums, since they are not transferred.
+	 * @param transfers The files to download.
+	 * @param cache The artifact cache, or {@code null} if the artifacts are not cached.
+	 * @param checkpoint The checkpoint information. 
+	 * @param logger The logger of Graphipedia.
+	 * @return {@code true} if no error occurs, {@code false} otherwise.
+	 */
+	private boolean restoreAvailable(List<Transfer> transfers, ArtifactCache cache, CheckPoint checkpoint, Logger logger) {
+		for ( Transfer transfer : transfers ) {
+			if ( checkpoint.isDownloadedFile(transfer.target.getAbsolutePath()) )
+				continue;
+			File localFile = transfer.source.localFile();
+			if ( localFile != null ) {
+				try {
+					LocalDumpSource.link(localFile, transfer.target);
+				} catch (IOException e) {
+					logger.severe("Could not link the file " + localFile.getAbsolutePath());
+					e.printStackTrace();
+					return false;
+				}
+				logger.info("Linked " + transfer.target.getName() + " to " + localFile.getAbsolutePath());
+			}
+			else if ( cache == null || !cache.restore(transfer.key(cache), transfer.target) )
+				continue;
+			if ( cache != null )
+				cache.recordDigest(transfer.target, transfer.source.sha1());
+			try {
+				checkpoint.addDownloadedFile(transfer.target.getAbsolutePath(), true);
+			} catch (IOException e) {
+				logger.severe("Error while saving the checkpoint to file");
+				e.printStackTrace();
+				return false;
+			}
+		}
+		return true;
+	}
 
+	/**
+	 * Downloads the files of a dump, one after the other.
+	 * If a file cannot be downloaded, the files of the dump that are registered as {@link ActiveDownload}s are 
+	 * marked as failed, so that their readers get the error instead of waiting for bytes that never come.
+	 * @param transfers The files to download.
+	 * @param downloader The downloader.
+	 * @param cache The artifact cache where the downloaded files are stored, or {@code null} if the artifacts are 
+	 * not cached.
+	 * @param checkpoint The checkpoint information. 
+	 * @param logger The logger of Graphipedia.
+	 * @return {@code true} if no error occurs, {@code false} otherwise.
+	 */
+	private boolean download(List<Transfer> transfers, SegmentedDownloader downloader, ArtifactCache cache, 
+			CheckPoint checkpoint, Logger logger) {
+		for ( Transfer transfer : transfers ) {
+			if ( !downloadFile(downloader, cache, checkpoint, logger, transfer) ) {
+				for ( Transfer other : transfers ) {
+					ActiveDownload active = ActiveDownload.of(other.target);
+					if ( active != null )
+						active.fail(other.target, new IOException("The download of " + transfer.target.getName() + 
+								" (" + languageCode() + ") has failed"));
+				}
+				return false;
+			}
+		}
 		try {
 			checkpoint.addDownloadedEdition(languageCode(), true);
 		} catch (IOException e) {
@@ -202,27 +301,28 @@ public class WikipediaEdition {
 			return false;
 		}
 		return true;
-
 	}
 
 	/**
 	 * Downloads a dump file.
+	 * An interrupted download is resumed (see {@link SegmentedDownloader}).
+	 * If the file is registered as an {@link ActiveDownload}, its readers reach the end of the file only after 
+	 * the download is saved to the checkpoint and stored in the artifact cache, since they may delete the file 
+	 * once they have read it.
+	 * @param downloader The downloader.
+	 * @param cache The artifact cache where the downloaded file is stored, or {@code null} if the artifacts are 
+	 * not cached.
 	 * @param checkpoint The checkpoint information.
 	 * @param logger The logger of Graphipedia.
-	 * @param sourceFile The the source file. 
-	 * @param targetFile The target file.
-	 * @param message The message to display.
+	 * @param transfer The file to download.
+	 * @return {@code true} if the file is downloaded, {@code false} if an error occurs.
 	 */
-	private void downloadFile(CheckPoint checkpoint, Logger logger, DumpFile sourceFile, File targetFile, String message) {
+	private boolean downloadFile(SegmentedDownloader downloader, ArtifactCache cache, CheckPoint checkpoint, Logger logger, 
+			Transfer transfer) {
+		DumpFile sourceFile = transfer.source;
+		File targetFile = transfer.target;
+		String message = transfer.message;
 		if ( !checkpoint.isDownloadedFile(targetFile.getAbsolutePath()) ) {
-			if ( !targetFile.exists() )
-				try {
-					targetFile.createNewFile();
-				} catch (IOException e1) {
-					logger.severe("Could not create file " + targetFile.getAbsolutePath());
-					e1.printStackTrace();
-					System.exit(-1);
-				}
 			long start = System.currentTimeMillis();
 			logger.info(message);
 			URL url = null;
@@ -231,85 +331,83 @@ public class WikipediaEdition {
 			} catch (MalformedURLException e) {
 				logger.severe("Malformed URL. Should not happen. Did Wikipedia change the URLs of its dump files?");
 				e.printStackTrace();
-				System.exit(-1);
+				return false;
 			}
 			try {
-				downloadFile(url, targetFile.getAbsolutePath(), sourceFile.size(), logger, message);
-			} catch (IOException e) {
+				downloader.download(url, targetFile, sourceFile.sha1(), message);
+			} catch (IOException | InterruptedException e) {
 				logger.severe("Could not download the file at " + url.toString());
 				e.printStackTrace();
-				System.exit(-1);
-			}
-			try {
-				Thread.sleep(2000);
-			} catch (InterruptedException e1) {
-				e1.printStackTrace();
-				System.exit(-1);
+				ActiveDownload active = ActiveDownload.of(targetFile);
+				if ( active != null )
+					active.fail(targetFile, e instanceof IOException ? (IOException)e : 
+						new InterruptedIOException("Interrupted while downloading " + url));
+				return false;
 			}
 			try {
-
 				checkpoint.addDownloadedFile(targetFile.getAbsolutePath(), true);
 			} catch (IOException e) {
 				logger.severe("Error while saving the checkpoint to file");
 				e.printStackTrace();
 			}
+			if ( cache != null ) {
+				cache.recordDigest(targetFile, sourceFile.sha1());
+				cache.store(transfer.key(cache), targetFile);
+			}
+			ActiveDownload active = ActiveDownload.of(targetFile);
+			if ( active != null )
+				active.complete(targetFile);
 			long elapsed = System.currentTimeMillis() - start;
 			logger.info("File downloaded in "+ ReadableTime.readableTime(elapsed));
 		}
 		else
 			logger.info("Already downloaded");
+		return true;
 	}
 
-
 	/**
-	 * Download the file at the given URL to the target file.
-	 * @param url The URL of the file to download.
-	 * @param targetFile The target file.
-	 * @param size The size of the file to download
-	 * @param logger The logger of Graphipedia.
-	 * @param message A message displayed while downloading the file.
-	 * @throws IOException when some I/O error occurs.
+	 * A dump file to download.
 	 */
-	private void downloadFile(URL url, String targetFile, double size, Logger logger, String message) throws IOException {
-		HttpURLConnection httpConnection = (HttpURLConnection) (url.openConnection());
-		DownloadProgress progressBar = size != -1L ? new DownloadProgress(size) : null;
-		java.io.BufferedInputStream in = new java.io.BufferedInputStream(httpConnection.getInputStream());
-		java.io.FileOutputStream fos = new java.io.FileOutputStream(targetFile);
-		java.io.BufferedOutputStream bout = new BufferedOutputStream(fos, 1024);
-		byte[] data = new byte[1024];
-		long downloadedFileSize = 0;
-		int x = 0;
-		int eof = 0;
+	private static class Transfer {
+
+		/**
+		 * The dump file.
+		 */
+		final DumpFile source;
+
+		/**
+		 * The file where the dump file is downloaded.
+		 */
+		final File target;
+
+		/**
+		 * The message displayed while the file is downloaded.
+		 */
+		final String message;
+
+		/**
+		 * Creates a new dump file to download.
+		 * @param source The dump file.
+		 * @param target The file where the dump file is downloaded.
+		 * @param message The message displayed while the file is downloaded.
+		 */
+		Transfer(DumpFile source, File target, String message) {
+			this.source = source;
+			this.target = target;
+			this.message = message;
+		}
 
-		do {
-			while ((x = in.read(data, 0, 1024)) >= 0) {
-				eof = 0;
-				downloadedFileSize += x;
-				if ( progressBar != null && (double)downloadedFileSize < size )
-					progressBar.visualize((double)downloadedFileSize, logger, message);
-				bout.write(data, 0, x);
-			}
-			// It is possible that for some reason the method "read" invoked on the input stream
-			// returns -1 (EOF), though the file has not been completely downloaded.
-			// For this reason, we give another chance, we wait 10 seconds and retry reading again the stream
-			// When the real EOF is reached (meaning that the file has been completely downloaded) 
-			// then the value of the variable eof becomes greater than 1 and the loop is broken.
-			eof += 1;
-			try {
-				Thread.sleep(10000);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-				System.exit(-1);
-			}
+		/**
+		 * Returns the key of the dump file in the artifact cache: its published digest or, if there is none, its URL 
+		 * (which contains the date of the dump).
+		 * @param cache The artifact cache.
+		 * @return The key of the dump file.
+		 */
+		ArtifactCache.Key key(ArtifactCache cache) {
+			ArtifactCache.Key key = cache.key("dump", "1");
+			return source.sha1() != null ? key.param("sha1", source.sha1().toLowerCase()) : key.param("url", source.url());
 		}
-		while(eof <= 1);
 
-		if (progressBar != null)
-			progressBar.visualize(size, logger, message);
-		in.close();
-		bout.close();
 	}
 
-
-
 }
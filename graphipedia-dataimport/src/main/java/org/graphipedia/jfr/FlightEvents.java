@@ -0,0 +1,59 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.jfr;
+
+/**
+ * Tells whether the events of this package can be emitted.
+ * The events extend {@code jdk.jfr.Event}, which is part of Java 11 and of the updates of Java 8 from 8u272: 
+ * on older virtual machines the event classes cannot be loaded, so the code that emits an event creates it only 
+ * if {@link #ENABLED} is {@code true}.
+ * When no recording is running, the events cost an allocation and are not committed.
+ * The guard only protects the runtime: compiling this package needs a JDK whose class library includes {@code jdk.jfr}, 
+ * which the build enforces.
+ */
+public final class FlightEvents {
+
+	/**
+	 * Whether the Java Flight Recorder API is available in this virtual machine.
+	 */
+	public static final boolean ENABLED = isAvailable();
+
+	/**
+	 * Not instantiable.
+	 */
+	private FlightEvents() {
+	}
+
+	/**
+	 * Returns whether the Java Flight Recorder API is available in this virtual machine.
+	 * @return {@code true} if the class {@code jdk.jfr.Event} can be loaded.
+	 */
+	private static boolean isAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event");
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+}
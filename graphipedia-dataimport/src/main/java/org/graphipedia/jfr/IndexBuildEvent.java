@@ -0,0 +1,55 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The shutdown of a batch inserter by {@link org.graphipedia.Neo4jConnector#disconnectFromNeo4jInserter}, 
+ * which flushes the store and builds the deferred indexes, if any.
+ */
+@Name("org.graphipedia.IndexBuild")
+@Label("Index Build")
+@Category({"Graphipedia", "Import"})
+@Description("The shutdown of a batch inserter, which builds the deferred indexes")
+@StackTrace(false)
+public class IndexBuildEvent extends Event {
+
+	/**
+	 * The directory of the Neo4j database.
+	 */
+	@Label("Store")
+	public String store;
+
+	/**
+	 * Whether indexes were built.
+	 */
+	@Label("Indexes")
+	@Description("Whether the inserter had deferred indexes to build")
+	public boolean indexes;
+
+}
@@ -0,0 +1,60 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The creation through the batch inserter of the nodes ({@link org.graphipedia.dataimport.NodeCreator}) or the 
+ * relationships ({@link org.graphipedia.dataimport.LinkCreator}) of a segment of an intermediate file.
+ */
+@Name("org.graphipedia.InsertBatch")
+@Label("Batch Insert")
+@Category({"Graphipedia", "Import"})
+@Description("The insertion of the nodes or the relationships of a segment of an intermediate file")
+@StackTrace(false)
+public class InsertBatchEvent extends Event {
+
+	/**
+	 * The entities inserted, {@code nodes} or {@code relationships}.
+	 */
+	@Label("Entities")
+	public String entities;
+
+	/**
+	 * The file of the segment.
+	 */
+	@Label("Segment")
+	public String segment;
+
+	/**
+	 * The number of entities inserted.
+	 */
+	@Label("Count")
+	public long count;
+
+}
@@ -0,0 +1,80 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A page whose text is longer than {@link #LENGTH} characters, recorded once it is parsed 
+ * (see {@link PageParseEvent}), whatever the time taken to parse it.
+ */
+@Name("org.graphipedia.LargePage")
+@Label("Large Page")
+@Category({"Graphipedia", "Extraction"})
+@Description("A page whose wikitext is much longer than most")
+@StackTrace(false)
+public class LargePageEvent extends Event {
+
+	/**
+	 * The length of the text from which a page is large, in characters.
+	 */
+	public static final int LENGTH = 256 * 1024;
+
+	/**
+	 * The language code of the Wikipedia edition.
+	 */
+	@Label("Edition")
+	String edition;
+
+	/**
+	 * The title of the page.
+	 */
+	@Label("Title")
+	String title;
+
+	/**
+	 * The length of the text of the page.
+	 */
+	@Label("Length")
+	@Description("The number of characters of the wikitext")
+	int length;
+
+	/**
+	 * The number of links found in the page.
+	 */
+	@Label("Links")
+	int links;
+
+	/**
+	 * The time taken to parse the page.
+	 */
+	@Label("Parse Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long parseTime;
+
+}
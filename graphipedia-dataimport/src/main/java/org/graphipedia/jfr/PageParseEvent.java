@@ -0,0 +1,100 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The parsing of the text of a page by {@link org.graphipedia.dataextract.LinkExtractor}.
+ * Only the parses that take longer than the threshold (by default 20 ms) are recorded, as there are millions of them;
+ * the threshold can be changed in the settings of the recording.
+ */
+@Name("org.graphipedia.PageParse")
+@Label("Page Parse")
+@Category({"Graphipedia", "Extraction"})
+@Description("The parsing of the wikitext of a page")
+@Threshold("20 ms")
+@StackTrace(false)
+public class PageParseEvent extends Event {
+
+	/**
+	 * The language code of the Wikipedia edition.
+	 */
+	@Label("Edition")
+	String edition;
+
+	/**
+	 * The title of the page.
+	 */
+	@Label("Title")
+	String title;
+
+	/**
+	 * The length of the text of the page.
+	 */
+	@Label("Length")
+	@Description("The number of characters of the wikitext")
+	int length;
+
+	/**
+	 * The number of links found in the page.
+	 */
+	@Label("Links")
+	int links;
+
+	/**
+	 * Ends the event and commits it if it is recorded; if the page is large, a {@link LargePageEvent} is also committed.
+	 * @param edition The language code of the Wikipedia edition.
+	 * @param title The title of the page.
+	 * @param length The length of the text of the page.
+	 * @param links The number of links found in the page.
+	 * @param parseTime The time taken to parse the page, in nanoseconds.
+	 */
+	public void parsed(String edition, String title, int length, int links, long parseTime) {
+		end();
+		if ( shouldCommit() ) {
+			this.edition = edition;
+			this.title = title;
+			this.length = length;
+			this.links = links;
+			commit();
+		}
+		if ( length >= LargePageEvent.LENGTH ) {
+			LargePageEvent large = new LargePageEvent();
+			if ( large.isEnabled() ) {
+				large.edition = edition;
+				large.title = title;
+				large.length = length;
+				large.links = links;
+				large.parseTime = parseTime;
+				large.commit();
+			}
+		}
+	}
+
+}
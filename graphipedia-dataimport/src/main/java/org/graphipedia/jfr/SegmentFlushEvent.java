@@ -0,0 +1,56 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The sealing of a segment of an intermediate file by {@link org.graphipedia.dataextract.IntermediateFile}: 
+ * the end of the compressed stream is written, and the segment is forced to the disk and renamed.
+ */
+@Name("org.graphipedia.SegmentFlush")
+@Label("Intermediate Segment Flush")
+@Category({"Graphipedia", "Extraction"})
+@Description("The flush of a segment of an intermediate file to the disk")
+@StackTrace(false)
+public class SegmentFlushEvent extends Event {
+
+	/**
+	 * The file of the segment.
+	 */
+	@Label("Segment")
+	public String segment;
+
+	/**
+	 * The size of the segment.
+	 */
+	@Label("Size")
+	@DataAmount
+	public long size;
+
+}
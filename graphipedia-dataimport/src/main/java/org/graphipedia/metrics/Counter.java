@@ -0,0 +1,108 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter that can be incremented by many threads at the same time without contention.
+ * A counter may have parents, which are incremented along with it: a task counts its own items with a child of 
+ * a counter of the registry, which counts the items of all the tasks (and possibly of a counter of the stage 
+ * of the import that runs the task, see {@link StageRecord}).
+ */
+public class Counter implements Metric {
+
+	/**
+	 * The count.
+	 */
+	private final LongAdder count;
+
+	/**
+	 * The counters incremented along with this counter.
+	 */
+	private final Counter[] parents;
+
+	/**
+	 * Creates a counter.
+	 * @param parents The counters incremented along with this counter; the {@code null} ones are ignored.
+	 */
+	public Counter(Counter... parents) {
+		this.count = new LongAdder();
+		List<Counter> nonNull = new ArrayList<Counter>();
+		for ( Counter parent : parents )
+			if ( parent != null )
+				nonNull.add(parent);
+		this.parents = nonNull.toArray(new Counter[nonNull.size()]);
+	}
+
+	/**
+	 * Creates a counter whose parent is this counter.
+	 * @return The new counter.
+	 */
+	public Counter child() {
+		return new Counter(this);
+	}
+
+	/**
+	 * Creates a counter whose parents are this counter and another counter.
+	 * @param other The other parent, or {@code null}.
+	 * @return The new counter.
+	 */
+	public Counter child(Counter other) {
+		return new Counter(this, other);
+	}
+
+	/**
+	 * Increments the count.
+	 */
+	public void increment() {
+		add(1);
+	}
+
+	/**
+	 * Adds a value to the count.
+	 * @param value The value, which may be negative (e.g., when an item leaves a queue).
+	 */
+	public void add(long value) {
+		count.add(value);
+		for ( Counter parent : parents )
+			parent.add(value);
+	}
+
+	/**
+	 * Returns the count.
+	 * @return The count.
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	@Override
+	public Map<String, Number> values() {
+		return Collections.<String, Number>singletonMap("count", count());
+	}
+
+}
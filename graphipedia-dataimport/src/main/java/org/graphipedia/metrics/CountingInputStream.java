@@ -0,0 +1,117 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An input stream that adds the bytes read (or skipped) from the underlying stream to a counter.
+ * The bytes read again after a {@code reset} are counted again.
+ * The length of the underlying stream, when known, can be added to a counter of the bytes expected: 
+ * the bytes not read when the stream is closed (e.g., when only the beginning of a file is parsed) are then 
+ * removed from that counter, so that it only accounts for the bytes actually consumed.
+ */
+public class CountingInputStream extends FilterInputStream {
+
+	/**
+	 * The counter of the bytes.
+	 */
+	private final Counter counter;
+
+	/**
+	 * The counter of the bytes expected, or {@code null}.
+	 */
+	private Counter expected;
+
+	/**
+	 * The bytes that have not been read yet out of the length of the underlying stream.
+	 */
+	private long remaining;
+
+	/**
+	 * Creates a counting stream.
+	 * @param in The underlying stream.
+	 * @param counter The counter of the bytes.
+	 */
+	public CountingInputStream(InputStream in, Counter counter) {
+		super(in);
+		this.counter = counter;
+	}
+
+	/**
+	 * Creates a counting stream whose length is known; the length is added to the counter of the bytes expected.
+	 * @param in The underlying stream.
+	 * @param counter The counter of the bytes.
+	 * @param expected The counter of the bytes expected.
+	 * @param length The length (in bytes) of the underlying stream.
+	 */
+	public CountingInputStream(InputStream in, Counter counter, Counter expected, long length) {
+		this(in, counter);
+		this.expected = expected;
+		this.remaining = length;
+		expected.add(length);
+	}
+
+	@Override
+	public int read() throws IOException {
+		int b = in.read();
+		if ( b >= 0 )
+			count(1);
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		int n = in.read(b, off, len);
+		if ( n > 0 )
+			count(n);
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = in.skip(n);
+		if ( skipped > 0 )
+			count(skipped);
+		return skipped;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if ( expected != null && remaining > 0 )
+			expected.add(-remaining);
+		remaining = 0;
+		super.close();
+	}
+
+	/**
+	 * Counts bytes read from the underlying stream.
+	 * @param n The number of bytes.
+	 */
+	private void count(long n) {
+		counter.add(n);
+		remaining -= n;
+	}
+
+}
@@ -0,0 +1,61 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An output stream that adds the bytes written to the underlying stream to a counter.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+	/**
+	 * The counter of the bytes.
+	 */
+	private final Counter counter;
+
+	/**
+	 * Creates a counting stream.
+	 * @param out The underlying stream.
+	 * @param counter The counter of the bytes.
+	 */
+	public CountingOutputStream(OutputStream out, Counter counter) {
+		super(out);
+		this.counter = counter;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		out.write(b);
+		counter.increment();
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		// FilterOutputStream would write the bytes one at a time.
+		out.write(b, off, len);
+		counter.add(len);
+	}
+
+}
@@ -0,0 +1,180 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * A histogram of durations (or of any non-negative values), recorded by many threads without contention.
+ * The values are counted in buckets of logarithmic width, four per power of two, so that the percentiles are 
+ * estimated within 25% in constant memory.
+ */
+public class Histogram implements Metric {
+
+	/**
+	 * The number of bits of a value, after its most significant bit, that select its bucket.
+	 */
+	private static final int SUB_BUCKET_BITS = 2;
+
+	/**
+	 * The number of buckets per power of two.
+	 */
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	/**
+	 * The number of values in each bucket.
+	 */
+	private final LongAdder[] buckets;
+
+	/**
+	 * The number of values.
+	 */
+	private final LongAdder count;
+
+	/**
+	 * The sum of the values.
+	 */
+	private final LongAdder sum;
+
+	/**
+	 * The largest value.
+	 */
+	private final LongAccumulator max;
+
+	/**
+	 * Creates an empty histogram.
+	 */
+	public Histogram() {
+		this.buckets = new LongAdder[64 * SUB_BUCKETS];
+		for ( int i = 0; i < buckets.length; i += 1 )
+			buckets[i] = new LongAdder();
+		this.count = new LongAdder();
+		this.sum = new LongAdder();
+		this.max = new LongAccumulator(new LongBinaryOperator() {
+			@Override
+			public long applyAsLong(long left, long right) {
+				return Math.max(left, right);
+			}
+		}, 0);
+	}
+
+	/**
+	 * Records a value.
+	 * @param value The value (e.g., a duration in nanoseconds); negative values are recorded as {@code 0}.
+	 */
+	public void record(long value) {
+		value = Math.max(0, value);
+		buckets[bucket(value)].increment();
+		count.increment();
+		sum.add(value);
+		max.accumulate(value);
+	}
+
+	/**
+	 * Returns the bucket of a value.
+	 * @param value A non-negative value.
+	 * @return The index of the bucket of the value.
+	 */
+	private static int bucket(long value) {
+		if ( value < SUB_BUCKETS )
+			return (int)value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		return exponent * SUB_BUCKETS + (int)((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+	}
+
+	/**
+	 * Returns the largest value of a bucket.
+	 * @param bucket The index of the bucket.
+	 * @return The largest value of the bucket.
+	 */
+	private static long upperBound(int bucket) {
+		if ( bucket < SUB_BUCKETS )
+			return bucket;
+		int exponent = bucket / SUB_BUCKETS;
+		long next = (long)(SUB_BUCKETS + bucket % SUB_BUCKETS + 1) << (exponent - SUB_BUCKET_BITS);
+		return next <= 0 ? Long.MAX_VALUE : next - 1;
+	}
+
+	/**
+	 * Returns the number of values.
+	 * @return The number of values.
+	 */
+	public long count() {
+		return count.sum();
+	}
+
+	/**
+	 * Returns the mean of the values.
+	 * @return The mean of the values, or {@code 0} if there is none.
+	 */
+	public double mean() {
+		long count = count();
+		return count == 0 ? 0 : (double)sum.sum() / count;
+	}
+
+	/**
+	 * Returns the largest value.
+	 * @return The largest value, or {@code 0} if there is none.
+	 */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * Estimates a percentile of the values.
+	 * @param percentile The percentile, between 0 and 100 (e.g., {@code 99}).
+	 * @return The estimated percentile (the largest value of its bucket), or {@code 0} if there is no value.
+	 */
+	public long percentile(double percentile) {
+		long[] counts = new long[buckets.length];
+		long total = 0;
+		for ( int i = 0; i < buckets.length; i += 1 ) {
+			counts[i] = buckets[i].sum();
+			total += counts[i];
+		}
+		long rank = (long)Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+		long seen = 0;
+		for ( int i = 0; i < counts.length; i += 1 ) {
+			seen += counts[i];
+			if ( seen >= rank && seen > 0 )
+				return Math.min(upperBound(i), max());
+		}
+		return 0;
+	}
+
+	@Override
+	public Map<String, Number> values() {
+		Map<String, Number> values = new LinkedHashMap<String, Number>();
+		values.put("count", count());
+		values.put("mean", mean());
+		values.put("p50", percentile(50));
+		values.put("p90", percentile(90));
+		values.put("p99", percentile(99));
+		values.put("max", max());
+		return values;
+	}
+
+}
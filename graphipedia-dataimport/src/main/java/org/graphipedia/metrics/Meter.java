@@ -0,0 +1,62 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A counter of events that also measures their rate since the meter was created.
+ * The rate over the last interval is computed by the {@link ProgressReporter}.
+ */
+public class Meter extends Counter {
+
+	/**
+	 * The time when the meter was created, in nanoseconds.
+	 */
+	private final long startTime;
+
+	/**
+	 * Creates a meter.
+	 */
+	public Meter() {
+		this.startTime = System.nanoTime();
+	}
+
+	/**
+	 * Returns the mean rate of the events since the meter was created.
+	 * @return The mean rate, in events per second.
+	 */
+	public double meanRate() {
+		long elapsed = System.nanoTime() - startTime;
+		return elapsed <= 0 ? 0 : count() * 1e9 / elapsed;
+	}
+
+	@Override
+	public Map<String, Number> values() {
+		Map<String, Number> values = new LinkedHashMap<String, Number>();
+		values.put("count", count());
+		values.put("meanRate", meanRate());
+		return values;
+	}
+
+}
@@ -0,0 +1,356 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+
+/**
+ * The registry of the metrics of the import. Each metric has a unique name and is registered as an MBean 
+ * named {@code org.graphipedia:type=<type>,name=<name>}, whose attributes are the values of the metric.
+ * The metrics are created on first use and live as long as the registry, so that the counts of the stages of 
+ * all the editions add up.
+ */
+public class MetricsRegistry {
+
+	/**
+	 * The name of the meter of the pages parsed from the dumps.
+	 */
+	public static final String PAGES_PARSED = "pagesParsed";
+
+	/**
+	 * The name of the histogram of the time spent parsing the text of a page, in nanoseconds.
+	 */
+	public static final String PAGE_PARSE_TIME = "pageParseNanos";
+
+	/**
+	 * The name of the meter of the links written to the Neo4j database.
+	 */
+	public static final String LINKS_WRITTEN = "linksWritten";
+
+	/**
+	 * The name of the meter of the nodes written to the Neo4j database.
+	 */
+	public static final String NODES_WRITTEN = "nodesWritten";
+
+	/**
+	 * The name of the meter of the nodes whose attributes are updated.
+	 */
+	public static final String NODES_UPDATED = "nodesUpdated";
+
+	/**
+	 * The name of the meter of the cross-language links extracted from the dumps.
+	 */
+	public static final String CROSS_LINKS_EXTRACTED = "crossLinksExtracted";
+
+	/**
+	 * The name of the meter of the cross-language links written to the Neo4j database.
+	 */
+	public static final String CROSS_LINKS_WRITTEN = "crossLinksWritten";
+
+	/**
+	 * The name of the meter of the pages whose geotags are extracted.
+	 */
+	public static final String GEOTAGS_EXTRACTED = "geotagsExtracted";
+
+	/**
+	 * The name of the meter of the categories crawled with the MediaWiki API.
+	 */
+	public static final String CATEGORIES_CRAWLED = "categoriesCrawled";
+
+	/**
+	 * The name of the meter of the pages written by the synthetic dump generator.
+	 */
+	public static final String PAGES_GENERATED = "pagesGenerated";
+
+	/**
+	 * The name of the meter of the bytes read from the dump files, before decompression.
+	 */
+	public static final String INPUT_BYTES_READ = "inputBytesRead";
+
+	/**
+	 * The name of the counter of the sizes of the dump files opened, before decompression.
+	 */
+	public static final String INPUT_BYTES_TOTAL = "inputBytesTotal";
+
+	/**
+	 * The name of the meter of the bytes produced by the decompression of the dump files.
+	 */
+	public static final String BYTES_DECOMPRESSED = "bytesDecompressed";
+
+	/**
+	 * The name of the meter of the bytes written to the intermediate files and the other outputs of the stages.
+	 */
+	public static final String BYTES_WRITTEN = "bytesWritten";
+
+	/**
+	 * The name of the meter of the bytes downloaded from Wikimedia.
+	 */
+	public static final String BYTES_DOWNLOADED = "bytesDownloaded";
+
+	/**
+	 * The name of the gauge of the number of stages waiting for their dependencies or for a thread.
+	 */
+	public static final String STAGES_WAITING = "stagesWaiting";
+
+	/**
+	 * The name of the counter of the SQL statements waiting to be parsed or merged.
+	 */
+	public static final String SQL_STATEMENTS_PENDING = "sqlStatementsPending";
+
+	/**
+	 * The domain of the names of the MBeans.
+	 */
+	private static final String DOMAIN = "org.graphipedia";
+
+	/**
+	 * The registry shared by all the stages.
+	 */
+	private static final MetricsRegistry GLOBAL = new MetricsRegistry(true);
+
+	/**
+	 * The metrics, by name.
+	 */
+	private final ConcurrentSkipListMap<String, Metric> metrics;
+
+	/**
+	 * Whether the metrics are registered as MBeans.
+	 */
+	private final boolean jmx;
+
+	/**
+	 * Creates an empty registry.
+	 * @param jmx Whether the metrics are registered as MBeans.
+	 */
+	public MetricsRegistry(boolean jmx) {
+		this.metrics = new ConcurrentSkipListMap<String, Metric>();
+		this.jmx = jmx;
+	}
+
+	/**
+	 * Returns the registry shared by all the stages, whose metrics are registered as MBeans.
+	 * @return The registry shared by all the stages.
+	 */
+	public static MetricsRegistry global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * Returns a counter, created if needed.
+	 * @param name The name of the counter.
+	 * @return The counter.
+	 */
+	public Counter counter(String name) {
+		Metric metric = metrics.get(name);
+		if ( metric == null )
+			metric = add(name, new Counter());
+		return cast(name, metric, Counter.class);
+	}
+
+	/**
+	 * Returns a meter, created if needed.
+	 * @param name The name of the meter.
+	 * @return The meter.
+	 */
+	public Meter meter(String name) {
+		Metric metric = metrics.get(name);
+		if ( metric == null )
+			metric = add(name, new Meter());
+		return cast(name, metric, Meter.class);
+	}
+
+	/**
+	 * Returns a histogram, created if needed.
+	 * @param name The name of the histogram.
+	 * @return The histogram.
+	 */
+	public Histogram histogram(String name) {
+		Metric metric = metrics.get(name);
+		if ( metric == null )
+			metric = add(name, new Histogram());
+		return cast(name, metric, Histogram.class);
+	}
+
+	/**
+	 * Registers a gauge, replacing the gauge of the same name, if any.
+	 * @param name The name of the gauge.
+	 * @param gauge The gauge.
+	 */
+	public synchronized void register(String name, Gauge gauge) {
+		Metric previous = metrics.get(name);
+		if ( previous != null && !(previous instanceof Gauge) )
+			throw new IllegalArgumentException("The metric " + name + " is not a gauge");
+		if ( previous != null )
+			remove(name);
+		add(name, gauge);
+	}
+
+	/**
+	 * Removes a metric.
+	 * @param name The name of the metric.
+	 */
+	public synchronized void remove(String name) {
+		Metric metric = metrics.remove(name);
+		if ( metric != null && jmx )
+			try {
+				MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+				ObjectName objectName = objectName(name, metric);
+				if ( server.isRegistered(objectName) )
+					server.unregisterMBean(objectName);
+			} catch (JMException e) {
+				// the MBean is already gone.
+			}
+	}
+
+	/**
+	 * Returns the metrics.
+	 * @return The metrics, by name, sorted by name.
+	 */
+	public SortedMap<String, Metric> metrics() {
+		return new TreeMap<String, Metric>(metrics);
+	}
+
+	/**
+	 * Adds a metric, unless a metric of the same name has been added concurrently.
+	 * @param name The name of the metric.
+	 * @param metric The metric.
+	 * @return The metric of that name.
+	 */
+	private synchronized Metric add(String name, Metric metric) {
+		Metric previous = metrics.putIfAbsent(name, metric);
+		if ( previous != null )
+			return previous;
+		if ( jmx )
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricMBean(metric), objectName(name, metric));
+			} catch (JMException e) {
+				// the metric is still available in the registry and in the progress summary.
+			}
+		return metric;
+	}
+
+	/**
+	 * Checks the type of a metric.
+	 * @param name The name of the metric.
+	 * @param metric The metric.
+	 * @param type The expected type of the metric.
+	 * @param <T> The expected type of the metric.
+	 * @return The metric.
+	 */
+	private static <T extends Metric> T cast(String name, Metric metric, Class<T> type) {
+		if ( !type.isInstance(metric) )
+			throw new IllegalArgumentException("The metric " + name + " is not a " + type.getSimpleName());
+		return type.cast(metric);
+	}
+
+	/**
+	 * Returns the name of the MBean of a metric.
+	 * @param name The name of the metric.
+	 * @param metric The metric.
+	 * @return The name of the MBean.
+	 * @throws JMException when the name is not valid.
+	 */
+	private static ObjectName objectName(String name, Metric metric) throws JMException {
+		String type = metric instanceof Gauge ? "Gauge" : metric.getClass().getSimpleName();
+		return new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+	}
+
+	/**
+	 * The MBean of a metric, whose read-only attributes are the values of the metric.
+	 */
+	private static class MetricMBean implements DynamicMBean {
+
+		/**
+		 * The metric.
+		 */
+		private final Metric metric;
+
+		/**
+		 * Creates the MBean of a metric.
+		 * @param metric The metric.
+		 */
+		MetricMBean(Metric metric) {
+			this.metric = metric;
+		}
+
+		@Override
+		public Object getAttribute(String attribute) throws AttributeNotFoundException {
+			Number value = metric.values().get(attribute);
+			if ( value == null )
+				throw new AttributeNotFoundException(attribute);
+			return value;
+		}
+
+		@Override
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException("The attributes of the metrics are read-only");
+		}
+
+		@Override
+		public AttributeList getAttributes(String[] attributes) {
+			Map<String, Number> values = metric.values();
+			AttributeList list = new AttributeList();
+			for ( String attribute : attributes )
+				if ( values.containsKey(attribute) )
+					list.add(new Attribute(attribute, values.get(attribute)));
+			return list;
+		}
+
+		@Override
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		@Override
+		public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+			throw new ReflectionException(new NoSuchMethodException(actionName), "The metrics have no operation");
+		}
+
+		@Override
+		public MBeanInfo getMBeanInfo() {
+			List<MBeanAttributeInfo> attributes = new ArrayList<MBeanAttributeInfo>();
+			for ( Map.Entry<String, Number> value : metric.values().entrySet() )
+				attributes.add(new MBeanAttributeInfo(value.getKey(), value.getValue().getClass().getName(), 
+						value.getKey(), true, false, false));
+			return new MBeanInfo(metric.getClass().getName(), "A metric of Graphipedia", 
+					attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+		}
+
+	}
+
+}
@@ -0,0 +1,211 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.graphipedia.progress.ReadableTime;
+
+/**
+ * Logs a one-line summary of the metrics of a registry at a fixed interval: the count and the rate over the 
+ * last interval of each meter, the value of each counter and gauge, the median and 99th percentile of each 
+ * histogram, and the estimated time to read the rest of the dump files that are open, computed from the bytes 
+ * read so far ({@link MetricsRegistry#INPUT_BYTES_READ}) and their total size ({@link MetricsRegistry#INPUT_BYTES_TOTAL}).
+ */
+public class ProgressReporter {
+
+	/**
+	 * The default interval between two summaries, in seconds.
+	 */
+	public static final int DEFAULT_INTERVAL = 30;
+
+	/**
+	 * The weight of the last interval in the smoothed rate of the input, used for the estimated time.
+	 */
+	private static final double SMOOTHING = 0.3;
+
+	/**
+	 * The registry whose metrics are summarized.
+	 */
+	private final MetricsRegistry registry;
+
+	/**
+	 * The logger where the summaries are written.
+	 */
+	private final Logger logger;
+
+	/**
+	 * The interval between two summaries, in seconds.
+	 */
+	private final int interval;
+
+	/**
+	 * The counts of the meters at the previous summary, by name.
+	 */
+	private final Map<String, Long> previousCounts;
+
+	/**
+	 * The time of the previous summary, in nanoseconds.
+	 */
+	private long previousTime;
+
+	/**
+	 * The smoothed rate of the input, in bytes per second ({@code -1} before the first summary).
+	 */
+	private double inputRate;
+
+	/**
+	 * The thread that writes the summaries, if started.
+	 */
+	private ScheduledExecutorService executor;
+
+	/**
+	 * Creates a reporter.
+	 * @param registry The registry whose metrics are summarized.
+	 * @param logger The logger where the summaries are written.
+	 * @param interval The interval between two summaries, in seconds; no summary is written if it is not positive.
+	 */
+	public ProgressReporter(MetricsRegistry registry, Logger logger, int interval) {
+		this.registry = registry;
+		this.logger = logger;
+		this.interval = interval;
+		this.previousCounts = new HashMap<String, Long>();
+		this.previousTime = System.nanoTime();
+		this.inputRate = -1;
+	}
+
+	/**
+	 * Starts writing the summaries, in a daemon thread.
+	 */
+	public synchronized void start() {
+		if ( interval <= 0 || executor != null )
+			return;
+		for ( Map.Entry<String, Metric> metric : registry.metrics().entrySet() )
+			if ( metric.getValue() instanceof Meter )
+				previousCounts.put(metric.getKey(), ((Meter)metric.getValue()).count());
+		previousTime = System.nanoTime();
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "Progress reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				String summary = summary();
+				if ( !summary.isEmpty() )
+					logger.info(summary);
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops writing the summaries.
+	 */
+	public synchronized void stop() {
+		if ( executor != null )
+			executor.shutdownNow();
+		executor = null;
+	}
+
+	/**
+	 * Returns the summary of the metrics since the previous summary.
+	 * @return The summary, or an empty string if no metric has a value.
+	 */
+	public synchronized String summary() {
+		long now = System.nanoTime();
+		double seconds = Math.max(1e-3, (now - previousTime) / 1e9);
+		previousTime = now;
+		StringBuilder summary = new StringBuilder();
+		for ( Map.Entry<String, Metric> entry : registry.metrics().entrySet() ) {
+			String name = entry.getKey();
+			Metric metric = entry.getValue();
+			if ( name.equals(MetricsRegistry.INPUT_BYTES_TOTAL) )
+				continue;
+			String value = null;
+			if ( metric instanceof Meter ) {
+				long count = ((Meter)metric).count();
+				Long previous = previousCounts.put(name, count);
+				double rate = (count - (previous == null ? 0 : previous)) / seconds;
+				if ( count != 0 ) {
+					value = readable(name, count);
+					if ( name.equals(MetricsRegistry.INPUT_BYTES_READ) )
+						value += " of " + readable(name, registry.counter(MetricsRegistry.INPUT_BYTES_TOTAL).count());
+					value += " (" + readable(name, Math.round(rate)) + "/s)";
+				}
+				if ( name.equals(MetricsRegistry.INPUT_BYTES_READ) )
+					inputRate = inputRate < 0 ? rate : SMOOTHING * rate + (1 - SMOOTHING) * inputRate;
+			}
+			else if ( metric instanceof Counter ) {
+				long count = ((Counter)metric).count();
+				if ( count != 0 )
+					value = readable(name, count);
+			}
+			else if ( metric instanceof Gauge ) {
+				long gauge = ((Gauge)metric).value();
+				if ( gauge != 0 )
+					value = readable(name, gauge);
+			}
+			else if ( metric instanceof Histogram ) {
+				Histogram histogram = (Histogram)metric;
+				if ( histogram.count() > 0 )
+					value = String.format("p50 %.2fms p99 %.2fms max %.2fms", histogram.percentile(50) / 1e6, 
+							histogram.percentile(99) / 1e6, histogram.max() / 1e6);
+			}
+			if ( value != null )
+				summary.append(summary.length() > 0 ? ", " : "").append(name).append(' ').append(value);
+		}
+		long remaining = registry.counter(MetricsRegistry.INPUT_BYTES_TOTAL).count() - 
+				registry.meter(MetricsRegistry.INPUT_BYTES_READ).count();
+		if ( remaining > 0 && inputRate > 0 )
+			summary.append(", ETA ").append(ReadableTime.readableTime(Math.round(remaining / inputRate) * 1000));
+		return summary.toString();
+	}
+
+	/**
+	 * Formats a value of a metric: a number of bytes if the name of the metric refers to bytes, a count otherwise.
+	 * @param name The name of the metric.
+	 * @param value The value.
+	 * @return The formatted value (e.g., {@code 1.2M} or {@code 3.4 GB}).
+	 */
+	static String readable(String name, long value) {
+		boolean bytes = name.toLowerCase().contains("bytes");
+		String[] units = bytes ? new String[] { " B", " KB", " MB", " GB", " TB" } : new String[] { "", "k", "M", "G", "T" };
+		double scaled = value;
+		int unit = 0;
+		while ( Math.abs(scaled) >= 1000 && unit < units.length - 1 ) {
+			scaled /= bytes ? 1024 : 1000;
+			unit += 1;
+		}
+		return unit == 0 ? value + units[0] : String.format("%.1f%s", scaled, units[unit]);
+	}
+
+}
@@ -0,0 +1,265 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The report of a run of the import: the accounting of each stage of each Wikipedia edition (see {@link StageRecord}), 
+ * written as a JSON file and as a table in the log at the end of the run.
+ * While stages run, the heap usage of the JVM is sampled periodically to find the peak heap usage of each stage.
+ */
+public class RunReport {
+
+	/**
+	 * The interval between two samples of the heap usage, in milliseconds.
+	 */
+	private static final long SAMPLING_INTERVAL = 100;
+
+	/**
+	 * The name of the stage of the total row of the table.
+	 */
+	private static final String TOTAL = "total";
+
+	/**
+	 * The report of the import.
+	 */
+	private static final RunReport GLOBAL = new RunReport();
+
+	/**
+	 * The records of the stages, in the order in which they started.
+	 */
+	private final List<StageRecord> records;
+
+	/**
+	 * The thread that samples the heap usage, once a stage has started.
+	 */
+	private ScheduledExecutorService sampler;
+
+	/**
+	 * Creates an empty report.
+	 */
+	public RunReport() {
+		this.records = new ArrayList<StageRecord>();
+	}
+
+	/**
+	 * Returns the report of the import.
+	 * @return The report of the import.
+	 */
+	public static RunReport global() {
+		return GLOBAL;
+	}
+
+	/**
+	 * Records that a stage starts; the stage is attached to the current thread until it ends 
+	 * (see {@link StageRecord#end()}).
+	 * @param stage The name of the stage (e.g., {@code extract}).
+	 * @param edition The code of the language of the Wikipedia edition of the stage, or {@code null} if the stage 
+	 * concerns all the editions.
+	 * @return The record of the stage.
+	 */
+	public synchronized StageRecord start(String stage, String edition) {
+		StageRecord record = new StageRecord(stage, edition);
+		records.add(record);
+		record.attach();
+		if ( sampler == null ) {
+			sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "Heap sampler");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			sampler.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					sample();
+				}
+			}, SAMPLING_INTERVAL, SAMPLING_INTERVAL, TimeUnit.MILLISECONDS);
+		}
+		return record;
+	}
+
+	/**
+	 * Returns the records of the stages, in the order in which they started.
+	 * @return The records of the stages.
+	 */
+	public synchronized List<StageRecord> records() {
+		return new ArrayList<StageRecord>(records);
+	}
+
+	/**
+	 * Returns the measures of all the stages: the sum of the measures of the stages, except the peak heap usage, 
+	 * which is the largest of the stages.
+	 * @return The measures of all the stages, by name.
+	 */
+	public Map<String, Long> totals() {
+		Map<String, Long> totals = new LinkedHashMap<String, Long>();
+		for ( StageRecord record : records() )
+			for ( Map.Entry<String, Long> measure : record.measures().entrySet() ) {
+				Long total = totals.get(measure.getKey());
+				if ( total == null )
+					total = measure.getValue();
+				else if ( measure.getKey().equals(StageRecord.PEAK_HEAP) )
+					total = Math.max(total, measure.getValue());
+				else
+					total += measure.getValue();
+				totals.put(measure.getKey(), total);
+			}
+		return totals;
+	}
+
+	/**
+	 * Returns the report as a table, with a row for each stage and a row with the totals.
+	 * @return The table.
+	 */
+	public String table() {
+		List<String[]> rows = new ArrayList<String[]>();
+		List<StageRecord> records = records();
+		if ( records.isEmpty() )
+			return "";
+		List<String> names = new ArrayList<String>(records.get(0).measures().keySet());
+		String[] header = new String[names.size() + 2];
+		header[0] = "stage";
+		header[1] = "edition";
+		for ( int i = 0; i < names.size(); i += 1 )
+			header[i + 2] = names.get(i);
+		rows.add(header);
+		for ( StageRecord record : records )
+			rows.add(row(record.stage(), record.edition(), record.measures()));
+		rows.add(row(TOTAL, null, totals()));
+		int[] widths = new int[header.length];
+		for ( String[] row : rows )
+			for ( int i = 0; i < row.length; i += 1 )
+				widths[i] = Math.max(widths[i], row[i].length());
+		StringBuilder table = new StringBuilder();
+		for ( String[] row : rows ) {
+			for ( int i = 0; i < row.length; i += 1 ) {
+				if ( i > 0 )
+					table.append("  ");
+				// the names are aligned to the left, the measures to the right.
+				table.append(String.format("%" + (i < 2 ? "-" : "") + widths[i] + "s", row[i]));
+			}
+			table.append('\n');
+		}
+		return table.toString();
+	}
+
+	/**
+	 * Writes the report to a JSON file.
+	 * @param file The file.
+	 * @throws IOException when the file cannot be written.
+	 */
+	public void write(File file) throws IOException {
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			writer.write("{\n  \"stages\": [");
+			List<StageRecord> records = records();
+			for ( int i = 0; i < records.size(); i += 1 ) {
+				StageRecord record = records.get(i);
+				writer.write(i > 0 ? ",\n    " : "\n    ");
+				writer.write("{\"stage\": " + quote(record.stage()) + ", \"edition\": " + 
+						(record.edition() == null ? "null" : quote(record.edition())));
+				for ( Map.Entry<String, Long> measure : record.measures().entrySet() )
+					writer.write(", " + quote(measure.getKey()) + ": " + measure.getValue());
+				writer.write("}");
+			}
+			writer.write("\n  ],\n  \"" + TOTAL + "\": {");
+			boolean first = true;
+			for ( Map.Entry<String, Long> measure : totals().entrySet() ) {
+				writer.write((first ? "" : ", ") + quote(measure.getKey()) + ": " + measure.getValue());
+				first = false;
+			}
+			writer.write("}\n}\n");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Samples the heap usage of the JVM for the stages that are running.
+	 */
+	private void sample() {
+		long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+		for ( StageRecord record : records() )
+			if ( record.isRunning() )
+				record.sampleHeap(heapUsed);
+	}
+
+	/**
+	 * Formats a row of the table.
+	 * @param stage The name of the stage.
+	 * @param edition The code of the language of the edition of the stage, or {@code null}.
+	 * @param measures The measures of the stage.
+	 * @return The cells of the row.
+	 */
+	private static String[] row(String stage, String edition, Map<String, Long> measures) {
+		String[] row = new String[measures.size() + 2];
+		row[0] = stage;
+		row[1] = edition == null ? "-" : edition;
+		int i = 2;
+		for ( Map.Entry<String, Long> measure : measures.entrySet() ) {
+			String name = measure.getKey();
+			long value = measure.getValue();
+			if ( name.endsWith("Ms") )
+				row[i] = String.format("%.1fs", value / 1000.);
+			else
+				row[i] = ProgressReporter.readable(name, value);
+			i += 1;
+		}
+		return row;
+	}
+
+	/**
+	 * Quotes a string as a JSON string.
+	 * @param value The string.
+	 * @return The quoted string.
+	 */
+	private static String quote(String value) {
+		StringBuilder quoted = new StringBuilder("\"");
+		for ( char c : value.toCharArray() ) {
+			if ( c == '"' || c == '\\' )
+				quoted.append('\\').append(c);
+			else if ( c < 0x20 )
+				quoted.append(String.format("\\u%04x", (int)c));
+			else
+				quoted.append(c);
+		}
+		return quoted.append('"').toString();
+	}
+
+}
@@ -0,0 +1,243 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The slowest pages to parse of a Wikipedia edition, which are reported once its links are extracted, 
+ * so that the few pathological pages that dominate the time of the parser (e.g., giant lists, pages with thousands of 
+ * references, or templates that are never closed) can be identified.
+ * The pages are recorded by all the parsers of the edition concurrently; a page that is faster than the slowest pages 
+ * kept so far is discarded without locking.
+ */
+public class SlowPages {
+
+	/**
+	 * The slowest pages of the editions whose links are being extracted, indexed by the code of the language.
+	 */
+	private static final Map<String, SlowPages> EDITIONS = new HashMap<String, SlowPages>();
+
+	/**
+	 * Orders the pages by increasing parse time.
+	 */
+	private static final Comparator<Page> BY_TIME = new Comparator<Page>() {
+		@Override
+		public int compare(Page page1, Page page2) {
+			return Long.compare(page1.time, page2.time);
+		}
+	};
+
+	/**
+	 * The number of pages kept.
+	 */
+	private final int size;
+
+	/**
+	 * The slowest pages recorded so far, the fastest first.
+	 */
+	private final PriorityQueue<Page> slowest;
+
+	/**
+	 * The parse time of the fastest page kept once {@code size} pages are kept, {@code -1} before; 
+	 * the pages that are not slower are discarded.
+	 */
+	private volatile long threshold;
+
+	/**
+	 * The number of pages parsed by the fallback parser.
+	 */
+	private long fallbacks;
+
+	/**
+	 * Creates an empty list of slowest pages.
+	 * @param size The number of pages kept.
+	 */
+	public SlowPages(int size) {
+		this.size = size;
+		this.slowest = new PriorityQueue<Page>(Math.max(1, size), BY_TIME);
+		this.threshold = -1;
+		this.fallbacks = 0;
+	}
+
+	/**
+	 * Returns the slowest pages of a Wikipedia edition, created if needed.
+	 * @param edition The code of the language of the Wikipedia edition.
+	 * @param size The number of pages kept, if the list is created.
+	 * @return The slowest pages of the edition.
+	 */
+	public static synchronized SlowPages of(String edition, int size) {
+		SlowPages pages = EDITIONS.get(edition);
+		if ( pages == null ) {
+			pages = new SlowPages(size);
+			EDITIONS.put(edition, pages);
+		}
+		return pages;
+	}
+
+	/**
+	 * Removes the slowest pages of a Wikipedia edition, once its links are extracted.
+	 * @param edition The code of the language of the Wikipedia edition.
+	 * @return The slowest pages of the edition, or {@code null} if none were recorded.
+	 */
+	public static synchronized SlowPages remove(String edition) {
+		return EDITIONS.remove(edition);
+	}
+
+	/**
+	 * Records the time taken to parse a page.
+	 * @param title The title of the page.
+	 * @param length The length of the text of the page.
+	 * @param time The time taken to parse the page, in nanoseconds.
+	 * @param fallback Whether the page was parsed by the fallback parser because its time budget ran out.
+	 */
+	public void record(String title, int length, long time, boolean fallback) {
+		if ( fallback ) {
+			synchronized (this) {
+				fallbacks += 1;
+			}
+		}
+		if ( size == 0 || time <= threshold )
+			return;
+		synchronized (this) {
+			if ( slowest.size() == size ) {
+				if ( time <= slowest.peek().time )
+					return;
+				slowest.poll();
+			}
+			slowest.add(new Page(title, length, time, fallback));
+			if ( slowest.size() == size )
+				threshold = slowest.peek().time;
+		}
+	}
+
+	/**
+	 * Returns the number of pages parsed by the fallback parser.
+	 * @return The number of pages parsed by the fallback parser.
+	 */
+	public synchronized long fallbacks() {
+		return fallbacks;
+	}
+
+	/**
+	 * Returns the slowest pages recorded, the slowest first.
+	 * @return The slowest pages recorded.
+	 */
+	public synchronized List<Page> slowest() {
+		List<Page> pages = new ArrayList<Page>(slowest);
+		Collections.sort(pages, Collections.reverseOrder(BY_TIME));
+		return pages;
+	}
+
+	/**
+	 * Returns the slowest pages recorded as a table, one page per line, the slowest first.
+	 * @return The table of the slowest pages.
+	 */
+	public String table() {
+		StringBuilder table = new StringBuilder();
+		table.append(String.format("%10s %10s  %s%n", "parseMs", "length", "title"));
+		for ( Page page : slowest() )
+			table.append(String.format("%10.1f %10d  %s%s%n", page.time / 1e6, page.length, page.title, 
+					page.fallback ? " (fallback)" : ""));
+		return table.toString();
+	}
+
+	/**
+	 * A page and the time taken to parse it.
+	 */
+	public static class Page {
+
+		/**
+		 * The title of the page.
+		 */
+		private final String title;
+
+		/**
+		 * The length of the text of the page.
+		 */
+		private final int length;
+
+		/**
+		 * The time taken to parse the page, in nanoseconds.
+		 */
+		private final long time;
+
+		/**
+		 * Whether the page was parsed by the fallback parser.
+		 */
+		private final boolean fallback;
+
+		/**
+		 * Creates a page.
+		 * @param title The title of the page.
+		 * @param length The length of the text of the page.
+		 * @param time The time taken to parse the page, in nanoseconds.
+		 * @param fallback Whether the page was parsed by the fallback parser.
+		 */
+		Page(String title, int length, long time, boolean fallback) {
+			this.title = title;
+			this.length = length;
+			this.time = time;
+			this.fallback = fallback;
+		}
+
+		/**
+		 * Returns the title of the page.
+		 * @return The title of the page.
+		 */
+		public String title() {
+			return title;
+		}
+
+		/**
+		 * Returns the length of the text of the page.
+		 * @return The number of characters of the text of the page.
+		 */
+		public int length() {
+			return length;
+		}
+
+		/**
+		 * Returns the time taken to parse the page.
+		 * @return The time taken to parse the page, in nanoseconds.
+		 */
+		public long time() {
+			return time;
+		}
+
+		/**
+		 * Returns whether the page was parsed by the fallback parser.
+		 * @return {@code true} if the time budget of the page ran out.
+		 */
+		public boolean fallback() {
+			return fallback;
+		}
+
+	}
+
+}
@@ -0,0 +1,337 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The accounting of a stage of the import of a Wikipedia edition (e.g., the data extraction of the English edition): 
+ * the bytes read and written by the stage (before and after (de)compression), the records it reads and writes, 
+ * its wall and CPU time, and the garbage collections and the peak heap usage of the JVM while it runs.
+ * A stage is attached to the thread that runs it, and to the threads started by that thread; the streams and 
+ * the counters created by these threads are counted in the stage as well as in the {@link MetricsRegistry} 
+ * (see {@link #counter(Counter, Count)}).
+ * The CPU time is that of the threads explicitly attached to the stage (see {@link #attach()} and {@link StageThread}), 
+ * so that the stages that run at the same time are accounted separately; the garbage collections and the heap 
+ * are shared by all the stages that run at the same time.
+ */
+public class StageRecord {
+
+	/**
+	 * Enumerates the quantities counted by a stage.
+	 */
+	public enum Count {
+		/**
+		 * The bytes read from the inputs (files or network), as stored (e.g., compressed).
+		 */
+		bytesRead,
+
+		/**
+		 * The bytes obtained by decompressing the compressed inputs.
+		 */
+		bytesReadDecompressed,
+
+		/**
+		 * The bytes written to the outputs, as stored (e.g., compressed).
+		 */
+		bytesWritten,
+
+		/**
+		 * The bytes written to the compressed outputs, before compression.
+		 */
+		bytesWrittenUncompressed,
+
+		/**
+		 * The records read (e.g., the pages of a dump).
+		 */
+		recordsIn,
+
+		/**
+		 * The records written (e.g., the pages of the intermediate file or the nodes and the relationships of the graph).
+		 */
+		recordsOut
+	}
+
+	/**
+	 * The name of the measure of the wall time, in milliseconds.
+	 */
+	public static final String WALL_TIME = "wallTimeMs";
+
+	/**
+	 * The name of the measure of the CPU time, in milliseconds.
+	 */
+	public static final String CPU_TIME = "cpuTimeMs";
+
+	/**
+	 * The name of the measure of the time spent in garbage collection, in milliseconds.
+	 */
+	public static final String GC_TIME = "gcTimeMs";
+
+	/**
+	 * The name of the measure of the number of garbage collections.
+	 */
+	public static final String GC_COUNT = "gcCount";
+
+	/**
+	 * The name of the measure of the peak heap usage, in bytes.
+	 */
+	public static final String PEAK_HEAP = "peakHeapBytes";
+
+	/**
+	 * The stage attached to each thread, if any; a new thread inherits the stage of the thread that creates it.
+	 */
+	private static final ThreadLocal<StageRecord> CURRENT = new InheritableThreadLocal<StageRecord>();
+
+	/**
+	 * The CPU time of each thread explicitly attached to a stage when it was attached, in nanoseconds.
+	 */
+	private static final ThreadLocal<Long> ATTACH_CPU_TIME = new ThreadLocal<Long>();
+
+	/**
+	 * The name of this stage (e.g., {@code extract}).
+	 */
+	private final String stage;
+
+	/**
+	 * The code of the language of the Wikipedia edition of this stage, or {@code null} if the stage concerns 
+	 * all the editions.
+	 */
+	private final String edition;
+
+	/**
+	 * The counters of this stage.
+	 */
+	private final Map<Count, Counter> counters;
+
+	/**
+	 * The CPU time of the threads attached to this stage, in nanoseconds.
+	 */
+	private final LongAdder cpuTime;
+
+	/**
+	 * The time when this stage started, in nanoseconds.
+	 */
+	private final long startTime;
+
+	/**
+	 * The time spent in garbage collection when this stage started, in milliseconds.
+	 */
+	private final long startGcTime;
+
+	/**
+	 * The number of garbage collections when this stage started.
+	 */
+	private final long startGcCount;
+
+	/**
+	 * The wall time of this stage, in milliseconds, or {@code -1} while it runs.
+	 */
+	private volatile long wallTime;
+
+	/**
+	 * The time spent in garbage collection during this stage, in milliseconds.
+	 */
+	private long gcTime;
+
+	/**
+	 * The number of garbage collections during this stage.
+	 */
+	private long gcCount;
+
+	/**
+	 * The largest heap usage sampled during this stage, in bytes.
+	 */
+	private long peakHeap;
+
+	/**
+	 * Creates the record of a stage that starts; the stage is not attached to any thread yet.
+	 * @param stage The name of the stage.
+	 * @param edition The code of the language of the Wikipedia edition of the stage, or {@code null}.
+	 */
+	StageRecord(String stage, String edition) {
+		this.stage = stage;
+		this.edition = edition;
+		this.counters = new EnumMap<Count, Counter>(Count.class);
+		for ( Count count : Count.values() )
+			this.counters.put(count, new Counter());
+		this.cpuTime = new LongAdder();
+		this.wallTime = -1;
+		this.startGcTime = gcTime();
+		this.startGcCount = gcCount();
+		this.startTime = System.nanoTime();
+		sampleHeap(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+	}
+
+	/**
+	 * Returns the stage attached to the current thread.
+	 * @return The stage attached to the current thread, or {@code null} if none.
+	 */
+	public static StageRecord current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Creates a counter that counts in a counter of the registry and in a counter of the stage attached to the 
+	 * current thread, if any.
+	 * @param parent The counter of the registry, or {@code null}.
+	 * @param count The quantity counted in the stage.
+	 * @return The new counter.
+	 */
+	public static Counter counter(Counter parent, Count count) {
+		StageRecord current = current();
+		return new Counter(parent, current == null ? null : current.counters.get(count));
+	}
+
+	/**
+	 * Attaches this stage to the current thread (e.g., a worker thread of the stage) until {@link #detach()}, 
+	 * so that the CPU time of the thread is accounted in the stage.
+	 */
+	public void attach() {
+		if ( CURRENT.get() == this && ATTACH_CPU_TIME.get() != null )
+			return;
+		CURRENT.set(this);
+		ATTACH_CPU_TIME.set(threadCpuTime());
+	}
+
+	/**
+	 * Detaches this stage from the current thread; the CPU time of the thread since the stage was attached 
+	 * is added to the stage.
+	 */
+	public void detach() {
+		if ( CURRENT.get() != this )
+			return;
+		long now = threadCpuTime();
+		Long start = ATTACH_CPU_TIME.get();
+		if ( now >= 0 && start != null && start >= 0 )
+			cpuTime.add(now - start);
+		CURRENT.remove();
+		ATTACH_CPU_TIME.remove();
+	}
+
+	/**
+	 * Records that this stage is done; the stage is detached from the current thread.
+	 */
+	public void end() {
+		detach();
+		sampleHeap(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+		synchronized (this) {
+			this.gcTime = gcTime() - startGcTime;
+			this.gcCount = gcCount() - startGcCount;
+		}
+		this.wallTime = (System.nanoTime() - startTime) / 1000000;
+	}
+
+	/**
+	 * Adds a value to a counter of this stage (e.g., bytes written that are not written through a stream).
+	 * @param count The quantity counted.
+	 * @param value The value.
+	 */
+	public void add(Count count, long value) {
+		counters.get(count).add(value);
+	}
+
+	/**
+	 * Returns the name of this stage.
+	 * @return The name of this stage.
+	 */
+	public String stage() {
+		return this.stage;
+	}
+
+	/**
+	 * Returns the code of the language of the Wikipedia edition of this stage.
+	 * @return The code of the language, or {@code null} if the stage concerns all the editions.
+	 */
+	public String edition() {
+		return this.edition;
+	}
+
+	/**
+	 * Returns whether this stage is running.
+	 * @return {@code true} if this stage is running.
+	 */
+	public boolean isRunning() {
+		return this.wallTime < 0;
+	}
+
+	/**
+	 * Returns the measures of this stage, in the order in which they are reported.
+	 * @return The measures of this stage, by name.
+	 */
+	public synchronized Map<String, Long> measures() {
+		Map<String, Long> measures = new LinkedHashMap<String, Long>();
+		measures.put(WALL_TIME, isRunning() ? (System.nanoTime() - startTime) / 1000000 : wallTime);
+		measures.put(CPU_TIME, cpuTime.sum() / 1000000);
+		measures.put(GC_TIME, isRunning() ? gcTime() - startGcTime : gcTime);
+		measures.put(GC_COUNT, isRunning() ? gcCount() - startGcCount : gcCount);
+		measures.put(PEAK_HEAP, peakHeap);
+		for ( Map.Entry<Count, Counter> counter : counters.entrySet() )
+			measures.put(counter.getKey().name(), counter.getValue().count());
+		return measures;
+	}
+
+	/**
+	 * Records a sample of the heap usage of the JVM while this stage runs.
+	 * @param heapUsed The heap usage, in bytes.
+	 */
+	synchronized void sampleHeap(long heapUsed) {
+		this.peakHeap = Math.max(this.peakHeap, heapUsed);
+	}
+
+	/**
+	 * Returns the CPU time of the current thread.
+	 * @return The CPU time of the current thread, in nanoseconds, or {@code -1} if it is not available.
+	 */
+	private static long threadCpuTime() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		return bean.isCurrentThreadCpuTimeSupported() ? bean.getCurrentThreadCpuTime() : -1;
+	}
+
+	/**
+	 * Returns the time spent in garbage collection by all the collectors.
+	 * @return The time spent in garbage collection, in milliseconds.
+	 */
+	public static long gcTime() {
+		long time = 0;
+		for ( GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() )
+			time += Math.max(0, bean.getCollectionTime());
+		return time;
+	}
+
+	/**
+	 * Returns the number of garbage collections of all the collectors.
+	 * @return The number of garbage collections.
+	 */
+	public static long gcCount() {
+		long count = 0;
+		for ( GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans() )
+			count += Math.max(0, bean.getCollectionCount());
+		return count;
+	}
+
+}
@@ -0,0 +1,60 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.metrics;
+
+/**
+ * A thread that runs part of a stage of the import (e.g., the extraction of the disambiguation pages during the 
+ * data extraction): the thread is attached to the stage of the thread that creates it, 
+ * so that its CPU time is accounted in that stage (see {@link StageRecord}).
+ */
+public abstract class StageThread extends Thread {
+
+	/**
+	 * The stage of the thread that created this thread, if any.
+	 */
+	private final StageRecord stage;
+
+	/**
+	 * Creates a thread attached to the stage of the current thread, if any.
+	 */
+	public StageThread() {
+		this.stage = StageRecord.current();
+	}
+
+	@Override
+	public final void run() {
+		if ( stage != null )
+			stage.attach();
+		try {
+			runInStage();
+		} finally {
+			if ( stage != null )
+				stage.detach();
+		}
+	}
+
+	/**
+	 * Does the work of this thread.
+	 */
+	protected abstract void runInStage();
+
+}
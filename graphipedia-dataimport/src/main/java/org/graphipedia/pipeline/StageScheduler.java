@@ -0,0 +1,340 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+import org.graphipedia.metrics.Gauge;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.progress.ReadableTime;
+
+/**
+ * Runs the stages of the import as a graph of dependencies.
+ * A stage starts as soon as all the stages it depends on are done, in the pool of threads of the resource it uses 
+ * (see {@link StageResource}), so that the stages of different Wikipedia editions 
+ * (e.g., the download of an edition, the data extraction of another one and the graph import of a third one) run 
+ * concurrently, within the limits of the pools.
+ * A stage that depends on a failed stage does not run, and is cancelled.
+ * The status of the stages is displayed periodically while the scheduler runs.
+ */
+public class StageScheduler {
+
+	/**
+	 * The time (in ms) between two displays of the status of the stages.
+	 */
+	private static final long STATUS_INTERVAL = 60000;
+
+	/**
+	 * The logger where the status of the stages is displayed.
+	 */
+	private Logger logger;
+
+	/**
+	 * The pools of threads, one for each resource (indexed by the ordinal of the resource).
+	 */
+	private ExecutorService[] pools;
+
+	/**
+	 * The stages submitted to this scheduler.
+	 */
+	private List<Stage> stages;
+
+	/**
+	 * Creates a new scheduler.
+	 * @param networkStages The maximum number of stages that use the network running at the same time.
+	 * @param cpuStages The maximum number of stages that use the processors running at the same time.
+	 * @param logger The logger where the status of the stages is displayed.
+	 */
+	public StageScheduler(int networkStages, int cpuStages, Logger logger) {
+		this.logger = logger;
+		this.stages = new ArrayList<Stage>();
+		this.pools = new ExecutorService[StageResource.values().length];
+		this.pools[StageResource.network.ordinal()] = Executors.newFixedThreadPool(Math.max(1, networkStages), 
+				threadFactory(StageResource.network));
+		this.pools[StageResource.cpu.ordinal()] = Executors.newFixedThreadPool(Math.max(1, cpuStages), 
+				threadFactory(StageResource.cpu));
+		this.pools[StageResource.store.ordinal()] = Executors.newSingleThreadExecutor(threadFactory(StageResource.store));
+		MetricsRegistry.global().register(MetricsRegistry.STAGES_WAITING, new Gauge() {
+			@Override
+			public long value() {
+				return waitingStages();
+			}
+		});
+	}
+
+	/**
+	 * Submits a stage.
+	 * @param name The name of the stage, displayed in the status.
+	 * @param resource The resource used by the stage.
+	 * @param task The work of the stage.
+	 * @param dependencies The stages that must be done before the stage starts.
+	 * @return The stage.
+	 */
+	public synchronized Stage submit(String name, StageResource resource, final Runnable task, Stage... dependencies) {
+		final Stage stage = new Stage(name, resource);
+		CompletableFuture<?>[] futures = new CompletableFuture<?>[dependencies.length];
+		for ( int i = 0; i < dependencies.length; i += 1 )
+			futures[i] = dependencies[i].future;
+		stage.future = CompletableFuture.allOf(futures).thenRunAsync(new Runnable() {
+			@Override
+			public void run() {
+				stage.start();
+				try {
+					task.run();
+				}
+				catch(RuntimeException | Error e) {
+					stage.state = StageState.failed;
+					throw e;
+				}
+				stage.finish();
+			}
+		}, pools[resource.ordinal()]);
+		stage.future.whenComplete(new BiConsumer<Void, Throwable>() {
+			@Override
+			public void accept(Void result, Throwable failure) {
+				// the task of the stage does not run when a stage it depends on fails.
+				if ( failure != null && stage.state == StageState.waiting )
+					stage.cancel();
+			}
+		});
+		this.stages.add(stage);
+		return stage;
+	}
+
+	/**
+	 * Waits for all the submitted stages to be done and stops the pools of threads.
+	 * @throws Exception when a stage fails.
+	 */
+	public void await() throws Exception {
+		ScheduledExecutorService statusDisplay = Executors.newSingleThreadScheduledExecutor(threadFactory(null));
+		statusDisplay.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				logger.info(status());
+			}
+		}, STATUS_INTERVAL, STATUS_INTERVAL, TimeUnit.MILLISECONDS);
+		try {
+			List<Stage> stages;
+			synchronized (this) {
+				stages = new ArrayList<Stage>(this.stages);
+			}
+			for ( Stage stage : stages ) {
+				try {
+					stage.future.get();
+				} catch (ExecutionException e) {
+					throw new Exception("Stage " + stage.name + " failed", e.getCause());
+				}
+			}
+		} finally {
+			statusDisplay.shutdownNow();
+			for ( ExecutorService pool : pools )
+				pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Returns the status of the stages.
+	 * @return The status of the stages: the names of the running stages, the number of waiting stages, the 
+	 * number of stages done and, if any, the number of failed and cancelled stages.
+	 */
+	public synchronized String status() {
+		StringBuilder running = new StringBuilder();
+		int waiting = 0;
+		int done = 0;
+		int failed = 0;
+		int cancelled = 0;
+		for ( Stage stage : stages ) {
+			switch(stage.state) {
+			case waiting:
+				waiting += 1;
+				break;
+			case running:
+				if ( running.length() > 0 )
+					running.append(", ");
+				running.append(stage.name).append(" (")
+					.append(ReadableTime.readableTime(System.currentTimeMillis() - stage.startTime)).append(")");
+				break;
+			case failed:
+				failed += 1;
+				break;
+			case cancelled:
+				cancelled += 1;
+				break;
+			default:
+				done += 1;
+				break;
+			}
+		}
+		return "Stages running: [" + running + "], waiting: " + waiting + ", done: " + done + "/" + stages.size() + 
+				(failed + cancelled > 0 ? ", failed: " + failed + ", cancelled: " + cancelled : "");
+	}
+
+	/**
+	 * Returns the number of stages waiting for the stages they depend on, or for a thread of their pool.
+	 * @return The number of waiting stages.
+	 */
+	public synchronized int waitingStages() {
+		int waiting = 0;
+		for ( Stage stage : stages )
+			if ( stage.state == StageState.waiting )
+				waiting += 1;
+		return waiting;
+	}
+
+	/**
+	 * Creates the factory of the threads of a pool.
+	 * @param resource The resource of the pool, or {@code null} for the thread that displays the status.
+	 * @return The factory of the threads of the pool.
+	 */
+	private static ThreadFactory threadFactory(final StageResource resource) {
+		return new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "stage-" + (resource == null ? "status" : resource.name()) + "-" + 
+						count.incrementAndGet());
+				thread.setDaemon(resource == null);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Enumerates the states of a stage.
+	 */
+	private enum StageState {
+		/**
+		 * The stage waits for the stages it depends on, or for a thread of its pool.
+		 */
+		waiting,
+
+		/**
+		 * The stage is running.
+		 */
+		running,
+
+		/**
+		 * The stage is done.
+		 */
+		done,
+
+		/**
+		 * The stage has failed.
+		 */
+		failed,
+
+		/**
+		 * The stage will not run, since a stage it depends on has failed.
+		 */
+		cancelled
+	}
+
+	/**
+	 * A stage of the import.
+	 */
+	public class Stage {
+
+		/**
+		 * The name of this stage.
+		 */
+		private final String name;
+
+		/**
+		 * The resource used by this stage.
+		 */
+		private final StageResource resource;
+
+		/**
+		 * Completed when this stage is done.
+		 */
+		private CompletableFuture<Void> future;
+
+		/**
+		 * The state of this stage.
+		 */
+		private volatile StageState state;
+
+		/**
+		 * The time (in ms) when this stage started.
+		 */
+		private long startTime;
+
+		/**
+		 * Creates a new stage, waiting to start.
+		 * @param name The name of the stage.
+		 * @param resource The resource used by the stage.
+		 */
+		private Stage(String name, StageResource resource) {
+			this.name = name;
+			this.resource = resource;
+			this.state = StageState.waiting;
+		}
+
+		/**
+		 * Returns the name of this stage.
+		 * @return The name of this stage.
+		 */
+		public String name() {
+			return this.name;
+		}
+
+		/**
+		 * Records that this stage starts.
+		 */
+		private void start() {
+			this.startTime = System.currentTimeMillis();
+			this.state = StageState.running;
+			logger.info("Stage " + name + " started (" + resource.name() + ")");
+		}
+
+		/**
+		 * Records that this stage is done.
+		 */
+		private void finish() {
+			this.state = StageState.done;
+			logger.info("Stage " + name + " done in " + ReadableTime.readableTime(System.currentTimeMillis() - startTime) + 
+					". " + status());
+		}
+
+		/**
+		 * Records that this stage will not run, since a stage it depends on has failed.
+		 */
+		private void cancel() {
+			this.state = StageState.cancelled;
+			logger.warning("Stage " + name + " cancelled, since a stage it depends on has failed");
+		}
+
+	}
+
+}
@@ -0,0 +1,243 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.progress;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A handler that hands the records over to a thread, which publishes them to the target handlers 
+ * (the console and, optionally, a file), so that the threads that log never wait for the output.
+ * The records are put in a bounded queue: when the queue is full, the records are dropped rather than blocking 
+ * the thread that logs, and the number of records dropped is logged before the next record that is published.
+ * A severe record is the exception: the thread that logs it waits until it is published, as it usually 
+ * precedes a stack trace on the standard error and the end of the program.
+ * Once the handler is closed (e.g., when the virtual machine shuts down), the records in the queue are published 
+ * and the records logged afterwards are published by the thread that logs them.
+ */
+public class AsyncHandler extends Handler {
+
+	/**
+	 * The maximum time (in milliseconds) spent waiting for the records in the queue to be published.
+	 */
+	private static final long FLUSH_TIMEOUT = 5000;
+
+	/**
+	 * The records waiting to be published.
+	 */
+	private final BlockingQueue<LogRecord> queue;
+
+	/**
+	 * The handlers to which the records are published.
+	 */
+	private final List<Handler> targets;
+
+	/**
+	 * The number of records dropped because the queue was full, since the last time it was logged.
+	 */
+	private final AtomicLong dropped;
+
+	/**
+	 * The thread that publishes the records in the queue.
+	 */
+	private final Thread writer;
+
+	/**
+	 * The lock held while a record is published to the targets, so that the records are not interleaved.
+	 */
+	private final Object lock;
+
+	/**
+	 * Whether the handler is closed.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * Creates a handler and starts its writer thread.
+	 * @param capacity The maximum number of records waiting to be published.
+	 */
+	public AsyncHandler(int capacity) {
+		this.queue = new ArrayBlockingQueue<LogRecord>(capacity);
+		this.targets = new CopyOnWriteArrayList<Handler>();
+		this.dropped = new AtomicLong();
+		this.closed = false;
+		this.lock = new Object();
+		this.writer = new Thread("Log writer") {
+			@Override
+			public void run() {
+				write();
+			}
+		};
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Adds a handler to which the records are published.
+	 * @param target The handler.
+	 */
+	public void addTarget(Handler target) {
+		targets.add(target);
+	}
+
+	@Override
+	public void publish(LogRecord record) {
+		if ( !isLoggable(record) )
+			return;
+		if ( closed || Thread.currentThread() == writer )
+			publishToTargets(record);
+		else if ( record.getLevel().intValue() >= Level.SEVERE.intValue() ) {
+			try {
+				queue.put(record);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			flush();
+		}
+		else if ( !queue.offer(record) )
+			dropped.incrementAndGet();
+	}
+
+	/**
+	 * Waits until the records in the queue are published (for at most {@code FLUSH_TIMEOUT} milliseconds), 
+	 * and flushes the targets.
+	 */
+	@Override
+	public void flush() {
+		if ( closed || Thread.currentThread() == writer ) {
+			flushTargets();
+			return;
+		}
+		FlushMarker marker = new FlushMarker();
+		try {
+			queue.put(marker);
+			marker.published.await(FLUSH_TIMEOUT, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Closes the handler: the records in the queue are published and the targets are closed 
+	 * (the console is only flushed); the records logged afterwards are published directly.
+	 */
+	@Override
+	public synchronized void close() {
+		if ( closed )
+			return;
+		flush();
+		closed = true;
+		synchronized (lock) {
+			for ( Handler target : targets )
+				target.close();
+		}
+	}
+
+	/**
+	 * Publishes the records in the queue, until the handler is closed.
+	 */
+	private void write() {
+		while ( true ) {
+			LogRecord record;
+			try {
+				record = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+			if ( dropped.get() > 0 )
+				reportDropped();
+			if ( record instanceof FlushMarker ) {
+				flushTargets();
+				((FlushMarker)record).published.countDown();
+			}
+			else
+				publishToTargets(record);
+		}
+	}
+
+	/**
+	 * Flushes the targets.
+	 */
+	private void flushTargets() {
+		synchronized (lock) {
+			for ( Handler target : targets )
+				target.flush();
+		}
+	}
+
+	/**
+	 * Logs the number of records dropped because the queue was full.
+	 */
+	private void reportDropped() {
+		long count = dropped.getAndSet(0);
+		if ( count == 0 )
+			return;
+		LogRecord record = new LogRecord(Level.WARNING, count + " log messages dropped because the logging queue was full");
+		record.setLoggerName("Logging");
+		publishToTargets(record);
+	}
+
+	/**
+	 * Publishes a record to the targets.
+	 * @param record The record.
+	 */
+	private void publishToTargets(LogRecord record) {
+		synchronized (lock) {
+			for ( Handler target : targets )
+				target.publish(record);
+		}
+	}
+
+	/**
+	 * A record put in the queue to know when the records before it are published.
+	 */
+	private static final class FlushMarker extends LogRecord {
+
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Released once the records before the marker are published.
+		 */
+		private final transient CountDownLatch published;
+
+		/**
+		 * Creates a marker.
+		 */
+		FlushMarker() {
+			super(Level.OFF, null);
+			this.published = new CountDownLatch(1);
+		}
+
+	}
+
+}
@@ -21,14 +21,20 @@
 //
 package org.graphipedia.progress;
 
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.HashSet;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.graphipedia.jfr.CheckPointWriteEvent;
+import org.graphipedia.jfr.FlightEvents;
 
 /**
  * This class represents the checkpoint information that
@@ -92,19 +98,51 @@ public class CheckPoint {
 	 */
 	private Set<String> crossLinksExtracted;
 	
+	/**
+	 * The number of segments of the intermediate file extracted from the XML dump file, indexed by the 
+	 * codes of the languages of the editions.
+	 */
+	private Map<String, Integer> linksSegments;
+	
+	/**
+	 * The identifier of the last page in the segments of the intermediate file extracted from the XML dump file, 
+	 * indexed by the codes of the languages of the editions.
+	 */
+	private Map<String, Long> linksLastPage;
+	
+	/**
+	 * The codes of the languages of the editions whose graph has been imported into the Neo4j database.
+	 */
+	private Set<String> graphImported;
+	
+	/**
+	 * Whether the indexes of the Neo4j database have been created.
+	 */
+	private volatile boolean indexesCreated;
+	
+	/**
+	 * The codes of the languages of the editions whose cross-links have been imported into the Neo4j database.
+	 */
+	private Set<String> crossLinksImported;
+	
 	/**
 	 * Constructor.
 	 * @param rootDirectory The root working directory of Graphipedia. 
 	 */
 	public CheckPoint(File rootDirectory) {
 		this.checkpointFile = new File(rootDirectory, CHECK_POINT_FILE_NAME);
-		this.downloadedFiles = new HashSet<String>();
-		this.downloadedEditions = new HashSet<String>();
-		this.disambigExtracted = new HashSet<String>();
-		this.infoboxExtracted = new HashSet<String>();
-		this.linksExtracted = new HashSet<String>();
-		this.crossLinksExtracted = new HashSet<String>();
-		this.namespacesExtracted = new HashSet<String>();
+		this.downloadedFiles = ConcurrentHashMap.<String>newKeySet();
+		this.downloadedEditions = ConcurrentHashMap.<String>newKeySet();
+		this.disambigExtracted = ConcurrentHashMap.<String>newKeySet();
+		this.infoboxExtracted = ConcurrentHashMap.<String>newKeySet();
+		this.linksExtracted = ConcurrentHashMap.<String>newKeySet();
+		this.crossLinksExtracted = ConcurrentHashMap.<String>newKeySet();
+		this.namespacesExtracted = ConcurrentHashMap.<String>newKeySet();
+		this.linksSegments = new ConcurrentHashMap<String, Integer>();
+		this.linksLastPage = new ConcurrentHashMap<String, Long>();
+		this.graphImported = ConcurrentHashMap.<String>newKeySet();
+		this.indexesCreated = false;
+		this.crossLinksImported = ConcurrentHashMap.<String>newKeySet();
 	}
 	
 	/**
@@ -203,6 +241,23 @@ public class CheckPoint {
 			save(CheckPointFlag.linksExtracted, edition);
 	}
 	
+	/**
+	 * Records that a segment of the intermediate file has been extracted from the XML file of a Wikipedia edition, 
+	 * so that the extraction resumes after this segment if it is interrupted.
+	 * 
+	 * @param edition The code of the language of the edition.
+	 * @param segments The number of segments extracted so far.
+	 * @param lastPage The identifier of the last page in the segments extracted so far.
+	 * @param save Set {@code true} if the checkpoint is to be saved to file.
+	 * @throws IOException when a I/O error occurs while writing the checkpoint file.
+	 */
+	public void addLinksSegmentExtracted(String edition, int segments, long lastPage, boolean save) throws IOException {
+		this.linksSegments.put(edition, segments);
+		this.linksLastPage.put(edition, lastPage);
+		if (save)
+			save(CheckPointFlag.linksSegmentExtracted, edition + "," + segments + "," + lastPage);
+	}
+	
 	/**
 	 * Adds a Wikipedia edition to the list of editions for which the cross-links have already been 
 	 * extracted from the dump file.
@@ -219,6 +274,90 @@ public class CheckPoint {
 			save(CheckPointFlag.crosslinksExtracted, edition);
 	}
 	
+	/**
+	 * Adds a Wikipedia edition to the list of editions whose graph has been imported into the Neo4j database.
+	 * 
+	 * @param edition The code of the language of the edition whose graph has been imported.
+	 * @param save Set {@code true} if the checkpoint is to be saved to file.
+	 * @throws IOException when a I/O error occurs while writing the checkpoint file.
+	 */
+	public void addGraphImported(String edition, boolean save) throws IOException {
+		this.graphImported.add(edition);
+		if (save)
+			save(CheckPointFlag.graphImported, edition);
+	}
+	
+	/**
+	 * Records that the indexes of the Neo4j database have been created.
+	 * 
+	 * @param save Set {@code true} if the checkpoint is to be saved to file.
+	 * @throws IOException when a I/O error occurs while writing the checkpoint file.
+	 */
+	public void addIndexesCreated(boolean save) throws IOException {
+		this.indexesCreated = true;
+		if (save)
+			save(CheckPointFlag.indexesCreated, "-");
+	}
+	
+	/**
+	 * Adds a Wikipedia edition to the list of editions whose cross-links have been imported into the Neo4j database.
+	 * 
+	 * @param edition The code of the language of the edition whose cross-links have been imported.
+	 * @param save Set {@code true} if the checkpoint is to be saved to file.
+	 * @throws IOException when a I/O error occurs while writing the checkpoint file.
+	 */
+	public void addCrossLinksImported(String edition, boolean save) throws IOException {
+		this.crossLinksImported.add(edition);
+		if (save)
+			save(CheckPointFlag.crossLinksImported, edition);
+	}
+	
+	/**
+	 * Returns the description of a unit of the import phase, as it is passed to {@link #addImportCommitted(List, boolean)}.
+	 * 
+	 * @param flag The flag of the unit ({@link CheckPointFlag#graphImported}, {@link CheckPointFlag#indexesCreated} 
+	 * or {@link CheckPointFlag#crossLinksImported}).
+	 * @param edition The code of the language of the edition of the unit, or {@code null} for the indexes.
+	 * @return The description of the unit.
+	 */
+	public static String importUnit(CheckPointFlag flag, String edition) {
+		return flag.name() + ":" + (edition == null ? "-" : edition);
+	}
+	
+	/**
+	 * Records that some units of the import phase have been committed together to a snapshot of the Neo4j database.
+	 * The units are saved in a single line, so that after a shutdown the number of units in the checkpoint 
+	 * is always the number of units of a snapshot.
+	 * 
+	 * @param units The descriptions of the units, as returned by {@link #importUnit(CheckPointFlag, String)}.
+	 * @param save Set {@code true} if the checkpoint is to be saved to file.
+	 * @throws IOException when a I/O error occurs while writing the checkpoint file.
+	 */
+	public void addImportCommitted(List<String> units, boolean save) throws IOException {
+		StringBuilder line = new StringBuilder();
+		for ( String unit : units ) {
+			String[] values = unit.split(":");
+			switch(CheckPointFlag.valueOf(values[0])) {
+			case graphImported:
+				addGraphImported(values[1], false);
+				break;
+			case indexesCreated:
+				addIndexesCreated(false);
+				break;
+			case crossLinksImported:
+				addCrossLinksImported(values[1], false);
+				break;
+			default:
+				throw new IllegalArgumentException(unit + " is not a unit of the import");
+			}
+			if ( line.length() > 0 )
+				line.append(',');
+			line.append(unit);
+		}
+		if (save)
+			save(CheckPointFlag.importCommitted, line.toString());
+	}
+	
 	/**
 	 * Returns whether a file has been already successfully downloaded
 	 * @param filename The absolute path to the file to check
@@ -280,6 +419,29 @@ public class CheckPoint {
 		return this.linksExtracted.contains(edition);
 	}
 	
+	/**
+	 * Returns the number of segments of the intermediate file that have already been extracted from the XML file of 
+	 * a specific edition.
+	 * @param edition The code of the language of a Wikipedia edition.
+	 * @return The number of segments that have already been extracted from the XML file of the specified edition.
+	 */
+	public int linksSegmentsExtracted(String edition) {
+		Integer segments = this.linksSegments.get(edition);
+		return segments == null ? 0 : segments;
+	}
+	
+	/**
+	 * Returns the identifier of the last page in the segments of the intermediate file that have already been extracted 
+	 * from the XML file of a specific edition.
+	 * @param edition The code of the language of a Wikipedia edition.
+	 * @return The identifier of the last page in the segments already extracted, or {@code -1} if no segment has 
+	 * been extracted.
+	 */
+	public long linksLastPageExtracted(String edition) {
+		Long lastPage = this.linksLastPage.get(edition);
+		return lastPage == null ? -1 : lastPage;
+	}
+	
 	/**
 	 * Returns whether the cross-links have already been extracted from the dump file of a 
 	 * specific edition.
@@ -291,17 +453,67 @@ public class CheckPoint {
 		return this.crossLinksExtracted.contains(edition);
 	} 
 	
+	/**
+	 * Returns whether the graph of a specific edition has already been imported into the Neo4j database.
+	 * @param edition The code of the language of a Wikipedia edition.
+	 * @return {@code true} if the graph of the specified edition has already been imported, {@code false} otherwise.
+	 */
+	public boolean isGraphImported(String edition) {
+		return this.graphImported.contains(edition);
+	}
+	
+	/**
+	 * Returns whether the indexes of the Neo4j database have already been created.
+	 * @return {@code true} if the indexes have already been created, {@code false} otherwise.
+	 */
+	public boolean isIndexesCreated() {
+		return this.indexesCreated;
+	}
+	
+	/**
+	 * Returns whether the cross-links of a specific edition have already been imported into the Neo4j database.
+	 * @param edition The code of the language of a Wikipedia edition.
+	 * @return {@code true} if the cross-links of the specified edition have already been imported, 
+	 * {@code false} otherwise.
+	 */
+	public boolean isCrossLinksImported(String edition) {
+		return this.crossLinksImported.contains(edition);
+	}
+	
+	/**
+	 * Returns the number of units of the import phase (graphs of the editions, indexes and cross-links) that 
+	 * have been committed to the Neo4j database.
+	 * The units are committed together with a snapshot of the database, so this number identifies the snapshot 
+	 * from which an interrupted import resumes.
+	 * @return The number of units committed to the Neo4j database.
+	 */
+	public int importedUnits() {
+		return this.graphImported.size() + (this.indexesCreated ? 1 : 0) + this.crossLinksImported.size();
+	}
+	
 	/**
 	 * Reads the checkpoint from file.
+	 * A last line that is not terminated, which is left by a shutdown in the middle of a write, 
+	 * is discarded and truncated from the file.
 	 * @return {@code true} if the file exists, {@code false} otherwise.
 	 * @throws IOException when some I/O error occurs while reading the checkpoint file.
 	 */
 	public boolean load() throws IOException {
 		if ( !this.checkpointFile.exists() )
 			return false;
-		BufferedReader bd = new BufferedReader(new FileReader(this.checkpointFile));
-		String line;
-		while ( (line = bd.readLine()) != null ) {
+		byte[] content = Files.readAllBytes(this.checkpointFile.toPath());
+		int length = content.length;
+		while ( length > 0 && content[length - 1] != '\n' )
+			length -= 1;
+		if ( length < content.length ) {
+			RandomAccessFile file = new RandomAccessFile(this.checkpointFile, "rw");
+			file.setLength(length);
+			file.getFD().sync();
+			file.close();
+		}
+		for ( String line : new String(content, 0, length, StandardCharsets.UTF_8).split("\n") ) {
+			if ( line.isEmpty() )
+				continue;
 			String[] values = line.split("\t");
 			CheckPointFlag flag = CheckPointFlag.valueOf(values[0]);
 			String object = values[1];
@@ -326,25 +538,57 @@ public class CheckPoint {
 				break;
 			case namespacesExtracted:
 				addNamespacesExtracted(object, false);
+				break;
+			case linksSegmentExtracted:
+				String[] segment = object.split(",");
+				addLinksSegmentExtracted(segment[0], Integer.parseInt(segment[1]), Long.parseLong(segment[2]), false);
+				break;
+			case graphImported:
+				addGraphImported(object, false);
+				break;
+			case indexesCreated:
+				addIndexesCreated(false);
+				break;
+			case crossLinksImported:
+				addCrossLinksImported(object, false);
+				break;
+			case importCommitted:
+				addImportCommitted(Arrays.asList(object.split(",")), false);
+				break;
 			default:
 				break;
 			}	
 		}
-		bd.close();
 		return true;
 	}
 	
 	/**
 	 * Writes a checkpoint to file.
+	 * The line is appended with a single write and forced to the disk before this method returns, so that 
+	 * a checkpoint is either entirely in the file or discarded by {@link #load()}.
 	 * 
 	 * @param flag The flag of the checkpoint.
 	 * @param object The object of the checkpoint.
 	 * @throws IOException when a I/O error occurs while writing the file.
 	 */
 	private synchronized void save(CheckPointFlag flag, String object) throws IOException {
-		BufferedWriter bw = new BufferedWriter(new FileWriter(checkpointFile, true));
-		bw.write(flag.name() + "\t" + object + "\n");
-		bw.close();
+		CheckPointWriteEvent event = null;
+		if ( FlightEvents.ENABLED ) {
+			event = new CheckPointWriteEvent();
+			event.begin();
+		}
+		FileOutputStream fout = new FileOutputStream(checkpointFile, true);
+		try {
+			fout.write((flag.name() + "\t" + object + "\n").getBytes(StandardCharsets.UTF_8));
+			fout.getFD().sync();
+		} finally {
+			fout.close();
+		}
+		if ( event != null && event.shouldCommit() ) {
+			event.flag = flag.name();
+			event.object = object;
+			event.commit();
+		}
 	}
 	
 	
@@ -65,7 +65,34 @@ public enum CheckPointFlag {
 	/**
 	 * Indicates that the namespaces have been extracted.
 	 */
-	namespacesExtracted
+	namespacesExtracted,
+	
+	/**
+	 * Indicates that a segment of the intermediate file has been extracted from the XML file 
+	 * of a Wikipedia edition.
+	 */
+	linksSegmentExtracted,
+	
+	/**
+	 * Indicates that the graph of a Wikipedia edition has been imported into the Neo4j database.
+	 */
+	graphImported,
+	
+	/**
+	 * Indicates that the indexes of the Neo4j database have been created.
+	 */
+	indexesCreated,
+	
+	/**
+	 * Indicates that the cross-links of a Wikipedia edition have been imported into the Neo4j database.
+	 */
+	crossLinksImported,
+	
+	/**
+	 * Indicates that some units of the import phase (graphs, indexes, cross-links) have been committed together 
+	 * to a snapshot of the Neo4j database.
+	 */
+	importCommitted
 	
 	
 }
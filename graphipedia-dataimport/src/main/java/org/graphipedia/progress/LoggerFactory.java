@@ -21,10 +21,12 @@
 //
 package org.graphipedia.progress;
 
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.logging.ConsoleHandler;
+import java.util.logging.FileHandler;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.LogRecord;
@@ -33,24 +35,73 @@ import java.util.logging.Logger;
 
 /**
  * This class is used to create a simple logger that displays info messages
- * on the console. 
+ * on the console and, optionally, writes them to a file.
+ * All the loggers share an {@link AsyncHandler}, so that logging never blocks the thread that logs.
  *
  */
 public class LoggerFactory {
+
+	/**
+	 * The maximum number of messages waiting to be written.
+	 */
+	private static final int QUEUE_CAPACITY = 10000;
+
+	/**
+	 * The handler shared by all the loggers, created with the first logger.
+	 */
+	private static AsyncHandler handler;
 	
 	/**
-	 * Creates a logger with the given name.
+	 * Creates a logger with the given name, or returns it if it has already been created.
 	 * @param name The name of the logger.
 	 * @return A logger.
 	 */
-	public static Logger createLogger(String name) {
+	public static synchronized Logger createLogger(String name) {
 		Logger logger = Logger.getLogger(name);
 		logger.setUseParentHandlers(false);
-		CustomFormatter formatter = new CustomFormatter();
-        ConsoleHandler handler = new ConsoleHandler();
-        handler.setFormatter(formatter);
-        logger.addHandler(handler);
-        return logger;
+		if ( logger.getHandlers().length > 0 ) // a logger created twice would print each message twice.
+			return logger;
+		logger.addHandler(handler());
+		return logger;
+	}
+
+	/**
+	 * Writes the messages of all the loggers to a file too, in addition to the console.
+	 * The file is rotated when it reaches the size limit: the messages are written to a sequence of files, 
+	 * the oldest of which is deleted.
+	 * @param pattern The pattern of the names of the files, as in {@link FileHandler} 
+	 * (e.g., {@code graphipedia-%g.log}, where {@code %g} is the number of the file in the sequence).
+	 * @param limit The maximum size of a file, in bytes ({@code 0} for no limit).
+	 * @param count The number of files in the sequence.
+	 * @throws IOException when the file cannot be opened.
+	 */
+	public static synchronized void logToFile(String pattern, long limit, int count) throws IOException {
+		FileHandler file = new FileHandler(pattern, (int)Math.min(limit, Integer.MAX_VALUE), count, true);
+		file.setEncoding("UTF-8");
+		file.setFormatter(new CustomFormatter());
+		handler().addTarget(file);
+	}
+
+	/**
+	 * Returns the handler shared by all the loggers, created if needed; the messages still waiting to be written 
+	 * are written when the virtual machine shuts down.
+	 * @return The handler shared by all the loggers.
+	 */
+	private static AsyncHandler handler() {
+		if ( handler == null ) {
+			handler = new AsyncHandler(QUEUE_CAPACITY);
+			ConsoleHandler console = new ConsoleHandler();
+			console.setFormatter(new CustomFormatter());
+			handler.addTarget(console);
+			final AsyncHandler shutdownHandler = handler;
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					shutdownHandler.close();
+				}
+			});
+		}
+		return handler;
 	}
 }
 
@@ -61,14 +112,16 @@ public class LoggerFactory {
 class CustomFormatter extends Formatter {
 
 	/**
-	 * Date format.
+	 * Date format, which (unlike {@code SimpleDateFormat}) can be shared by threads.
 	 */
-	private static final DateFormat df = new SimpleDateFormat("dd/MM/yyyy hh:mm:ss.SSS");
+	private static final DateTimeFormatter df = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss.SSS")
+			.withZone(ZoneId.systemDefault());
 
 	@Override
     public String format(LogRecord record) {
         StringBuilder builder = new StringBuilder(1000);
-        builder.append(df.format(new Date(record.getMillis()))).append(" - ");
+        df.formatTo(Instant.ofEpochMilli(record.getMillis()), builder);
+        builder.append(" - ");
         builder.append("[").append(record.getLoggerName()).append("] - ");
         builder.append(formatMessage(record));
         builder.append("\n");
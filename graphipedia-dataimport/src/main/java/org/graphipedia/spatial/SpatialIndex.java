@@ -0,0 +1,416 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.spatial;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * A spatial index of the Wikipedia articles that describe spatial entities (on Earth).
+ * The index divides the surface of the Earth into a regular grid of {@code GRID_SIZE} x {@code GRID_SIZE} cells 
+ * (in latitude and longitude) and stores the points sorted by cell, row by row. 
+ * The index is memory-mapped from the file written by {@link SpatialIndexBuilder}, so as a query only touches the
+ * rows of cells that intersect the query region.
+ * 
+ * The queries return the identifiers of the nodes in the Neo4j database that correspond to the articles.
+ */
+public class SpatialIndex {
+
+	/**
+	 * The magic number at the beginning of a file that contains a spatial index.
+	 */
+	static final int MAGIC_NUMBER = 0x47505349;
+
+	/**
+	 * The number of cells of the grid along each axis.
+	 */
+	static final int GRID_SIZE = 4096;
+
+	/**
+	 * The mean radius of the Earth (in meters).
+	 */
+	public static final double EARTH_RADIUS = 6371008.8;
+
+	/**
+	 * The radius of the first search of a k-nearest neighbors query (in meters).
+	 */
+	private static final double INITIAL_SEARCH_RADIUS = 1000.;
+
+	/**
+	 * The cells of the points, in increasing order.
+	 */
+	private final IntBuffer cells;
+
+	/**
+	 * The latitudes of the points.
+	 */
+	private final DoubleBuffer latitudes;
+
+	/**
+	 * The longitudes of the points.
+	 */
+	private final DoubleBuffer longitudes;
+
+	/**
+	 * The identifiers of the nodes in the Neo4j database.
+	 */
+	private final LongBuffer nodeIds;
+
+	/**
+	 * The number of points in this index.
+	 */
+	private final int size;
+
+	/**
+	 * Creates a new index.
+	 * @param size The number of points.
+	 * @param data The buffer that contains the cells, the latitudes, the longitudes and the node identifiers, in this order.
+	 */
+	private SpatialIndex(int size, ByteBuffer data) {
+		this.size = size;
+		this.cells = slice(data, 4 * size).asIntBuffer();
+		this.latitudes = slice(data, 8 * size).asDoubleBuffer();
+		this.longitudes = slice(data, 8 * size).asDoubleBuffer();
+		this.nodeIds = slice(data, 8 * size).asLongBuffer();
+	}
+
+	/**
+	 * Returns the next {@code length} bytes of a buffer and advances its position.
+	 * @param data A buffer.
+	 * @param length The number of bytes.
+	 * @return The next {@code length} bytes of {@code data}.
+	 */
+	private static ByteBuffer slice(ByteBuffer data, int length) {
+		ByteBuffer slice = data.slice();
+		slice.limit(length);
+		data.position(data.position() + length);
+		return slice;
+	}
+
+	/**
+	 * Opens the spatial index written to a file.
+	 * @param file The file written by {@link SpatialIndexBuilder}.
+	 * @return The spatial index.
+	 * @throws IOException when something goes wrong while reading the file or the file does not contain a spatial index.
+	 */
+	public static SpatialIndex open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if ( raf.readInt() != MAGIC_NUMBER )
+				throw new IOException("Not a spatial index: " + file.getAbsolutePath());
+			int size = raf.readInt();
+			long dataOffset = raf.getFilePointer();
+			MappedByteBuffer data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, dataOffset, raf.length() - dataOffset);
+			return new SpatialIndex(size, data);
+		} finally {
+			raf.close(); // the mapping remains valid after the file is closed.
+		}
+	}
+
+	/**
+	 * Returns the number of points in this index.
+	 * @return The number of points in this index.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the cell of the grid that contains a point.
+	 * @param latitude The latitude of the point.
+	 * @param longitude The longitude of the point.
+	 * @return The cell of the grid that contains the point.
+	 */
+	static int cell(double latitude, double longitude) {
+		return row(latitude) * GRID_SIZE + column(longitude);
+	}
+
+	/**
+	 * Returns the row of the grid that contains a latitude.
+	 * @param latitude A latitude.
+	 * @return The row of the grid that contains the latitude.
+	 */
+	private static int row(double latitude) {
+		int row = (int)((latitude + 90.) / 180. * GRID_SIZE);
+		return Math.max(0, Math.min(GRID_SIZE - 1, row));
+	}
+
+	/**
+	 * Returns the column of the grid that contains a longitude.
+	 * @param longitude A longitude.
+	 * @return The column of the grid that contains the longitude.
+	 */
+	private static int column(double longitude) {
+		int column = (int)((longitude + 180.) / 360. * GRID_SIZE);
+		return Math.max(0, Math.min(GRID_SIZE - 1, column));
+	}
+
+	/**
+	 * Returns the nodes in a bounding box.
+	 * If {@code minLongitude} is greater than {@code maxLongitude}, the bounding box crosses the antimeridian.
+	 * @param minLatitude The minimum latitude of the bounding box.
+	 * @param minLongitude The minimum (western) longitude of the bounding box.
+	 * @param maxLatitude The maximum latitude of the bounding box.
+	 * @param maxLongitude The maximum (eastern) longitude of the bounding box.
+	 * @return The identifiers in the Neo4j database of the nodes in the bounding box.
+	 */
+	public long[] boundingBox(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude) {
+		final NodeList result = new NodeList();
+		scan(minLatitude, minLongitude, maxLatitude, maxLongitude, new PointVisitor() {
+			@Override
+			public void visit(int index) {
+				result.add(index, 0.);
+			}
+		});
+		return result.nodeIds();
+	}
+
+	/**
+	 * Returns the {@code k} nodes nearest to a point, sorted by increasing (great-circle) distance.
+	 * @param latitude The latitude of the point.
+	 * @param longitude The longitude of the point.
+	 * @param k The number of nodes to return.
+	 * @return The identifiers in the Neo4j database of the {@code k} nodes nearest to the point (less if the 
+	 * index contains less than {@code k} points).
+	 */
+	public long[] nearest(double latitude, double longitude, int k) {
+		double radius = INITIAL_SEARCH_RADIUS;
+		while (true) {
+			NodeList candidates = within(latitude, longitude, radius);
+			if ( candidates.size >= k || radius >= Math.PI * EARTH_RADIUS ) {
+				candidates.sortByDistance();
+				return Arrays.copyOf(candidates.nodeIds(), Math.min(k, candidates.size));
+			}
+			radius *= 4.;
+		}
+	}
+
+	/**
+	 * Returns the nodes within a distance from a point.
+	 * @param latitude The latitude of the point.
+	 * @param longitude The longitude of the point.
+	 * @param radius The distance from the point (in meters).
+	 * @param sorted Whether the nodes must be sorted by increasing distance from the point.
+	 * @return The identifiers in the Neo4j database of the nodes within {@code radius} meters of the point.
+	 */
+	public long[] within(double latitude, double longitude, double radius, boolean sorted) {
+		NodeList result = within(latitude, longitude, radius);
+		if ( sorted )
+			result.sortByDistance();
+		return result.nodeIds();
+	}
+
+	/**
+	 * Returns the nodes within a distance from a point, along with their distance.
+	 * The bounding box of the circle is computed as described by J. P. Matuschek,
+	 * "Finding Points Within a Distance of a Latitude/Longitude Using Bounding Coordinates".
+	 * @param latitude The latitude of the point.
+	 * @param longitude The longitude of the point.
+	 * @param radius The distance from the point (in meters).
+	 * @return The nodes within {@code radius} meters of the point.
+	 */
+	private NodeList within(final double latitude, final double longitude, final double radius) {
+		double angularRadius = Math.toDegrees(radius / EARTH_RADIUS);
+		double minLatitude = latitude - angularRadius;
+		double maxLatitude = latitude + angularRadius;
+		double minLongitude = -180.;
+		double maxLongitude = 180.;
+		if ( minLatitude > -90. && maxLatitude < 90. ) {
+			double deltaLongitude = Math.toDegrees(Math.asin(Math.sin(Math.toRadians(angularRadius)) / 
+					Math.cos(Math.toRadians(latitude))));
+			minLongitude = longitude - deltaLongitude;
+			maxLongitude = longitude + deltaLongitude;
+			if ( minLongitude < -180. )
+				minLongitude += 360.;
+			if ( maxLongitude > 180. )
+				maxLongitude -= 360.;
+			if ( deltaLongitude >= 180. ) {
+				minLongitude = -180.;
+				maxLongitude = 180.;
+			}
+		}
+		final NodeList result = new NodeList();
+		scan(Math.max(-90., minLatitude), minLongitude, Math.min(90., maxLatitude), maxLongitude, new PointVisitor() {
+			@Override
+			public void visit(int index) {
+				double distance = distance(latitude, longitude, latitudes.get(index), longitudes.get(index));
+				if ( distance <= radius )
+					result.add(index, distance);
+			}
+		});
+		return result;
+	}
+
+	/**
+	 * Visits the points in a bounding box.
+	 * @param minLatitude The minimum latitude of the bounding box.
+	 * @param minLongitude The minimum (western) longitude of the bounding box.
+	 * @param maxLatitude The maximum latitude of the bounding box.
+	 * @param maxLongitude The maximum (eastern) longitude of the bounding box.
+	 * @param visitor The visitor of the points.
+	 */
+	private void scan(double minLatitude, double minLongitude, double maxLatitude, double maxLongitude, PointVisitor visitor) {
+		if ( minLongitude > maxLongitude ) { // the bounding box crosses the antimeridian.
+			scan(minLatitude, minLongitude, maxLatitude, 180., visitor);
+			scan(minLatitude, -180., maxLatitude, maxLongitude, visitor);
+			return;
+		}
+		int minColumn = column(minLongitude);
+		int maxColumn = column(maxLongitude);
+		for ( int row = row(minLatitude); row <= row(maxLatitude); row += 1 ) {
+			int lastCell = row * GRID_SIZE + maxColumn;
+			for ( int i = firstIndex(row * GRID_SIZE + minColumn); i < size && cells.get(i) <= lastCell; i += 1 ) {
+				double latitude = latitudes.get(i);
+				double longitude = longitudes.get(i);
+				if ( latitude >= minLatitude && latitude <= maxLatitude && longitude >= minLongitude && longitude <= maxLongitude )
+					visitor.visit(i);
+			}
+		}
+	}
+
+	/**
+	 * Returns the position of the first point in a cell greater than or equal to the given cell.
+	 * @param cell A cell of the grid.
+	 * @return The position of the first point in a cell greater than or equal to {@code cell}.
+	 */
+	private int firstIndex(int cell) {
+		int low = 0;
+		int high = size;
+		while ( low < high ) {
+			int middle = (low + high) >>> 1;
+			if ( cells.get(middle) < cell )
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the great-circle distance between two points (haversine formula).
+	 * @param latitude1 The latitude of the first point.
+	 * @param longitude1 The longitude of the first point.
+	 * @param latitude2 The latitude of the second point.
+	 * @param longitude2 The longitude of the second point.
+	 * @return The distance between the two points (in meters).
+	 */
+	public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+		double deltaLatitude = Math.toRadians(latitude2 - latitude1);
+		double deltaLongitude = Math.toRadians(longitude2 - longitude1);
+		double a = Math.sin(deltaLatitude / 2) * Math.sin(deltaLatitude / 2) + 
+				Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * 
+				Math.sin(deltaLongitude / 2) * Math.sin(deltaLongitude / 2);
+		return 2 * EARTH_RADIUS * Math.asin(Math.min(1., Math.sqrt(a)));
+	}
+
+	/**
+	 * Visits the points of the index that match a query.
+	 */
+	private interface PointVisitor {
+
+		/**
+		 * Visits a point.
+		 * @param index The position of the point in the index.
+		 */
+		void visit(int index);
+	}
+
+	/**
+	 * The list of nodes returned by a query.
+	 */
+	private class NodeList {
+
+		/**
+		 * The positions in the index of the points returned by the query.
+		 */
+		private int[] indexes = new int[16];
+
+		/**
+		 * The distances of the points from the query point, if any.
+		 */
+		private double[] distances = new double[16];
+
+		/**
+		 * The number of points returned by the query.
+		 */
+		private int size = 0;
+
+		/**
+		 * Adds a point to this list.
+		 * @param index The position of the point in the index.
+		 * @param distance The distance of the point from the query point.
+		 */
+		void add(int index, double distance) {
+			if ( size == indexes.length ) {
+				indexes = Arrays.copyOf(indexes, size * 2);
+				distances = Arrays.copyOf(distances, size * 2);
+			}
+			indexes[size] = index;
+			distances[size] = distance;
+			size += 1;
+		}
+
+		/**
+		 * Sorts this list by increasing distance from the query point.
+		 */
+		void sortByDistance() {
+			Integer[] positions = new Integer[size];
+			for ( int i = 0; i < size; i += 1 )
+				positions[i] = i;
+			Arrays.sort(positions, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a, Integer b) {
+					return Double.compare(distances[a], distances[b]);
+				}
+			});
+			int[] sortedIndexes = new int[size];
+			double[] sortedDistances = new double[size];
+			for ( int i = 0; i < size; i += 1 ) {
+				sortedIndexes[i] = indexes[positions[i]];
+				sortedDistances[i] = distances[positions[i]];
+			}
+			indexes = sortedIndexes;
+			distances = sortedDistances;
+		}
+
+		/**
+		 * Returns the identifiers in the Neo4j database of the nodes in this list.
+		 * @return The identifiers of the nodes in this list.
+		 */
+		long[] nodeIds() {
+			long[] result = new long[size];
+			for ( int i = 0; i < size; i += 1 )
+				result[i] = nodeIds.get(indexes[i]);
+			return result;
+		}
+	}
+
+}
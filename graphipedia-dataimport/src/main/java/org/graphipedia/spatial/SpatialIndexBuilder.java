@@ -0,0 +1,124 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.spatial;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Builds a {@link SpatialIndex} and writes it to a file.
+ * The points are sorted by the cell of the grid of the index they fall in, row by row, so as the points of 
+ * a row of cells are contiguous in the file.
+ */
+public class SpatialIndexBuilder {
+
+	/**
+	 * The latitudes of the points added so far.
+	 */
+	private double[] latitudes;
+
+	/**
+	 * The longitudes of the points added so far.
+	 */
+	private double[] longitudes;
+
+	/**
+	 * The identifiers of the nodes added so far.
+	 */
+	private long[] nodeIds;
+
+	/**
+	 * The number of points added so far.
+	 */
+	private int size;
+
+	/**
+	 * Creates a new builder.
+	 */
+	public SpatialIndexBuilder() {
+		this.latitudes = new double[1024];
+		this.longitudes = new double[1024];
+		this.nodeIds = new long[1024];
+		this.size = 0;
+	}
+
+	/**
+	 * Adds a node to the index. 
+	 * Points with invalid coordinates are ignored.
+	 * @param latitude The latitude of the spatial entity described by the node.
+	 * @param longitude The longitude of the spatial entity described by the node.
+	 * @param nodeId The identifier of the node in the Neo4j database.
+	 * @return {@code true} if the node has been added, {@code false} if its coordinates are not valid.
+	 */
+	public boolean add(double latitude, double longitude, long nodeId) {
+		if ( Double.isNaN(latitude) || Double.isNaN(longitude) || Math.abs(latitude) > 90. || Math.abs(longitude) > 180. )
+			return false;
+		if ( size == nodeIds.length ) {
+			int capacity = size * 2;
+			latitudes = Arrays.copyOf(latitudes, capacity);
+			longitudes = Arrays.copyOf(longitudes, capacity);
+			nodeIds = Arrays.copyOf(nodeIds, capacity);
+		}
+		latitudes[size] = latitude;
+		longitudes[size] = longitude;
+		nodeIds[size] = nodeId;
+		size += 1;
+		return true;
+	}
+
+	/**
+	 * Returns the number of nodes added so far.
+	 * @return The number of nodes added so far.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Writes the index to a file.
+	 * @param file The file where the index is written.
+	 * @throws IOException when something goes wrong while writing the file.
+	 */
+	public void write(File file) throws IOException {
+		long[] order = new long[size];
+		for ( int i = 0; i < size; i += 1 )
+			order[i] = ((long)SpatialIndex.cell(latitudes[i], longitudes[i]) << 32) | i;
+		Arrays.sort(order);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		out.writeInt(SpatialIndex.MAGIC_NUMBER);
+		out.writeInt(size);
+		for ( int i = 0; i < size; i += 1 )
+			out.writeInt((int)(order[i] >>> 32));
+		for ( int i = 0; i < size; i += 1 )
+			out.writeDouble(latitudes[(int)order[i]]);
+		for ( int i = 0; i < size; i += 1 )
+			out.writeDouble(longitudes[(int)order[i]]);
+		for ( int i = 0; i < size; i += 1 )
+			out.writeLong(nodeIds[(int)order[i]]);
+		out.close();
+	}
+
+}
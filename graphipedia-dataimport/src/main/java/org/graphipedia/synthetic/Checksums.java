@@ -0,0 +1,94 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.synthetic;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The SHA-1 checksums of the files of a synthetic dump, written to the checksum file of the dump 
+ * (see {@link org.graphipedia.download.DumpSource#SHA1_FILE}).
+ */
+class Checksums {
+
+	/**
+	 * The hexadecimal digests of the files, indexed by their names.
+	 */
+	private final Map<String, String> digests;
+
+	/**
+	 * Creates an empty list of checksums.
+	 */
+	Checksums() {
+		this.digests = new TreeMap<String, String>();
+	}
+
+	/**
+	 * Wraps the stream of a file so that its SHA-1 digest is computed while the file is written.
+	 * @param output The stream of the file.
+	 * @return The stream that computes the digest.
+	 */
+	DigestOutputStream digest(OutputStream output) {
+		try {
+			return new DigestOutputStream(output, MessageDigest.getInstance("SHA-1"));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Records the digest of a file that has been written.
+	 * @param file The file.
+	 * @param digest The stream that computed the digest of the file.
+	 */
+	void record(File file, DigestOutputStream digest) {
+		StringBuilder hex = new StringBuilder();
+		for ( byte b : digest.getMessageDigest().digest() )
+			hex.append(String.format("%02x", b & 0xff));
+		digests.put(file.getName(), hex.toString());
+	}
+
+	/**
+	 * Writes the checksums, in the format of {@code sha1sum}.
+	 * @param file The checksum file.
+	 * @throws IOException when the file cannot be written.
+	 */
+	void write(File file) throws IOException {
+		BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+		try {
+			for ( Map.Entry<String, String> digest : digests.entrySet() )
+				bw.write(digest.getValue() + "  " + digest.getKey() + "\n");
+		} finally {
+			bw.close();
+		}
+	}
+
+}
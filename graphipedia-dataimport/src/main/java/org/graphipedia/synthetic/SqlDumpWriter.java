@@ -0,0 +1,158 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.synthetic;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the dump of a table in the format of {@code mysqldump}, compressed with gzip: the {@code CREATE TABLE} 
+ * statement, then the tuples in extended {@code INSERT INTO} statements, one statement per line.
+ * The SHA-1 digest of the compressed file is recorded in the {@link Checksums} of the dump.
+ */
+class SqlDumpWriter implements Closeable {
+
+	/**
+	 * The maximum length (in characters) of an {@code INSERT INTO} statement.
+	 */
+	private static final int STATEMENT_LENGTH = 1 << 20;
+
+	/**
+	 * The dump file.
+	 */
+	private final File file;
+
+	/**
+	 * The name of the table.
+	 */
+	private final String table;
+
+	/**
+	 * The digest of the compressed file.
+	 */
+	private final DigestOutputStream digest;
+
+	/**
+	 * The writer of the uncompressed file.
+	 */
+	private final Writer writer;
+
+	/**
+	 * The checksums of the dump, where the digest of the file is recorded when it is closed.
+	 */
+	private final Checksums checksums;
+
+	/**
+	 * The tuples of the current {@code INSERT INTO} statement.
+	 */
+	private final StringBuilder statement;
+
+	/**
+	 * Creates the dump file of a table and writes its {@code CREATE TABLE} statement.
+	 * @param file The dump file.
+	 * @param table The name of the table.
+	 * @param columns The definitions of the columns (e.g., {@code `page_id` int(8) unsigned NOT NULL}).
+	 * @param checksums The checksums of the dump.
+	 * @throws IOException when the file cannot be written.
+	 */
+	SqlDumpWriter(File file, String table, String[] columns, Checksums checksums) throws IOException {
+		this.file = file;
+		this.table = table;
+		this.checksums = checksums;
+		this.digest = checksums.digest(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		this.writer = new OutputStreamWriter(new GZIPOutputStream(digest, 1 << 16), "UTF-8");
+		this.statement = new StringBuilder();
+		writer.write("-- MySQL dump 10.13  Distrib 5.5.46, for debian-linux-gnu (x86_64)\n--\n");
+		writer.write("-- Table structure for table `" + table + "`\n--\n\n");
+		writer.write("DROP TABLE IF EXISTS `" + table + "`;\n");
+		writer.write("CREATE TABLE `" + table + "` (\n");
+		for ( int i = 0; i < columns.length; i += 1 )
+			writer.write("  " + columns[i] + (i < columns.length - 1 ? ",\n" : "\n"));
+		writer.write(") ENGINE=InnoDB DEFAULT CHARSET=binary;\n\n");
+		writer.write("--\n-- Dumping data for table `" + table + "`\n--\n\n");
+	}
+
+	/**
+	 * Writes a tuple.
+	 * @param values The values of the columns: numbers, strings (quoted and escaped) or {@code null}.
+	 * @throws IOException when the file cannot be written.
+	 */
+	void row(Object... values) throws IOException {
+		statement.append(statement.length() == 0 ? "INSERT INTO `" + table + "` VALUES (" : ",(");
+		for ( int i = 0; i < values.length; i += 1 ) {
+			if ( i > 0 )
+				statement.append(',');
+			if ( values[i] == null )
+				statement.append("NULL");
+			else if ( values[i] instanceof String )
+				quote((String)values[i]);
+			else
+				statement.append(values[i]);
+		}
+		statement.append(')');
+		if ( statement.length() >= STATEMENT_LENGTH )
+			flushStatement();
+	}
+
+	/**
+	 * Appends a quoted and escaped string to the current statement.
+	 * @param value The string.
+	 */
+	private void quote(String value) {
+		statement.append('\'');
+		for ( int i = 0; i < value.length(); i += 1 ) {
+			char c = value.charAt(i);
+			if ( c == '\'' || c == '\\' )
+				statement.append('\\');
+			statement.append(c);
+		}
+		statement.append('\'');
+	}
+
+	/**
+	 * Writes the current {@code INSERT INTO} statement, if any.
+	 * @throws IOException when the file cannot be written.
+	 */
+	private void flushStatement() throws IOException {
+		if ( statement.length() == 0 )
+			return;
+		statement.append(";\n");
+		writer.write(statement.toString());
+		statement.setLength(0);
+	}
+
+	@Override
+	public void close() throws IOException {
+		flushStatement();
+		writer.write("\n-- Dump completed\n");
+		writer.close();
+		checksums.record(file, digest);
+	}
+
+}
@@ -0,0 +1,461 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.synthetic;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.DigestOutputStream;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.codehaus.stax2.XMLOutputFactory2;
+import org.graphipedia.GraphipediaSettings;
+import org.graphipedia.download.DumpSource;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.ProgressReporter;
+import org.graphipedia.progress.LoggerFactory;
+import org.graphipedia.wikipedia.Namespace;
+
+/**
+ * Generates synthetic dumps of Wikipedia editions, laid out like the Wikimedia tree 
+ * ({@code <wiki>/<date>/<wiki>-<date>-<file>}), so that the whole import can be run at any scale without network access, 
+ * with the option {@code graphipedia.dumpSource} set to the output directory.
+ * For each edition, the generator writes the XML dump of the pages, the SQL dumps of the tables {@code page}, 
+ * {@code pagelinks}, {@code categorylinks}, {@code redirect}, {@code page_props}, {@code geo_tags} and {@code langlinks}, 
+ * the SHA-1 checksums of the files and a {@code dumpruninfo.txt} file where all the jobs are done.
+ * The XML dump and the SQL dumps describe the same pages, and the articles of the editions are linked to each other.
+ * The generator is configured with the options of {@link SyntheticDumpSettings}.
+ */
+public class SyntheticDumpGenerator {
+
+	/**
+	 * The name of the uncompressed XML dump file, written when the XML dump is not compressed.
+	 */
+	public static final String UNCOMPRESSED_XML_FILE = "pages-articles.xml";
+
+	/**
+	 * The jobs listed in {@code dumpruninfo.txt}.
+	 */
+	private static final String[] JOBS = new String[] { "articlesdump", "pagetable", "pagelinkstable", 
+		"categorylinkstable", "redirecttable", "pagepropstable", "geotagstable", "langlinkstable" };
+
+	/**
+	 * The namespaces written in the XML dump, other than the category namespace, whose name depends on the language.
+	 */
+	private static final Map<Integer, String> NAMESPACES = new LinkedHashMap<Integer, String>();
+
+	static {
+		NAMESPACES.put(-2, "Media");
+		NAMESPACES.put(-1, "Special");
+		NAMESPACES.put(Namespace.MAIN, "");
+		NAMESPACES.put(Namespace.TALK, "Talk");
+		NAMESPACES.put(Namespace.USER, "User");
+		NAMESPACES.put(Namespace.USER_TALK, "User talk");
+		NAMESPACES.put(Namespace.WIKIPEDIA, "Wikipedia");
+		NAMESPACES.put(Namespace.WIKIPEDIA_TALK, "Wikipedia talk");
+		NAMESPACES.put(Namespace.FILE, "File");
+		NAMESPACES.put(Namespace.FILE_TALK, "File talk");
+		NAMESPACES.put(Namespace.MEDIAWIKI, "MediaWiki");
+		NAMESPACES.put(Namespace.MEDIAWIKI_TALK, "MediaWiki talk");
+		NAMESPACES.put(Namespace.TEMPLATE, "Template");
+		NAMESPACES.put(Namespace.TEMPLATE_TALK, "Template talk");
+		NAMESPACES.put(Namespace.HELP, "Help");
+		NAMESPACES.put(Namespace.HELP_TALK, "Help talk");
+		NAMESPACES.put(Namespace.CATEGORY, null);
+		NAMESPACES.put(Namespace.CATEGORY_TALK, null);
+		NAMESPACES.put(Namespace.PORTAL, "Portal");
+	}
+
+	/**
+	 * Object used to write the XML dumps.
+	 */
+	private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory2.newInstance();
+
+	/**
+	 * The logger of the generator.
+	 */
+	private Logger logger;
+
+	/**
+	 * The settings of the generator.
+	 */
+	private SyntheticDumpSettings settings;
+
+	/**
+	 * The directory where the dumps are written.
+	 */
+	private File outputDirectory;
+
+	/**
+	 * The models of the editions to generate, by language.
+	 */
+	private Map<String, SyntheticWiki> wikis;
+
+	/**
+	 * Creates a generator.
+	 * @param settings The settings of the generator.
+	 * @param outputDirectory The directory where the dumps are written.
+	 */
+	public SyntheticDumpGenerator(SyntheticDumpSettings settings, File outputDirectory) {
+		this.logger = LoggerFactory.createLogger("Synthetic dumps");
+		this.settings = settings;
+		this.outputDirectory = outputDirectory;
+		this.wikis = new LinkedHashMap<String, SyntheticWiki>();
+	}
+
+	/**
+	 * Entry point of the program.
+	 * @param args Command-line arguments.
+	 */
+	public static void main(String[] args) {
+		SyntheticDumpSettings settings = new SyntheticDumpSettings();
+		settings.load(System.getProperties());
+		SyntheticDumpGenerator generator = new SyntheticDumpGenerator(settings, new File(args.length > 0 ? args[0] : "."));
+		Logger logger = generator.logger;
+		if ( args.length != 2 ) {
+			logger.severe("USAGE: java -classpath graphipedia-dataimport.jar org.graphipedia.synthetic.SyntheticDumpGenerator "
+					+ "<output directory> <langlist>\n"
+					+ "langlist is the list of the codes of the languages of the editions to generate, separated by a comma (e.g., en,fr,it).");
+			System.exit(-1);
+		}
+		Map<String, String> dpRootCategories = new HashMap<String, String>();
+		Map<String, String> itRootCategories = new HashMap<String, String>();
+		try {
+			ClassLoader classLoader = SyntheticDumpGenerator.class.getClassLoader();
+			loadResource(classLoader.getResourceAsStream("dp-root-categories.csv"), dpRootCategories);
+			loadResource(classLoader.getResourceAsStream("it-root-categories.csv"), itRootCategories);
+		} catch (IOException e) {
+			logger.severe("Impossible to load the root categories.");
+			e.printStackTrace();
+			System.exit(-1);
+		}
+		for ( String language : args[1].toLowerCase().split(",") ) {
+			String dpRootCategory = dpRootCategories.get(language);
+			String itRootCategory = itRootCategories.get(language);
+			if ( dpRootCategory == null )
+				dpRootCategory = "Category:Disambiguation pages";
+			if ( itRootCategory == null )
+				itRootCategory = dpRootCategory.substring(0, dpRootCategory.indexOf(':')) + ":Infobox templates";
+			generator.addEdition(language, dpRootCategory, itRootCategory);
+		}
+		ProgressReporter reporter = new ProgressReporter(MetricsRegistry.global(), logger, ProgressReporter.DEFAULT_INTERVAL);
+		reporter.start();
+		try {
+			generator.generate();
+		} catch (Exception e) {
+			logger.severe("Problem while generating the synthetic dumps");
+			e.printStackTrace();
+			System.exit(-1);
+		} finally {
+			reporter.stop();
+		}
+	}
+
+	/**
+	 * Loads the root categories of the editions.
+	 * @param file The file containing the root categories.
+	 * @param destination Where the root categories are loaded, by language.
+	 * @throws IOException when something goes wrong while reading the file.
+	 */
+	private static void loadResource(InputStream file, Map<String, String> destination) throws IOException {
+		BufferedReader bd = new BufferedReader(new InputStreamReader(file, "UTF-8"));
+		String line;
+		while( (line = bd.readLine()) != null ) { 
+			String[] values = line.split("\t");
+			if ( values.length == 2 && values[1].indexOf(':') > 0 )
+				destination.put(values[0], values[1]);
+		}
+		bd.close();
+	}
+
+	/**
+	 * Adds an edition to generate.
+	 * @param language The code of the language of the edition.
+	 * @param dpRootCategory The root category of the disambiguation pages, with the prefix of the namespace.
+	 * @param itRootCategory The root category of the infobox templates, with the prefix of the namespace.
+	 */
+	public void addEdition(String language, String dpRootCategory, String itRootCategory) {
+		wikis.put(language, new SyntheticWiki(settings, language, dpRootCategory, itRootCategory));
+	}
+
+	/**
+	 * Generates the dumps of all the editions.
+	 * @throws IOException when a dump file cannot be written.
+	 * @throws XMLStreamException when the XML dump cannot be written.
+	 */
+	public void generate() throws IOException, XMLStreamException {
+		for ( String language : wikis.keySet() )
+			generate(language);
+	}
+
+	/**
+	 * Generates the dumps of an edition.
+	 * @param language The code of the language of the edition.
+	 * @throws IOException when a dump file cannot be written.
+	 * @throws XMLStreamException when the XML dump cannot be written.
+	 */
+	private void generate(String language) throws IOException, XMLStreamException {
+		SyntheticWiki wiki = wikis.get(language);
+		String wikiCodeName = language.replace('-', '_') + "wiki";
+		File directory = new File(new File(outputDirectory, wikiCodeName), settings.date());
+		if ( !directory.isDirectory() && !directory.mkdirs() )
+			throw new IOException("Cannot create directory " + directory.getAbsolutePath());
+		String prefix = wikiCodeName + "-" + settings.date() + "-";
+		logger.info("Generating the dumps of " + wikiCodeName + " (" + wiki.pages() + " articles) in " + 
+				directory.getAbsolutePath());
+		Checksums checksums = new Checksums();
+		String xmlFile = prefix + (settings.compressXml() ? GraphipediaSettings.WIKIPEDIA_XML_FILE : UNCOMPRESSED_XML_FILE);
+		DigestOutputStream xmlDigest = checksums.digest(
+				new BufferedOutputStream(new FileOutputStream(new File(directory, xmlFile)), 1 << 16));
+		OutputStream xmlOutput = settings.compressXml() ? new BZip2CompressorOutputStream(xmlDigest) : xmlDigest;
+		XMLStreamWriter xml = XML_OUTPUT_FACTORY.createXMLStreamWriter(xmlOutput, "UTF-8");
+		SqlDumpWriter page = new SqlDumpWriter(new File(directory, prefix + GraphipediaSettings.WIKIPEDIA_PAGE_FILE), 
+				"page", new String[] { "`page_id` int(8) unsigned NOT NULL AUTO_INCREMENT", 
+			"`page_namespace` int(11) NOT NULL DEFAULT '0'", "`page_title` varbinary(255) NOT NULL DEFAULT ''", 
+			"`page_restrictions` tinyblob NOT NULL", "`page_is_redirect` tinyint(1) unsigned NOT NULL DEFAULT '0'", 
+			"`page_is_new` tinyint(1) unsigned NOT NULL DEFAULT '0'", "`page_random` double unsigned NOT NULL DEFAULT '0'", 
+			"`page_touched` varbinary(14) NOT NULL DEFAULT ''", "`page_latest` int(8) unsigned NOT NULL DEFAULT '0'", 
+			"`page_len` int(8) unsigned NOT NULL DEFAULT '0'", "PRIMARY KEY (`page_id`)" }, checksums);
+		SqlDumpWriter pageLinks = new SqlDumpWriter(new File(directory, prefix + GraphipediaSettings.WIKIPEDIA_PAGELINKS_FILE), 
+				"pagelinks", new String[] { "`pl_from` int(8) unsigned NOT NULL DEFAULT '0'", 
+			"`pl_namespace` int(11) NOT NULL DEFAULT '0'", "`pl_title` varbinary(255) NOT NULL DEFAULT ''", 
+			"`pl_from_namespace` int(11) NOT NULL DEFAULT '0'", "UNIQUE KEY `pl_from` (`pl_from`,`pl_namespace`,`pl_title`)" }, 
+				checksums);
+		SqlDumpWriter categoryLinks = new SqlDumpWriter(
+				new File(directory, prefix + GraphipediaSettings.WIKIPEDIA_CATEGORYLINKS_FILE), "categorylinks", 
+				new String[] { "`cl_from` int(8) unsigned NOT NULL DEFAULT '0'", "`cl_to` varbinary(255) NOT NULL DEFAULT ''", 
+			"`cl_sortkey` varbinary(230) NOT NULL DEFAULT ''", "`cl_timestamp` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP", 
+			"`cl_sortkey_prefix` varbinary(255) NOT NULL DEFAULT ''", "`cl_collation` varbinary(32) NOT NULL DEFAULT ''", 
+			"`cl_type` enum('page','subcat','file') NOT NULL DEFAULT 'page'", "UNIQUE KEY `cl_from` (`cl_from`,`cl_to`)" }, 
+				checksums);
+		SqlDumpWriter redirect = new SqlDumpWriter(new File(directory, prefix + GraphipediaSettings.WIKIPEDIA_REDIRECT_FILE), 
+				"redirect", new String[] { "`rd_from` int(8) unsigned NOT NULL DEFAULT '0'", 
+			"`rd_namespace` int(11) NOT NULL DEFAULT '0'", "`rd_title` varbinary(255) NOT NULL DEFAULT ''", 
+			"`rd_interwiki` varbinary(32) DEFAULT NULL", "`rd_fragment` varbinary(255) DEFAULT NULL", 
+			"PRIMARY KEY (`rd_from`)" }, checksums);
+		SqlDumpWriter pageProps = new SqlDumpWriter(new File(directory, prefix + GraphipediaSettings.WIKIPEDIA_PAGE_PROPS_FILE), 
+				"page_props", new String[] { "`pp_page` int(11) NOT NULL", "`pp_propname` varbinary(60) NOT NULL", 
+			"`pp_value` blob NOT NULL", "`pp_sortkey` float DEFAULT NULL", "PRIMARY KEY (`pp_page`,`pp_propname`)" }, checksums);
+		SqlDumpWriter geoTags = new SqlDumpWriter(new File(directory, prefix + GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE), 
+				"geo_tags", new String[] { "`gt_id` int(10) unsigned NOT NULL AUTO_INCREMENT", 
+			"`gt_page_id` int(10) unsigned NOT NULL", "`gt_globe` varbinary(32) NOT NULL", "`gt_primary` tinyint(1) NOT NULL", 
+			"`gt_lat` decimal(11,8) DEFAULT NULL", "`gt_lon` decimal(11,8) DEFAULT NULL", "`gt_dim` int(11) DEFAULT NULL", 
+			"`gt_type` varbinary(32) DEFAULT NULL", "`gt_name` varbinary(255) DEFAULT NULL", "`gt_country` binary(2) DEFAULT NULL", 
+			"`gt_region` varbinary(3) DEFAULT NULL", "PRIMARY KEY (`gt_id`)" }, checksums);
+		SqlDumpWriter langLinks = new SqlDumpWriter(new File(directory, prefix + GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE), 
+				"langlinks", new String[] { "`ll_from` int(8) unsigned NOT NULL DEFAULT '0'", 
+			"`ll_lang` varbinary(20) NOT NULL DEFAULT ''", "`ll_title` varbinary(255) NOT NULL DEFAULT ''", 
+			"UNIQUE KEY `ll_from` (`ll_from`,`ll_lang`)" }, checksums);
+		Counter pageCounter = MetricsRegistry.global().meter(MetricsRegistry.PAGES_GENERATED).child();
+		writeSiteInfo(xml, language, wikiCodeName, wiki);
+		String timestamp = settings.date().substring(0, 4) + "-" + settings.date().substring(4, 6) + "-" + 
+				settings.date().substring(6, 8) + "T00:00:00Z";
+		String touched = settings.date() + "000000";
+		long geoTagId = 1;
+		for ( int i = 0; i < wiki.pages() + wiki.categories() + wiki.templates(); i += 1 ) {
+			SyntheticPage syntheticPage;
+			if ( i < wiki.pages() )
+				syntheticPage = wiki.page(i, language);
+			else if ( i < wiki.pages() + wiki.categories() )
+				syntheticPage = wiki.category(i - wiki.pages());
+			else 
+				syntheticPage = wiki.template(i - wiki.pages() - wiki.categories());
+			writePage(xml, syntheticPage, wiki, timestamp);
+			String title = syntheticPage.title.replace(' ', '_');
+			int length = syntheticPage.text.getBytes("UTF-8").length;
+			page.row(syntheticPage.id, syntheticPage.namespace, title, "", syntheticPage.redirect != null ? 1 : 0, 0, 
+					Math.abs(syntheticPage.id * 0x9E3779B97F4A7C15L % 1000000000L) / 1e9, touched, syntheticPage.id, length);
+			for ( String link : syntheticPage.links )
+				pageLinks.row(syntheticPage.id, Namespace.MAIN, link.replace(' ', '_'), syntheticPage.namespace);
+			for ( String category : syntheticPage.categories )
+				categoryLinks.row(syntheticPage.id, category.replace(' ', '_'), title.toUpperCase(), 
+						timestamp.replace('T', ' ').replace("Z", ""), "", "uppercase", 
+						syntheticPage.namespace == Namespace.CATEGORY ? "subcat" : "page");
+			if ( syntheticPage.redirect != null )
+				redirect.row(syntheticPage.id, Namespace.MAIN, syntheticPage.redirect.replace(' ', '_'), "", "");
+			if ( syntheticPage.disambiguation )
+				pageProps.row(syntheticPage.id, "disambiguation", "", null);
+			if ( syntheticPage.coordinates != null )
+				geoTags.row(geoTagId++, syntheticPage.id, "earth", 1, syntheticPage.coordinates[0], 
+						syntheticPage.coordinates[1], 1000, syntheticPage.geotagType, null, null, null);
+			if ( syntheticPage.langlinks >= 0 )
+				for ( Map.Entry<String, SyntheticWiki> other : wikis.entrySet() )
+					if ( !other.getKey().equals(language) )
+						langLinks.row(syntheticPage.id, other.getKey(), other.getValue().title(syntheticPage.langlinks));
+			pageCounter.increment();
+		}
+		xml.writeEndElement();
+		xml.writeEndDocument();
+		xml.close();
+		xmlOutput.close();
+		checksums.record(new File(directory, xmlFile), xmlDigest);
+		page.close();
+		pageLinks.close();
+		categoryLinks.close();
+		redirect.close();
+		pageProps.close();
+		geoTags.close();
+		langLinks.close();
+		checksums.write(new File(directory, prefix + DumpSource.SHA1_FILE));
+		Writer runInfo = new OutputStreamWriter(new FileOutputStream(new File(directory, DumpSource.RUN_INFO_FILE)), "UTF-8");
+		try {
+			for ( String job : JOBS )
+				runInfo.write("name:" + job + "; status:done; updated:" + timestamp.replace('T', ' ').replace("Z", "") + "\n");
+		} finally {
+			runInfo.close();
+		}
+		logger.info("Generated " + pageCounter.count() + " pages of " + wikiCodeName);
+	}
+
+	/**
+	 * Writes the beginning of the XML dump, up to the namespaces.
+	 * @param xml The writer of the XML dump.
+	 * @param language The code of the language of the edition.
+	 * @param wikiCodeName The code name of the edition (e.g., enwiki).
+	 * @param wiki The model of the edition.
+	 * @throws XMLStreamException when the XML dump cannot be written.
+	 */
+	private void writeSiteInfo(XMLStreamWriter xml, String language, String wikiCodeName, SyntheticWiki wiki) 
+			throws XMLStreamException {
+		xml.writeStartDocument("UTF-8", "1.0");
+		xml.writeCharacters("\n");
+		xml.writeStartElement("mediawiki");
+		xml.writeDefaultNamespace("http://www.mediawiki.org/xml/export-0.10/");
+		xml.writeAttribute("version", "0.10");
+		xml.writeAttribute("xml:lang", language);
+		xml.writeCharacters("\n  ");
+		xml.writeStartElement("siteinfo");
+		writeElement(xml, "\n    ", "sitename", "Wikipedia");
+		writeElement(xml, "\n    ", "dbname", wikiCodeName);
+		writeElement(xml, "\n    ", "base", "https://" + language + ".wikipedia.org/wiki/Main_Page");
+		writeElement(xml, "\n    ", "generator", "Graphipedia synthetic dump generator");
+		writeElement(xml, "\n    ", "case", "first-letter");
+		xml.writeCharacters("\n    ");
+		xml.writeStartElement("namespaces");
+		for ( Map.Entry<Integer, String> namespace : NAMESPACES.entrySet() ) {
+			String name = namespace.getValue();
+			if ( namespace.getKey() == Namespace.CATEGORY )
+				name = wiki.categoryNamespace();
+			else if ( namespace.getKey() == Namespace.CATEGORY_TALK )
+				name = wiki.categoryNamespace() + " talk";
+			xml.writeCharacters("\n      ");
+			if ( name.isEmpty() ) {
+				xml.writeEmptyElement("namespace");
+				xml.writeAttribute("key", namespace.getKey().toString());
+				xml.writeAttribute("case", "first-letter");
+				continue;
+			}
+			xml.writeStartElement("namespace");
+			xml.writeAttribute("key", namespace.getKey().toString());
+			xml.writeAttribute("case", "first-letter");
+			xml.writeCharacters(name);
+			xml.writeEndElement();
+		}
+		xml.writeCharacters("\n    ");
+		xml.writeEndElement();
+		xml.writeCharacters("\n  ");
+		xml.writeEndElement();
+		xml.writeCharacters("\n");
+	}
+
+	/**
+	 * Writes a page to the XML dump.
+	 * @param xml The writer of the XML dump.
+	 * @param page The page.
+	 * @param wiki The model of the edition.
+	 * @param timestamp The timestamp of the revision of the page.
+	 * @throws XMLStreamException when the XML dump cannot be written.
+	 */
+	private void writePage(XMLStreamWriter xml, SyntheticPage page, SyntheticWiki wiki, String timestamp) 
+			throws XMLStreamException {
+		String title = page.title;
+		if ( page.namespace == Namespace.CATEGORY )
+			title = wiki.categoryNamespace() + ":" + title;
+		else if ( page.namespace != Namespace.MAIN )
+			title = NAMESPACES.get(page.namespace) + ":" + title;
+		xml.writeCharacters("  ");
+		xml.writeStartElement("page");
+		writeElement(xml, "\n    ", "title", title);
+		writeElement(xml, "\n    ", "ns", Integer.toString(page.namespace));
+		writeElement(xml, "\n    ", "id", Long.toString(page.id));
+		if ( page.redirect != null ) {
+			xml.writeCharacters("\n    ");
+			xml.writeEmptyElement("redirect");
+			xml.writeAttribute("title", page.redirect);
+		}
+		xml.writeCharacters("\n    ");
+		xml.writeStartElement("revision");
+		writeElement(xml, "\n      ", "id", Long.toString(page.id));
+		writeElement(xml, "\n      ", "timestamp", timestamp);
+		xml.writeCharacters("\n      ");
+		xml.writeStartElement("contributor");
+		writeElement(xml, "\n        ", "username", "Graphipedia");
+		writeElement(xml, "\n        ", "id", "1");
+		xml.writeCharacters("\n      ");
+		xml.writeEndElement();
+		writeElement(xml, "\n      ", "model", "wikitext");
+		writeElement(xml, "\n      ", "format", "text/x-wiki");
+		xml.writeCharacters("\n      ");
+		xml.writeStartElement("text");
+		xml.writeAttribute("xml:space", "preserve");
+		xml.writeCharacters(page.text);
+		xml.writeEndElement();
+		xml.writeCharacters("\n    ");
+		xml.writeEndElement();
+		xml.writeCharacters("\n  ");
+		xml.writeEndElement();
+		xml.writeCharacters("\n");
+	}
+
+	/**
+	 * Writes an element that only contains text.
+	 * @param xml The writer of the XML dump.
+	 * @param indentation The indentation written before the element.
+	 * @param name The name of the element.
+	 * @param value The text of the element.
+	 * @throws XMLStreamException when the XML dump cannot be written.
+	 */
+	private static void writeElement(XMLStreamWriter xml, String indentation, String name, String value) 
+			throws XMLStreamException {
+		xml.writeCharacters(indentation);
+		xml.writeStartElement(name);
+		xml.writeCharacters(value);
+		xml.writeEndElement();
+	}
+
+}
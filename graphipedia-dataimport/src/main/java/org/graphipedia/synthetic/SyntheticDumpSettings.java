@@ -0,0 +1,311 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.synthetic;
+
+import java.util.Properties;
+
+/**
+ * The settings of the {@link SyntheticDumpGenerator}, read from Java system properties.
+ */
+public class SyntheticDumpSettings {
+
+	/**
+	 * The name of the option that sets the number of articles of each edition.
+	 */
+	public static final String PAGES_OPTION = "graphipedia.synthetic.pages";
+
+	/**
+	 * The name of the option that sets the date of the dumps (e.g., {@code 20160101}).
+	 */
+	public static final String DATE_OPTION = "graphipedia.synthetic.date";
+
+	/**
+	 * The name of the option that sets the seed of the generator.
+	 */
+	public static final String SEED_OPTION = "graphipedia.synthetic.seed";
+
+	/**
+	 * The name of the option that sets the mean number of links of an article.
+	 */
+	public static final String LINK_DEGREE_OPTION = "graphipedia.synthetic.linkDegree";
+
+	/**
+	 * The name of the option that sets the exponent of the power law of the number of links of an article.
+	 */
+	public static final String DEGREE_EXPONENT_OPTION = "graphipedia.synthetic.degreeExponent";
+
+	/**
+	 * The name of the option that sets the fraction of the pages that are redirects.
+	 */
+	public static final String REDIRECT_RATIO_OPTION = "graphipedia.synthetic.redirectRatio";
+
+	/**
+	 * The name of the option that sets the fraction of the pages that are disambiguation pages.
+	 */
+	public static final String DISAMBIGUATION_RATIO_OPTION = "graphipedia.synthetic.disambiguationRatio";
+
+	/**
+	 * The name of the option that sets the fraction of the articles that have an infobox.
+	 */
+	public static final String INFOBOX_RATIO_OPTION = "graphipedia.synthetic.infoboxRatio";
+
+	/**
+	 * The name of the option that sets the fraction of the articles that are geotagged.
+	 */
+	public static final String GEOTAG_RATIO_OPTION = "graphipedia.synthetic.geotagRatio";
+
+	/**
+	 * The name of the option that sets the fraction of the articles that link to the other generated editions.
+	 */
+	public static final String LANGLINK_RATIO_OPTION = "graphipedia.synthetic.langlinkRatio";
+
+	/**
+	 * The name of the option that sets the mean length (in characters) of the text of an article.
+	 */
+	public static final String PAGE_LENGTH_OPTION = "graphipedia.synthetic.pageLength";
+
+	/**
+	 * The name of the option that sets whether the XML dump is compressed with bzip2.
+	 */
+	public static final String COMPRESS_XML_OPTION = "graphipedia.synthetic.compressXml";
+
+	/**
+	 * The number of articles of each edition.
+	 */
+	private int pages;
+
+	/**
+	 * The date of the dumps.
+	 */
+	private String date;
+
+	/**
+	 * The seed of the generator.
+	 */
+	private long seed;
+
+	/**
+	 * The mean number of links of an article.
+	 */
+	private double linkDegree;
+
+	/**
+	 * The exponent of the power law of the number of links of an article.
+	 */
+	private double degreeExponent;
+
+	/**
+	 * The fraction of the pages that are redirects.
+	 */
+	private double redirectRatio;
+
+	/**
+	 * The fraction of the pages that are disambiguation pages.
+	 */
+	private double disambiguationRatio;
+
+	/**
+	 * The fraction of the articles that have an infobox.
+	 */
+	private double infoboxRatio;
+
+	/**
+	 * The fraction of the articles that are geotagged.
+	 */
+	private double geotagRatio;
+
+	/**
+	 * The fraction of the articles that link to the other generated editions.
+	 */
+	private double langlinkRatio;
+
+	/**
+	 * The mean length (in characters) of the text of an article.
+	 */
+	private int pageLength;
+
+	/**
+	 * Whether the XML dump is compressed with bzip2.
+	 */
+	private boolean compressXml;
+
+	/**
+	 * Creates the default settings.
+	 */
+	public SyntheticDumpSettings() {
+		this.pages = 10000;
+		this.date = "20160101";
+		this.seed = 1;
+		this.linkDegree = 20;
+		this.degreeExponent = 2.1;
+		this.redirectRatio = 0.1;
+		this.disambiguationRatio = 0.02;
+		this.infoboxRatio = 0.3;
+		this.geotagRatio = 0.1;
+		this.langlinkRatio = 0.5;
+		this.pageLength = 3000;
+		this.compressXml = true;
+	}
+
+	/**
+	 * Loads the settings from the given properties (e.g., the Java system properties).
+	 * @param properties The properties.
+	 */
+	public void load(Properties properties) {
+		if ( properties.getProperty(PAGES_OPTION) != null )
+			this.pages = Math.max(1, Integer.parseInt(properties.getProperty(PAGES_OPTION).trim()));
+		if ( properties.getProperty(DATE_OPTION) != null )
+			this.date = properties.getProperty(DATE_OPTION).trim();
+		if ( properties.getProperty(SEED_OPTION) != null )
+			this.seed = Long.parseLong(properties.getProperty(SEED_OPTION).trim());
+		if ( properties.getProperty(LINK_DEGREE_OPTION) != null )
+			this.linkDegree = Math.max(1, Double.parseDouble(properties.getProperty(LINK_DEGREE_OPTION).trim()));
+		if ( properties.getProperty(DEGREE_EXPONENT_OPTION) != null ) // the mean of the power law is finite above 2.
+			this.degreeExponent = Math.max(2.01, Double.parseDouble(properties.getProperty(DEGREE_EXPONENT_OPTION).trim()));
+		if ( properties.getProperty(REDIRECT_RATIO_OPTION) != null )
+			this.redirectRatio = ratio(properties.getProperty(REDIRECT_RATIO_OPTION));
+		if ( properties.getProperty(DISAMBIGUATION_RATIO_OPTION) != null )
+			this.disambiguationRatio = ratio(properties.getProperty(DISAMBIGUATION_RATIO_OPTION));
+		if ( properties.getProperty(INFOBOX_RATIO_OPTION) != null )
+			this.infoboxRatio = ratio(properties.getProperty(INFOBOX_RATIO_OPTION));
+		if ( properties.getProperty(GEOTAG_RATIO_OPTION) != null )
+			this.geotagRatio = ratio(properties.getProperty(GEOTAG_RATIO_OPTION));
+		if ( properties.getProperty(LANGLINK_RATIO_OPTION) != null )
+			this.langlinkRatio = ratio(properties.getProperty(LANGLINK_RATIO_OPTION));
+		if ( properties.getProperty(PAGE_LENGTH_OPTION) != null )
+			this.pageLength = Math.max(100, Integer.parseInt(properties.getProperty(PAGE_LENGTH_OPTION).trim()));
+		if ( properties.getProperty(COMPRESS_XML_OPTION) != null )
+			this.compressXml = Boolean.parseBoolean(properties.getProperty(COMPRESS_XML_OPTION).trim());
+		// at least one page in ten is an article, so that the redirects and the disambiguation pages have targets.
+		double ratios = this.redirectRatio + this.disambiguationRatio;
+		if ( ratios > 0.9 ) {
+			this.redirectRatio *= 0.9 / ratios;
+			this.disambiguationRatio *= 0.9 / ratios;
+		}
+	}
+
+	/**
+	 * Parses a fraction.
+	 * @param value The value of the fraction.
+	 * @return The fraction, between 0 and 1.
+	 */
+	private static double ratio(String value) {
+		return Math.min(1, Math.max(0, Double.parseDouble(value.trim())));
+	}
+
+	/**
+	 * Returns the number of articles of each edition.
+	 * @return The number of articles of each edition.
+	 */
+	public int pages() {
+		return this.pages;
+	}
+
+	/**
+	 * Returns the date of the dumps.
+	 * @return The date of the dumps (e.g., {@code 20160101}).
+	 */
+	public String date() {
+		return this.date;
+	}
+
+	/**
+	 * Returns the seed of the generator.
+	 * @return The seed of the generator.
+	 */
+	public long seed() {
+		return this.seed;
+	}
+
+	/**
+	 * Returns the mean number of links of an article.
+	 * @return The mean number of links of an article.
+	 */
+	public double linkDegree() {
+		return this.linkDegree;
+	}
+
+	/**
+	 * Returns the exponent of the power law of the number of links of an article.
+	 * @return The exponent of the power law of the number of links of an article.
+	 */
+	public double degreeExponent() {
+		return this.degreeExponent;
+	}
+
+	/**
+	 * Returns the fraction of the pages that are redirects.
+	 * @return The fraction of the pages that are redirects.
+	 */
+	public double redirectRatio() {
+		return this.redirectRatio;
+	}
+
+	/**
+	 * Returns the fraction of the pages that are disambiguation pages.
+	 * @return The fraction of the pages that are disambiguation pages.
+	 */
+	public double disambiguationRatio() {
+		return this.disambiguationRatio;
+	}
+
+	/**
+	 * Returns the fraction of the articles that have an infobox.
+	 * @return The fraction of the articles that have an infobox.
+	 */
+	public double infoboxRatio() {
+		return this.infoboxRatio;
+	}
+
+	/**
+	 * Returns the fraction of the articles that are geotagged.
+	 * @return The fraction of the articles that are geotagged.
+	 */
+	public double geotagRatio() {
+		return this.geotagRatio;
+	}
+
+	/**
+	 * Returns the fraction of the articles that link to the other generated editions.
+	 * @return The fraction of the articles that link to the other generated editions.
+	 */
+	public double langlinkRatio() {
+		return this.langlinkRatio;
+	}
+
+	/**
+	 * Returns the mean length (in characters) of the text of an article.
+	 * @return The mean length of the text of an article.
+	 */
+	public int pageLength() {
+		return this.pageLength;
+	}
+
+	/**
+	 * Returns whether the XML dump is compressed with bzip2.
+	 * @return {@code true} if the XML dump is compressed, {@code false} if it is written as plain XML.
+	 */
+	public boolean compressXml() {
+		return this.compressXml;
+	}
+
+}
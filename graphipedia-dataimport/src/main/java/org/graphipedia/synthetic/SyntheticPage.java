@@ -0,0 +1,190 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.synthetic;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.graphipedia.wikipedia.Namespace;
+
+/**
+ * A page of a synthetic Wikipedia edition, as written to the XML dump and to the SQL dumps.
+ */
+public class SyntheticPage {
+
+	/**
+	 * The identifier of the page.
+	 */
+	final long id;
+
+	/**
+	 * The namespace of the page (see {@link Namespace}).
+	 */
+	final int namespace;
+
+	/**
+	 * The title of the page, without the prefix of its namespace.
+	 */
+	final String title;
+
+	/**
+	 * The wiki code of the page.
+	 */
+	final String text;
+
+	/**
+	 * The title of the target of the page, if it is a redirect, {@code null} otherwise.
+	 */
+	String redirect;
+
+	/**
+	 * Whether the page is a disambiguation page.
+	 */
+	boolean disambiguation;
+
+	/**
+	 * The titles of the articles linked by the page, in the order of their first occurrence.
+	 */
+	final Set<String> links;
+
+	/**
+	 * The titles of the categories of the page, without the prefix of the namespace.
+	 */
+	final List<String> categories;
+
+	/**
+	 * The name of the infobox template of the page, if any, {@code null} otherwise.
+	 */
+	String infobox;
+
+	/**
+	 * The latitude and the longitude of the page, if it is geotagged, {@code null} otherwise.
+	 */
+	double[] coordinates;
+
+	/**
+	 * The type of the geotagged entity, if any.
+	 */
+	String geotagType;
+
+	/**
+	 * The index of the page in the editions, if it links to the other generated editions, {@code -1} otherwise.
+	 */
+	int langlinks;
+
+	/**
+	 * Creates a new page.
+	 * @param id The identifier of the page.
+	 * @param namespace The namespace of the page.
+	 * @param title The title of the page, without the prefix of its namespace.
+	 * @param text The wiki code of the page.
+	 */
+	SyntheticPage(long id, int namespace, String title, String text) {
+		this.id = id;
+		this.namespace = namespace;
+		this.title = title;
+		this.text = text;
+		this.redirect = null;
+		this.disambiguation = false;
+		this.links = new LinkedHashSet<String>();
+		this.categories = new ArrayList<String>();
+		this.infobox = null;
+		this.coordinates = null;
+		this.geotagType = null;
+		this.langlinks = -1;
+	}
+
+	/**
+	 * Returns the identifier of the page.
+	 * @return The identifier of the page.
+	 */
+	public long id() {
+		return id;
+	}
+
+	/**
+	 * Returns the namespace of the page.
+	 * @return The namespace of the page (see {@link Namespace}).
+	 */
+	public int namespace() {
+		return namespace;
+	}
+
+	/**
+	 * Returns the title of the page.
+	 * @return The title of the page, without the prefix of its namespace.
+	 */
+	public String title() {
+		return title;
+	}
+
+	/**
+	 * Returns the wiki code of the page.
+	 * @return The wiki code of the page.
+	 */
+	public String text() {
+		return text;
+	}
+
+	/**
+	 * Returns the target of the page, if it is a redirect.
+	 * @return The title of the target of the page, or {@code null} if the page is not a redirect.
+	 */
+	public String redirect() {
+		return redirect;
+	}
+
+	/**
+	 * Returns whether the page is a disambiguation page.
+	 * @return {@code true} if the page is a disambiguation page.
+	 */
+	public boolean disambiguation() {
+		return disambiguation;
+	}
+
+	/**
+	 * Returns the name of the infobox template of the page.
+	 * @return The name of the infobox template, or {@code null} if the page has no infobox.
+	 */
+	public String infobox() {
+		return infobox;
+	}
+
+	/**
+	 * Returns the coordinates of the page.
+	 * @return The latitude and the longitude of the page, or {@code null} if the page is not geotagged.
+	 */
+	public double[] coordinates() {
+		return coordinates;
+	}
+
+	/**
+	 * Returns the type of the geotagged entity.
+	 * @return The type of the geotagged entity, or {@code null} if the page is not geotagged.
+	 */
+	public String geotagType() {
+		return geotagType;
+	}
+
+}
@@ -0,0 +1,542 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.synthetic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import org.graphipedia.wikipedia.Namespace;
+
+/**
+ * The model of a synthetic Wikipedia edition, from which its pages are generated one at a time, 
+ * so that editions of millions of pages are generated in constant memory.
+ * Each article is identified by its index: whether it is a redirect, a disambiguation page or an article 
+ * with an infobox, and its links, only depend on the index and on the seed, and are the same in all the 
+ * generated editions, whose articles link to each other. The titles and the text depend on the language.
+ * The number of links of an article follows a power law, and the targets of the links are drawn from a 
+ * Zipf distribution over a fixed permutation of the articles, so that a few articles are linked by many others.
+ * Besides the articles, the edition has the root categories of the disambiguation pages and of the infobox 
+ * templates, a category per hundred articles, and the infobox templates.
+ */
+public class SyntheticWiki {
+
+	/**
+	 * The kinds of the pages of the main namespace.
+	 */
+	enum Kind { article, redirect, disambiguation }
+
+	/**
+	 * The syllables of the titles; a title is the sequence of the digits of the index of a page in base 20.
+	 */
+	private static final String[] SYLLABLES = new String[] {
+		"ka", "lo", "mer", "dan", "vi", "sto", "ral", "en", "bur", "gia", 
+		"tor", "mi", "sel", "ach", "ond", "ri", "ves", "ta", "lin", "por"
+	};
+
+	/**
+	 * The common words of the text of the pages.
+	 */
+	private static final String[] WORDS = ("the of and in to was is for on as with by at from that which his her it an were " + 
+			"are has had its also after between during first second other new city river century war team album " + 
+			"church school north south population known called became built founded located").split(" ");
+
+	/**
+	 * The topics of the categories of the articles.
+	 */
+	private static final String[] TOPICS = new String[] {
+		"rivers", "mountains", "villages", "people", "albums", "novels", "battles", "bridges", "lakes", "universities"
+	};
+
+	/**
+	 * The types of the geotagged entities.
+	 */
+	private static final String[] GEOTAG_TYPES = new String[] { "city", "landmark", "river", "mountain", "adm1st" };
+
+	/**
+	 * The mean length (in characters) of a sentence.
+	 */
+	private static final int SENTENCE_LENGTH = 120;
+
+	/**
+	 * The maximum number of links of a page.
+	 */
+	private static final int MAX_DEGREE = 5000;
+
+	/**
+	 * The settings of the generator.
+	 */
+	private final SyntheticDumpSettings settings;
+
+	/**
+	 * The rotation of the syllables, that makes the titles depend on the language.
+	 */
+	private final int rotation;
+
+	/**
+	 * The name of the category namespace.
+	 */
+	private final String categoryNamespace;
+
+	/**
+	 * The title of the root category of the disambiguation pages, without the prefix of the namespace.
+	 */
+	private final String dpRootCategory;
+
+	/**
+	 * The title of the root category of the infobox templates, without the prefix of the namespace.
+	 */
+	private final String itRootCategory;
+
+	/**
+	 * The number of articles.
+	 */
+	private final int pages;
+
+	/**
+	 * The number of categories of the articles.
+	 */
+	private final int categories;
+
+	/**
+	 * The number of infobox templates.
+	 */
+	private final int templates;
+
+	/**
+	 * The multiplier of the permutation of the articles by popularity, coprime with {@code pages}.
+	 */
+	private final long stride;
+
+	/**
+	 * The minimum of the power law of the number of links, so that its mean is the mean number of links.
+	 */
+	private final double minDegree;
+
+	/**
+	 * Whether at least one page of the main namespace is an article (the target of the redirects).
+	 */
+	private final boolean hasArticles;
+
+	/**
+	 * Creates the model of an edition.
+	 * @param settings The settings of the generator.
+	 * @param language The code of the language of the edition.
+	 * @param dpRootCategory The root category of the disambiguation pages, with the prefix of the namespace.
+	 * @param itRootCategory The root category of the infobox templates, with the prefix of the namespace.
+	 */
+	public SyntheticWiki(SyntheticDumpSettings settings, String language, String dpRootCategory, String itRootCategory) {
+		this.settings = settings;
+		this.rotation = (language.hashCode() & Integer.MAX_VALUE) % SYLLABLES.length;
+		this.categoryNamespace = dpRootCategory.substring(0, dpRootCategory.indexOf(':')).trim();
+		this.dpRootCategory = dpRootCategory.substring(dpRootCategory.indexOf(':') + 1).trim();
+		this.itRootCategory = itRootCategory.substring(itRootCategory.indexOf(':') + 1).trim();
+		this.pages = settings.pages();
+		this.categories = Math.max(10, pages / 100);
+		this.templates = Math.max(5, Math.min(200, pages / 1000));
+		long stride = 2654435761L % pages;
+		if ( stride == 0 )
+			stride = 1;
+		while ( gcd(stride, pages) != 1 )
+			stride = stride % pages + 1;
+		this.stride = stride;
+		double exponent = settings.degreeExponent();
+		this.minDegree = settings.linkDegree() * (exponent - 2) / (exponent - 1);
+		boolean hasArticles = false;
+		for ( int i = 0; i < pages && !hasArticles; i += 1 )
+			hasArticles = kindOf(i) == Kind.article;
+		this.hasArticles = hasArticles;
+	}
+
+	/**
+	 * Returns the greatest common divisor of two numbers.
+	 * @param a A number.
+	 * @param b A number.
+	 * @return The greatest common divisor of the numbers.
+	 */
+	private static long gcd(long a, long b) {
+		return b == 0 ? a : gcd(b, a % b);
+	}
+
+	/**
+	 * Mixes the seed, the index of a page and a salt into a pseudo-random number (the finalizer of SplitMix64).
+	 * @param seed The seed.
+	 * @param index The index of the page.
+	 * @param salt The salt, different for each use.
+	 * @return The pseudo-random number.
+	 */
+	private static long hash(long seed, long index, long salt) {
+		long z = seed * 0x9E3779B97F4A7C15L + index * 0xBF58476D1CE4E5B9L + salt * 0x94D049BB133111EBL;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * Returns a pseudo-random number between 0 (included) and 1 (excluded).
+	 * @param index The index of the page.
+	 * @param salt The salt, different for each use.
+	 * @return The pseudo-random number.
+	 */
+	private double unit(long index, long salt) {
+		return (hash(settings.seed(), index, salt) >>> 11) * 0x1.0p-53;
+	}
+
+	/**
+	 * Returns the number of articles.
+	 * @return The number of articles.
+	 */
+	public int pages() {
+		return this.pages;
+	}
+
+	/**
+	 * Returns the number of categories, including the root categories.
+	 * @return The number of categories.
+	 */
+	public int categories() {
+		return this.categories + 2;
+	}
+
+	/**
+	 * Returns the number of infobox templates.
+	 * @return The number of infobox templates.
+	 */
+	int templates() {
+		return this.templates;
+	}
+
+	/**
+	 * Returns the name of the category namespace.
+	 * @return The name of the category namespace.
+	 */
+	String categoryNamespace() {
+		return this.categoryNamespace;
+	}
+
+	/**
+	 * Returns the kind of a page of the main namespace.
+	 * @param index The index of the page.
+	 * @return The kind of the page.
+	 */
+	Kind kind(int index) {
+		return hasArticles ? kindOf(index) : Kind.article;
+	}
+
+	/**
+	 * Returns the kind of a page of the main namespace, as drawn from the ratios of the settings.
+	 * @param index The index of the page.
+	 * @return The kind of the page.
+	 */
+	private Kind kindOf(int index) {
+		double u = unit(index, 1);
+		if ( u < settings.redirectRatio() )
+			return Kind.redirect;
+		if ( u < settings.redirectRatio() + settings.disambiguationRatio() )
+			return Kind.disambiguation;
+		return Kind.article;
+	}
+
+	/**
+	 * Returns the title of a page of the main namespace.
+	 * @param index The index of the page.
+	 * @return The title of the page.
+	 */
+	String title(int index) {
+		return words(index + 1);
+	}
+
+	/**
+	 * Returns the title of a category.
+	 * @param index The index of the category: {@code 0} for the root category of the disambiguation pages, 
+	 * {@code 1} for the root category of the infobox templates.
+	 * @return The title of the category, without the prefix of the namespace.
+	 */
+	String categoryTitle(int index) {
+		if ( index == 0 )
+			return dpRootCategory;
+		if ( index == 1 )
+			return itRootCategory;
+		return words(index - 1) + " " + TOPICS[index % TOPICS.length];
+	}
+
+	/**
+	 * Returns the title of an infobox template.
+	 * @param index The index of the template.
+	 * @return The title of the template, without the prefix of the namespace.
+	 */
+	String templateTitle(int index) {
+		return "Infobox " + words(index + 1).toLowerCase();
+	}
+
+	/**
+	 * Returns the identifier of a page of the main namespace; the pages of the main namespace come first.
+	 * @param index The index of the page.
+	 * @return The identifier of the page.
+	 */
+	long articleId(int index) {
+		return index + 1;
+	}
+
+	/**
+	 * Returns the identifier of a category; the categories come after the pages of the main namespace.
+	 * @param index The index of the category.
+	 * @return The identifier of the category.
+	 */
+	long categoryId(int index) {
+		return (long)pages + 1 + index;
+	}
+
+	/**
+	 * Returns the identifier of an infobox template; the templates come after the categories.
+	 * @param index The index of the template.
+	 * @return The identifier of the template.
+	 */
+	long templateId(int index) {
+		return (long)pages + categories() + 1 + index;
+	}
+
+	/**
+	 * Spells a number with the syllables, in base 20; the words are capitalized, and numbers of four 
+	 * digits or more are spelled as two words.
+	 * @param number A positive number.
+	 * @return The number spelled with the syllables.
+	 */
+	private String words(long number) {
+		List<String> digits = new ArrayList<String>();
+		for ( long n = number; n > 0; n /= SYLLABLES.length )
+			digits.add(0, SYLLABLES[(int)((n % SYLLABLES.length + rotation) % SYLLABLES.length)]);
+		StringBuilder words = new StringBuilder();
+		int space = digits.size() >= 4 ? digits.size() / 2 : -1;
+		for ( int i = 0; i < digits.size(); i += 1 ) {
+			if ( i == space )
+				words.append(' ');
+			String digit = digits.get(i);
+			words.append(i == 0 || i == space ? Character.toUpperCase(digit.charAt(0)) + digit.substring(1) : digit);
+		}
+		return words.toString();
+	}
+
+	/**
+	 * Draws the number of links of a page from the power law.
+	 * @param random The generator of the structure of the page.
+	 * @return The number of links.
+	 */
+	private int degree(SplittableRandom random) {
+		double x = minDegree * Math.pow(1 - random.nextDouble(), -1 / (settings.degreeExponent() - 1));
+		return (int)Math.min(Math.min(MAX_DEGREE, pages - 1), Math.round(x));
+	}
+
+	/**
+	 * Draws the target of a link from the Zipf distribution of the popularity of the articles.
+	 * @param random The generator of the structure of the page.
+	 * @return The index of the target.
+	 */
+	private int target(SplittableRandom random) {
+		long rank = (long)Math.pow(pages, random.nextDouble()) - 1;
+		return (int)(Math.min(rank, pages - 1) * stride % pages);
+	}
+
+	/**
+	 * Draws the target of a link from a page that must be an article other than the page itself.
+	 * @param index The index of the page.
+	 * @param random The generator of the structure of the page.
+	 * @return The index of the target.
+	 */
+	private int articleTarget(int index, SplittableRandom random) {
+		int target = target(random);
+		while ( target == index || kind(target) != Kind.article )
+			target = (target + 1) % pages;
+		return target;
+	}
+
+	/**
+	 * Generates a page of the main namespace.
+	 * @param index The index of the page.
+	 * @param language The code of the language of the edition.
+	 * @return The page.
+	 */
+	public SyntheticPage page(int index, String language) {
+		// the structure depends only on the index of the page, the text also on the language.
+		SplittableRandom structure = new SplittableRandom(hash(settings.seed(), index, 2));
+		SplittableRandom words = new SplittableRandom(hash(settings.seed() ^ language.hashCode(), index, 3));
+		String title = title(index);
+		Kind kind = kind(index);
+		if ( kind == Kind.redirect ) {
+			String target = title(articleTarget(index, structure));
+			SyntheticPage page = new SyntheticPage(articleId(index), Namespace.MAIN, title, 
+					"#REDIRECT [[" + target + "]]\n\n{{R from alternative name}}\n");
+			page.redirect = target;
+			page.links.add(target);
+			return page;
+		}
+		List<String> links = new ArrayList<String>();
+		if ( kind == Kind.disambiguation ) {
+			int entries = 3 + structure.nextInt(10);
+			StringBuilder text = new StringBuilder("'''" + title + "''' may refer to:\n\n");
+			for ( int i = 0; i < entries; i += 1 ) {
+				String target = title(articleTarget(index, structure));
+				links.add(target);
+				text.append("* [[").append(target).append("]], ");
+				sentence(text, words, links, links.size(), 0);
+				text.append('\n');
+			}
+			text.append("\n{{disambiguation}}\n");
+			SyntheticPage page = new SyntheticPage(articleId(index), Namespace.MAIN, title, text.toString());
+			page.disambiguation = true;
+			page.links.addAll(links);
+			page.categories.add(dpRootCategory);
+			return page;
+		}
+		int degree = degree(structure);
+		for ( int i = 0; i < degree; i += 1 ) {
+			int target = target(structure);
+			if ( target != index )
+				links.add(title(target));
+		}
+		List<String> categories = new ArrayList<String>();
+		for ( int i = 1 + structure.nextInt(3); i > 0; i -= 1 )
+			categories.add(categoryTitle(2 + structure.nextInt(this.categories)));
+		int template = unit(index, 4) < settings.infoboxRatio() ? structure.nextInt(templates) : -1;
+		String infobox = null;
+		double[] coordinates = null;
+		if ( unit(index, 5) < settings.geotagRatio() )
+			coordinates = new double[] { Math.round((structure.nextDouble() * 130 - 60) * 1e4) / 1e4, 
+					Math.round((structure.nextDouble() * 360 - 180) * 1e4) / 1e4 };
+		// the length follows a log-normal distribution, whose mean is the page length of the settings.
+		double sigma = 0.75;
+		int length = (int)Math.min(50L * settings.pageLength(), 
+				Math.round(Math.exp(Math.log(settings.pageLength()) - sigma * sigma / 2 + sigma * gaussian(words))));
+		StringBuilder text = new StringBuilder();
+		int next = 0;
+		if ( template >= 0 ) {
+			infobox = templateTitle(template);
+			text.append("{{").append(infobox).append("\n| name = ").append(title).append('\n');
+			text.append("| image = ").append(title).append(".jpg\n");
+			for ( ; next < Math.min(links.size(), 4); next += 1 )
+				text.append("| ").append(WORDS[words.nextInt(WORDS.length)]).append('_').append(next)
+				.append(" = [[").append(links.get(next)).append("]]\n");
+			if ( coordinates != null )
+				text.append("| coordinates = {{coord|").append(coordinates[0]).append('|').append(coordinates[1])
+				.append("|display=inline,title}}\n");
+			text.append("}}\n");
+		}
+		text.append("'''").append(title).append("''' ");
+		int start = text.length();
+		for ( int sentences = 0; text.length() - start < length || next < links.size(); sentences += 1 ) {
+			if ( sentences % 6 == 5 )
+				text.append("\n\n== ").append(words(1 + words.nextInt(8000))).append(" ==\n");
+			int remaining = Math.max(1, (length - text.length() + start) / SENTENCE_LENGTH);
+			int count = (int)Math.ceil((links.size() - next) / (double)remaining);
+			sentence(text, words, links, next, count);
+			next += count;
+			text.append(' ');
+		}
+		text.append("\n\n== References ==\n{{reflist}}\n");
+		if ( coordinates != null && template < 0 )
+			text.append("{{coord|").append(coordinates[0]).append('|').append(coordinates[1]).append("|display=title}}\n");
+		for ( String category : categories )
+			text.append("\n[[").append(categoryNamespace).append(':').append(category).append("]]");
+		text.append('\n');
+		SyntheticPage page = new SyntheticPage(articleId(index), Namespace.MAIN, title, text.toString());
+		page.links.addAll(links);
+		page.categories.addAll(categories);
+		page.infobox = infobox;
+		if ( coordinates != null ) {
+			page.coordinates = coordinates;
+			page.geotagType = GEOTAG_TYPES[structure.nextInt(GEOTAG_TYPES.length)];
+		}
+		if ( unit(index, 6) < settings.langlinkRatio() )
+			page.langlinks = index;
+		return page;
+	}
+
+	/**
+	 * Draws a number from the standard normal distribution.
+	 * @param random The generator.
+	 * @return The number.
+	 */
+	private static double gaussian(SplittableRandom random) {
+		return Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+	}
+
+	/**
+	 * Appends a sentence to the text of a page.
+	 * @param text The text of the page.
+	 * @param random The generator of the text.
+	 * @param links The targets of the links of the page.
+	 * @param first The index of the first link of the sentence.
+	 * @param count The number of links in the sentence.
+	 */
+	private void sentence(StringBuilder text, SplittableRandom random, List<String> links, int first, int count) {
+		int length = 8 + random.nextInt(13);
+		int link = first;
+		for ( int i = 0; i < length || link < first + count; i += 1 ) {
+			if ( i > 0 )
+				text.append(' ');
+			if ( link < first + count && (i >= length || random.nextInt(length) < count) ) {
+				String target = links.get(link++);
+				if ( first > 0 && random.nextInt(10) == 0 ) // another occurrence of a previous link.
+					target = links.get(random.nextInt(first));
+				text.append("[[").append(target);
+				if ( random.nextInt(5) == 0 )
+					text.append('|').append(target.toLowerCase());
+				text.append("]]");
+			}
+			else {
+				String word = random.nextInt(4) == 0 ? words(1 + random.nextInt(400)).toLowerCase() : 
+					WORDS[random.nextInt(WORDS.length)];
+				text.append(i == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+			}
+		}
+		text.append('.');
+		if ( random.nextInt(7) == 0 )
+			text.append("<ref>{{cite web|url=http://example.org/").append(random.nextInt(1000000))
+			.append("|title=").append(words(1 + random.nextInt(8000))).append("}}</ref>");
+	}
+
+	/**
+	 * Generates a category.
+	 * @param index The index of the category.
+	 * @return The category.
+	 */
+	public SyntheticPage category(int index) {
+		String text = index < 2 ? "{{Category diffuse}}\n__HIDDENCAT__\n" : 
+			"{{Cat main|" + categoryTitle(index) + "}}\nThis category contains articles about " + 
+			TOPICS[index % TOPICS.length] + ".\n";
+		return new SyntheticPage(categoryId(index), Namespace.CATEGORY, categoryTitle(index), text);
+	}
+
+	/**
+	 * Generates an infobox template, member of the root category of the infobox templates.
+	 * @param index The index of the template.
+	 * @return The template.
+	 */
+	SyntheticPage template(int index) {
+		String text = "{{Infobox\n| bodyclass = vcard\n| above = {{{name|{{PAGENAME}}}}}\n| image = {{{image|}}}\n}}" + 
+				"<noinclude>\n[[" + categoryNamespace + ":" + itRootCategory + "]]\n</noinclude>\n";
+		SyntheticPage page = new SyntheticPage(templateId(index), Namespace.TEMPLATE, templateTitle(index), text);
+		page.categories.add(itRootCategory);
+		return page;
+	}
+
+}
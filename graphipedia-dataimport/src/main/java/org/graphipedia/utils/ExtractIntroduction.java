@@ -32,8 +32,9 @@ import java.util.logging.Logger;
 import javax.xml.stream.XMLStreamException;
 
 import org.graphipedia.dataextract.NamespaceExtractor;
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
 import org.graphipedia.progress.LoggerFactory;
-import org.graphipedia.progress.ProgressCounter;
 import org.graphipedia.progress.ReadableTime;
 import org.graphipedia.wikipedia.Introduction;
 import org.graphipedia.wikipedia.Namespace;
@@ -121,7 +122,7 @@ class XmlFileParser extends SimpleStaxParser {
 	/** 
 	 * A counter used to track the progress of this extractor.
 	 */
-	private ProgressCounter pageCounter;
+	private Counter pageCounter;
 
 	/**
 	 * The output file.
@@ -175,7 +176,7 @@ class XmlFileParser extends SimpleStaxParser {
 		this.text = null;
 		this.id = null;
 		this.introParser = new IntroductionParser();
-		this.pageCounter = new ProgressCounter(logger);
+		this.pageCounter = MetricsRegistry.global().meter(MetricsRegistry.PAGES_PARSED).child();
 		try {
 			this.cleaner = new WikiTextCleaner(ns);
 		} catch (Exception e) {
@@ -238,7 +239,7 @@ class XmlFileParser extends SimpleStaxParser {
 				System.exit(-1);
 			}
 		}
-		pageCounter.increment("Parsing pages");
+		pageCounter.increment();
 	}
 
 }
\ No newline at end of file
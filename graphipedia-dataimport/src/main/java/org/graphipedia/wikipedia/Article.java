@@ -37,11 +37,6 @@ public class Article extends Page {
 	 */
 	private int indegree;
 	
-	/**
-	 * The geotags associated with this article, if any.
-	 */
-	private Geotags geotags;
-	
 	/**
 	 * The name of the infobox, if any, of this article.
 	 */
@@ -59,26 +54,9 @@ public class Article extends Page {
 	public Article(String title, String lang, String wikiid, long neo4jId, boolean redirect, String infoboxName) {
 		super(title, lang, wikiid, neo4jId, redirect);
 		this.outdegree = this.indegree = 0;
-		this.geotags = null;
 		this.infoboxName = infoboxName;
 	}
 	
-	/**
-	 * Creates a new article.
-	 *  @param title The title of the new article.
-	 * @param lang The code of the language of the Wikipedia edition of the new article.
-	 * @param wikiid The identifier of the new article in its Wikipedia edition. 
-	 * @param neo4jId The identifier of the node in the Neo4j database that corresponds to the article.
-	 * @param redirect Whether the article is a redirect.
-	 * @param geotags The geotags associated with this article.
-	 * @param infoboxName The name of the infobox, if any, of this article
-	 */
-	public Article(String title, String lang, String wikiid, long neo4jId, boolean redirect, 
-			Geotags geotags, String infoboxName) {
-		this(title, lang, wikiid, neo4jId, redirect, infoboxName);
-		this.geotags = geotags;
-	}
-	
 	/**
 	 * Returns the number of articles to which this article links.
 	 * @return The number of articles to which this article links.
@@ -103,14 +81,6 @@ public class Article extends Page {
 		this.outdegree += 1;
 	}
 	
-	/**
-	 * Return the geotags associated with this article, if any.
-	 * @return The geotags associated with this article, if any, {@code null} otherwise
-	 */
-	public Geotags Geotags() {
-		return this.geotags;
-	}
-	
 	/**
 	 * Returns the name of the infobox, if any, of this article.
 	 * @return The name of the infobox, if any, of this article., {@code null} otherwise.
@@ -0,0 +1,268 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.wikipedia;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import org.graphipedia.wikipedia.parser.SqlTupleReader;
+
+/**
+ * An in-memory graph of the categories of a Wikipedia language edition and of the members of the categories 
+ * in a given namespace (e.g., the templates), built from the SQL dump files of the pages and the categories.
+ * The graph is used to find offline all the members of a category and of its direct and indirect subcategories, 
+ * which would otherwise require one MediaWiki API request per category.
+ * 
+ * The graph is kept in compact form: the pages are identified by their position in an array sorted 
+ * by page identifier and the edges from a category to its members are stored in adjacency arrays.
+ */
+public class CategoryGraph {
+
+	/**
+	 * The identifiers of the categories and of the pages in the namespace of the members, in increasing order.
+	 */
+	private long[] ids;
+
+	/**
+	 * The namespaces of the pages.
+	 */
+	private int[] namespaces;
+
+	/**
+	 * The titles of the pages (without the prefix of the namespace).
+	 */
+	private String[] titles;
+
+	/**
+	 * The number of pages.
+	 */
+	private int size;
+
+	/**
+	 * The position in {@code members} of the first member of each page (the members of the page at position 
+	 * {@code i} are at positions {@code firstMember[i]} to {@code firstMember[i+1]} excluded).
+	 */
+	private int[] firstMember;
+
+	/**
+	 * The positions of the members of the categories.
+	 */
+	private int[] members;
+
+	/**
+	 * Creates an empty graph.
+	 */
+	private CategoryGraph() {
+		this.ids = new long[1024];
+		this.namespaces = new int[1024];
+		this.titles = new String[1024];
+		this.size = 0;
+	}
+
+	/**
+	 * Builds the graph of the categories from the SQL dump files of a Wikipedia language edition.
+	 * @param pageFile The SQL dump file of the pages.
+	 * @param categoryLinksFile The SQL dump file of the categories of the pages.
+	 * @param linkTargetFile The SQL dump file of the link targets, needed if the categories of the pages refer to 
+	 * the link targets, {@code null} otherwise.
+	 * @param memberNamespace The namespace of the members of the categories that are kept (besides the subcategories).
+	 * @param logger The logger of Graphipedia.
+	 * @return The graph of the categories.
+	 * @throws IOException when something goes wrong while reading the dump files.
+	 */
+	public static CategoryGraph load(File pageFile, File categoryLinksFile, File linkTargetFile, int memberNamespace, 
+			Logger logger) throws IOException {
+		CategoryGraph graph = new CategoryGraph();
+		Map<String, Integer> categories = graph.loadPages(pageFile, memberNamespace);
+		logger.info(graph.size + " categories and pages loaded");
+		graph.loadMembers(categoryLinksFile, linkTargetFile, categories);
+		logger.info(graph.members.length + " category memberships loaded");
+		return graph;
+	}
+
+	/**
+	 * Loads the categories and the pages in the namespace of the members.
+	 * @param pageFile The SQL dump file of the pages.
+	 * @param memberNamespace The namespace of the members of the categories that are kept.
+	 * @return The positions of the categories, indexed by their title (as it appears in the SQL dump files).
+	 * @throws IOException when something goes wrong while reading the dump file.
+	 */
+	private Map<String, Integer> loadPages(File pageFile, int memberNamespace) throws IOException {
+		Map<String, Integer> categories = new HashMap<String, Integer>();
+		SqlTupleReader pages = SqlTupleReader.open(pageFile, "page");
+		try {
+			int idColumn = pages.requiredColumn("page_id");
+			int namespaceColumn = pages.requiredColumn("page_namespace");
+			int titleColumn = pages.requiredColumn("page_title");
+			while ( pages.next() ) {
+				int namespace = pages.getInt(namespaceColumn);
+				if ( namespace != Namespace.CATEGORY && namespace != memberNamespace )
+					continue;
+				long id = pages.getLong(idColumn);
+				if ( size > 0 && id <= ids[size - 1] )
+					throw new IOException("The dump file of the table page is not sorted by identifier");
+				if ( size == ids.length ) {
+					ids = Arrays.copyOf(ids, size * 2);
+					namespaces = Arrays.copyOf(namespaces, size * 2);
+					titles = Arrays.copyOf(titles, size * 2);
+				}
+				String title = pages.get(titleColumn);
+				ids[size] = id;
+				namespaces[size] = namespace;
+				titles[size] = title;
+				if ( namespace == Namespace.CATEGORY )
+					categories.put(title, size);
+				size += 1;
+			}
+		} finally {
+			pages.close();
+		}
+		return categories;
+	}
+
+	/**
+	 * Loads the edges between the categories and their members.
+	 * @param categoryLinksFile The SQL dump file of the categories of the pages.
+	 * @param linkTargetFile The SQL dump file of the link targets, or {@code null}.
+	 * @param categories The positions of the categories, indexed by their title.
+	 * @throws IOException when something goes wrong while reading the dump files.
+	 */
+	private void loadMembers(File categoryLinksFile, File linkTargetFile, Map<String, Integer> categories) throws IOException {
+		int[] sources = new int[1024];
+		int[] targets = new int[1024];
+		int edges = 0;
+		SqlTupleReader categoryLinks = SqlTupleReader.open(categoryLinksFile, "categorylinks");
+		try {
+			int fromColumn = categoryLinks.requiredColumn("cl_from");
+			int toColumn = categoryLinks.column("cl_to");
+			Map<Long, Integer> linkTargets = null;
+			if ( toColumn < 0 ) {
+				int targetColumn = categoryLinks.requiredColumn("cl_target_id");
+				if ( linkTargetFile == null )
+					throw new IOException("The categories refer to the table linktarget, but its dump file has not been downloaded");
+				linkTargets = loadLinkTargets(linkTargetFile, categories);
+				toColumn = targetColumn;
+			}
+			while ( categoryLinks.next() ) {
+				int member = Arrays.binarySearch(ids, 0, size, categoryLinks.getLong(fromColumn));
+				if ( member < 0 )
+					continue;
+				Integer category = linkTargets == null ? categories.get(categoryLinks.get(toColumn)) : 
+					linkTargets.get(categoryLinks.getLong(toColumn));
+				if ( category == null )
+					continue;
+				if ( edges == sources.length ) {
+					sources = Arrays.copyOf(sources, edges * 2);
+					targets = Arrays.copyOf(targets, edges * 2);
+				}
+				sources[edges] = category;
+				targets[edges] = member;
+				edges += 1;
+			}
+		} finally {
+			categoryLinks.close();
+		}
+		// groups the members by category (counting sort).
+		this.firstMember = new int[size + 1];
+		for ( int i = 0; i < edges; i += 1 )
+			firstMember[sources[i] + 1] += 1;
+		for ( int i = 0; i < size; i += 1 )
+			firstMember[i + 1] += firstMember[i];
+		this.members = new int[edges];
+		int[] next = Arrays.copyOf(firstMember, size);
+		for ( int i = 0; i < edges; i += 1 ) 
+			members[next[sources[i]]++] = targets[i];
+	}
+
+	/**
+	 * Loads the link targets that are categories of the graph.
+	 * @param linkTargetFile The SQL dump file of the link targets.
+	 * @param categories The positions of the categories, indexed by their title.
+	 * @return The positions of the categories, indexed by the identifier of the corresponding link target.
+	 * @throws IOException when something goes wrong while reading the dump file.
+	 */
+	private static Map<Long, Integer> loadLinkTargets(File linkTargetFile, Map<String, Integer> categories) throws IOException {
+		Map<Long, Integer> linkTargets = new HashMap<Long, Integer>();
+		SqlTupleReader reader = SqlTupleReader.open(linkTargetFile, "linktarget");
+		try {
+			int idColumn = reader.requiredColumn("lt_id");
+			int namespaceColumn = reader.requiredColumn("lt_namespace");
+			int titleColumn = reader.requiredColumn("lt_title");
+			while ( reader.next() ) {
+				if ( reader.getInt(namespaceColumn) != Namespace.CATEGORY )
+					continue;
+				Integer category = categories.get(reader.get(titleColumn));
+				if ( category != null )
+					linkTargets.put(reader.getLong(idColumn), category);
+			}
+		} finally {
+			reader.close();
+		}
+		return linkTargets;
+	}
+
+	/**
+	 * Returns the members of a category and of all its direct and indirect subcategories that are 
+	 * in the namespace of the members, by visiting the graph breadth-first.
+	 * @param rootCategory The title of the category, with or without the prefix of the namespace.
+	 * @return The titles of the members (without the prefix of the namespace, with spaces instead of underscores), 
+	 * in the order in which they are visited. The list is empty if the category does not exist.
+	 */
+	public List<String> members(String rootCategory) {
+		List<String> result = new ArrayList<String>();
+		int colonIndex = rootCategory.indexOf(':');
+		String title = rootCategory.substring(colonIndex + 1).trim().replace(' ', '_');
+		int root = -1;
+		for ( int i = 0; i < size && root < 0; i += 1 )
+			if ( namespaces[i] == Namespace.CATEGORY && titles[i].equals(title) )
+				root = i;
+		if ( root < 0 )
+			return result;
+		boolean[] visited = new boolean[size];
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+		queue[tail++] = root;
+		visited[root] = true;
+		while ( head < tail ) {
+			int category = queue[head++];
+			for ( int i = firstMember[category]; i < firstMember[category + 1]; i += 1 ) {
+				int member = members[i];
+				if ( visited[member] )
+					continue;
+				visited[member] = true;
+				if ( namespaces[member] == Namespace.CATEGORY )
+					queue[tail++] = member;
+				else
+					result.add(titles[member].replace('_', ' '));
+			}
+		}
+		return result;
+	}
+
+}
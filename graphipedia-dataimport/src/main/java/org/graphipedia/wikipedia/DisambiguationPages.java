@@ -6,15 +6,14 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Timer;
 import java.util.logging.Logger;
 
-import org.graphipedia.dataextract.PleaseWait;
-import org.wikipedia.Wiki;
+import org.graphipedia.download.CategoryCrawler;
+import org.graphipedia.wikipedia.parser.SqlTupleReader;
 
 /**
  * The set of disambiguation pages in a Wikipedia language edition. 
@@ -33,6 +32,8 @@ import org.wikipedia.Wiki;
  * If the file exists, Graphipedia loads the list of disambiguation pages from that file.
  * Otherwise, it downloads the list of disambiguation pages directly from Wikipedia by using the MediaWiki API and stores the list
  * in the file named {@code DISAMBIGUATION_PAGES_FILE}.
+ * Alternatively, the list of disambiguation pages can be obtained offline from the SQL dump files of the page properties 
+ * (the disambiguation pages have the property {@code DISAMBIGUATION_PROPERTY}) and of the pages.
  *  
  */
 public class DisambiguationPages {
@@ -52,6 +53,11 @@ public class DisambiguationPages {
 	 */
 	public static final String DISAMBIGUATION_PAGES_FILE = "disambiguation-pages.txt";
 	
+	/**
+	 * The page property that marks the disambiguation pages (set by the Disambiguator extension of MediaWiki).
+	 */
+	public static final String DISAMBIGUATION_PROPERTY = "disambiguation";
+	
 	/**
 	 * The directory that contains the files necessary to import
 	 * a Wikipedia language edition.
@@ -95,49 +101,74 @@ public class DisambiguationPages {
 	 * Loads the list of disambiguation pages directly from Wikipedia by using the MediaWiki API.
 	 * This list is saved to the a file named {@code DISAMBIGUATION_PAGES_FILE} in the directory
 	 * that contains the files necessary to import a Wikipedia language edition.
-	 * @param language The code of the language edition to import.
+	 * @param crawler The crawler of the categories of the Wikipedia edition to import.
 	 * @param rootCategory The root category that contains the disambiguation pages.
 	 * @param outputFile The file where the list of disambiguation pages is written.
-	 * @param logger The logger of Graphipedia.
 	 * @throws IOException when something goes wrong while using the MediaWiki API or creating the output file.
 	 */
-	public void load(String language, String rootCategory, File outputFile, Logger logger) throws IOException {
+	public void load(CategoryCrawler crawler, String rootCategory, File outputFile) throws IOException {
+		List<String> pages = crawler.members(rootCategory, Namespace.MAIN);
 		BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile));
-		Set<String> visitedCategories = new HashSet<String>();
-		Wiki wiki = new Wiki(language + ".wikipedia.org");
-		List<String> categories = new ArrayList<String>();
-		categories.add(rootCategory);
-		Timer timer = new Timer();
-		PleaseWait pleaseWait = new PleaseWait(logger);
-		timer.schedule(pleaseWait, 0, 10000);
-		for ( int i = 0; i < categories.size(); i += 1 ) {
-			String currentCategory = categories.get(i);
-			String[] cats = null;
-			do {
-				cats = wiki.getCategoryMembers(currentCategory, Namespace.CATEGORY);
-			} while (cats == null);
-			
-			for (String cat : cats) 
-				if ( !visitedCategories.contains(cat) ) {
-					visitedCategories.add(cat);
-					categories.add(cat);
-				}
-			String[] disambiguationPages = null;
-			do {
-				disambiguationPages = wiki.getCategoryMembers(currentCategory, Namespace.MAIN);
+		try {
+			for ( String page : pages ) {
+				this.disambiguationPages.add(page);
+				bw.write(page + "\n");
 			}
-			while( disambiguationPages == null );
-			
-			for ( String page : disambiguationPages ) { 
-					this.disambiguationPages.add(page);
-					pleaseWait.addDetails("disambiguation pages extracted so far " + this.disambiguationPages.size());
-					bw.write(page + "\n");
+		} finally {
+			bw.close();
+		}
+	}
+	
+	/**
+	 * Loads the list of disambiguation pages from the SQL dump files of a Wikipedia language edition, without 
+	 * using the MediaWiki API.
+	 * The identifiers of the pages that have the property {@code DISAMBIGUATION_PROPERTY} are first collected from the 
+	 * dump of the page properties; their titles are then obtained from the dump of the pages.
+	 * This list is saved to the file {@code outputFile}.
+	 * @param pagePropsFile The SQL dump file of the page properties.
+	 * @param pageFile The SQL dump file of the pages.
+	 * @param outputFile The file where the list of disambiguation pages is written.
+	 * @param logger The logger of Graphipedia.
+	 * @throws IOException when something goes wrong while reading the dump files or creating the output file.
+	 */
+	public void load(File pagePropsFile, File pageFile, File outputFile, Logger logger) throws IOException {
+		long[] ids = new long[1024];
+		int size = 0;
+		SqlTupleReader pageProps = SqlTupleReader.open(pagePropsFile, "page_props");
+		try {
+			int pageColumn = pageProps.requiredColumn("pp_page");
+			int propertyColumn = pageProps.requiredColumn("pp_propname");
+			while ( pageProps.next() ) {
+				if ( !DISAMBIGUATION_PROPERTY.equals(pageProps.get(propertyColumn)) )
+					continue;
+				if ( size == ids.length )
+					ids = Arrays.copyOf(ids, size * 2);
+				ids[size] = pageProps.getLong(pageColumn);
+				size += 1;
 			}
-
+		} finally {
+			pageProps.close();
+		}
+		Arrays.sort(ids, 0, size);
+		logger.info(size + " disambiguation pages found in the page properties");
+		BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile));
+		SqlTupleReader pages = SqlTupleReader.open(pageFile, "page");
+		try {
+			int idColumn = pages.requiredColumn("page_id");
+			int namespaceColumn = pages.requiredColumn("page_namespace");
+			int titleColumn = pages.requiredColumn("page_title");
+			while ( pages.next() ) {
+				if ( pages.getInt(namespaceColumn) != Namespace.MAIN || 
+						Arrays.binarySearch(ids, 0, size, pages.getLong(idColumn)) < 0 )
+					continue;
+				String page = pages.get(titleColumn).replace('_', ' ');
+				this.disambiguationPages.add(page);
+				bw.write(page + "\n");
+			}
+		} finally {
+			pages.close();
+			bw.close();
 		}
-		timer.cancel();
-		pleaseWait.stop();
-		bw.close();
 	}
 	
 	/**
@@ -0,0 +1,521 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.wikipedia;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact store of the geotags associated to the Wikipedia pages that describe spatial entities, 
+ * indexed by the (numeric) Wikipedia identifier of the pages.
+ * The identifiers are kept sorted in an array of integers; the latitudes and the longitudes are 
+ * kept in parallel arrays of doubles; the globes and the types, that take a small number of distinct values, 
+ * are kept as indexes in a dictionary.
+ * This takes 24 bytes per page, instead of a {@code HashMap} entry, a {@code String} key and a {@link Geotags}
+ * object.
+ * 
+ * A store can be saved to a file and memory-mapped, so as it does not take space on the heap between 
+ * the extraction and the import of a Wikipedia edition.
+ */
+public class GeotagStore {
+
+	/**
+	 * The magic number at the beginning of a file that contains a store.
+	 */
+	private static final int MAGIC_NUMBER = 0x47454f54;
+
+	/**
+	 * The maximum number of distinct values of a dictionary (the index 0 stands for {@code null}).
+	 */
+	private static final int MAX_DICTIONARY_SIZE = Character.MAX_VALUE;
+
+	/**
+	 * The sorted identifiers of the pages.
+	 */
+	private final IntBuffer ids;
+
+	/**
+	 * The latitudes of the spatial entities.
+	 */
+	private final DoubleBuffer latitudes;
+
+	/**
+	 * The longitudes of the spatial entities.
+	 */
+	private final DoubleBuffer longitudes;
+
+	/**
+	 * The indexes of the globes of the spatial entities in {@code globeDictionary}.
+	 */
+	private final CharBuffer globes;
+
+	/**
+	 * The indexes of the types of the spatial entities in {@code typeDictionary}.
+	 */
+	private final CharBuffer types;
+
+	/**
+	 * The distinct globes (the first element is {@code null}).
+	 */
+	private final String[] globeDictionary;
+
+	/**
+	 * The distinct types (the first element is {@code null}).
+	 */
+	private final String[] typeDictionary;
+
+	/**
+	 * The number of pages in this store.
+	 */
+	private final int size;
+
+	/**
+	 * Creates a new store.
+	 * @param size The number of pages.
+	 * @param data The buffer that contains the identifiers, the latitudes, the longitudes, the globes and the types, in this order.
+	 * @param globeDictionary The distinct globes.
+	 * @param typeDictionary The distinct types.
+	 */
+	private GeotagStore(int size, ByteBuffer data, String[] globeDictionary, String[] typeDictionary) {
+		this.size = size;
+		this.globeDictionary = globeDictionary;
+		this.typeDictionary = typeDictionary;
+		data.position(0);
+		this.ids = slice(data, 4 * size).asIntBuffer();
+		this.latitudes = slice(data, 8 * size).asDoubleBuffer();
+		this.longitudes = slice(data, 8 * size).asDoubleBuffer();
+		this.globes = slice(data, 2 * size).asCharBuffer();
+		this.types = slice(data, 2 * size).asCharBuffer();
+	}
+
+	/**
+	 * Returns the next {@code length} bytes of a buffer and advances its position.
+	 * @param data A buffer.
+	 * @param length The number of bytes.
+	 * @return The next {@code length} bytes of {@code data}.
+	 */
+	private static ByteBuffer slice(ByteBuffer data, int length) {
+		ByteBuffer slice = data.slice();
+		slice.limit(length);
+		data.position(data.position() + length);
+		return slice;
+	}
+
+	/**
+	 * Returns an empty store.
+	 * @return An empty store.
+	 */
+	public static GeotagStore empty() {
+		return new Builder().build();
+	}
+
+	/**
+	 * Returns the number of pages in this store.
+	 * @return The number of pages in this store.
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * Returns the position of a page in this store.
+	 * @param wikiid The identifier of a Wikipedia page.
+	 * @return The position of the page in this store, or a negative value if the page has no geotags.
+	 */
+	public int indexOf(int wikiid) {
+		int low = 0;
+		int high = size - 1;
+		while ( low <= high ) {
+			int middle = (low + high) >>> 1;
+			int id = ids.get(middle);
+			if ( id < wikiid )
+				low = middle + 1;
+			else if ( id > wikiid )
+				high = middle - 1;
+			else
+				return middle;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns whether a page has geotags.
+	 * @param wikiid The identifier of a Wikipedia page.
+	 * @return {@code true} if the page has geotags, {@code false} otherwise.
+	 */
+	public boolean contains(int wikiid) {
+		return indexOf(wikiid) >= 0;
+	}
+
+	/**
+	 * Returns the geotags of a page.
+	 * @param wikiid The identifier of a Wikipedia page.
+	 * @return The geotags of the page, or {@code null} if the page has no geotags.
+	 */
+	public Geotags get(int wikiid) {
+		int index = indexOf(wikiid);
+		if ( index < 0 )
+			return null;
+		return new Geotags(globeDictionary[globes.get(index)], latitudes.get(index), longitudes.get(index), 
+				typeDictionary[types.get(index)]);
+	}
+
+	/**
+	 * Returns the geotags of a page.
+	 * @param wikiid The identifier of a Wikipedia page, as it appears in the dump files.
+	 * @return The geotags of the page, or {@code null} if the page has no geotags or the identifier is not a number.
+	 */
+	public Geotags get(String wikiid) {
+		try {
+			return get(Integer.parseInt(wikiid));
+		}
+		catch(NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the identifier of the page at the given position of this store.
+	 * @param index A position in this store, between {@code 0} and {@code size() - 1}.
+	 * @return The identifier of the page at the given position.
+	 */
+	public int wikiid(int index) {
+		return ids.get(index);
+	}
+
+	/**
+	 * Returns the latitude of the spatial entity at the given position of this store.
+	 * @param index A position in this store, between {@code 0} and {@code size() - 1}.
+	 * @return The latitude of the spatial entity at the given position.
+	 */
+	public double latitude(int index) {
+		return latitudes.get(index);
+	}
+
+	/**
+	 * Returns the longitude of the spatial entity at the given position of this store.
+	 * @param index A position in this store, between {@code 0} and {@code size() - 1}.
+	 * @return The longitude of the spatial entity at the given position.
+	 */
+	public double longitude(int index) {
+		return longitudes.get(index);
+	}
+
+	/**
+	 * Returns the globe of the spatial entity at the given position of this store.
+	 * @param index A position in this store, between {@code 0} and {@code size() - 1}.
+	 * @return The globe of the spatial entity at the given position, if any, {@code null} otherwise.
+	 */
+	public String globe(int index) {
+		return globeDictionary[globes.get(index)];
+	}
+
+	/**
+	 * Returns the type of the spatial entity at the given position of this store.
+	 * @param index A position in this store, between {@code 0} and {@code size() - 1}.
+	 * @return The type of the spatial entity at the given position, if any, {@code null} otherwise.
+	 */
+	public String type(int index) {
+		return typeDictionary[types.get(index)];
+	}
+
+	/**
+	 * Saves this store to a file.
+	 * The file starts with a header that contains the number of pages and the dictionaries, followed by
+	 * the arrays of identifiers, latitudes, longitudes, globes and types.
+	 * @param file The file where this store is saved.
+	 * @throws IOException when something goes wrong while writing the file.
+	 */
+	public void save(File file) throws IOException {
+		ByteArrayOutputStream header = new ByteArrayOutputStream();
+		DataOutputStream headerOut = new DataOutputStream(header);
+		headerOut.writeInt(size);
+		writeDictionary(headerOut, globeDictionary);
+		writeDictionary(headerOut, typeDictionary);
+		headerOut.close();
+		
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeInt(MAGIC_NUMBER);
+		out.writeInt(header.size());
+		header.writeTo(out);
+		for ( int i = 0; i < size; i += 1 )
+			out.writeInt(ids.get(i));
+		for ( int i = 0; i < size; i += 1 )
+			out.writeDouble(latitudes.get(i));
+		for ( int i = 0; i < size; i += 1 )
+			out.writeDouble(longitudes.get(i));
+		for ( int i = 0; i < size; i += 1 )
+			out.writeChar(globes.get(i));
+		for ( int i = 0; i < size; i += 1 )
+			out.writeChar(types.get(i));
+		out.close();
+	}
+
+	/**
+	 * Memory-maps a store that has been saved to a file with {@link #save(File)}.
+	 * Only the dictionaries are loaded on the heap.
+	 * @param file The file that contains the store.
+	 * @return The store.
+	 * @throws IOException when something goes wrong while reading the file or the file does not contain a store.
+	 */
+	public static GeotagStore map(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if ( raf.readInt() != MAGIC_NUMBER )
+				throw new IOException("Not a geotag store: " + file.getAbsolutePath());
+			byte[] header = new byte[raf.readInt()];
+			raf.readFully(header);
+			DataInputStream headerIn = new DataInputStream(new ByteArrayInputStream(header));
+			int size = headerIn.readInt();
+			String[] globeDictionary = readDictionary(headerIn);
+			String[] typeDictionary = readDictionary(headerIn);
+			long dataOffset = raf.getFilePointer();
+			MappedByteBuffer data = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, dataOffset, raf.length() - dataOffset);
+			return new GeotagStore(size, data, globeDictionary, typeDictionary);
+		} finally {
+			raf.close(); // the mapping remains valid after the file is closed.
+		}
+	}
+
+	/**
+	 * Writes a dictionary to a file.
+	 * @param out The output file.
+	 * @param dictionary The dictionary.
+	 * @throws IOException when something goes wrong while writing the file.
+	 */
+	private static void writeDictionary(DataOutputStream out, String[] dictionary) throws IOException {
+		out.writeInt(dictionary.length);
+		for ( int i = 1; i < dictionary.length; i += 1 )
+			out.writeUTF(dictionary[i]);
+	}
+
+	/**
+	 * Reads a dictionary from a file.
+	 * @param in The input file.
+	 * @return The dictionary.
+	 * @throws IOException when something goes wrong while reading the file.
+	 */
+	private static String[] readDictionary(DataInputStream in) throws IOException {
+		String[] dictionary = new String[in.readInt()];
+		for ( int i = 1; i < dictionary.length; i += 1 )
+			dictionary[i] = in.readUTF();
+		return dictionary;
+	}
+
+	/**
+	 * Builds a {@link GeotagStore}. 
+	 * The geotags can be added in any order; if the same page is added more than once, 
+	 * the geotags that are added first are kept.
+	 */
+	public static class Builder {
+
+		/**
+		 * The identifiers of the pages added so far.
+		 */
+		private int[] ids;
+
+		/**
+		 * The latitudes added so far.
+		 */
+		private double[] latitudes;
+
+		/**
+		 * The longitudes added so far.
+		 */
+		private double[] longitudes;
+
+		/**
+		 * The indexes of the globes added so far.
+		 */
+		private char[] globes;
+
+		/**
+		 * The indexes of the types added so far.
+		 */
+		private char[] types;
+
+		/**
+		 * The number of geotags added so far.
+		 */
+		private int size;
+
+		/**
+		 * The distinct globes added so far. 
+		 */
+		private Dictionary globeDictionary;
+
+		/**
+		 * The distinct types added so far.
+		 */
+		private Dictionary typeDictionary;
+
+		/**
+		 * Creates a new builder.
+		 */
+		public Builder() {
+			this.ids = new int[1024];
+			this.latitudes = new double[1024];
+			this.longitudes = new double[1024];
+			this.globes = new char[1024];
+			this.types = new char[1024];
+			this.size = 0;
+			this.globeDictionary = new Dictionary();
+			this.typeDictionary = new Dictionary();
+		}
+
+		/**
+		 * Adds the geotags of a page.
+		 * @param wikiid The identifier of the page.
+		 * @param globe The globe of the spatial entity, or {@code null}.
+		 * @param latitude The latitude of the spatial entity.
+		 * @param longitude The longitude of the spatial entity.
+		 * @param type The type of the spatial entity, or {@code null}.
+		 */
+		public void add(int wikiid, String globe, double latitude, double longitude, String type) {
+			if ( size == ids.length ) {
+				int capacity = ids.length * 2;
+				ids = Arrays.copyOf(ids, capacity);
+				latitudes = Arrays.copyOf(latitudes, capacity);
+				longitudes = Arrays.copyOf(longitudes, capacity);
+				globes = Arrays.copyOf(globes, capacity);
+				types = Arrays.copyOf(types, capacity);
+			}
+			ids[size] = wikiid;
+			latitudes[size] = latitude;
+			longitudes[size] = longitude;
+			globes[size] = globeDictionary.index(globe);
+			types[size] = typeDictionary.index(type);
+			size += 1;
+		}
+
+		/**
+		 * Returns the number of values that could not be added to the dictionaries because they
+		 * were full. These values are stored as {@code null}.
+		 * @return The number of globes and types that have been dropped.
+		 */
+		public int droppedValues() {
+			return globeDictionary.dropped + typeDictionary.dropped;
+		}
+
+		/**
+		 * Builds the store on the heap.
+		 * @return The store.
+		 */
+		public GeotagStore build() {
+			// Sorts the pages by identifier, then by insertion order, so as the first geotags added for a page are kept.
+			long[] order = new long[size];
+			for ( int i = 0; i < size; i += 1 )
+				order[i] = ((long)ids[i] << 32) | i;
+			Arrays.sort(order);
+			int distinct = 0;
+			for ( int i = 0; i < size; i += 1 )
+				if ( i == 0 || (int)(order[i] >> 32) != (int)(order[i-1] >> 32) )
+					distinct += 1;
+			ByteBuffer data = ByteBuffer.allocate(distinct * 24);
+			IntBuffer sortedIds = slice(data, 4 * distinct).asIntBuffer();
+			DoubleBuffer sortedLatitudes = slice(data, 8 * distinct).asDoubleBuffer();
+			DoubleBuffer sortedLongitudes = slice(data, 8 * distinct).asDoubleBuffer();
+			CharBuffer sortedGlobes = slice(data, 2 * distinct).asCharBuffer();
+			CharBuffer sortedTypes = slice(data, 2 * distinct).asCharBuffer();
+			for ( int i = 0; i < size; i += 1 ) {
+				if ( i > 0 && (int)(order[i] >> 32) == (int)(order[i-1] >> 32) )
+					continue;
+				int j = (int)order[i];
+				sortedIds.put(ids[j]);
+				sortedLatitudes.put(latitudes[j]);
+				sortedLongitudes.put(longitudes[j]);
+				sortedGlobes.put(globes[j]);
+				sortedTypes.put(types[j]);
+			}
+			return new GeotagStore(distinct, data, globeDictionary.values(), typeDictionary.values());
+		}
+	}
+
+	/**
+	 * A dictionary of strings, used to encode the globes and the types as small integers.
+	 */
+	private static class Dictionary {
+
+		/**
+		 * The index of each value.
+		 */
+		private final Map<String, Character> indexes = new HashMap<String, Character>();
+
+		/**
+		 * The values, in the order of their index (the index 0 stands for {@code null}).
+		 */
+		private final List<String> values = new ArrayList<String>(Arrays.asList((String)null));
+
+		/**
+		 * The number of values that could not be added because the dictionary was full.
+		 */
+		private int dropped = 0;
+
+		/**
+		 * Returns the index of a value, adding the value to this dictionary if needed.
+		 * @param value A value, or {@code null}.
+		 * @return The index of the value, or {@code 0} if the value is {@code null} or this dictionary is full. 
+		 */
+		char index(String value) {
+			if ( value == null )
+				return 0;
+			Character index = indexes.get(value);
+			if ( index != null )
+				return index;
+			if ( values.size() > MAX_DICTIONARY_SIZE ) {
+				dropped += 1;
+				return 0;
+			}
+			index = (char)values.size();
+			indexes.put(value, index);
+			values.add(value);
+			return index;
+		}
+
+		/**
+		 * Returns the values of this dictionary, in the order of their index.
+		 * @return The values of this dictionary.
+		 */
+		String[] values() {
+			return values.toArray(new String[values.size()]);
+		}
+	}
+
+}
@@ -27,15 +27,12 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.Timer;
 import java.util.logging.Logger;
 
-import org.graphipedia.dataextract.PleaseWait;
-import org.wikipedia.Wiki;
+import org.graphipedia.download.CategoryCrawler;
 
 /**
  * The set of templates in a Wikipedia language editoion that are used to generate infoboxes.
@@ -54,6 +51,8 @@ import org.wikipedia.Wiki;
  * If the file exists, Graphipedia loads the list of infobox templates from that file.
  * Otherwise, it downloads the list of templates directly from Wikipedia by using the MediaWiki API and stores the list
  * in a file named  {@code INFOBOX_TEMPLATES_FILE}.
+ * Alternatively, the list of templates can be obtained offline by visiting a {@link CategoryGraph} built from the 
+ * SQL dump files of the pages and the categories.
  *  
  */
 public class InfoboxTemplates  {
@@ -115,50 +114,51 @@ public class InfoboxTemplates  {
 	 * Loads the list of infobox templates directly from Wikipedia by using the MediaWiki API.
 	 * Writes the templates to a file named {@code INFOBOX_TEMPLATES_FILE} in the directory that
 	 * contains the necessary files to import a Wikipedia language edition.
-	 * @param language The code of the language edition to import.
+	 * @param crawler The crawler of the categories of the Wikipedia edition to import.
 	 * @param rootCategory The root category including the infobox templates.
 	 * @param outputFile The file where the infobox templates are written.
-	 * @param logger The logger of Graphipedia.
 	 * @throws IOException when something goes wrong while using the MediaWiki API or writing the output file.
 	 */
-	public void load(String language, String rootCategory, File outputFile, Logger logger) throws IOException {
+	public void load(CategoryCrawler crawler, String rootCategory, File outputFile) throws IOException {
+		List<String> templates = crawler.members(rootCategory, Namespace.TEMPLATE);
 		BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile));
-		Set<String> visitedCategories = new HashSet<String>();
-		Wiki wiki = new Wiki(language + ".wikipedia.org");
-		List<String> categories = new ArrayList<String>();
-		categories.add(rootCategory);
-		Timer timer = new Timer();
-		PleaseWait pleaseWait = new PleaseWait(logger);
-		timer.schedule(pleaseWait, 0, 10000);
-		for ( int i = 0; i < categories.size(); i += 1 ) {
-			String currentCategory = categories.get(i);
-			String[] cats = null;
-			do {
-				cats = wiki.getCategoryMembers(currentCategory, Namespace.CATEGORY);
-			} while( cats == null );
-		
-			for (String cat : cats) 
-				if ( !visitedCategories.contains(cat) ) {
-					visitedCategories.add(cat);
-					categories.add(cat);
-				}
-			String[] templates = null;
-			do {
-				templates = wiki.getCategoryMembers(currentCategory, Namespace.TEMPLATE);
-			} while( templates == null ); 
-			
+		try {
 			for ( String template : templates ) {
 				int colonIndex = template.indexOf(":");
 				String templateName = template.substring(colonIndex + 1);
 				infoboxTemplates.add(templateName);
-				pleaseWait.addDetails("infobox templates extracted so far " + infoboxTemplates.size());
 				bw.write(templateName + "\n");
 			}
+		} finally {
+			bw.close();
+		}
+	}
 
+	/**
+	 * Loads the list of infobox templates from the SQL dump files of a Wikipedia language edition, without using 
+	 * the MediaWiki API.
+	 * The templates are obtained by visiting breadth-first the graph of the categories from the root category.
+	 * Writes the templates to the file {@code outputFile}.
+	 * @param pageFile The SQL dump file of the pages.
+	 * @param categoryLinksFile The SQL dump file of the categories of the pages.
+	 * @param linkTargetFile The SQL dump file of the link targets, if any, {@code null} otherwise.
+	 * @param rootCategory The root category including the infobox templates.
+	 * @param outputFile The file where the infobox templates are written.
+	 * @param logger The logger of Graphipedia.
+	 * @throws IOException when something goes wrong while reading the dump files or writing the output file.
+	 */
+	public void load(File pageFile, File categoryLinksFile, File linkTargetFile, String rootCategory, 
+			File outputFile, Logger logger) throws IOException {
+		CategoryGraph graph = CategoryGraph.load(pageFile, categoryLinksFile, linkTargetFile, Namespace.TEMPLATE, logger);
+		BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile));
+		try {
+			for ( String templateName : graph.members(rootCategory) ) {
+				infoboxTemplates.add(templateName);
+				bw.write(templateName + "\n");
+			}
+		} finally {
+			bw.close();
 		}
-		timer.cancel();
-		pleaseWait.stop();
-		bw.close();
 	}
 
 	/**
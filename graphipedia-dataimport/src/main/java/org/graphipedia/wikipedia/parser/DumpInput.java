@@ -0,0 +1,237 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.wikipedia.parser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.compress.compressors.CompressorException;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.graphipedia.download.ActiveDownload;
+import org.graphipedia.metrics.CountingInputStream;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.StageRecord;
+
+/**
+ * Opens the input of a parser: a file (possibly still being downloaded, see {@link ActiveDownload}), 
+ * a named pipe or the standard input, compressed or not.
+ * The codec of the input is detected from its first bytes ({@link #AUTO}), or given explicitly, so that the 
+ * input can be fed by an external decompressor (e.g., {@code lbzip2 -dc}) or by any other producer 
+ * without an intermediate file.
+ * An uncompressed file that is not being downloaded is memory-mapped (see {@link MappedFileInputStream}), 
+ * and can be split into regions of whole pages that are parsed in parallel.
+ * The bytes read from the inputs and the bytes decompressed are counted in the {@link MetricsRegistry} 
+ * (along with the sizes of the files, from which the progress reporter estimates the remaining time) 
+ * and in the stage of the thread that opens the input (see {@link StageRecord}).
+ */
+public final class DumpInput {
+
+	/**
+	 * The location of the standard input.
+	 */
+	public static final String STDIN = "-";
+
+	/**
+	 * The codec that is detected from the first bytes of the input: one of the formats supported by 
+	 * {@link CompressorStreamFactory}, or uncompressed text.
+	 */
+	public static final String AUTO = "auto";
+
+	/**
+	 * The codec of an uncompressed input.
+	 */
+	public static final String NONE = "none";
+
+	/**
+	 * The size (in bytes) of the buffer of the input.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The opening tag of a page in a XML dump.
+	 */
+	private static final byte[] PAGE_TAG = "<page>".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * The opening tag of the root element of a XML dump.
+	 */
+	private static final byte[] ROOT_START_TAG = "<mediawiki>".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * The closing tag of the root element of a XML dump.
+	 */
+	private static final byte[] ROOT_END_TAG = "</mediawiki>".getBytes(StandardCharsets.UTF_8);
+
+	/**
+	 * This class cannot be instantiated.
+	 */
+	private DumpInput() {
+	}
+
+	/**
+	 * Opens an input.
+	 * @param location The path of a file or a named pipe, or {@code STDIN}.
+	 * @param codec The codec of the input: {@code AUTO}, {@code NONE} or the name of a format supported by 
+	 * {@link CompressorStreamFactory} (e.g., {@code bzip2}, {@code gz}).
+	 * @return The decoded input, which supports {@code mark} and {@code reset}.
+	 * @throws IOException when the input cannot be opened or its codec is not supported.
+	 */
+	public static InputStream open(String location, String codec) throws IOException {
+		File file = mappableFile(location, codec);
+		if ( file != null )
+			return countingInput(new MappedFileInputStream(file), file.length());
+		InputStream input = location.equals(STDIN) ? System.in : ActiveDownload.openInput(new File(location));
+		// the size of a file being downloaded is not known yet.
+		if ( location.equals(STDIN) || ActiveDownload.of(new File(location)) != null )
+			input = new CountingInputStream(input, StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.INPUT_BYTES_READ), 
+					StageRecord.Count.bytesRead));
+		else
+			input = countingInput(input, new File(location).length());
+		try {
+			return decode(input, codec);
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Decodes an input.
+	 * @param input The input.
+	 * @param codec The codec of the input: {@code AUTO}, {@code NONE} or the name of a format supported by 
+	 * {@link CompressorStreamFactory}.
+	 * @return The decoded input, buffered.
+	 * @throws IOException when the codec of the input is not supported.
+	 */
+	public static InputStream decode(InputStream input, String codec) throws IOException {
+		BufferedInputStream bis = new BufferedInputStream(input, BUFFER_SIZE);
+		if ( codec.equals(NONE) )
+			return bis;
+		try {
+			InputStream decompressed;
+			if ( !codec.equals(AUTO) )
+				decompressed = new CompressorStreamFactory().createCompressorInputStream(codec, bis);
+			else if ( isText(bis) )
+				return bis;
+			else
+				decompressed = new CompressorStreamFactory().createCompressorInputStream(bis);
+			return new BufferedInputStream(new CountingInputStream(decompressed, StageRecord.counter(
+					MetricsRegistry.global().meter(MetricsRegistry.BYTES_DECOMPRESSED), StageRecord.Count.bytesReadDecompressed)), 
+					BUFFER_SIZE);
+		} catch (CompressorException e) {
+			throw new IOException("Unsupported codec of the input: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the file of an input if it is memory-mapped when opened: an uncompressed regular file 
+	 * that is not being downloaded.
+	 * @param location The path of a file or a named pipe, or {@code STDIN}.
+	 * @param codec The codec of the input.
+	 * @return The file of the input, or {@code null} if the input is not memory-mapped.
+	 * @throws IOException when the file cannot be read.
+	 */
+	public static File mappableFile(String location, String codec) throws IOException {
+		if ( location.equals(STDIN) )
+			return null;
+		File file = new File(location);
+		if ( !file.isFile() || ActiveDownload.of(file) != null || !(codec.equals(NONE) || codec.equals(AUTO)) )
+			return null;
+		if ( codec.equals(NONE) )
+			return file;
+		MappedFileInputStream input = new MappedFileInputStream(file);
+		try {
+			return isText(input) ? file : null;
+		} finally {
+			input.close();
+		}
+	}
+
+	/**
+	 * Splits an uncompressed XML dump into regions of whole pages, each of which is read as a 
+	 * well-formed XML document: the first region contains the site information and the first pages, 
+	 * the other regions are enclosed in a root element.
+	 * @param file The uncompressed XML dump (see {@link #mappableFile(String, String)}).
+	 * @param parts The number of regions.
+	 * @return The regions, in the order of the file; there are less than {@code parts} regions 
+	 * when the dump has not enough pages.
+	 * @throws IOException when the file cannot be read.
+	 */
+	public static List<InputStream> regions(File file, int parts) throws IOException {
+		long[] offsets = MappedFileInputStream.split(file, parts, PAGE_TAG);
+		List<InputStream> regions = new ArrayList<InputStream>();
+		for ( int i = 0; i < offsets.length - 1; i += 1 ) {
+			List<InputStream> region = new ArrayList<InputStream>();
+			if ( i > 0 )
+				region.add(new ByteArrayInputStream(ROOT_START_TAG));
+			region.add(countingInput(new MappedFileInputStream(file, offsets[i], offsets[i + 1]), offsets[i + 1] - offsets[i]));
+			if ( i < offsets.length - 2 )
+				region.add(new ByteArrayInputStream(ROOT_END_TAG));
+			regions.add(new SequenceInputStream(Collections.enumeration(region)));
+		}
+		return regions;
+	}
+
+	/**
+	 * Wraps an input of known length, so that the bytes read and the length are counted in the {@link MetricsRegistry}, 
+	 * and the bytes read in the stage of the current thread.
+	 * @param input The input.
+	 * @param length The length (in bytes) of the input.
+	 * @return The counting input.
+	 */
+	private static InputStream countingInput(InputStream input, long length) {
+		return new CountingInputStream(input, StageRecord.counter(MetricsRegistry.global().meter(MetricsRegistry.INPUT_BYTES_READ), 
+				StageRecord.Count.bytesRead), MetricsRegistry.global().counter(MetricsRegistry.INPUT_BYTES_TOTAL), length);
+	}
+
+	/**
+	 * Returns whether an input starts with uncompressed text (a XML declaration, a tag or a SQL comment), 
+	 * possibly after a byte order mark or white spaces.
+	 * @param bis The input, which supports {@code mark} and is reset to its first byte.
+	 * @return {@code true} if the input is uncompressed text, {@code false} otherwise.
+	 * @throws IOException when the input cannot be read.
+	 */
+	private static boolean isText(InputStream bis) throws IOException {
+		bis.mark(64);
+		try {
+			for ( int i = 0; i < 64; i += 1 ) {
+				int b = bis.read();
+				if ( b == '<' || b == '-' || b == '/' )
+					return true;
+				if ( b != ' ' && b != '\t' && b != '\r' && b != '\n' && b != 0xEF && b != 0xBB && b != 0xBF )
+					return false;
+			}
+			return false;
+		} finally {
+			bis.reset();
+		}
+	}
+
+}
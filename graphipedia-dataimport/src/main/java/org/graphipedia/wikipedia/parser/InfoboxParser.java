@@ -54,9 +54,24 @@ public class InfoboxParser {
 	 * 
 	 */
 	public Infobox parse(String text) {
+		return parse(text, 0);
+	}
+
+	/**
+	 * Parses the given text of a Wikipedia page and returns its infobox, if any, within a time budget 
+	 * (see {@link WikiTextParser#parse(String, String, long)}).
+	 * The budget is checked before each template, as the brackets of a template that is never closed are scanned 
+	 * to the end of the text.
+	 * 
+	 * @param text The wiki code of a Wikipedia page.
+	 * @param deadline The value of {@link System#nanoTime()} at which the time budget runs out, or {@code 0} for no limit.
+	 * @return The infobox of the Wikipedia page, if any, or {@code null} if no infobox exists.
+	 */
+	Infobox parse(String text, long deadline) {
 		int startPos = -1;
 		int endPos = -1;
 		while( (startPos = text.indexOf("{{", endPos + 1)) >=0 ) {
+			WikiTextParser.checkDeadline(deadline);
 			int bracketCount = 2;
 			endPos = startPos + "{{".length();
 			for(; endPos < text.length(); endPos++) {
@@ -0,0 +1,231 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.wikipedia.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a region of a file through a memory mapping.
+ * The file is mapped in chunks of {@code CHUNK_SIZE} bytes, one at a time, and the bytes are copied 
+ * directly from the page cache to the buffer of the reader, without an intermediate buffer. 
+ * The stream supports {@code mark} and {@code reset} with no limit on the number of bytes read in between.
+ * The file must not change while it is being read.
+ */
+public class MappedFileInputStream extends InputStream {
+
+	/**
+	 * The maximum size (in bytes) of a mapped chunk of the file.
+	 */
+	private static final long CHUNK_SIZE = 1L << 30;
+
+	/**
+	 * The channel of the file.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * The offset of the end of the region (excluded).
+	 */
+	private final long end;
+
+	/**
+	 * The offset of the next byte to read.
+	 */
+	private long position;
+
+	/**
+	 * The offset saved by the last call to {@code mark}.
+	 */
+	private long markPosition;
+
+	/**
+	 * The offset of the chunk that is currently mapped.
+	 */
+	private long chunkStart;
+
+	/**
+	 * The chunk that is currently mapped, or {@code null}.
+	 */
+	private MappedByteBuffer chunk;
+
+	/**
+	 * Creates a stream that reads a whole file.
+	 * @param file The file.
+	 * @throws IOException when the file cannot be opened.
+	 */
+	public MappedFileInputStream(File file) throws IOException {
+		this(file, 0, -1);
+	}
+
+	/**
+	 * Creates a stream that reads a region of a file.
+	 * @param file The file.
+	 * @param start The offset of the first byte of the region.
+	 * @param end The offset of the end of the region (excluded), or {@code -1} for the end of the file.
+	 * @throws IOException when the file cannot be opened.
+	 */
+	public MappedFileInputStream(File file, long start, long end) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		this.channel = raf.getChannel();
+		this.end = end < 0 ? channel.size() : Math.min(end, channel.size());
+		this.position = start;
+		this.markPosition = start;
+		this.chunkStart = -1;
+		this.chunk = null;
+	}
+
+	/**
+	 * Splits a file into regions that start with a delimiter, so that each region can be read independently.
+	 * The regions have roughly the same size; the first region starts at the beginning of the file, and each 
+	 * of the other regions starts at the first occurrence of the delimiter after its nominal start. 
+	 * The first byte of the delimiter must not occur again in the delimiter (e.g., {@code <page>}).
+	 * @param file The file.
+	 * @param parts The number of regions.
+	 * @param delimiter The delimiter.
+	 * @return The offsets of the regions, followed by the size of the file; there are less than 
+	 * {@code parts} regions when the delimiter does not occur often enough.
+	 * @throws IOException when the file cannot be read.
+	 */
+	public static long[] split(File file, int parts, byte[] delimiter) throws IOException {
+		long size = file.length();
+		List<Long> offsets = new ArrayList<Long>();
+		offsets.add(0L);
+		long from = 0;
+		for ( int i = 1; i < parts; i += 1 ) {
+			from = Math.max(from, size / parts * i);
+			MappedFileInputStream input = new MappedFileInputStream(file, from, -1);
+			try {
+				from = input.find(delimiter);
+			} finally {
+				input.close();
+			}
+			if ( from < 0 )
+				break;
+			if ( from > offsets.get(offsets.size() - 1) )
+				offsets.add(from);
+			from += delimiter.length;
+		}
+		long[] regions = new long[offsets.size() + 1];
+		for ( int i = 0; i < offsets.size(); i += 1 )
+			regions[i] = offsets.get(i);
+		regions[offsets.size()] = size;
+		return regions;
+	}
+
+	/**
+	 * Reads the stream until the first occurrence of a delimiter.
+	 * @param delimiter The delimiter, whose first byte does not occur again in it.
+	 * @return The offset of the delimiter in the file, or {@code -1} if the delimiter does not occur.
+	 * @throws IOException when the file cannot be read.
+	 */
+	private long find(byte[] delimiter) throws IOException {
+		int matched = 0;
+		int b;
+		while ( (b = read()) >= 0 ) {
+			if ( b == (delimiter[matched] & 0xff) )
+				matched += 1;
+			else
+				matched = b == (delimiter[0] & 0xff) ? 1 : 0;
+			if ( matched == delimiter.length )
+				return position - delimiter.length;
+		}
+		return -1;
+	}
+
+	/**
+	 * Maps the chunk that contains the next byte to read.
+	 * @return {@code false} if the end of the region is reached, {@code true} otherwise.
+	 * @throws IOException when the file cannot be mapped.
+	 */
+	private boolean map() throws IOException {
+		if ( position >= end )
+			return false;
+		if ( chunk != null && position >= chunkStart && position < chunkStart + chunk.limit() ) {
+			chunk.position((int) (position - chunkStart));
+			return true;
+		}
+		chunkStart = position;
+		chunk = channel.map(FileChannel.MapMode.READ_ONLY, chunkStart, Math.min(CHUNK_SIZE, end - chunkStart));
+		return true;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if ( !map() )
+			return -1;
+		position += 1;
+		return chunk.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if ( len == 0 )
+			return 0;
+		if ( !map() )
+			return -1;
+		int n = Math.min(len, chunk.remaining());
+		chunk.get(b, off, n);
+		position += n;
+		return n;
+	}
+
+	@Override
+	public long skip(long n) throws IOException {
+		long skipped = Math.max(0, Math.min(n, end - position));
+		position += skipped;
+		return skipped;
+	}
+
+	@Override
+	public int available() throws IOException {
+		return (int) Math.min(Integer.MAX_VALUE, Math.max(0, end - position));
+	}
+
+	@Override
+	public boolean markSupported() {
+		return true;
+	}
+
+	@Override
+	public synchronized void mark(int readlimit) {
+		markPosition = position;
+	}
+
+	@Override
+	public synchronized void reset() throws IOException {
+		position = markPosition;
+	}
+
+	@Override
+	public void close() throws IOException {
+		chunk = null; // the mapping is released when the chunk is garbage collected.
+		channel.close();
+	}
+
+}
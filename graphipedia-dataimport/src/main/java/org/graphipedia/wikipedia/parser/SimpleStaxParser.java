@@ -21,8 +21,6 @@
 //
 package org.graphipedia.wikipedia.parser;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
@@ -34,9 +32,6 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.events.XMLEvent;
 
-import org.apache.commons.compress.compressors.CompressorException;
-import org.apache.commons.compress.compressors.CompressorInputStream;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
 import org.codehaus.stax2.XMLInputFactory2;
 
 /**
@@ -90,30 +85,22 @@ public abstract class SimpleStaxParser {
 	protected abstract boolean handleElement(String element, String value, List<String> attributeValues) throws XMLStreamException;
 
 	/**
-	 * Parses a XML file.
-	 * @param fileName The name of the XML file to parse.
+	 * Parses a XML file, compressed or not (see {@link DumpInput}); an uncompressed file is memory-mapped.
+	 * @param fileName The name of the XML file to parse (or of a named pipe, or {@link DumpInput#STDIN}).
 	 * @throws IOException when something goes wrong while reading the input file.
 	 * @throws XMLStreamException when something goes wrong while parsing the XML file.
-	 * @throws CompressorException when something goes wrong while opening the XML file (compressed file).
 	 */
-	public void parse(String fileName) throws IOException, XMLStreamException, CompressorException {
-		
-		FileInputStream fin = new FileInputStream(fileName);
-	    BufferedInputStream bis = new BufferedInputStream(fin);
-	    CompressorInputStream input = new CompressorStreamFactory().createCompressorInputStream(bis);
-	    parse(input);
-	    fin.close();
-	    bis.close();
-	    input.close();
+	public void parse(String fileName) throws IOException, XMLStreamException {
+		parse(DumpInput.open(fileName, DumpInput.AUTO));
 	}
 
 	/**
-	 * Parses a XML file. 
-	 * @param inputStream The input XML stream.
+	 * Parses a XML stream, which is closed when the parsing ends. 
+	 * @param inputStream The input XML stream (uncompressed).
 	 * @throws IOException when something goes wrong while reading the input file.
 	 * @throws XMLStreamException when something goes wrong while parsing the XML file.
 	 */
-	private void parse(InputStream inputStream) throws IOException, XMLStreamException {
+	public void parse(InputStream inputStream) throws IOException, XMLStreamException {
 		XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream, "UTF-8");
 		try {
 			parseElements(reader);
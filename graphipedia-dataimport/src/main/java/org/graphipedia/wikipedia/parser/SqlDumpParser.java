@@ -0,0 +1,190 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.wikipedia.parser;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.graphipedia.metrics.Counter;
+import org.graphipedia.metrics.MetricsRegistry;
+import org.graphipedia.metrics.StageRecord;
+
+/**
+ * A parser of a SQL dump file of a Wikipedia language edition (e.g., the file that contains the geotags or the 
+ * cross-language links).
+ * A SQL dump file is a sequence of {@code INSERT INTO} statements, each inserting a list of tuples into a table.
+ * The statements are independent from each other. Therefore, the thread that reads the file hands each statement 
+ * to a pool of worker threads, which parse the tuples of the statement into a partial result. 
+ * The partial results are merged by the thread that reads the file, in the same order as the statements 
+ * appear in the file.
+ * If only one worker thread is requested, the statements are parsed one after another by the thread that reads the file.
+ * 
+ * @param <T> The type of the partial result obtained by parsing one statement.
+ */
+public abstract class SqlDumpParser<T> {
+
+	/**
+	 * The maximum number of statements per worker thread that are waiting to be merged.
+	 * This bounds the number of statements (and partial results) held in memory.
+	 */
+	private static final int PENDING_STATEMENTS_PER_THREAD = 2;
+
+	/**
+	 * Pattern to extract the list of tuples of a statement from the SQL dump file.
+	 */
+	private final Pattern statementPattern;
+
+	/**
+	 * The number of worker threads that parse the statements.
+	 */
+	private final int threads;
+
+	/**
+	 * Creates a new parser.
+	 * @param table The name of the table the tuples of which are parsed.
+	 * @param threads The number of worker threads that parse the statements.
+	 */
+	public SqlDumpParser(String table, int threads) {
+		this.statementPattern = Pattern.compile("INSERT INTO `" + table + "` VALUES (.+)");
+		this.threads = threads;
+	}
+
+	/**
+	 * Parses the tuples of a statement. 
+	 * This method is invoked concurrently by the worker threads and must not modify any shared state.
+	 * @param values The list of tuples of a statement.
+	 * @return The partial result obtained from the given tuples.
+	 * @throws Exception when something goes wrong while parsing the tuples.
+	 */
+	protected abstract T parseStatement(String values) throws Exception;
+
+	/**
+	 * Merges the partial result obtained from a statement. 
+	 * This method is only invoked by the thread that reads the file, in the same order as the statements appear in the file.
+	 * @param result The partial result obtained from a statement.
+	 * @throws Exception when something goes wrong while merging the partial result.
+	 */
+	protected abstract void merge(T result) throws Exception;
+
+	/**
+	 * Parses a SQL dump file.
+	 * @param inputStream The input stream (not compressed).
+	 * @throws Exception when something goes wrong while reading the file or parsing the statements.
+	 */
+	public void parse(InputStream inputStream) throws Exception {
+		BufferedReader bd  = new BufferedReader(new InputStreamReader(inputStream, "UTF-8"));
+		try {
+			if ( threads <= 1 )
+				parseSequentially(bd);
+			else
+				parseConcurrently(bd);
+		} finally {
+			bd.close();
+		}
+	}
+
+	/**
+	 * Parses the statements one after another in the current thread.
+	 * @param bd The reader of the SQL dump file.
+	 * @throws Exception when something goes wrong while reading the file or parsing the statements.
+	 */
+	private void parseSequentially(BufferedReader bd) throws Exception {
+		String line;
+		while( (line = bd.readLine()) != null ) {
+			Matcher matcher = statementPattern.matcher(line);
+			if ( matcher.find() )
+				merge(parseStatement(matcher.group(1)));
+		}
+	}
+
+	/**
+	 * Hands the statements to the worker threads and merges their partial results.
+	 * @param bd The reader of the SQL dump file.
+	 * @throws Exception when something goes wrong while reading the file or parsing the statements.
+	 */
+	private void parseConcurrently(BufferedReader bd) throws Exception {
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		LinkedList<Future<T>> pending = new LinkedList<Future<T>>();
+		Counter pendingCounter = MetricsRegistry.global().counter(MetricsRegistry.SQL_STATEMENTS_PENDING);
+		final StageRecord stage = StageRecord.current();
+		try {
+			String line;
+			while( (line = bd.readLine()) != null ) {
+				Matcher matcher = statementPattern.matcher(line);
+				if ( !matcher.find() )
+					continue;
+				final String values = matcher.group(1);
+				pending.add(workers.submit(new Callable<T>() {
+					@Override
+					public T call() throws Exception {
+						if ( stage == null )
+							return parseStatement(values);
+						stage.attach();
+						try {
+							return parseStatement(values);
+						} finally {
+							stage.detach();
+						}
+					}
+				}));
+				pendingCounter.increment();
+				if ( pending.size() >= threads * PENDING_STATEMENTS_PER_THREAD ) {
+					pendingCounter.add(-1);
+					merge(result(pending.removeFirst()));
+				}
+			}
+			while ( !pending.isEmpty() ) {
+				pendingCounter.add(-1);
+				merge(result(pending.removeFirst()));
+			}
+		} finally {
+			pendingCounter.add(-pending.size());
+			workers.shutdownNow();
+		}
+	}
+
+	/**
+	 * Waits for a worker thread to parse a statement and returns the partial result.
+	 * @param future The pending partial result.
+	 * @return The partial result.
+	 * @throws Exception the exception thrown by the worker thread, if any.
+	 */
+	private T result(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			if ( e.getCause() instanceof Exception )
+				throw (Exception)e.getCause();
+			throw e;
+		}
+	}
+
+}
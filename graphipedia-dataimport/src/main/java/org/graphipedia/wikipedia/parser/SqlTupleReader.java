@@ -0,0 +1,385 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.wikipedia.parser;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A reader of the tuples of a table in a SQL dump file of a Wikipedia language edition (e.g., the file that 
+ * contains the pages or the links between the pages).
+ * Unlike {@link SqlDumpParser}, that hands whole {@code INSERT INTO} statements to the caller, this reader scans 
+ * the file one character at a time and returns one tuple at a time, in the same order as they appear in the file. 
+ * This is what is needed to merge several dump files sorted by the same key, and it 
+ * never holds more than one tuple in memory, even if a statement is several megabytes long.
+ * 
+ * The columns of the table are identified by their names, as declared in the {@code CREATE TABLE} statement at the 
+ * beginning of the file, so as the reader is not affected by changes in the schema of the tables.
+ */
+public class SqlTupleReader implements Closeable {
+
+	/**
+	 * The size of the buffer used to read the file.
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * The maximum number of characters of a line that are kept while looking for the beginning of a statement.
+	 */
+	private static final int MAX_LINE_PREFIX = 1024;
+
+	/**
+	 * Pattern to extract the name of a column from the {@code CREATE TABLE} statement.
+	 */
+	private static final Pattern COLUMN_PATTERN = Pattern.compile("^\\s*`(\\w+)`\\s+.*");
+
+	/**
+	 * The file being read.
+	 */
+	private final Reader reader;
+
+	/**
+	 * The buffer used to read the file.
+	 */
+	private final char[] buffer;
+
+	/**
+	 * The number of characters in the buffer.
+	 */
+	private int bufferLength;
+
+	/**
+	 * The position of the next character in the buffer.
+	 */
+	private int bufferPosition;
+
+	/**
+	 * The beginning of the {@code CREATE TABLE} statement of the table.
+	 */
+	private final String createTablePrefix;
+
+	/**
+	 * The beginning of the {@code INSERT INTO} statements of the table.
+	 */
+	private final String insertPrefix;
+
+	/**
+	 * The names of the columns of the table.
+	 */
+	private final List<String> columns;
+
+	/**
+	 * The values of the current tuple.
+	 */
+	private final List<String> values;
+
+	/**
+	 * Whether the reader is in the middle of a {@code INSERT INTO} statement.
+	 */
+	private boolean inStatement;
+
+	/**
+	 * Whether the end of the file has been reached.
+	 */
+	private boolean endOfFile;
+
+	/**
+	 * Used to build the values of a tuple.
+	 */
+	private final StringBuilder value;
+
+	/**
+	 * Creates a new reader. 
+	 * The {@code CREATE TABLE} statement of the table is read immediately.
+	 * @param inputStream The SQL dump file (not compressed).
+	 * @param table The name of the table.
+	 * @throws IOException when something goes wrong while reading the file.
+	 */
+	public SqlTupleReader(InputStream inputStream, String table) throws IOException {
+		this.reader = new InputStreamReader(inputStream, "UTF-8");
+		this.buffer = new char[BUFFER_SIZE];
+		this.bufferLength = 0;
+		this.bufferPosition = 0;
+		this.createTablePrefix = "CREATE TABLE `" + table + "`";
+		this.insertPrefix = "INSERT INTO `" + table + "` VALUES ";
+		this.columns = new ArrayList<String>();
+		this.values = new ArrayList<String>();
+		this.value = new StringBuilder();
+		this.inStatement = false;
+		this.endOfFile = false;
+		nextStatement();
+	}
+
+	/**
+	 * Opens a SQL dump file, compressed or not (an uncompressed file is memory-mapped, see {@link DumpInput}).
+	 * @param file The SQL dump file.
+	 * @param table The name of the table in the file.
+	 * @return The reader of the tuples of the table.
+	 * @throws IOException when something goes wrong while opening the file.
+	 */
+	public static SqlTupleReader open(File file, String table) throws IOException {
+		InputStream input;
+		try {
+			input = DumpInput.open(file.getAbsolutePath(), DumpInput.AUTO);
+		} catch (IOException e) {
+			throw new IOException("Cannot decompress file " + file.getAbsolutePath(), e);
+		}
+		try {
+			return new SqlTupleReader(input, table);
+		} catch (IOException e) {
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the position of a column of the table.
+	 * @param name The name of the column.
+	 * @return The position of the column, or {@code -1} if the table has no such column.
+	 */
+	public int column(String name) {
+		return columns.indexOf(name);
+	}
+
+	/**
+	 * Returns the position of a column of the table, that must exist.
+	 * @param name The name of the column.
+	 * @return The position of the column.
+	 * @throws IOException when the table has no such column.
+	 */
+	public int requiredColumn(String name) throws IOException {
+		int column = column(name);
+		if ( column < 0 )
+			throw new IOException("Column " + name + " not found in " + createTablePrefix);
+		return column;
+	}
+
+	/**
+	 * Reads the next tuple.
+	 * @return {@code true} if a tuple has been read, {@code false} if the end of the file has been reached.
+	 * @throws IOException when something goes wrong while reading the file or the file is malformed.
+	 */
+	public boolean next() throws IOException {
+		if ( !inStatement && !nextStatement() )
+			return false;
+		values.clear();
+		int c = skipWhitespace();
+		if ( c != '(' )
+			throw new IOException("Malformed " + insertPrefix + " statement: expected '(' but found " + describe(c));
+		while ( true ) {
+			c = skipWhitespace();
+			if ( c == '\'' )
+				c = readQuotedValue();
+			else
+				c = readUnquotedValue(c);
+			if ( c == ')' )
+				break;
+			if ( c != ',' )
+				throw new IOException("Malformed " + insertPrefix + " statement: expected ',' but found " + describe(c));
+		}
+		c = skipWhitespace();
+		if ( c == ';' )
+			inStatement = false;
+		else if ( c != ',' )
+			throw new IOException("Malformed " + insertPrefix + " statement: expected ',' or ';' but found " + describe(c));
+		return true;
+	}
+
+	/**
+	 * Returns a value of the current tuple.
+	 * @param column The position of the column.
+	 * @return The value of the given column in the current tuple ({@code null} if the value is {@code NULL}).
+	 */
+	public String get(int column) {
+		return values.get(column);
+	}
+
+	/**
+	 * Returns a numerical value of the current tuple.
+	 * @param column The position of the column.
+	 * @return The value of the given column in the current tuple.
+	 * @throws IOException when the value is not a number.
+	 */
+	public long getLong(int column) throws IOException {
+		try {
+			return Long.parseLong(values.get(column));
+		}
+		catch(NumberFormatException e) {
+			throw new IOException("Not a number in column " + columns.get(column) + ": " + values.get(column));
+		}
+	}
+
+	/**
+	 * Returns a numerical value of the current tuple.
+	 * @param column The position of the column.
+	 * @return The value of the given column in the current tuple.
+	 * @throws IOException when the value is not a number.
+	 */
+	public int getInt(int column) throws IOException {
+		try {
+			return Integer.parseInt(values.get(column));
+		}
+		catch(NumberFormatException e) {
+			throw new IOException("Not a number in column " + columns.get(column) + ": " + values.get(column));
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	/**
+	 * Reads the file up to the beginning of the next {@code INSERT INTO} statement of the table, 
+	 * collecting the names of the columns from the {@code CREATE TABLE} statement along the way.
+	 * @return {@code true} if a statement has been found, {@code false} if the end of the file has been reached.
+	 * @throws IOException when something goes wrong while reading the file.
+	 */
+	private boolean nextStatement() throws IOException {
+		StringBuilder line = new StringBuilder();
+		boolean inCreateTable = false;
+		while ( !endOfFile ) {
+			int c = read();
+			if ( c < 0 || c == '\n' ) {
+				String text = line.toString();
+				if ( text.startsWith(createTablePrefix) ) {
+					inCreateTable = true;
+					columns.clear();
+				}
+				else if ( inCreateTable ) {
+					Matcher matcher = COLUMN_PATTERN.matcher(text);
+					if ( matcher.matches() )
+						columns.add(matcher.group(1));
+					else if ( text.startsWith(")") )
+						inCreateTable = false;
+				}
+				line.setLength(0);
+				continue;
+			}
+			if ( line.length() < MAX_LINE_PREFIX )
+				line.append((char)c);
+			if ( line.length() == insertPrefix.length() && line.toString().equals(insertPrefix) ) {
+				inStatement = true;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads a value enclosed in single quotes, the opening quote being already read.
+	 * @return The character that follows the value.
+	 * @throws IOException when something goes wrong while reading the file or the value is not terminated.
+	 */
+	private int readQuotedValue() throws IOException {
+		value.setLength(0);
+		while ( true ) {
+			int c = read();
+			if ( c < 0 )
+				throw new IOException("Unterminated string in " + insertPrefix + " statement");
+			if ( c == '\'' )
+				break;
+			if ( c == '\\' ) {
+				c = read();
+				switch ( c ) {
+				case 'n': c = '\n'; break;
+				case 'r': c = '\r'; break;
+				case 't': c = '\t'; break;
+				case '0': c = '\0'; break;
+				case 'Z': c = '\032'; break;
+				case -1: throw new IOException("Unterminated string in " + insertPrefix + " statement");
+				default: break; // \\, \', \" and any other escaped character stand for themselves.
+				}
+			}
+			value.append((char)c);
+		}
+		values.add(value.toString());
+		return skipWhitespace();
+	}
+
+	/**
+	 * Reads a value that is not enclosed in quotes (a number or {@code NULL}).
+	 * @param first The first character of the value.
+	 * @return The character that follows the value.
+	 * @throws IOException when something goes wrong while reading the file.
+	 */
+	private int readUnquotedValue(int first) throws IOException {
+		value.setLength(0);
+		int c = first;
+		while ( c >= 0 && c != ',' && c != ')' ) {
+			value.append((char)c);
+			c = read();
+		}
+		String text = value.toString().trim();
+		values.add(text.equals("NULL") ? null : text);
+		return c;
+	}
+
+	/**
+	 * Skips the whitespace characters.
+	 * @return The first character that is not a whitespace, or {@code -1} if the end of the file is reached.
+	 * @throws IOException when something goes wrong while reading the file.
+	 */
+	private int skipWhitespace() throws IOException {
+		int c;
+		do {
+			c = read();
+		} while ( c == ' ' || c == '\n' || c == '\r' || c == '\t' );
+		return c;
+	}
+
+	/**
+	 * Reads the next character of the file.
+	 * @return The next character, or {@code -1} if the end of the file is reached.
+	 * @throws IOException when something goes wrong while reading the file.
+	 */
+	private int read() throws IOException {
+		if ( bufferPosition == bufferLength ) {
+			bufferLength = reader.read(buffer, 0, buffer.length);
+			bufferPosition = 0;
+			if ( bufferLength <= 0 ) {
+				bufferLength = 0;
+				endOfFile = true;
+				return -1;
+			}
+		}
+		return buffer[bufferPosition++];
+	}
+
+	/**
+	 * Describes a character in an error message.
+	 * @param c A character, or {@code -1}.
+	 * @return The description of the character.
+	 */
+	private static String describe(int c) {
+		return c < 0 ? "end of file" : "'" + (char)c + "'";
+	}
+
+}
@@ -51,6 +51,11 @@ public class WikiTextParser {
 	 */
 	private static final Pattern LINK_PATTERN = Pattern.compile("\\[\\[(.+?)\\]\\]");
 
+	/**
+	 * The number of links found between two checks of the time budget.
+	 */
+	private static final int LINKS_PER_CHECK = 64;
+
 	/** 
 	 * The list of the allowed namespaces.
 	 */
@@ -88,22 +93,91 @@ public class WikiTextParser {
 	 * @return The information extracted from the given {@code text}.
 	 */
 	public WikiTextParserResult parse(String title, String text) {
-		text = stripReferences(text);
-		Infobox infobox = (new InfoboxParser(this.it)).parse(text);
-		Introduction intro = (new IntroductionParser()).parse(text); 
-		Set<Link> links = parseLinks(title, text, infobox, intro);
-		return  infobox == null ? new WikiTextParserResult(links, null) : new WikiTextParserResult(links, infobox.infoboxName()); 
+		return parse(title, text, 0);
+	}
+
+	/**
+	 * Parses the text of a Wikipedia page and extracts the links and associated metadata, within a time budget.
+	 * A few pathological pages (e.g., pages with thousands of references, or templates that are never closed) 
+	 * take much longer to parse than the others: if the budget runs out, the parsing is abandoned and the page is 
+	 * parsed again by {@link #parseFallback(String, String, long)}, within the same budget.
+	 * 
+	 * @param title The title of a Wikipedia page.
+	 * @param text The text of a Wikipedia page (the Wiki code).
+	 * @param budget The time (in nanoseconds) within which the page must be parsed, or {@code 0} for no limit.
+	 * @return The information extracted from the given {@code text}.
+	 */
+	public WikiTextParserResult parse(String title, String text, long budget) {
+		long deadline = budget > 0 ? System.nanoTime() + budget : 0;
+		try {
+			String stripped = stripReferences(text, deadline);
+			Infobox infobox = (new InfoboxParser(this.it)).parse(stripped, deadline);
+			Introduction intro = (new IntroductionParser()).parse(stripped); 
+			Set<Link> links = parseLinks(title, stripped, infobox, intro, deadline);
+			return  infobox == null ? new WikiTextParserResult(links, null) : new WikiTextParserResult(links, infobox.infoboxName());
+		} catch (BudgetExceededException e) {
+			return parseFallback(title, text, budget);
+		}
+	}
+
+	/**
+	 * Parses the text of a Wikipedia page with a simpler parser: the references are removed in a single pass 
+	 * over the text (see {@link #stripReferencesFallback(String)}), and neither the infobox nor the introduction are 
+	 * looked for, so the links are not marked as occurring in them. 
+	 * 
+	 * @param title The title of a Wikipedia page.
+	 * @param text The text of a Wikipedia page (the Wiki code).
+	 * @return The information extracted from the given {@code text}.
+	 */
+	public WikiTextParserResult parseFallback(String title, String text) {
+		return parseFallback(title, text, 0);
+	}
+
+	/**
+	 * Parses the text of a Wikipedia page with the simpler parser of {@link #parseFallback(String, String)}, within a 
+	 * time budget: the links are looked for until the budget runs out, and those found after are lost, 
+	 * so that no page holds a worker for much longer than the budget.
+	 * 
+	 * @param title The title of a Wikipedia page.
+	 * @param text The text of a Wikipedia page (the Wiki code).
+	 * @param budget The time (in nanoseconds) within which the links must be found, or {@code 0} for no limit.
+	 * @return The information extracted from the given {@code text}.
+	 */
+	public WikiTextParserResult parseFallback(String title, String text, long budget) {
+		long deadline = budget > 0 ? System.nanoTime() + budget : 0;
+		String stripped = stripReferencesFallback(text);
+		// the pattern of the links may scan a long line many times: the deadline is checked as the text is read.
+		Map<String, Link> links = new HashMap<String, Link>();
+		try {
+			findLinks(title, stripped, LINK_PATTERN.matcher(deadline == 0 ? stripped : new BoundedText(stripped, deadline)), 
+					null, null, deadline, links);
+		} catch (BudgetExceededException e) {
+			// the links found so far are kept.
+		}
+		return new WikiTextParserResult(new HashSet<Link>(links.values()), null, true);
+	}
+
+	/**
+	 * Checks that the time budget of the page being parsed has not run out.
+	 * @param deadline The value of {@link System#nanoTime()} at which the budget runs out, or {@code 0} for no limit.
+	 * @throws BudgetExceededException when the budget has run out.
+	 */
+	static void checkDeadline(long deadline) {
+		if ( deadline != 0 && System.nanoTime() - deadline > 0 )
+			throw BudgetExceededException.INSTANCE;
 	}
 	
 	/**
 	 * Strips the references from the given text.
 	 * References is text between <ref> ... </ref>.
 	 * @param text The text a Wikipedia page.
+	 * @param deadline The value of {@link System#nanoTime()} at which the time budget runs out, or {@code 0} for no limit.
 	 * @return The {@code text} stripped of the references.
 	 */
-	private String stripReferences(String text) {
+	private String stripReferences(String text, long deadline) {
 		int startPos = -1;
 		while( (startPos = text.indexOf("<ref")) >= 0 ) {
+			checkDeadline(deadline);
 			int ref = 1;
 			int endPos = startPos + "<ref".length();
 			while ( endPos < text.length() ) {
@@ -147,6 +221,65 @@ public class WikiTextParser {
 		return text;
 	}
 	
+	/**
+	 * Strips the references from the given text in a single pass, for the fallback parser.
+	 * A reference ends with the first {@code </ref>} after it or, if it is not closed before the next reference 
+	 * (broken markup), at the next reference or at the end of its line; nested references are not recognized.
+	 * The positions of the tags are looked for with {@link #next(String, String, int, int[])}, so that the text is 
+	 * scanned once whatever the number of references that are not closed.
+	 * @param text The text a Wikipedia page.
+	 * @return The {@code text} stripped of the references.
+	 */
+	static String stripReferencesFallback(String text) {
+		StringBuilder stripped = null;
+		int[] nextRef = new int[] { -2 };
+		int[] nextTagEnd = new int[] { -2 };
+		int[] nextClose = new int[] { -2 };
+		int[] nextLine = new int[] { -2 };
+		int position = 0;
+		int start;
+		while ( (start = next(text, "<ref", position, nextRef)) >= 0 ) {
+			if ( stripped == null )
+				stripped = new StringBuilder(text.length());
+			stripped.append(text, position, start);
+			int refAfter = next(text, "<ref", start + 1, nextRef);
+			int lineEnd = next(text, "\n", start, nextLine);
+			int limit = Math.min(refAfter < 0 ? text.length() : refAfter, lineEnd < 0 ? text.length() : lineEnd);
+			int tagEnd = next(text, ">", start, nextTagEnd);
+			if ( tagEnd < 0 || (refAfter >= 0 && tagEnd > refAfter) ) // the opening tag is not closed.
+				position = limit;
+			else if ( text.charAt(tagEnd - 1) == '/' ) // <ref ... />
+				position = tagEnd + 1;
+			else {
+				int close = next(text, "</ref>", tagEnd, nextClose);
+				if ( close >= 0 && (refAfter < 0 || close < refAfter) )
+					position = close + "</ref>".length();
+				else
+					position = Math.max(tagEnd + 1, limit);
+			}
+		}
+		if ( stripped == null )
+			return text;
+		return stripped.append(text, position, text.length()).toString();
+	}
+
+	/**
+	 * Returns the position of the next occurrence of a string in a text, from a given position.
+	 * The position found by the previous call is reused while it is after the given position, so that successive calls 
+	 * from positions that never decrease scan the text only once.
+	 * @param text The text.
+	 * @param string The string looked for.
+	 * @param from The position from which the string is looked for; never less than in the previous call.
+	 * @param found The position found by the previous call ({@code -1} if there was none, {@code -2} before the first call); 
+	 * updated by this method.
+	 * @return The position of the next occurrence of {@code string}, or {@code -1} if there is none.
+	 */
+	private static int next(String text, String string, int from, int[] found) {
+		if ( found[0] != -1 && found[0] < from )
+			found[0] = text.indexOf(string, from);
+		return found[0];
+	}
+
 	/**
 	 * Parses the wiki text of a Wikipedia page and extracts all links.
 	 * 
@@ -154,58 +287,75 @@ public class WikiTextParser {
 	 * @param text The text of a Wikipedia page.
 	 * @param infobox The infobox of a Wikipedia page.
 	 * @param intro THe introduction of a Wikipedia page.
+	 * @param deadline The value of {@link System#nanoTime()} at which the time budget runs out, or {@code 0} for no limit.
 	 * @return The set of links extracted from the given {@code text}. 
 	 */
-	private Set<Link> parseLinks(String sourceTitle, String text, Infobox infobox, Introduction intro) {
+	private Set<Link> parseLinks(String sourceTitle, String text, Infobox infobox, Introduction intro, long deadline) {
 		Map<String, Link> links = new HashMap<String, Link>();
-		if (text != null) {
-			Matcher matcher = LINK_PATTERN.matcher(text);
-			int linkCounter = 0;
-			while (matcher.find()) {
-				// We found a link. We have to check that the linked page is an article or belongs to a namespace that we want.
-				linkCounter += 1;
-				String targetTitle = matcher.group(1);
-				if ( targetTitle.length() == 1 )
-					targetTitle= targetTitle.toUpperCase();
-				else if (targetTitle.length() > 1)
-					targetTitle = targetTitle.substring(0, 1).toUpperCase() + targetTitle.substring(1); // Make the first character uppercase
-				if ( targetTitle.equals(sourceTitle) )
-					continue;
-				String[] anchor = checkAnchorText(targetTitle);
-				Namespace pageNamespace = ns.wikipediaPageNamespace(anchor[0]);
-				if (pageNamespace.id() == Namespace.MAIN || 
-						pageNamespace.id() == Namespace.CATEGORY) {
-					int offset = matcher.start();
-					
-					if ( links.containsKey(anchor[0]) ) {
-						Link existingLink = links.get(anchor[0]);
-						if ( anchor[1] != null )
-							existingLink.addAnchor(anchor[1]);
-						existingLink.addOccurrence();
-						if (infobox != null && offset >= infobox.startIndex() && offset <= infobox.endIndex())
-							existingLink.infobox(true);
-						if (intro != null && offset >= intro.startIndex() && offset <= intro.endIndex())
-							existingLink.intro(true);
-					}
-					else
-					{
-						Link newLink = null;
-						if ( this.dp.isDisambiguationPage(sourceTitle) && 
-								isDisambiguationLink(text, offset))
-							newLink = new DisambiguationLink(sourceTitle, anchor[0], offset, linkCounter, 
-									infobox != null && offset >= infobox.startIndex() && offset <= infobox.endIndex(), 
-									intro != null && offset >= intro.startIndex() && offset <= intro.endIndex());
-						else	
-						newLink = new RegularLink(sourceTitle, anchor[0], offset, linkCounter, 
-								infobox != null && offset >= infobox.startIndex() && offset <= infobox.endIndex(), intro != null && offset >= intro.startIndex() && offset <= intro.endIndex());
-						if ( anchor[1] != null )
-							newLink.addAnchor(anchor[1]);
-						links.put(anchor[0], newLink);
-					}
+		if (text != null)
+			findLinks(sourceTitle, text, LINK_PATTERN.matcher(text), infobox, intro, deadline, links);
+		return new HashSet<Link>(links.values());
+	}
+
+	/**
+	 * Finds the links in the wiki text of a Wikipedia page.
+	 * 
+	 * @param sourceTitle The title of the page from which the links are extracted. 
+	 * @param text The text of a Wikipedia page.
+	 * @param matcher The matcher of {@code LINK_PATTERN} over the text.
+	 * @param infobox The infobox of a Wikipedia page.
+	 * @param intro THe introduction of a Wikipedia page.
+	 * @param deadline The value of {@link System#nanoTime()} at which the time budget runs out, or {@code 0} for no limit.
+	 * @param links The links found, indexed by the titles of their targets; the links are added as they are found.
+	 */
+	private void findLinks(String sourceTitle, String text, Matcher matcher, Infobox infobox, Introduction intro, 
+			long deadline, Map<String, Link> links) {
+		int linkCounter = 0;
+		while (matcher.find()) {
+			// We found a link. We have to check that the linked page is an article or belongs to a namespace that we want.
+			linkCounter += 1;
+			if ( linkCounter % LINKS_PER_CHECK == 0 )
+				checkDeadline(deadline);
+			String targetTitle = matcher.group(1);
+			if ( targetTitle.length() == 1 )
+				targetTitle= targetTitle.toUpperCase();
+			else if (targetTitle.length() > 1)
+				targetTitle = targetTitle.substring(0, 1).toUpperCase() + targetTitle.substring(1); // Make the first character uppercase
+			if ( targetTitle.equals(sourceTitle) )
+				continue;
+			String[] anchor = checkAnchorText(targetTitle);
+			Namespace pageNamespace = ns.wikipediaPageNamespace(anchor[0]);
+			if (pageNamespace.id() == Namespace.MAIN || 
+					pageNamespace.id() == Namespace.CATEGORY) {
+				int offset = matcher.start();
+				
+				if ( links.containsKey(anchor[0]) ) {
+					Link existingLink = links.get(anchor[0]);
+					if ( anchor[1] != null )
+						existingLink.addAnchor(anchor[1]);
+					existingLink.addOccurrence();
+					if (infobox != null && offset >= infobox.startIndex() && offset <= infobox.endIndex())
+						existingLink.infobox(true);
+					if (intro != null && offset >= intro.startIndex() && offset <= intro.endIndex())
+						existingLink.intro(true);
+				}
+				else
+				{
+					Link newLink = null;
+					if ( this.dp.isDisambiguationPage(sourceTitle) && 
+							isDisambiguationLink(text, offset))
+						newLink = new DisambiguationLink(sourceTitle, anchor[0], offset, linkCounter, 
+								infobox != null && offset >= infobox.startIndex() && offset <= infobox.endIndex(), 
+								intro != null && offset >= intro.startIndex() && offset <= intro.endIndex());
+					else	
+					newLink = new RegularLink(sourceTitle, anchor[0], offset, linkCounter, 
+							infobox != null && offset >= infobox.startIndex() && offset <= infobox.endIndex(), intro != null && offset >= intro.startIndex() && offset <= intro.endIndex());
+					if ( anchor[1] != null )
+						newLink.addAnchor(anchor[1]);
+					links.put(anchor[0], newLink);
 				}
 			}
 		}
-		return new HashSet<Link>(links.values());
 	}
 	
 	/**
@@ -241,4 +391,89 @@ public class WikiTextParser {
 		return new String[]{link, null};
 	}
 
+	/**
+	 * The text of a page read by a regular expression, whose time budget is checked as the characters are read, 
+	 * so that a regular expression that scans the text many times cannot exceed the budget.
+	 */
+	private static final class BoundedText implements CharSequence {
+
+		/**
+		 * The number of characters read between two checks of the time budget (a power of two).
+		 */
+		private static final int CHARS_PER_CHECK = 4096;
+
+		/**
+		 * The text.
+		 */
+		private final String text;
+
+		/**
+		 * The value of {@link System#nanoTime()} at which the time budget runs out.
+		 */
+		private final long deadline;
+
+		/**
+		 * The number of characters read.
+		 */
+		private int reads;
+
+		/**
+		 * Creates a new text whose time budget is checked as it is read.
+		 * @param text The text.
+		 * @param deadline The value of {@link System#nanoTime()} at which the time budget runs out.
+		 */
+		BoundedText(String text, long deadline) {
+			this.text = text;
+			this.deadline = deadline;
+		}
+
+		@Override
+		public int length() {
+			return text.length();
+		}
+
+		@Override
+		public char charAt(int index) {
+			if ( (++reads & (CHARS_PER_CHECK - 1)) == 0 )
+				checkDeadline(deadline);
+			return text.charAt(index);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return text.subSequence(start, end);
+		}
+
+		@Override
+		public String toString() {
+			return text;
+		}
+
+	}
+
+	/**
+	 * Thrown when the time budget of the page being parsed has run out.
+	 * A single instance without stack trace is thrown, since it is caught by {@link WikiTextParser#parse(String, String, long)}.
+	 */
+	static final class BudgetExceededException extends RuntimeException {
+
+		/**
+		 * The serial version UID.
+		 */
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * The instance that is thrown.
+		 */
+		static final BudgetExceededException INSTANCE = new BudgetExceededException();
+
+		/**
+		 * Creates the instance that is thrown.
+		 */
+		private BudgetExceededException() {
+			super("The time budget of the page has run out", null, false, false);
+		}
+
+	}
+
 }
@@ -40,6 +40,11 @@ public class WikiTextParserResult {
 	 * The name of the infobox, if any, of the page parsed.
 	 */
 	private String infoboxName;
+
+	/**
+	 * Whether the page was parsed by the fallback parser.
+	 */
+	private boolean fallback;
 	
 	/**
 	 * Creates a new result.
@@ -55,8 +60,20 @@ public class WikiTextParserResult {
 	 * @param infoboxName The name of the infobox in the page parsed.
 	 */
 	public WikiTextParserResult(Set<Link> links, String infoboxName) {
+		this(links, infoboxName, false);
+	}
+
+	/**
+	 * Creates a new result.
+	 * @param links The set of links in the page parsed.
+	 * @param infoboxName The name of the infobox in the page parsed.
+	 * @param fallback Whether the page was parsed by the fallback parser 
+	 * (see {@link WikiTextParser#parseFallback(String, String)}).
+	 */
+	public WikiTextParserResult(Set<Link> links, String infoboxName, boolean fallback) {
 		this.links = links;
 		this.infoboxName = infoboxName;
+		this.fallback = fallback;
 	}
 	
 	/**
@@ -74,6 +91,14 @@ public class WikiTextParserResult {
 	public String infoboxName() {
 		return this.infoboxName;
 	}
+
+	/**
+	 * Returns whether the page was parsed by the fallback parser, because its time budget ran out.
+	 * @return {@code true} if the page was parsed by the fallback parser, {@code false} otherwise.
+	 */
+	public boolean fallback() {
+		return this.fallback;
+	}
 	
 
 }
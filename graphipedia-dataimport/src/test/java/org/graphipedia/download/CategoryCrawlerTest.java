@@ -0,0 +1,277 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import org.graphipedia.wikipedia.Namespace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the {@link CategoryCrawler} against a local stand-in of the MediaWiki API.
+ */
+public class CategoryCrawlerTest {
+
+	/**
+	 * The number of members returned per response, so that a category with more members is continued.
+	 */
+	private static final int PAGE_SIZE = 2;
+
+	/**
+	 * The directory where the responses are cached.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * The stand-in of the MediaWiki API.
+	 */
+	private HttpServer server;
+
+	/**
+	 * The members of each category of the stand-in, as pairs (namespace, title).
+	 */
+	private Map<String, List<String[]>> categories;
+
+	/**
+	 * The failures returned to the next requests, before the actual responses: an HTTP status or a MediaWiki error code.
+	 */
+	private List<String> failures;
+
+	/**
+	 * The number of requests received by the stand-in.
+	 */
+	private AtomicInteger requests;
+
+	/**
+	 * The number of requests received by the stand-in that continue a previous request.
+	 */
+	private AtomicInteger continuations;
+
+	/**
+	 * Starts the stand-in of the MediaWiki API, with a root category of five articles and a subcategory.
+	 * @throws IOException when the server cannot be started.
+	 */
+	@Before
+	public void startServer() throws IOException {
+		categories = new HashMap<String, List<String[]>>();
+		categories.put("Category:Root", Arrays.asList(article("A1"), article("A2"), category("Category:Sub"), 
+				article("A3"), article("A4"), article("A5")));
+		categories.put("Category:Sub", Arrays.asList(article("B1"), article("A1"), category("Category:Root")));
+		failures = new LinkedList<String>();
+		requests = new AtomicInteger();
+		continuations = new AtomicInteger();
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/w/api.php", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				requests.incrementAndGet();
+				String failure;
+				synchronized (failures) {
+					failure = failures.isEmpty() ? null : failures.remove(0);
+				}
+				if ( failure != null && failure.matches("\\d+") ) 
+					respond(exchange, Integer.parseInt(failure), "");
+				else if ( failure != null )
+					respond(exchange, 200, "<?xml version=\"1.0\"?><api><error code=\"" + failure + 
+							"\" info=\"Waiting for a database server\"/></api>");
+				else
+					respond(exchange, 200, members(query(exchange.getRequestURI().getRawQuery())));
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * Stops the stand-in of the MediaWiki API.
+	 */
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	/**
+	 * Tests that the members of a category are listed across the continued responses, and those of its subcategories.
+	 * @throws IOException when the crawler fails.
+	 */
+	@Test
+	public void continuesTheListing() throws IOException {
+		CategoryCrawler crawler = crawler(null, 0);
+		try {
+			assertEquals(Arrays.asList("A1", "A2", "A3", "A4", "A5", "B1"), crawler.members("Category:Root", Namespace.MAIN));
+		} finally {
+			crawler.shutdown();
+		}
+		assertEquals(5, requests.get()); // 3 responses for the root category, 2 for the subcategory.
+		assertEquals(3, continuations.get());
+	}
+
+	/**
+	 * Tests that the requests that fail with HTTP errors 429 and 5xx and with the MediaWiki error {@code maxlag} 
+	 * are retried with an exponential backoff.
+	 * @throws IOException when the crawler fails.
+	 */
+	@Test
+	public void retriesWithBackoff() throws IOException {
+		failures.addAll(Arrays.asList("429", "503", "maxlag"));
+		CategoryCrawler crawler = crawler(null, 0);
+		long start = System.currentTimeMillis();
+		try {
+			assertEquals(6, crawler.members("Category:Root", Namespace.MAIN).size());
+		} finally {
+			crawler.shutdown();
+		}
+		assertEquals(8, requests.get());
+		assertTrue(System.currentTimeMillis() - start >= 500 + 1000 + 2000);
+	}
+
+	/**
+	 * Tests that the cached responses are reused until they expire.
+	 * @throws IOException when the crawler fails.
+	 */
+	@Test
+	public void expiresTheCachedResponses() throws IOException {
+		File cacheDirectory = folder.newFolder("api-cache");
+		long ttl = 3600000;
+		CategoryCrawler crawler = crawler(cacheDirectory, ttl);
+		try {
+			crawler.members("Category:Root", Namespace.MAIN);
+			assertEquals(5, requests.get());
+			assertEquals(6, crawler.members("Category:Root", Namespace.MAIN).size());
+			assertEquals(5, requests.get());
+			File[] cached = cacheDirectory.listFiles();
+			assertEquals(5, cached.length);
+			cached[0].setLastModified(System.currentTimeMillis() - ttl - 1000);
+			assertEquals(6, crawler.members("Category:Root", Namespace.MAIN).size());
+			assertEquals(6, requests.get());
+		} finally {
+			crawler.shutdown();
+		}
+	}
+
+	/**
+	 * Creates a crawler of the stand-in of the MediaWiki API.
+	 * @param cacheDirectory The directory where the responses are cached, or {@code null}.
+	 * @param cacheTtl The time to live (in ms) of the cached responses.
+	 * @return The crawler.
+	 */
+	private CategoryCrawler crawler(File cacheDirectory, long cacheTtl) {
+		return new CategoryCrawler("http://localhost:" + server.getAddress().getPort() + "/w/api.php", 2, 1000, 
+				cacheDirectory, cacheTtl, Logger.getLogger(CategoryCrawlerTest.class.getName()));
+	}
+
+	/**
+	 * Returns the response listing a page of the members of a category.
+	 * @param query The parameters of the request.
+	 * @return The response.
+	 */
+	private String members(Map<String, String> query) {
+		List<String[]> members = categories.get(query.get("cmtitle"));
+		int from = 0;
+		if ( query.containsKey("cmcontinue") ) {
+			continuations.incrementAndGet();
+			from = Integer.parseInt(query.get("cmcontinue"));
+		}
+		int to = Math.min(members.size(), from + PAGE_SIZE);
+		StringBuilder response = new StringBuilder("<?xml version=\"1.0\"?><api batchcomplete=\"\">");
+		if ( to < members.size() )
+			response.append("<continue cmcontinue=\"").append(to).append("\" continue=\"-||\"/>");
+		response.append("<query><categorymembers>");
+		for ( String[] member : members.subList(from, to) )
+			response.append("<cm ns=\"").append(member[0]).append("\" title=\"").append(member[1]).append("\"/>");
+		return response.append("</categorymembers></query></api>").toString();
+	}
+
+	/**
+	 * Parses the parameters of a request.
+	 * @param rawQuery The query of the URL of the request.
+	 * @return The parameters of the request.
+	 * @throws UnsupportedEncodingException never.
+	 */
+	private static Map<String, String> query(String rawQuery) throws UnsupportedEncodingException {
+		Map<String, String> query = new HashMap<String, String>();
+		for ( String parameter : rawQuery.split("&") ) {
+			int equal = parameter.indexOf('=');
+			query.put(parameter.substring(0, equal), URLDecoder.decode(parameter.substring(equal + 1), "UTF-8"));
+		}
+		return query;
+	}
+
+	/**
+	 * Sends a response.
+	 * @param exchange The exchange with the client.
+	 * @param status The HTTP status.
+	 * @param body The body of the response.
+	 * @throws IOException when the response cannot be sent.
+	 */
+	private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+		byte[] bytes = body.getBytes("UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(bytes);
+		out.close();
+	}
+
+	/**
+	 * Returns a member of a category that is an article.
+	 * @param title The title of the article.
+	 * @return The member.
+	 */
+	private static String[] article(String title) {
+		return new String[] { Integer.toString(Namespace.MAIN), title };
+	}
+
+	/**
+	 * Returns a member of a category that is a subcategory.
+	 * @param title The title of the subcategory (with the prefix of the namespace).
+	 * @return The member.
+	 */
+	private static String[] category(String title) {
+		return new String[] { Integer.toString(Namespace.CATEGORY), title };
+	}
+
+}
@@ -0,0 +1,343 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.download;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import org.graphipedia.GraphipediaSettings;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests the {@link SegmentedDownloader} and the verification of the checksums published by a {@link DumpSource}, 
+ * against a local HTTP server.
+ */
+public class SegmentedDownloaderTest {
+
+	/**
+	 * The size (in bytes) of the segments of the downloads.
+	 */
+	private static final int SEGMENT_SIZE = 64 * 1024;
+
+	/**
+	 * The path of the file downloaded by most tests.
+	 */
+	private static final String FILE_PATH = "/file.bin";
+
+	/**
+	 * The directory where the files are downloaded.
+	 */
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * The local HTTP server.
+	 */
+	private HttpServer server;
+
+	/**
+	 * The files served, indexed by their paths.
+	 */
+	private Map<String, byte[]> files;
+
+	/**
+	 * The byte ranges requested, as the values of the {@code Range} headers.
+	 */
+	private List<String> ranges;
+
+	/**
+	 * Whether the server answers the byte range requests with the requested bytes, or with the whole file.
+	 */
+	private volatile boolean honorRanges;
+
+	/**
+	 * The first byte of the range whose response is cut in the middle, after which every request fails; 
+	 * {@code -1} if no response is cut.
+	 */
+	private volatile long cutAt;
+
+	/**
+	 * Whether the server answers every request with an error, after a response is cut.
+	 */
+	private volatile boolean broken;
+
+	/**
+	 * Starts the local HTTP server, which serves a file of a few segments.
+	 * @throws IOException when the server cannot be started.
+	 */
+	@Before
+	public void startServer() throws IOException {
+		files = new HashMap<String, byte[]>();
+		files.put(FILE_PATH, content(5 * SEGMENT_SIZE + 100, 42));
+		ranges = new ArrayList<String>();
+		honorRanges = true;
+		cutAt = -1;
+		broken = false;
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				serve(exchange);
+			}
+		});
+		server.start();
+	}
+
+	/**
+	 * Stops the local HTTP server.
+	 */
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	/**
+	 * Tests that a file is downloaded in segments, with byte range requests, and verified against its checksum.
+	 * @throws Exception when the download fails.
+	 */
+	@Test
+	public void downloadsInSegments() throws Exception {
+		File target = folder.newFile("file.bin");
+		downloader(3).download(url(FILE_PATH), target, sha1(files.get(FILE_PATH)), "Downloading");
+		assertArrayEquals(files.get(FILE_PATH), Files.readAllBytes(target.toPath()));
+		assertEquals(6, ranges.size());
+		assertFalse(stateFile(target).exists());
+	}
+
+	/**
+	 * Tests that a file is downloaded with a single connection when the server answers the byte range requests 
+	 * with the whole file.
+	 * @throws Exception when the download fails.
+	 */
+	@Test
+	public void fallsBackWhenRangesAreIgnored() throws Exception {
+		honorRanges = false;
+		File target = folder.newFile("file.bin");
+		downloader(3).download(url(FILE_PATH), target, sha1(files.get(FILE_PATH)), "Downloading");
+		assertArrayEquals(files.get(FILE_PATH), Files.readAllBytes(target.toPath()));
+		assertFalse(stateFile(target).exists());
+	}
+
+	/**
+	 * Tests that a download interrupted in the middle of a segment resumes from the state file, 
+	 * without downloading again the bytes already written.
+	 * @throws Exception when the download fails.
+	 */
+	@Test
+	public void resumesFromTheStateFile() throws Exception {
+		File target = folder.newFile("file.bin");
+		String sha1 = sha1(files.get(FILE_PATH));
+		cutAt = 2 * SEGMENT_SIZE;
+		try {
+			downloader(1).download(url(FILE_PATH), target, sha1, "Downloading");
+			fail("The download should fail once the server is broken");
+		} catch (IOException e) {
+			// expected.
+		}
+		assertTrue(stateFile(target).isFile());
+		synchronized (ranges) {
+			ranges.clear();
+		}
+		cutAt = -1;
+		broken = false;
+		downloader(1).download(url(FILE_PATH), target, sha1, "Downloading");
+		assertArrayEquals(files.get(FILE_PATH), Files.readAllBytes(target.toPath()));
+		assertEquals("bytes=" + (2 * SEGMENT_SIZE + SEGMENT_SIZE / 2) + "-" + (3 * SEGMENT_SIZE - 1), ranges.get(0));
+		assertEquals(4, ranges.size()); // the rest of the cut segment and the 3 segments after it.
+		assertFalse(stateFile(target).exists());
+	}
+
+	/**
+	 * Tests that a file that does not match the checksum published in the checksum file of a dump is rejected, 
+	 * and that a file that matches it is accepted.
+	 * @throws Exception when the dump cannot be read, or the download of the file that matches its checksum fails.
+	 */
+	@Test
+	public void rejectsChecksumMismatch() throws Exception {
+		String directory = "/dumps/enwiki/20160901/";
+		String prefix = "enwiki-20160901-";
+		String[] suffixes = new String[] { GraphipediaSettings.WIKIPEDIA_XML_FILE, 
+				GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE, GraphipediaSettings.WIKIPEDIA_GEOTAGS_FILE };
+		StringBuilder sha1sums = new StringBuilder();
+		for ( int i = 0; i < suffixes.length; i += 1 ) {
+			byte[] content = content(SEGMENT_SIZE + i, i);
+			files.put(directory + prefix + suffixes[i], content);
+			// the checksum of the XML file is that of another content.
+			String sha1 = i == 0 ? sha1(content(SEGMENT_SIZE, 99)) : sha1(content);
+			sha1sums.append(sha1).append("  ").append(prefix).append(suffixes[i]).append('\n');
+		}
+		files.put(directory + prefix + DumpSource.SHA1_FILE, sha1sums.toString().getBytes("UTF-8"));
+		files.put("/dumps/enwiki/", "<a href=\"20160901/\">20160901/</a>".getBytes("UTF-8"));
+		WikipediaDump dump = new HttpDumpSource(url("/dumps/").toString())
+				.lastCompleteDump(new WikipediaEdition("English", "English", "en"));
+		assertEquals("20160901", dump.date());
+
+		File xmlFile = folder.newFile(GraphipediaSettings.WIKIPEDIA_XML_FILE);
+		try {
+			downloader(2).download(new URL(dump.xmlDumpFile().url()), xmlFile, dump.xmlDumpFile().sha1(), "Downloading");
+			fail("The XML file should not match its checksum");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().startsWith("Checksum mismatch"));
+		}
+		assertFalse(xmlFile.exists());
+		assertFalse(stateFile(xmlFile).exists());
+
+		File crosslinksFile = folder.newFile(GraphipediaSettings.WIKIPEDIA_CROSSLINKS_FILE);
+		downloader(2).download(new URL(dump.crosslinkDumpFile().url()), crosslinksFile, 
+				dump.crosslinkDumpFile().sha1(), "Downloading");
+		assertArrayEquals(files.get(directory + prefix + suffixes[1]), Files.readAllBytes(crosslinksFile.toPath()));
+	}
+
+	/**
+	 * Answers a request to the local HTTP server.
+	 * @param exchange The exchange with the client.
+	 * @throws IOException when the response cannot be sent.
+	 */
+	private void serve(HttpExchange exchange) throws IOException {
+		byte[] content = files.get(exchange.getRequestURI().getPath());
+		if ( content == null ) {
+			exchange.sendResponseHeaders(404, -1);
+			exchange.close();
+			return;
+		}
+		exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+		exchange.getResponseHeaders().set("ETag", "\"v1\"");
+		if ( exchange.getRequestMethod().equals("HEAD") ) {
+			exchange.getResponseHeaders().set("Content-Length", Integer.toString(content.length));
+			exchange.sendResponseHeaders(200, -1);
+			exchange.close();
+			return;
+		}
+		if ( broken ) {
+			exchange.sendResponseHeaders(503, -1);
+			exchange.close();
+			return;
+		}
+		String range = exchange.getRequestHeaders().getFirst("Range");
+		int start = 0;
+		int end = content.length;
+		if ( range != null ) {
+			synchronized (ranges) {
+				ranges.add(range);
+			}
+			if ( honorRanges ) {
+				String[] bounds = range.substring("bytes=".length()).split("-");
+				start = Integer.parseInt(bounds[0]);
+				end = Integer.parseInt(bounds[1]) + 1;
+				exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + (end - 1) + "/" + content.length);
+			}
+		}
+		if ( start == cutAt ) {
+			// the response ends in the middle of the segment (it is chunked, so the client does not wait for 
+			// the rest until the timeout), and the server is broken from now on.
+			broken = true;
+			end = start + (end - start) / 2;
+			exchange.sendResponseHeaders(206, 0);
+		}
+		else
+			exchange.sendResponseHeaders(range != null && honorRanges ? 206 : 200, end - start);
+		OutputStream out = exchange.getResponseBody();
+		out.write(content, start, end - start);
+		out.close();
+	}
+
+	/**
+	 * Creates a downloader with small segments and a short backoff.
+	 * @param connections The number of concurrent connections.
+	 * @return The downloader.
+	 */
+	private static SegmentedDownloader downloader(int connections) {
+		return new SegmentedDownloader(connections, SEGMENT_SIZE, 1, Logger.getLogger(SegmentedDownloaderTest.class.getName()));
+	}
+
+	/**
+	 * Returns the URL of a file of the local HTTP server.
+	 * @param path The path of the file.
+	 * @return The URL of the file.
+	 * @throws IOException never.
+	 */
+	private URL url(String path) throws IOException {
+		return new URL("http://localhost:" + server.getAddress().getPort() + path);
+	}
+
+	/**
+	 * Returns the state file of a download.
+	 * @param target The file where the downloaded file is written.
+	 * @return The state file.
+	 */
+	private static File stateFile(File target) {
+		return new File(target.getPath() + SegmentedDownloader.STATE_FILE_SUFFIX);
+	}
+
+	/**
+	 * Generates the content of a file.
+	 * @param length The length of the content.
+	 * @param seed The seed of the content.
+	 * @return The content.
+	 */
+	private static byte[] content(int length, long seed) {
+		byte[] content = new byte[length];
+		new Random(seed).nextBytes(content);
+		return content;
+	}
+
+	/**
+	 * Computes the SHA-1 checksum of a content.
+	 * @param content The content.
+	 * @return The SHA-1 checksum of the content (hexadecimal).
+	 * @throws NoSuchAlgorithmException never.
+	 */
+	private static String sha1(byte[] content) throws NoSuchAlgorithmException {
+		StringBuilder hex = new StringBuilder();
+		for ( byte b : MessageDigest.getInstance("SHA-1").digest(content) )
+			hex.append(String.format("%02x", b));
+		return hex.toString();
+	}
+
+}
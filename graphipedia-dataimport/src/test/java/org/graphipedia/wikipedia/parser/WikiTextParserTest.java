@@ -0,0 +1,99 @@
+//
+// Copyright (c) 2016 Gianluca Quercini
+//
+// Permission is hereby granted, free of charge, to any person obtaining a
+// copy of this software and associated documentation files (the "Software"),
+// to deal in the Software without restriction, including without limitation
+// the rights to use, copy, modify, merge, publish, distribute, sublicense,
+// and/or sell copies of the Software, and to permit persons to whom the
+// Software is furnished to do so, subject to the following conditions:
+//
+// The above copyright notice and this permission notice shall be included
+// in all copies or substantial portions of the Software.
+//
+// THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+// IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+// FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+// THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+// OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+// ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+// OTHER DEALINGS IN THE SOFTWARE.
+//
+package org.graphipedia.wikipedia.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.graphipedia.wikipedia.DisambiguationPages;
+import org.graphipedia.wikipedia.InfoboxTemplates;
+import org.graphipedia.wikipedia.Link;
+import org.graphipedia.wikipedia.Namespace;
+import org.graphipedia.wikipedia.Namespaces;
+import org.junit.Test;
+
+/**
+ * Tests the fallback parser of {@link WikiTextParser}, used for the pages that exceed their time budget.
+ */
+public class WikiTextParserTest {
+
+	/**
+	 * Tests that the closed references and the self-closing tags are stripped.
+	 */
+	@Test
+	public void stripsClosedReferences() {
+		assertEquals("abcfg", WikiTextParser.stripReferencesFallback(
+				"a<ref name=\"x\">cite [[X]]</ref>b<ref name=y/>c<ref>d\ne</ref>f<references />g"));
+	}
+
+	/**
+	 * Tests that a reference that is not closed is stripped up to the end of its line or to the next reference.
+	 */
+	@Test
+	public void stripsUnterminatedReferences() {
+		assertEquals("a\nbdf", WikiTextParser.stripReferencesFallback("a<ref name=x>broken\nb<ref>c</ref>d<ref>e<ref/>f"));
+		assertEquals("a", WikiTextParser.stripReferencesFallback("a<ref name=x"));
+	}
+
+	/**
+	 * Tests that the references are stripped in linear time when many of them are not closed.
+	 */
+	@Test(timeout = 5000)
+	public void stripsUnterminatedReferencesInLinearTime() {
+		StringBuilder text = new StringBuilder();
+		for ( int i = 0; i < 20000; i += 1 )
+			text.append("Text [[Link").append(i).append("]] <ref name=x").append(i).append(">broken cite\n");
+		String stripped = WikiTextParser.stripReferencesFallback(text.toString());
+		assertEquals(20000, stripped.split("\n").length);
+		assertTrue(stripped.indexOf("<ref") < 0);
+	}
+
+	/**
+	 * Tests that the fallback parser keeps the links found before its time budget runs out, 
+	 * on a line that the pattern of the links scans many times.
+	 */
+	@Test(timeout = 5000)
+	public void boundsTheFallbackParser() {
+		StringBuilder text = new StringBuilder("[[Good]] ");
+		for ( int i = 0; i < 200000; i += 1 )
+			text.append("[[x ");
+		WikiTextParserResult result = parser().parseFallback("Title", text.toString(), TimeUnit.MILLISECONDS.toNanos(50));
+		assertTrue(result.fallback());
+		assertEquals(1, result.links().size());
+		for ( Link link : result.links() )
+			assertEquals("Good", link.targetTitle());
+	}
+
+	/**
+	 * Creates a parser of the articles and the categories.
+	 * @return The parser.
+	 */
+	private static WikiTextParser parser() {
+		Namespaces ns = new Namespaces();
+		ns.add(new Namespace(Namespace.MAIN, ""));
+		ns.add(new Namespace(Namespace.CATEGORY, "Category"));
+		return new WikiTextParser(ns, new InfoboxTemplates(null), new DisambiguationPages(null));
+	}
+
+}